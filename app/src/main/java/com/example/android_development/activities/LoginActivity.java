@@ -11,7 +11,7 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.UserDAO;
 import com.example.android_development.model.User;
 import com.example.android_development.util.Constants;
@@ -54,9 +54,7 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void initDatabase() {
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        userDAO = new UserDAO(dbHelper);
-        userDAO.open();
+        userDAO = AppDatabase.getInstance(this).getUserDAO();
 
         prefsManager = new PrefsManager(this);
 
@@ -71,7 +69,7 @@ public class LoginActivity extends AppCompatActivity {
     private void debugPrintAllUsers() {
         try {
             // 直接查询数据库
-            SQLiteDatabase db = new DatabaseHelper(this).getReadableDatabase();
+            SQLiteDatabase db = AppDatabase.getInstance(this).getDatabase();
             Cursor cursor = db.query(
                     Constants.TABLE_USERS,
                     null, // 所有列
@@ -100,7 +98,6 @@ public class LoginActivity extends AppCompatActivity {
             }
 
             cursor.close();
-            db.close();
         } catch (Exception e) {
             android.util.Log.e("DEBUG", "查询数据库错误: " + e.getMessage());
         }
@@ -109,7 +106,7 @@ public class LoginActivity extends AppCompatActivity {
     //debug打印所有商品
     private void debugPrintAllProducts() {
         try {
-            SQLiteDatabase db = new DatabaseHelper(this).getReadableDatabase();
+            SQLiteDatabase db = AppDatabase.getInstance(this).getDatabase();
 
             Cursor cursor = db.query(
                     Constants.TABLE_PRODUCTS,
@@ -139,7 +136,6 @@ public class LoginActivity extends AppCompatActivity {
             }
 
             cursor.close();
-            db.close();
         } catch (Exception e) {
             android.util.Log.e("DEBUG", "查询商品表错误: " + e.getMessage());
         }
@@ -230,13 +226,5 @@ public class LoginActivity extends AppCompatActivity {
         finish(); // 关闭登录页面，防止用户按返回键回到登录页
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        // 关闭数据库连接
-        if (userDAO != null) {
-            userDAO.close();
-        }
-    }
 
 }
@@ -8,11 +8,17 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
-import com.example.android_development.database.DatabaseHelper;
+import androidx.appcompat.app.AlertDialog;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.DaoExecutor;
+import com.example.android_development.database.DatabaseBackup;
 import com.example.android_development.database.UserDAO;
 import com.example.android_development.model.User;
 import com.example.android_development.util.PrefsManager;
 import com.example.android_development.util.Constants;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -136,6 +142,95 @@ public class MainActivity extends AppCompatActivity {
                     buttonReceipts.setVisibility(View.GONE);
                 }
             }
+
+            // 数据备份入口 - 仅管理员
+            Button buttonBackup = findViewById(R.id.buttonBackup);
+            if (buttonBackup != null) {
+                if (Constants.ROLE_ADMIN.equals(role)) {
+                    buttonBackup.setVisibility(View.VISIBLE);
+                    buttonBackup.setOnClickListener(v -> showBackupDialog());
+                } else {
+                    buttonBackup.setVisibility(View.GONE);
+                }
+            }
+    }
+
+    // 快照列表：点击某一项从该快照恢复，“立即备份”生成新快照
+    private void showBackupDialog() {
+        DatabaseBackup backup = new DatabaseBackup(this);
+        DaoExecutor executor = AppDatabase.getInstance(this).getExecutor();
+        executor.read(this, backup::listSnapshots, snapshots -> {
+            String[] labels = new String[snapshots.size()];
+            SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+            for (int i = 0; i < labels.length; i++) {
+                DatabaseBackup.Snapshot s = snapshots.get(i);
+                labels[i] = fmt.format(new Date(s.createdAt)) + "  v" + s.schemaVersion + "  " +
+                        String.format(Locale.US, "%.1f MB", s.getSizeBytes() / 1048576.0);
+            }
+            AlertDialog.Builder b = new AlertDialog.Builder(this).setTitle(getString(R.string.backup_title));
+            if (labels.length == 0) {
+                b.setMessage(getString(R.string.backup_empty));
+            } else {
+                b.setItems(labels, (d, which) -> confirmRestore(snapshots.get(which), labels[which]));
+            }
+            b.setPositiveButton(getString(R.string.backup_now), (d, w) -> runBackupTask(() -> {
+                DatabaseBackup.Stats stats = backup.backupNow();
+                backup.prune(System.currentTimeMillis());
+                return stats;
+            }, stats -> Toast.makeText(this, getString(R.string.backup_done, stats.file.getName(),
+                    stats.databaseBytes / 1048576.0, stats.compressedBytes / 1048576.0, stats.getTotalMs()), Toast.LENGTH_LONG).show(),
+                    error -> Toast.makeText(this, getString(R.string.backup_failed, error.getMessage()), Toast.LENGTH_LONG).show()));
+            b.setNegativeButton(getString(R.string.btn_cancel), null);
+            b.show();
+        });
+    }
+
+    private void confirmRestore(DatabaseBackup.Snapshot snapshot, String label) {
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.backup_title))
+                .setMessage(getString(R.string.backup_restore_confirm, label))
+                .setPositiveButton(getString(R.string.backup_restore), (d, w) -> {
+                    DatabaseBackup backup = new DatabaseBackup(this);
+                    android.content.Context app = getApplicationContext();
+                    runBackupTask(() -> {
+                        backup.scheduleRestore(snapshot.file);
+                        // 退出前等待已提交的写入、写出审计队列并关闭数据库，再重启进程，启动时替换数据库文件；
+                        // 不依赖页面是否还在
+                        AppDatabase.shutdown();
+                        Intent restart = new Intent(app, SplashActivity.class);
+                        restart.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                        app.startActivity(restart);
+                        Runtime.getRuntime().exit(0);
+                        return true;
+                    }, ok -> {}, error -> Toast.makeText(this, getString(R.string.backup_restore_failed, error.getMessage()), Toast.LENGTH_LONG).show());
+                })
+                .setNegativeButton(getString(R.string.btn_cancel), null)
+                .show();
+    }
+
+    // 备份/恢复涉及整库读写与压缩，耗时较长：在独立后台线程执行（与 BackupJobService 一致），不占用 DaoExecutor 的写线程，
+    // 收银等写操作不会排在它后面；结果回到主线程，页面已关闭时丢弃
+    private <T> void runBackupTask(java.util.concurrent.Callable<T> work, java.util.function.Consumer<T> onResult,
+                                   java.util.function.Consumer<Throwable> onError) {
+        Thread t = new Thread(() -> {
+            T result = null;
+            Throwable error = null;
+            try {
+                result = work.call();
+            } catch (Throwable e) {
+                e.printStackTrace();
+                error = e;
+            }
+            T r = result;
+            Throwable err = error;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                if (err != null) onError.accept(err);
+                else onResult.accept(r);
+            });
+        }, "db-backup");
+        t.setDaemon(true);
+        t.start();
     }
 
     private void initData() {
@@ -151,9 +246,7 @@ public class MainActivity extends AppCompatActivity {
         // 获取当前用户信息
         String userId = prefsManager.getUserId();
 
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        userDAO = new UserDAO(dbHelper);
-        userDAO.open();
+        userDAO = AppDatabase.getInstance(this).getUserDAO();
 
         currentUser = userDAO.getUserById(userId);
 
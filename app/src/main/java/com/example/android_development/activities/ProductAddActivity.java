@@ -10,6 +10,7 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.model.Product;
 
@@ -55,7 +56,7 @@ public class ProductAddActivity extends AppCompatActivity {
 
         // 检查是否为编辑模式
         editingProductId = getIntent().getStringExtra("product_id");
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AppDatabase.getInstance(this).getHelper();
         if (editingProductId != null) {
             editMode = true;
             btnAdd.setText(getString(R.string.btn_save_edit));
@@ -194,8 +195,7 @@ public class ProductAddActivity extends AppCompatActivity {
                 Toast.makeText(this, getString(R.string.product_update_failed), Toast.LENGTH_SHORT).show();
             }
         } else {
-            DatabaseHelper db = new DatabaseHelper(this);
-            long res = db.addProductAsUser(userId, p);
+            long res = dbHelper.addProductAsUser(userId, p);
             if (res == -1) {
                 Toast.makeText(this, getString(R.string.no_permission_add_user), Toast.LENGTH_SHORT).show();
             } else {
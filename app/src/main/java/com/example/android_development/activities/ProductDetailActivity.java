@@ -15,7 +15,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.bumptech.glide.Glide;
 import com.example.android_development.R;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.ProductDAO;
 import com.example.android_development.model.Product;
 import com.example.android_development.util.Constants;
@@ -115,8 +115,7 @@ public class ProductDetailActivity extends AppCompatActivity {
     }
 
     private void initDatabase() {
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        productDAO = new ProductDAO(dbHelper.getWritableDatabase());
+        productDAO = AppDatabase.getInstance(this).getProductDAO();
     }
 
     private void setupClickListeners() {
@@ -1,6 +1,8 @@
 package com.example.android_development.activities;
 
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import com.google.android.material.snackbar.Snackbar;
@@ -11,13 +13,21 @@ import com.example.android_development.adapters.ProductAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.DaoExecutor;
 import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.ProductCsvImporter;
 import com.example.android_development.database.ProductDAO;
 import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
+import com.example.android_development.model.ProductSummaryPage;
 import com.example.android_development.util.Constants;
 import com.example.android_development.util.PrefsManager;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -35,15 +45,20 @@ public class ProductListActivity extends AppCompatActivity {
     private Button buttonClearSearch;
     private ImageButton buttonBack;
     private ProductDAO productDAO;
-    private List<Product> productList;
+    private List<ProductSummary> productList;
     private ProductAdapter simpleAdapter;
     private List<Map<String, String>> adapterData;
     private Button btnLoadMore;
     private static final int PAGE_SIZE = 20;
-    private int currentOffset = 0;
+    // 键集分页：下一页起点（null 表示没有更多）与当前搜索关键字（null 表示全部商品）
+    private String nextPageToken;
+    private String currentKeyword;
     private boolean loadingMore = false;
     private PrefsManager prefsManager;
     private String currentUserRole;
+    // 管理员长按添加按钮：选择 CSV 文件批量导入
+    private final ActivityResultLauncher<String[]> importPicker =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importProducts);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,7 +73,7 @@ public class ProductListActivity extends AppCompatActivity {
         if (currentUserRole == null || currentUserRole.isEmpty()) {
             String uid = prefsManager.getUserId();
             if (uid != null && !uid.isEmpty()) {
-                DatabaseHelper dh = new DatabaseHelper(this);
+                DatabaseHelper dh = AppDatabase.getInstance(this).getHelper();
                 com.example.android_development.model.User u = dh.getUserByIdObject(uid);
                 if (u != null) currentUserRole = u.getRole();
             }
@@ -106,8 +121,7 @@ public class ProductListActivity extends AppCompatActivity {
     }
 
     private void initDatabase() {
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        productDAO = new ProductDAO(dbHelper.getWritableDatabase());
+        productDAO = AppDatabase.getInstance(this).getProductDAO();
     }
 
     private void setupClickListeners() {
@@ -139,6 +153,12 @@ public class ProductListActivity extends AppCompatActivity {
             }
         });
 
+        buttonAddProduct.setOnLongClickListener(v -> {
+            if (!Constants.ROLE_ADMIN.equals(currentUserRole)) return false;
+            importPicker.launch(new String[]{"text/csv", "text/comma-separated-values", "text/plain"});
+            return true;
+        });
+
         buttonStockHistory.setOnClickListener(v -> {
             Intent intent = new Intent(ProductListActivity.this, StockHistoryActivity.class);
             // 不传 product_id 表示全局历史
@@ -148,7 +168,63 @@ public class ProductListActivity extends AppCompatActivity {
         // 列表项点击 / 长按通过适配器回调处理（在 loadProducts 中绑定）
     }
 
-    private void showDeleteConfirmation(Product product) {
+    private void importProducts(Uri uri) {
+        if (uri == null) return;
+        TextView progressView = new TextView(this);
+        int pad = (int) (20 * getResources().getDisplayMetrics().density);
+        progressView.setPadding(pad, pad, pad, pad);
+        androidx.appcompat.app.AlertDialog progressDialog = new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle(getString(R.string.import_products_title))
+                .setView(progressView)
+                .setCancelable(false)
+                .show();
+
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        appDb.getExecutor().write(this, () -> {
+            long size = 0;
+            try (AssetFileDescriptor fd = getContentResolver().openAssetFileDescriptor(uri, "r")) {
+                if (fd != null) size = Math.max(0, fd.getLength());
+            } catch (Exception ignored) {}
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) return null;
+                return new ProductCsvImporter(appDb.getDatabase(), getApplicationContext()).importCsv(in, size, (r, read, total) -> {
+                    int percent = total > 0 ? (int) Math.min(100, read * 100 / total) : 0;
+                    String msg = getString(R.string.import_products_progress, r.getRowsRead(), percent,
+                            r.getInserted(), r.getUpdated(), r.getRejectedCount(), r.getRowsPerSecond());
+                    runOnUiThread(() -> progressView.setText(msg));
+                });
+            }
+        }, new DaoExecutor.Callback<ProductCsvImporter.Result>() {
+            @Override
+            public void onResult(ProductCsvImporter.Result r) {
+                progressDialog.dismiss();
+                if (r == null) {
+                    Toast.makeText(ProductListActivity.this, getString(R.string.import_products_failed), Toast.LENGTH_LONG).show();
+                    return;
+                }
+                StringBuilder msg = new StringBuilder(getString(R.string.import_products_done, r.getInserted(), r.getUpdated(),
+                        r.getRejectedCount(), r.getRowsRead(), r.getElapsedMs() / 1000.0, r.getRowsPerSecond()));
+                for (ProductCsvImporter.RejectedRow row : r.getRejected()) {
+                    msg.append('\n').append(getString(R.string.import_products_rejected_line, row.line, row.reason));
+                }
+                new androidx.appcompat.app.AlertDialog.Builder(ProductListActivity.this)
+                        .setTitle(getString(R.string.import_products_title))
+                        .setMessage(msg.toString())
+                        .setPositiveButton(getString(R.string.completed), null)
+                        .show();
+                loadProducts();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                error.printStackTrace();
+                progressDialog.dismiss();
+                Toast.makeText(ProductListActivity.this, getString(R.string.import_products_title) + ": " + error.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private void showDeleteConfirmation(ProductSummary product) {
         new androidx.appcompat.app.AlertDialog.Builder(this)
                 .setTitle(getString(R.string.confirm_delete))
                 .setMessage(getString(R.string.confirm_delete_msg, product.getName()))
@@ -159,13 +235,18 @@ public class ProductListActivity extends AppCompatActivity {
                 .show();
     }
 
-    private void deleteProduct(Product product) {
+    private void deleteProduct(ProductSummary product) {
         // 使用 DatabaseHelper 的基于 userId 的权限校验删除, 并提供撤销
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
+        DatabaseHelper dbHelper = AppDatabase.getInstance(this).getHelper();
         String userId = prefsManager.getUserId();
 
-        // 先拷贝被删除的商品以便撤销使用
-        final Product deletedProduct = product;
+        // 列表行只有精简字段，撤销需要完整商品：删除前按 id 加载一份
+        final Product deletedProduct = productDAO.getProductById(product.getId());
+        if (deletedProduct == null) {
+            Toast.makeText(this, getString(R.string.deleted_failed), Toast.LENGTH_SHORT).show();
+            loadProducts();
+            return;
+        }
 
         int result = dbHelper.deleteProductAsUser(userId, product.getId());
 
@@ -192,14 +273,16 @@ public class ProductListActivity extends AppCompatActivity {
     }
 
     private void loadProducts() {
-        // 分页加载：重置偏移并加载第一页
-        currentOffset = 0;
+        // 分页加载：从头加载第一页
+        currentKeyword = null;
         adapterData = new ArrayList<>();
 
         // 控制加载更多按钮
         btnLoadMore.setVisibility(View.GONE);
 
-        productList = productDAO.getProductsPage(PAGE_SIZE, currentOffset);
+        ProductSummaryPage page = productDAO.getProductSummaryPageAfter(null, null, false, null, PAGE_SIZE);
+        productList = page.getItems();
+        nextPageToken = page.getNextToken();
 
         if (productList == null || productList.isEmpty()) {
             // 显示空状态提示
@@ -216,7 +299,7 @@ public class ProductListActivity extends AppCompatActivity {
             textViewEmpty.setVisibility(View.GONE);
             // 填充数据并设置适配器
             adapterData.clear();
-            for (Product product : productList) {
+            for (ProductSummary product : productList) {
                 Map<String, String> map = new HashMap<>();
                 map.put("name", product.getName());
                 map.put("price", String.format("￥%.2f", product.getPrice()));
@@ -227,17 +310,17 @@ public class ProductListActivity extends AppCompatActivity {
 
             // 使用类型化适配器（根据角色控制操作按钮显示）
             boolean canModify = Constants.ROLE_ADMIN.equals(currentUserRole) || Constants.ROLE_STOCK.equals(currentUserRole);
-            simpleAdapter = new ProductAdapter(this, productList, canModify);
+            simpleAdapter = new ProductAdapter(this, new ArrayList<>(productList), canModify);
             simpleAdapter.setOnItemClickListener(new ProductAdapter.OnItemClickListener() {
                 @Override
-                public void onItemClick(int position, Product product) {
+                public void onItemClick(int position, ProductSummary product) {
                     Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                     intent.putExtra("product_id", product.getId());
                     startActivity(intent);
                 }
 
                 @Override
-                public boolean onItemLongClick(int position, Product product) {
+                public boolean onItemLongClick(int position, ProductSummary product) {
                     if (Constants.ROLE_ADMIN.equals(currentUserRole)) {
                         showDeleteConfirmation(product);
                         return true;
@@ -248,14 +331,14 @@ public class ProductListActivity extends AppCompatActivity {
                 }
                 
                 @Override
-                public void onActionEdit(int position, Product product) {
+                public void onActionEdit(int position, ProductSummary product) {
                     Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                     intent.putExtra("product_id", product.getId());
                     startActivity(intent);
                 }
 
                 @Override
-                public void onActionDelete(int position, Product product) {
+                public void onActionDelete(int position, ProductSummary product) {
                     if (Constants.ROLE_ADMIN.equals(currentUserRole)) {
                         showDeleteConfirmation(product);
                     } else {
@@ -264,7 +347,7 @@ public class ProductListActivity extends AppCompatActivity {
                 }
 
                 @Override
-                public void onActionAdjustStock(int position, Product product) {
+                public void onActionAdjustStock(int position, ProductSummary product) {
                     Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                     intent.putExtra("product_id", product.getId());
                     intent.putExtra("mode", "adjust_stock");
@@ -274,8 +357,8 @@ public class ProductListActivity extends AppCompatActivity {
 
             listViewProducts.setAdapter(simpleAdapter);
 
-            // 如果可能还有下一页，显示加载更多按钮
-            if (productList.size() == PAGE_SIZE) {
+            // 如果还有下一页，显示加载更多按钮
+            if (nextPageToken != null) {
                 btnLoadMore.setVisibility(View.VISIBLE);
                 btnLoadMore.setOnClickListener(v -> {
                     if (!loadingMore) loadNextPage();
@@ -283,18 +366,18 @@ public class ProductListActivity extends AppCompatActivity {
             } else {
                 btnLoadMore.setVisibility(View.GONE);
             }
-
-            // 准备下一页
-            currentOffset += productList.size();
         }
     }
 
     private void loadNextPage() {
         loadingMore = true;
         btnLoadMore.setEnabled(false);
-        List<Product> next = productDAO.getProductsPage(PAGE_SIZE, currentOffset);
-        if (next != null && !next.isEmpty()) {
-            for (Product product : next) {
+        // 沿用当前列表的关键字，从上一页最后一行之后继续读取
+        ProductSummaryPage page = productDAO.getProductSummaryPageAfter(currentKeyword, null, false, nextPageToken, PAGE_SIZE);
+        List<ProductSummary> next = page.getItems();
+        nextPageToken = page.getNextToken();
+        if (!next.isEmpty()) {
+            for (ProductSummary product : next) {
                 Map<String, String> map = new HashMap<>();
                 map.put("name", product.getName());
                 map.put("price", String.format("￥%.2f", product.getPrice()));
@@ -302,10 +385,12 @@ public class ProductListActivity extends AppCompatActivity {
                 map.put("category", getCategoryName(product.getCategory()));
                 adapterData.add(map);
             }
-            simpleAdapter.notifyDataSetChanged();
-            currentOffset += next.size();
+            List<ProductSummary> merged = new ArrayList<>(productList);
+            merged.addAll(next);
+            productList = merged;
+            simpleAdapter.submitList(merged);
             // 如果没有更多，隐藏按钮
-            if (next.size() < PAGE_SIZE) btnLoadMore.setVisibility(View.GONE);
+            if (nextPageToken == null) btnLoadMore.setVisibility(View.GONE);
         } else {
             // 没有更多，隐藏按钮
             btnLoadMore.setVisibility(View.GONE);
@@ -316,14 +401,15 @@ public class ProductListActivity extends AppCompatActivity {
 
     private void performSearch(String keyword) {
         if (keyword == null) keyword = "";
-        // 分页搜索：重置偏移并加载第一页
-        currentOffset = 0;
+        // 分页搜索：从头加载第一页
+        currentKeyword = keyword;
         adapterData = new ArrayList<>();
         // 搜索时隐藏加载更多按钮，后面根据结果显示
         btnLoadMore.setVisibility(View.GONE);
 
-        List<Product> results = productDAO.searchProductsPage(keyword, PAGE_SIZE, currentOffset);
-        productList = results;
+        ProductSummaryPage page = productDAO.getProductSummaryPageAfter(keyword, null, false, null, PAGE_SIZE);
+        productList = page.getItems();
+        nextPageToken = page.getNextToken();
 
         if (productList == null || productList.isEmpty()) {
             listViewProducts.setVisibility(View.GONE);
@@ -334,7 +420,7 @@ public class ProductListActivity extends AppCompatActivity {
             textViewEmpty.setVisibility(View.GONE);
 
             adapterData.clear();
-            for (Product product : productList) {
+            for (ProductSummary product : productList) {
                 java.util.Map<String, String> map = new java.util.HashMap<>();
                 map.put("name", product.getName());
                 map.put("price", String.format("￥%.2f", product.getPrice()));
@@ -349,14 +435,14 @@ public class ProductListActivity extends AppCompatActivity {
                 simpleAdapter = new ProductAdapter(this, new java.util.ArrayList<>(), canModify);
                 simpleAdapter.setOnItemClickListener(new ProductAdapter.OnItemClickListener() {
                     @Override
-                    public void onItemClick(int position, Product product) {
+                    public void onItemClick(int position, ProductSummary product) {
                         Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                         intent.putExtra("product_id", product.getId());
                         startActivity(intent);
                     }
 
                     @Override
-                    public boolean onItemLongClick(int position, Product product) {
+                    public boolean onItemLongClick(int position, ProductSummary product) {
                         if (Constants.ROLE_ADMIN.equals(currentUserRole)) {
                             showDeleteConfirmation(product);
                             return true;
@@ -367,7 +453,7 @@ public class ProductListActivity extends AppCompatActivity {
                     }
 
                     @Override
-                    public void onActionEdit(int position, Product product) {
+                    public void onActionEdit(int position, ProductSummary product) {
                         // 编辑
                         Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                         intent.putExtra("product_id", product.getId());
@@ -375,14 +461,14 @@ public class ProductListActivity extends AppCompatActivity {
                     }
 
                     @Override
-                    public void onActionDelete(int position, Product product) {
+                    public void onActionDelete(int position, ProductSummary product) {
                         // 删除（仅管理员）
                         if (Constants.ROLE_ADMIN.equals(currentUserRole)) showDeleteConfirmation(product);
                         else Toast.makeText(ProductListActivity.this, getString(R.string.no_permission_delete), Toast.LENGTH_SHORT).show();
                     }
 
                     @Override
-                    public void onActionAdjustStock(int position, Product product) {
+                    public void onActionAdjustStock(int position, ProductSummary product) {
                         // 跳转到库存调整页面（复用 ProductDetailActivity，附加模式）
                         Intent intent = new Intent(ProductListActivity.this, ProductDetailActivity.class);
                         intent.putExtra("product_id", product.getId());
@@ -396,8 +482,7 @@ public class ProductListActivity extends AppCompatActivity {
             // 提交（替换）列表以触发 Diff 更新
             simpleAdapter.submitList(productList);
 
-            currentOffset += productList.size();
-            if (productList.size() == PAGE_SIZE) {
+            if (nextPageToken != null) {
                 btnLoadMore.setVisibility(View.VISIBLE);
                 btnLoadMore.setOnClickListener(v -> {
                     if (!loadingMore) loadNextPage();
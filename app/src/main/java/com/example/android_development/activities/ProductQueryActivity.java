@@ -9,9 +9,10 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.example.android_development.adapters.ProductAdapter;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.DaoExecutor;
 import com.example.android_development.database.ProductDAO;
-import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 import com.example.android_development.util.PrefsManager;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,7 +26,9 @@ public class ProductQueryActivity extends AppCompatActivity {
     private android.widget.ImageButton buttonBack;
 
     private ProductDAO productDAO;
-    private List<Product> productList;
+    private List<ProductSummary> productList;
+    private DaoExecutor dbExecutor;
+    private DaoExecutor.DbTask<List<ProductSummary>> loadTask;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,8 +56,9 @@ public class ProductQueryActivity extends AppCompatActivity {
     }
 
     private void initDatabase() {
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        productDAO = new ProductDAO(dbHelper.getWritableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        productDAO = appDb.getProductDAO();
+        dbExecutor = appDb.getExecutor();
     }
 
     private void setupClickListeners() {
@@ -64,8 +68,14 @@ public class ProductQueryActivity extends AppCompatActivity {
     }
 
     private void loadProducts() {
-        // 从数据库获取所有商品
-        productList = productDAO.getAllProducts();
+        // 从数据库获取所有商品（后台读线程），结果回到主线程显示；上一次未完成的加载直接丢弃
+        if (loadTask != null) loadTask.cancel();
+        loadTask = dbExecutor.read(this, () -> productDAO.getAllProductSummaries(), this::showProducts);
+    }
+
+    private void showProducts(List<ProductSummary> products) {
+        loadTask = null;
+        productList = products;
 
         if (productList == null || productList.isEmpty()) {
             // 显示空状态提示
@@ -81,26 +91,26 @@ public class ProductQueryActivity extends AppCompatActivity {
             ProductAdapter adapter = new ProductAdapter(this, productList, false);
             adapter.setOnItemClickListener(new ProductAdapter.OnItemClickListener() {
                 @Override
-                public void onItemClick(int position, Product product) {
+                public void onItemClick(int position, ProductSummary product) {
                     Toast.makeText(ProductQueryActivity.this,
                             getString(R.string.view_product, product.getName()), Toast.LENGTH_SHORT).show();
                 }
 
                 @Override
-                public boolean onItemLongClick(int position, Product product) { return false; }
+                public boolean onItemLongClick(int position, ProductSummary product) { return false; }
 
                 @Override
-                public void onActionEdit(int position, Product product) {
+                public void onActionEdit(int position, ProductSummary product) {
                     Toast.makeText(ProductQueryActivity.this, "无权限编辑", Toast.LENGTH_SHORT).show();
                 }
 
                 @Override
-                public void onActionDelete(int position, Product product) {
+                public void onActionDelete(int position, ProductSummary product) {
                     Toast.makeText(ProductQueryActivity.this, "无权限删除", Toast.LENGTH_SHORT).show();
                 }
 
                 @Override
-                public void onActionAdjustStock(int position, Product product) {
+                public void onActionAdjustStock(int position, ProductSummary product) {
                     Toast.makeText(ProductQueryActivity.this, "无权限调整库存", Toast.LENGTH_SHORT).show();
                 }
             });
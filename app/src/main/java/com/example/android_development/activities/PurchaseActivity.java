@@ -11,10 +11,10 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.android_development.R;
 import com.example.android_development.adapters.ProductAdapter;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.InventoryDAO;
 import com.example.android_development.database.ProductDAO;
-import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,43 +33,43 @@ public class PurchaseActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.recyclerPurchase);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        DatabaseHelper db = new DatabaseHelper(this);
-        productDAO = new ProductDAO(db.getReadableDatabase());
-        inventoryDAO = new InventoryDAO(db.getWritableDatabase(), this);
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        productDAO = appDb.getProductDAO();
+        inventoryDAO = appDb.getInventoryDAO();
 
         loadLowWarehouseProducts();
     }
 
     private void loadLowWarehouseProducts() {
-        List<Product> list = productDAO.getLowWarehouseStockProducts();
+        List<ProductSummary> list = productDAO.getLowWarehouseStockSummaries();
         if (list == null) list = new ArrayList<>();
         adapter = new ProductAdapter(this, list, false);
         adapter.setOnItemClickListener(new ProductAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(int position, Product product) {
+            public void onItemClick(int position, ProductSummary product) {
                 showPurchaseDialog(product);
             }
 
             @Override
-            public boolean onItemLongClick(int position, Product product) {
+            public boolean onItemLongClick(int position, ProductSummary product) {
                 return false;
             }
 
             @Override
-            public void onActionEdit(int position, Product product) {}
+            public void onActionEdit(int position, ProductSummary product) {}
 
             @Override
-            public void onActionDelete(int position, Product product) {}
+            public void onActionDelete(int position, ProductSummary product) {}
 
             @Override
-            public void onActionAdjustStock(int position, Product product) {
+            public void onActionAdjustStock(int position, ProductSummary product) {
                 showPurchaseDialog(product);
             }
         });
         recyclerView.setAdapter(adapter);
     }
 
-    private void showPurchaseDialog(Product p) {
+    private void showPurchaseDialog(ProductSummary p) {
         View v = LayoutInflater.from(this).inflate(R.layout.dialog_restock, null, false);
         EditText etQty = v.findViewById(R.id.et_restock_qty);
         AlertDialog dlg = new AlertDialog.Builder(this)
@@ -16,6 +16,7 @@ import com.example.android_development.util.PrefsManager;
 import com.example.android_development.security.Auth;
 import com.example.android_development.util.Constants;
 import com.example.android_development.activities.adapter.PoLineAdapter;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.database.ProductDAO;
 import com.example.android_development.database.PurchaseDAO;
@@ -58,11 +59,12 @@ public class PurchaseDetailActivity extends AppCompatActivity {
         setContentView(R.layout.activity_purchase_detail);
         String poId = getIntent().getStringExtra("po_id");
 
-        dbh = new DatabaseHelper(this);
-        db = dbh.getWritableDatabase();
-        purchaseDAO = new PurchaseDAO(db, this);
-        productDAO = new ProductDAO(db);
-        supplierDAO = new SupplierDAO(db);
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        dbh = appDb.getHelper();
+        db = appDb.getDatabase();
+        purchaseDAO = appDb.getPurchaseDAO();
+        productDAO = appDb.getProductDAO();
+        supplierDAO = appDb.getSupplierDAO();
 
         spSupplier = findViewById(R.id.sp_supplier);
         lvLines = findViewById(R.id.lv_po_lines);
@@ -113,7 +115,7 @@ public class PurchaseDetailActivity extends AppCompatActivity {
         for (PurchaseLine l : lines) initialTotal += l.getQty() * l.getPrice();
         po.setTotal(initialTotal);
 
-        boolean editableLines = !(po.getStatus() != null && po.getStatus().equalsIgnoreCase("received"));
+        boolean editableLines = !(po.getStatus() != null && (po.getStatus().equalsIgnoreCase("received") || po.getStatus().equalsIgnoreCase(Constants.PO_STATUS_PARTIALLY_RECEIVED)));
         adapter = new com.example.android_development.activities.adapter.PoLineAdapter(this, lines, products, editableLines, () -> {
             // recalculate total live when adapter reports changes
             double t = 0.0;
@@ -160,8 +162,8 @@ public class PurchaseDetailActivity extends AppCompatActivity {
                 btnReject.setVisibility(View.VISIBLE);
             }
             // 提交后不允许编辑行
-        } else if ("approved".equalsIgnoreCase(status)) {
-            // 批准后可收货
+        } else if ("approved".equalsIgnoreCase(status) || Constants.PO_STATUS_PARTIALLY_RECEIVED.equalsIgnoreCase(status)) {
+            // 批准后可收货；部分收货后可继续收取未到数量
             if (canReceive) btnReceive.setVisibility(View.VISIBLE);
         } else if ("received".equalsIgnoreCase(status)) {
             // 已入库，不显示操作按钮
@@ -212,6 +214,7 @@ public class PurchaseDetailActivity extends AppCompatActivity {
             }
 
             // Persist lines (add/update) inside a DB transaction
+            boolean committed = false;
             db.beginTransaction();
             try {
                 // validate PO name if required
@@ -246,10 +249,13 @@ public class PurchaseDetailActivity extends AppCompatActivity {
                 purchaseDAO.updatePurchaseOrder(po);
 
                 db.setTransactionSuccessful();
+                committed = true;
             } catch (Exception e) {
                 android.util.Log.e("PurchaseDetail", "保存采购单出错", e);
             } finally {
                 db.endTransaction();
+                // 事务中的审计提交后才入队
+                com.example.android_development.util.Audit.transactionEnded(db, committed);
             }
             // refresh total in UI (ensure current lines reflected)
             double liveTotal = 0.0;
@@ -334,20 +340,21 @@ public class PurchaseDetailActivity extends AppCompatActivity {
         });
 
         btnReceive.setOnClickListener(v -> {
-            boolean ok = false;
-            db.beginTransaction();
-            try {
-                ok = purchaseDAO.receiveAndMatchPo(po.getId());
-                if (ok) db.setTransactionSuccessful();
-            } catch (Exception e) {
-                android.util.Log.e("PurchaseDetail", "入库出错", e);
-                ok = false;
-            } finally {
-                db.endTransaction();
-            }
-            if (ok) Toast.makeText(this, getString(R.string.purchase_receive_success), Toast.LENGTH_SHORT).show();
-            else Toast.makeText(this, getString(R.string.receive_failed), Toast.LENGTH_SHORT).show();
-            finish();
+            // 收取全部未到数量；整单在写线程的一个事务中完成
+            btnReceive.setEnabled(false);
+            AppDatabase.getInstance(this).getExecutor().write(this, () -> purchaseDAO.receivePo(po.getId(), null), summary -> {
+                if (summary != null && summary.isSuccess()) {
+                    if (Constants.PO_STATUS_PARTIALLY_RECEIVED.equals(summary.getStatus())) {
+                        Toast.makeText(this, getString(R.string.purchase_receive_partial, summary.getLinesReceived(),
+                                summary.getUnitsReceived(), summary.getLinesOutstanding()), Toast.LENGTH_LONG).show();
+                    } else {
+                        Toast.makeText(this, getString(R.string.purchase_receive_success), Toast.LENGTH_SHORT).show();
+                    }
+                } else {
+                    Toast.makeText(this, getString(R.string.receive_failed), Toast.LENGTH_SHORT).show();
+                }
+                finish();
+            });
         });
 
         btnAddLine.setOnClickListener(v -> {
@@ -394,6 +401,7 @@ public class PurchaseDetailActivity extends AppCompatActivity {
         switch (status) {
             case "approved": bg = android.graphics.Color.parseColor("#C8E6C9"); fg = android.graphics.Color.parseColor("#1B5E20"); break;
             case "received": bg = android.graphics.Color.parseColor("#BBDEFB"); fg = android.graphics.Color.parseColor("#0D47A1"); break;
+            case "partially_received": bg = android.graphics.Color.parseColor("#E1F5FE"); fg = android.graphics.Color.parseColor("#01579B"); break;
             case "rejected": bg = android.graphics.Color.parseColor("#FFCDD2"); fg = android.graphics.Color.parseColor("#B71C1C"); break;
             case "submitted": bg = android.graphics.Color.parseColor("#FFE0B2"); fg = android.graphics.Color.parseColor("#E65100"); break;
             default: bg = android.graphics.Color.LTGRAY; fg = android.graphics.Color.DKGRAY; break;
@@ -7,7 +7,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import android.content.Intent;
 import com.example.android_development.adapters.PurchaseAdapter;
 import com.example.android_development.R;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 
 public class PurchaseListActivity extends AppCompatActivity {
     @Override
@@ -31,11 +31,17 @@ public class PurchaseListActivity extends AppCompatActivity {
     private android.widget.ImageButton buttonNewPurchase;
     private com.example.android_development.database.PurchaseDAO purchaseDAO;
     private com.example.android_development.database.SupplierDAO supplierDAO;
-    private java.util.List<com.example.android_development.model.PurchaseOrder> allPOs = new java.util.ArrayList<>();
-    private java.util.List<com.example.android_development.model.PurchaseOrder> filteredPOs = new java.util.ArrayList<>();
     private PurchaseAdapter adapter;
     private int pageSize = 20;
-    private int currentOffset = 0;
+    // 状态筛选项：值（小写，"" 表示全部）与显示文本（含单数）一一对应
+    private final java.util.List<String> statusKeys = new java.util.ArrayList<>();
+    private final java.util.List<String> statusLabels = new java.util.ArrayList<>();
+    private android.widget.ArrayAdapter<String> statusAdapter;
+    private com.example.android_development.database.DaoExecutor dbExecutor;
+    private com.example.android_development.database.DaoExecutor.DbTask<com.example.android_development.model.PurchaseOrderPage> loadTask;
+    // 当前条件下下一页的起点；null 表示没有更多
+    private String nextToken;
+    private com.example.android_development.model.PurchaseOrderFilter currentFilter;
 
     private void initViews() {
         listViewPurchases = findViewById(R.id.listViewPurchases);
@@ -48,16 +54,22 @@ public class PurchaseListActivity extends AppCompatActivity {
 
         if (listViewPurchases.getLayoutManager() == null) listViewPurchases.setLayoutManager(new LinearLayoutManager(this));
 
-        DatabaseHelper db = new DatabaseHelper(this);
-        purchaseDAO = new com.example.android_development.database.PurchaseDAO(db.getWritableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        // 列表页新建采购单沿用原有行为：不做角色权限校验
+        purchaseDAO = new com.example.android_development.database.PurchaseDAO(appDb.getDatabase());
         // supplierDAO intentionally not used for list display
-        supplierDAO = new com.example.android_development.database.SupplierDAO(db.getWritableDatabase());
+        supplierDAO = appDb.getSupplierDAO();
+
+        dbExecutor = appDb.getExecutor();
 
         // setup filter spinners
-        java.util.List<String> statuses = new java.util.ArrayList<>();
-        statuses.add("全部");
-        statuses.add("OPEN"); statuses.add("SUBMITTED"); statuses.add("APPROVED"); statuses.add("RECEIVED"); statuses.add("REJECTED"); statuses.add("DRAFT"); statuses.add("PENDING");
-        spStatus.setAdapter(new android.widget.ArrayAdapter<>(this, android.R.layout.simple_spinner_item, statuses));
+        statusKeys.add("");
+        statusKeys.add("open"); statusKeys.add("created"); statusKeys.add("submitted"); statusKeys.add(com.example.android_development.util.Constants.PO_STATUS_APPROVED);
+        statusKeys.add(com.example.android_development.util.Constants.PO_STATUS_PARTIALLY_RECEIVED); statusKeys.add(com.example.android_development.util.Constants.PO_STATUS_RECEIVED);
+        statusKeys.add("rejected"); statusKeys.add("draft"); statusKeys.add("pending");
+        updateStatusLabels(null);
+        statusAdapter = new android.widget.ArrayAdapter<>(this, android.R.layout.simple_spinner_item, statusLabels);
+        spStatus.setAdapter(statusAdapter);
 
         java.util.List<String> sorts = new java.util.ArrayList<>();
         sorts.add("按日期"); sorts.add("按名称"); sorts.add("按状态");
@@ -82,7 +94,7 @@ public class PurchaseListActivity extends AppCompatActivity {
 
         // apply filters on search action or spinner change
         android.widget.AdapterView.OnItemSelectedListener reloadListener = new android.widget.AdapterView.OnItemSelectedListener() {
-            @Override public void onItemSelected(android.widget.AdapterView<?> parent, android.view.View view, int position, long id) { applyFiltersAndShow(); }
+            @Override public void onItemSelected(android.widget.AdapterView<?> parent, android.view.View view, int position, long id) { loadPurchaseOrders(); }
             @Override public void onNothingSelected(android.widget.AdapterView<?> parent) {}
         };
         spStatus.setOnItemSelectedListener(reloadListener);
@@ -102,7 +114,7 @@ public class PurchaseListActivity extends AppCompatActivity {
                     b.setSingleChoiceItems(arr, checked, (dialog, which) -> {
                         supplierSelected = arr[which];
                     });
-                    b.setPositiveButton("应用", (dialog, which) -> applyFiltersAndShow());
+                    b.setPositiveButton("应用", (dialog, which) -> loadPurchaseOrders());
                     b.setNegativeButton("取消", null);
                     b.show();
                     return true;
@@ -112,7 +124,7 @@ public class PurchaseListActivity extends AppCompatActivity {
                     String[] arr = sorts.toArray(new String[0]);
                     int checked = Math.max(0, sorts.indexOf(sortSelected));
                     b.setSingleChoiceItems(arr, checked, (dialog, which) -> { sortSelected = arr[which]; });
-                    b.setPositiveButton("应用", (dialog, which) -> applyFiltersAndShow());
+                    b.setPositiveButton("应用", (dialog, which) -> loadPurchaseOrders());
                     b.setNegativeButton("取消", null);
                     b.show();
                     return true;
@@ -122,32 +134,28 @@ public class PurchaseListActivity extends AppCompatActivity {
             pm.show();
         });
 
-        etSearch.setOnEditorActionListener((v, actionId, event) -> { applyFiltersAndShow(); return false; });
-
-        buttonLoadMore.setOnClickListener(v -> {
-            // load next page
-            int nextOffset = currentOffset + pageSize;
-            if (nextOffset < filteredPOs.size()) {
-                java.util.List<com.example.android_development.model.PurchaseOrder> more = filteredPOs.subList(nextOffset, Math.min(nextOffset + pageSize, filteredPOs.size()));
-                adapter.appendData(more);
-                currentOffset = nextOffset;
-                if (currentOffset + pageSize >= filteredPOs.size()) buttonLoadMore.setVisibility(android.view.View.GONE);
-            } else {
-                buttonLoadMore.setVisibility(android.view.View.GONE);
-            }
-        });
+        etSearch.setOnEditorActionListener((v, actionId, event) -> { loadPurchaseOrders(); return false; });
+
+        buttonLoadMore.setOnClickListener(v -> loadNextPage());
     }
 
-    private void loadPurchaseOrders() {
-        allPOs = purchaseDAO.getAllPurchaseOrders();
-        if (allPOs == null || allPOs.isEmpty()) {
-            listViewPurchases.setVisibility(android.view.View.GONE);
-            textViewNoPO.setVisibility(android.view.View.VISIBLE);
-            return;
+    private com.example.android_development.model.PurchaseOrderFilter buildFilter() {
+        com.example.android_development.model.PurchaseOrderFilter f = new com.example.android_development.model.PurchaseOrderFilter();
+        f.setKeyword(etSearch.getText() == null ? null : etSearch.getText().toString());
+        int pos = spStatus.getSelectedItemPosition();
+        if (pos > 0 && pos < statusKeys.size()) f.setStatus(statusKeys.get(pos));
+        if (supplierSelected != null && !"全部".equals(supplierSelected)) {
+            String sid = supIdByName.get(supplierSelected);
+            f.setSupplierId(sid != null ? sid : supplierSelected);
         }
-        listViewPurchases.setVisibility(android.view.View.VISIBLE);
-        textViewNoPO.setVisibility(android.view.View.GONE);
+        if ("按名称".equals(sortSelected)) f.setSort(com.example.android_development.model.PurchaseOrderFilter.SORT_NAME);
+        else if ("按状态".equals(sortSelected)) f.setSort(com.example.android_development.model.PurchaseOrderFilter.SORT_STATUS);
+        else f.setSort(com.example.android_development.model.PurchaseOrderFilter.SORT_DATE);
+        return f;
+    }
 
+    // 条件变化：从第一页重新查询（筛选、排序、分页均在数据库中完成），上一次未完成的查询直接丢弃
+    private void loadPurchaseOrders() {
         if (adapter == null) {
             adapter = new PurchaseAdapter(this, new java.util.ArrayList<>());
             adapter.setOnItemClickListener((position, po) -> {
@@ -159,62 +167,48 @@ public class PurchaseListActivity extends AppCompatActivity {
             });
             listViewPurchases.setAdapter(adapter);
         }
-        // reset paging and apply current filters
-        currentOffset = 0;
-        applyFiltersAndShow();
+        if (loadTask != null) loadTask.cancel();
+        final com.example.android_development.model.PurchaseOrderFilter filter = buildFilter();
+        currentFilter = filter;
+        loadTask = dbExecutor.read(this, () -> purchaseDAO.getPurchaseOrderPage(filter, null, pageSize), page -> {
+            loadTask = null;
+            adapter.updateData(page.getItems());
+            updateStatusLabels(page.getStatusCounts());
+            showPage(page, page.getItems().isEmpty());
+        });
     }
 
-    private void applyFiltersAndShow() {
-        String q = etSearch.getText() == null ? "" : etSearch.getText().toString().trim().toLowerCase();
-        String statusSel = spStatus.getSelectedItem() == null ? "全部" : spStatus.getSelectedItem().toString();
-        String supplierSel = supplierSelected == null ? "全部" : supplierSelected;
-        String sortSel = sortSelected == null ? "按日期" : sortSelected;
-
-        // filter
-        filteredPOs.clear();
-        for (com.example.android_development.model.PurchaseOrder po : allPOs) {
-            if (po == null) continue;
-            if (!q.isEmpty()) {
-                String name = po.getName() == null ? "" : po.getName();
-                String id = po.getId() == null ? "" : po.getId();
-                if (!(name.toLowerCase().contains(q) || id.toLowerCase().contains(q))) continue;
-            }
-            if (!"全部".equals(statusSel)) {
-                if (po.getStatus() == null || !po.getStatus().equalsIgnoreCase(statusSel)) continue;
-            }
-            if (!"全部".equals(supplierSel)) {
-                // match supplier by name or id
-                String sid = po.getSupplierId() == null ? "" : po.getSupplierId();
-                if (!sid.equals(supplierSel) && (po.getSupplierId() == null || !po.getSupplierId().equals(supplierSel)) ) {
-                    // best-effort: if supplier spinner shows names, skip strict match (supplier filtering may be approximate)
-                }
-            }
-            filteredPOs.add(po);
-        }
+    private void loadNextPage() {
+        if (nextToken == null || loadTask != null || currentFilter == null) return;
+        final String token = nextToken;
+        final com.example.android_development.model.PurchaseOrderFilter filter = currentFilter;
+        loadTask = dbExecutor.read(this, () -> purchaseDAO.getPurchaseOrderPage(filter, token, pageSize), page -> {
+            loadTask = null;
+            adapter.appendData(page.getItems());
+            showPage(page, false);
+        });
+    }
 
-        // sort
-        if ("按名称".equals(sortSel)) {
-            java.util.Collections.sort(filteredPOs, (a,b) -> {
-                String an = a.getName() == null ? "" : a.getName();
-                String bn = b.getName() == null ? "" : b.getName();
-                return an.compareToIgnoreCase(bn);
-            });
-        } else if ("按状态".equals(sortSel)) {
-            java.util.Collections.sort(filteredPOs, (a,b) -> {
-                String as = a.getStatus() == null ? "" : a.getStatus();
-                String bs = b.getStatus() == null ? "" : b.getStatus();
-                return as.compareToIgnoreCase(bs);
-            });
-        } else { // 按日期
-            java.util.Collections.sort(filteredPOs, (a,b) -> Long.compare(b.getCreatedAt(), a.getCreatedAt()));
-        }
+    private void showPage(com.example.android_development.model.PurchaseOrderPage page, boolean empty) {
+        nextToken = page.getNextToken();
+        listViewPurchases.setVisibility(empty ? android.view.View.GONE : android.view.View.VISIBLE);
+        textViewNoPO.setVisibility(empty ? android.view.View.VISIBLE : android.view.View.GONE);
+        buttonLoadMore.setVisibility(page.hasMore() ? android.view.View.VISIBLE : android.view.View.GONE);
+    }
 
-        // show first page
-        adapter.updateData(new java.util.ArrayList<>());
-        currentOffset = 0;
-        int end = Math.min(pageSize, filteredPOs.size());
-        if (end > 0) adapter.appendData(filteredPOs.subList(0, end));
-        currentOffset = end - 1 < 0 ? 0 : end - 1;
-        if (filteredPOs.size() > end) buttonLoadMore.setVisibility(android.view.View.VISIBLE); else buttonLoadMore.setVisibility(android.view.View.GONE);
+    // 状态筛选项显示各状态单数（只随第一页刷新）；counts 为 null 时只显示名称
+    private void updateStatusLabels(java.util.Map<String, Integer> counts) {
+        statusLabels.clear();
+        int total = 0;
+        if (counts != null) for (Integer n : counts.values()) total += n;
+        for (String key : statusKeys) {
+            String label = key.isEmpty() ? "全部" : key.toUpperCase(java.util.Locale.ROOT);
+            if (counts != null) {
+                Integer n = key.isEmpty() ? Integer.valueOf(total) : counts.get(key);
+                label += " (" + (n == null ? 0 : n) + ")";
+            }
+            statusLabels.add(label);
+        }
+        if (statusAdapter != null) statusAdapter.notifyDataSetChanged();
     }
 }
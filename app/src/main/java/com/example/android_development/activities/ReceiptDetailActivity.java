@@ -7,11 +7,12 @@ import android.widget.ListView;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.database.SaleDAO;
+import com.example.android_development.database.UserDirectory;
 import com.example.android_development.model.Sale;
 import com.example.android_development.model.RefundRecord;
-import com.example.android_development.model.User;
 import com.example.android_development.model.SaleLine;
 import com.example.android_development.activities.adapters.SaleLineAdapter;
 import java.util.List;
@@ -37,8 +38,9 @@ public class ReceiptDetailActivity extends AppCompatActivity {
         listLines = findViewById(R.id.list_receipt_lines);
         btnShare = findViewById(R.id.btn_share_receipt);
 
-        dbHelper = new DatabaseHelper(this);
-        saleDAO = new SaleDAO(dbHelper.getReadableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        dbHelper = appDb.getHelper();
+        saleDAO = appDb.getSaleDAO();
 
         String saleId = getIntent().getStringExtra("sale_id");
         if (saleId == null) {
@@ -60,9 +62,8 @@ public class ReceiptDetailActivity extends AppCompatActivity {
         // 显示操作人（如果有）
         try {
             if (currentSale.getUserId() != null) {
-                User u = dbHelper.getUserByIdObject(currentSale.getUserId());
-                if (u != null) metaSb.append("  |  操作人:").append(u.getFullName() != null ? u.getFullName() : u.getUsername());
-                else metaSb.append("  |  操作人:").append(currentSale.getUserId());
+                String name = UserDirectory.of(dbHelper.getReadableDatabase()).displayName(currentSale.getUserId(), currentSale.getUserId());
+                metaSb.append("  |  操作人:").append(name);
             }
         } catch (Exception ignored) {}
 
@@ -75,8 +76,7 @@ public class ReceiptDetailActivity extends AppCompatActivity {
                     c.close();
                     metaSb.append("  |  已退单");
                     if (rr.getUserId() != null) {
-                        User ru = dbHelper.getUserByIdObject(rr.getUserId());
-                        String rname = ru != null ? (ru.getFullName() != null ? ru.getFullName() : ru.getUsername()) : rr.getUserId();
+                        String rname = UserDirectory.of(dbHelper.getReadableDatabase()).displayName(rr.getUserId(), rr.getUserId());
                         metaSb.append(" by ").append(rname);
                     }
                     metaSb.append(" @ ").append(java.text.SimpleDateFormat.getDateTimeInstance().format(new java.util.Date(rr.getTimestamp())));
@@ -119,7 +119,7 @@ public class ReceiptDetailActivity extends AppCompatActivity {
                                     android.widget.Toast.makeText(this, "请填写退单原因", android.widget.Toast.LENGTH_SHORT).show();
                                     return;
                                 }
-                                SaleDAO dao = new SaleDAO(dbHelper.getWritableDatabase(), this);
+                                SaleDAO dao = AppDatabase.getInstance(this).getSaleDAO();
                                 boolean ok = dao.refundSale(currentSale.getId(), reason);
                                 if (ok) {
                                     android.widget.Toast.makeText(this, "退单成功", android.widget.Toast.LENGTH_SHORT).show();
@@ -6,6 +6,7 @@ import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.database.SaleDAO;
 import com.example.android_development.model.Sale;
@@ -15,6 +16,7 @@ import java.util.List;
 public class ReceiptListActivity extends AppCompatActivity {
 
     private ListView listReceipts;
+    private AppDatabase appDb;
     private DatabaseHelper dbHelper;
     private SaleDAO saleDAO;
     private List<Sale> currentSales = new ArrayList<>();
@@ -26,8 +28,9 @@ public class ReceiptListActivity extends AppCompatActivity {
 
         listReceipts = findViewById(R.id.list_receipts);
 
-        dbHelper = new DatabaseHelper(this);
-        saleDAO = new SaleDAO(dbHelper.getReadableDatabase());
+        appDb = AppDatabase.getInstance(this);
+        dbHelper = appDb.getHelper();
+        saleDAO = appDb.getSaleDAO();
 
         loadReceipts();
 
@@ -41,24 +44,38 @@ public class ReceiptListActivity extends AppCompatActivity {
         });
     }
 
+    // 后台加载结果：销售单与对应的显示文本
+    private static final class Loaded {
+        final List<Sale> sales;
+        final List<String> display;
+
+        Loaded(List<Sale> sales, List<String> display) {
+            this.sales = sales;
+            this.display = display;
+        }
+    }
+
     private void loadReceipts() {
-        // load recent 200 sales
-        currentSales = saleDAO.getRecentSales(200);
-        List<String> display = new ArrayList<>();
-        for (Sale s : currentSales) {
-            String label = java.text.SimpleDateFormat.getDateTimeInstance().format(new java.util.Date(s.getTimestamp()));
-            String note = s.isRefunded() ? "（已退单）" : "";
-            String operator = "";
-            try {
+        // load recent 200 sales（查询与拼接显示文本都在后台读线程完成）
+        appDb.getExecutor().read(this, () -> {
+            // 列表只显示合计与时间，只取单头；销售行在 ReceiptDetailActivity 打开时再加载
+            List<Sale> sales = saleDAO.getRecentSaleHeaders(200);
+            List<String> display = new ArrayList<>();
+            for (Sale s : sales) {
+                String label = java.text.SimpleDateFormat.getDateTimeInstance().format(new java.util.Date(s.getTimestamp()));
+                String note = s.isRefunded() ? "（已退单）" : "";
+                // 操作人显示名由 getRecentSales 的 JOIN 带出
+                String operator = "";
                 if (s.getUserId() != null) {
-                    com.example.android_development.model.User u = dbHelper.getUserByIdObject(s.getUserId());
-                    if (u != null) operator = " 操作:" + (u.getFullName() != null ? u.getFullName() : u.getUsername());
-                    else operator = " 操作:" + s.getUserId();
+                    operator = " 操作:" + (s.getUserDisplayName() != null ? s.getUserDisplayName() : s.getUserId());
                 }
-            } catch (Exception ignored) {}
-            display.add(label + "  —  " + String.format("%.2f", s.getTotal()) + " " + note + operator);
-        }
-        ArrayAdapter<String> ad = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, display);
-        listReceipts.setAdapter(ad);
+                display.add(label + "  —  " + String.format("%.2f", s.getTotal()) + " " + note + operator);
+            }
+            return new Loaded(sales, display);
+        }, loaded -> {
+            currentSales = loaded.sales;
+            ArrayAdapter<String> ad = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, loaded.display);
+            listReceipts.setAdapter(ad);
+        });
     }
 }
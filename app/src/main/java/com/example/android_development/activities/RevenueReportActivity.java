@@ -9,15 +9,20 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.FileProvider;
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.database.SaleDAO;
 import com.example.android_development.model.SalesSummary;
 import android.app.AlertDialog;
 import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.util.RevenueCsvExporter;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class RevenueReportActivity extends AppCompatActivity {
 
@@ -27,6 +32,10 @@ public class RevenueReportActivity extends AppCompatActivity {
     private ListView listSummary;
     private Button btnExport;
     private java.util.List<SalesSummary> currentItems = new java.util.ArrayList<>();
+    // 当前报表覆盖的起始时间（导出明细的范围：reportStart 至导出时刻）
+    private long reportStart;
+    private boolean exportRunning;
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
 
     private DatabaseHelper dbHelper;
     private SaleDAO saleDAO;
@@ -41,8 +50,9 @@ public class RevenueReportActivity extends AppCompatActivity {
         tvTotalSummary = findViewById(R.id.tv_total_summary);
         listSummary = findViewById(R.id.list_summary);
 
-        dbHelper = new DatabaseHelper(this);
-        saleDAO = new SaleDAO(dbHelper.getReadableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        dbHelper = appDb.getHelper();
+        saleDAO = appDb.getSaleDAO();
 
         ArrayAdapter<String> pa = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"按日", "按月"});
         pa.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
@@ -61,14 +71,23 @@ public class RevenueReportActivity extends AppCompatActivity {
     }
 
     private void generateReport() {
-        // 默认最近30天
+        // 按日：最近30天；按月：本年至今（均直接读取汇总表）
         long now = System.currentTimeMillis();
         long start = now - 30L * 24 * 60 * 60 * 1000;
         List<SalesSummary> items;
         if (spPeriod.getSelectedItemPosition() == 1) {
-            items = saleDAO.getMonthlySalesSummary(start, now);
+            Calendar yearStart = Calendar.getInstance();
+            yearStart.set(Calendar.DAY_OF_YEAR, 1);
+            yearStart.set(Calendar.HOUR_OF_DAY, 0); yearStart.set(Calendar.MINUTE, 0); yearStart.set(Calendar.SECOND, 0); yearStart.set(Calendar.MILLISECOND, 0);
+            reportStart = yearStart.getTimeInMillis();
+            items = saleDAO.getMonthlySalesSummary(reportStart, now);
         } else {
             items = saleDAO.getDailySalesSummary(start, now);
+            // 汇总按整天计入，明细也从起始日 0 点开始
+            Calendar dayStart = Calendar.getInstance();
+            dayStart.setTimeInMillis(start);
+            dayStart.set(Calendar.HOUR_OF_DAY, 0); dayStart.set(Calendar.MINUTE, 0); dayStart.set(Calendar.SECOND, 0); dayStart.set(Calendar.MILLISECOND, 0);
+            reportStart = dayStart.getTimeInMillis();
         }
         // cache items for export
         currentItems.clear();
@@ -139,71 +158,61 @@ public class RevenueReportActivity extends AppCompatActivity {
     }
 
     private void exportCsv() {
-        if (currentItems == null || currentItems.isEmpty()) return;
-        StringBuilder sb = new StringBuilder();
-        // summary section
-        sb.append("period,total,count\n");
-        for (SalesSummary s : currentItems) {
-            sb.append(s.getPeriodLabel()).append(',').append(String.format("%.2f", s.getTotal())).append(',').append(s.getCount()).append('\n');
-        }
-
-        // details section header
-        sb.append('\n');
-        sb.append("period,type,id,amount,timestamp,reason\n");
-        // for each period, compute period bounds and fetch details
-        for (SalesSummary s : currentItems) {
-            String label = s.getPeriodLabel();
-            boolean monthly = (spPeriod.getSelectedItemPosition() == 1);
-            long periodStart = 0, periodEnd = 0;
-            try {
-                if (monthly) {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM", Locale.getDefault());
-                    java.util.Calendar c = java.util.Calendar.getInstance();
-                    c.setTime(sdf.parse(label));
-                    c.set(java.util.Calendar.DAY_OF_MONTH, 1);
-                    c.set(java.util.Calendar.HOUR_OF_DAY, 0); c.set(java.util.Calendar.MINUTE, 0); c.set(java.util.Calendar.SECOND, 0); c.set(java.util.Calendar.MILLISECOND, 0);
-                    periodStart = c.getTimeInMillis();
-                    c.add(java.util.Calendar.MONTH, 1);
-                    periodEnd = c.getTimeInMillis() - 1;
-                } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                    java.util.Calendar c = java.util.Calendar.getInstance();
-                    c.setTime(sdf.parse(label));
-                    c.set(java.util.Calendar.HOUR_OF_DAY, 0); c.set(java.util.Calendar.MINUTE, 0); c.set(java.util.Calendar.SECOND, 0); c.set(java.util.Calendar.MILLISECOND, 0);
-                    periodStart = c.getTimeInMillis();
-                    c.add(java.util.Calendar.DAY_OF_MONTH, 1);
-                    periodEnd = c.getTimeInMillis() - 1;
-                }
-            } catch (Exception e) { e.printStackTrace(); continue; }
-
-            List<ContentValues> details = saleDAO.getDetailedEntriesForPeriod(periodStart, periodEnd);
-            if (details == null || details.isEmpty()) continue;
-            for (ContentValues cv : details) {
-                String type = cv.getAsString("type");
-                String idv = cv.getAsString("id");
-                double amt = 0.0; try { amt = cv.getAsDouble("amount"); } catch (Exception ignored) {}
-                long ts = 0; try { ts = cv.getAsLong("ts"); } catch (Exception ignored) {}
-                String reason = cv.getAsString("reason");
-                sb.append(label).append(',').append(type).append(',').append(idv == null ? "" : idv).append(',').append(String.format("%.2f", amt)).append(',').append(ts).append(',').append(reason == null ? "" : reason).append('\n');
-            }
-        }
-        try {
+        if (currentItems == null || currentItems.isEmpty() || exportRunning) return;
+        exportRunning = true;
+        if (btnExport != null) btnExport.setEnabled(false);
+        final List<SalesSummary> summary = new java.util.ArrayList<>(currentItems);
+        final boolean monthly = (spPeriod.getSelectedItemPosition() == 1);
+        final long start = reportStart;
+        final long end = System.currentTimeMillis();
+        final CharSequence summaryText = tvTotalSummary.getText();
+        final SQLiteDatabase db = AppDatabase.getInstance(this).getDatabase();
+
+        // 明细逐行流式写入文件（后台线程），进度节流后回到主线程显示
+        exportExecutor.execute(() -> {
             java.io.File dir = getExternalCacheDir();
             if (dir == null) dir = getCacheDir();
             java.io.File f = new java.io.File(dir, "revenue_report.csv");
-            java.io.FileWriter fw = new java.io.FileWriter(f);
-            fw.write(sb.toString());
-            fw.close();
-
-            android.net.Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", f);
-            android.content.Intent share = new android.content.Intent(android.content.Intent.ACTION_SEND);
-            share.setType("text/csv");
-            share.putExtra(android.content.Intent.EXTRA_STREAM, uri);
-            share.addFlags(android.content.Intent.FLAG_GRANT_READ_URI_PERMISSION);
-            startActivity(android.content.Intent.createChooser(share, "分享报表"));
-        } catch (Exception e) {
-            e.printStackTrace();
-            android.widget.Toast.makeText(this, "导出失败: " + e.getMessage(), android.widget.Toast.LENGTH_SHORT).show();
-        }
+            final long[] lastUiUpdate = {0};
+            try {
+                RevenueCsvExporter.export(db, summary, start, end, monthly, f, false, (written, total) -> {
+                    long t = android.os.SystemClock.uptimeMillis();
+                    if (t - lastUiUpdate[0] < 250) return;
+                    lastUiUpdate[0] = t;
+                    String msg = total > 0
+                            ? String.format(Locale.getDefault(), "正在导出明细 %d/%d", written, total)
+                            : String.format(Locale.getDefault(), "正在导出明细 %d", written);
+                    runOnUiThread(() -> tvTotalSummary.setText(msg));
+                });
+                runOnUiThread(() -> {
+                    finishExport(summaryText);
+                    if (isFinishing()) return;
+                    android.net.Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".provider", f);
+                    android.content.Intent share = new android.content.Intent(android.content.Intent.ACTION_SEND);
+                    share.setType("text/csv");
+                    share.putExtra(android.content.Intent.EXTRA_STREAM, uri);
+                    share.addFlags(android.content.Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    startActivity(android.content.Intent.createChooser(share, "分享报表"));
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+                runOnUiThread(() -> {
+                    finishExport(summaryText);
+                    android.widget.Toast.makeText(this, "导出失败: " + e.getMessage(), android.widget.Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private void finishExport(CharSequence summaryText) {
+        exportRunning = false;
+        if (btnExport != null) btnExport.setEnabled(true);
+        tvTotalSummary.setText(summaryText);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        exportExecutor.shutdown();
     }
 }
@@ -12,8 +12,12 @@ import android.text.TextWatcher;
 import android.text.Editable;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.BarcodeIndex;
+import com.example.android_development.database.DaoExecutor;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.database.SaleDAO;
+import com.example.android_development.model.CheckoutResult;
 import com.example.android_development.model.Sale;
 import com.example.android_development.model.SaleLine;
 import com.example.android_development.model.Product;
@@ -36,6 +40,11 @@ public class SaleActivity extends AppCompatActivity {
     private DatabaseHelper dbHelper;
     private SaleDAO saleDAO;
     private ProductDAO productDAO;
+    private BarcodeIndex barcodeIndex;
+    private DaoExecutor dbExecutor;
+    private DaoExecutor.DbTask<java.util.List<String>> suggestTask;
+    // 扫码结果复用同一个对象
+    private final BarcodeIndex.Hit scanHit = new BarcodeIndex.Hit();
 
     private Sale currentSale;
     private SaleLineAdapter adapter;
@@ -60,9 +69,12 @@ public class SaleActivity extends AppCompatActivity {
         pmAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spPaymentMethod.setAdapter(pmAdapter);
 
-        dbHelper = new DatabaseHelper(this);
-        saleDAO = new SaleDAO(dbHelper.getWritableDatabase(), this);
-        productDAO = new ProductDAO(dbHelper.getReadableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        dbHelper = appDb.getHelper();
+        saleDAO = appDb.getSaleDAO();
+        productDAO = appDb.getProductDAO();
+        barcodeIndex = BarcodeIndex.of(appDb.getDatabase());
+        dbExecutor = appDb.getExecutor();
 
         // setup AutoComplete suggestions for product names
         android.widget.AutoCompleteTextView atv = etProductKey;
@@ -76,12 +88,16 @@ public class SaleActivity extends AppCompatActivity {
             @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override public void onTextChanged(CharSequence s, int start, int before, int count) {
                 String q = s.toString().trim();
+                // 只保留最新一次输入的联想结果
+                if (suggestTask != null) suggestTask.cancel();
+                suggestTask = null;
                 if (q.length() >= 1) {
-                    // query product names like q
-                    java.util.List<com.example.android_development.model.Product> results = productDAO.getProductsByNameLike(q);
-                    suggestionAdapter.clear();
-                    for (com.example.android_development.model.Product p : results) suggestionAdapter.add(p.getName());
-                    suggestionAdapter.notifyDataSetChanged();
+                    // 全文检索联想（按相关度排序），在后台读线程执行
+                    suggestTask = dbExecutor.read(SaleActivity.this, () -> productDAO.getSearchEngine().suggestNames(q, 20), names -> {
+                        suggestionAdapter.clear();
+                        suggestionAdapter.addAll(names);
+                        suggestionAdapter.notifyDataSetChanged();
+                    });
                 }
             }
             @Override public void afterTextChanged(android.text.Editable s) {}
@@ -144,30 +160,33 @@ public class SaleActivity extends AppCompatActivity {
         int qty = 1;
         try { qty = Integer.parseInt(qtyS); } catch (NumberFormatException e) { Toast.makeText(this, "数量格式不正确", Toast.LENGTH_SHORT).show(); return; }
 
-        // Try barcode first (using DatabaseHelper helper), then name
-        Product p = null;
-        try { p = dbHelper.getProductByBarcodeObject(key); } catch (Exception ignored) {}
-        if (p == null) {
-            p = productDAO.getProductByName(key);
+        // 先查内存条码索引（扫码枪场景），再按名称查找
+        BarcodeIndex.Hit hit = scanHit;
+        if (!barcodeIndex.lookup(key, hit)) {
+            Product p = productDAO.getProductByName(key);
+            if (p == null) { Toast.makeText(this, "未找到商品", Toast.LENGTH_SHORT).show(); return; }
+            hit.productId = p.getId();
+            hit.name = p.getName();
+            hit.price = p.getPrice();
+            hit.stock = p.getStock();
         }
-        if (p == null) { Toast.makeText(this, "未找到商品", Toast.LENGTH_SHORT).show(); return; }
 
         // 校验库存：考虑当前销售已包含同商品的数量
         int existingQty = 0;
         for (SaleLine sl : currentSale.getLines()) {
-            if (sl.getProductId() != null && sl.getProductId().equals(p.getId())) existingQty += sl.getQty();
+            if (sl.getProductId() != null && sl.getProductId().equals(hit.productId)) existingQty += sl.getQty();
         }
         int totalRequested = existingQty + qty;
-        if (p.getStock() < totalRequested) {
-            Toast.makeText(this, "库存不足，货架库存: " + p.getStock() + "，已请求: " + totalRequested, Toast.LENGTH_SHORT).show();
+        if (hit.stock < totalRequested) {
+            Toast.makeText(this, "库存不足，货架库存: " + hit.stock + "，已请求: " + totalRequested, Toast.LENGTH_SHORT).show();
             return;
         }
 
         SaleLine l = new SaleLine();
-        l.setProductId(p.getId());
-        l.setProductName(p.getName());
+        l.setProductId(hit.productId);
+        l.setProductName(hit.name);
         l.setQty(qty);
-        l.setPrice(p.getPrice());
+        l.setPrice(hit.price);
 
         ArrayList<SaleLine> lines = new ArrayList<>(currentSale.getLines());
         lines.add(l);
@@ -203,24 +222,6 @@ public class SaleActivity extends AppCompatActivity {
             Toast.makeText(this, "请先添加销售行", Toast.LENGTH_SHORT).show();
             return;
         }
-        // 最终库存校验：聚合同一商品的请求数量并与当前货架库存比较
-        java.util.Map<String, Integer> reqMap = new java.util.HashMap<>();
-        for (SaleLine sl : currentSale.getLines()) {
-            if (sl.getProductId() == null) continue;
-            int v = reqMap.containsKey(sl.getProductId()) ? reqMap.get(sl.getProductId()) : 0;
-            reqMap.put(sl.getProductId(), v + sl.getQty());
-        }
-        for (java.util.Map.Entry<String, Integer> e : reqMap.entrySet()) {
-            String pid = e.getKey();
-            int need = e.getValue();
-            com.example.android_development.model.Product prod = productDAO.getProductById(pid);
-            int available = prod != null ? prod.getStock() : 0;
-            if (available < need) {
-                String name = prod != null ? prod.getName() : pid;
-                Toast.makeText(this, "库存不足：" + name + "，货架库存:" + available + "，需:" + need, Toast.LENGTH_SHORT).show();
-                return;
-            }
-        }
         double total = currentSale.getTotal();
         String paidS = etPaid.getText().toString().trim();
         double paid = 0;
@@ -231,9 +232,33 @@ public class SaleActivity extends AppCompatActivity {
         currentSale.setPaid(paid);
         currentSale.setPaymentMethod(paymentMethod);
 
-        long res = saleDAO.addSale(currentSale);
-        if (res == -1) {
-            Toast.makeText(this, "结账失败", Toast.LENGTH_SHORT).show();
+        // 最终库存校验在结账事务中整单进行（串行写线程），失败时逐行提示
+        btnCheckout.setEnabled(false);
+        dbExecutor.write(this, () -> saleDAO.checkout(currentSale), this::onCheckoutResult);
+    }
+
+    private void onCheckoutResult(CheckoutResult result) {
+        btnCheckout.setEnabled(true);
+        if (!result.isSuccess()) {
+            if (result.getFailures().isEmpty()) {
+                Toast.makeText(this, "结账失败", Toast.LENGTH_SHORT).show();
+            } else {
+                StringBuilder msg = new StringBuilder();
+                for (CheckoutResult.LineFailure f : result.getFailures()) {
+                    if (msg.length() > 0) msg.append('\n');
+                    String name = f.getProductName() != null ? f.getProductName() : f.getProductId();
+                    if (CheckoutResult.REASON_INSUFFICIENT_STOCK.equals(f.getReason())) {
+                        msg.append("库存不足：").append(name).append("，货架库存:").append(f.getAvailable()).append("，需:").append(f.getRequested());
+                    } else if (CheckoutResult.REASON_NOT_FOUND.equals(f.getReason())) {
+                        msg.append("商品不存在：").append(name);
+                    } else if (CheckoutResult.REASON_INTERNAL.equals(f.getReason())) {
+                        msg.append("结账失败，未记录本单，请重试");
+                    } else {
+                        msg.append("数量无效：").append(name != null ? name : "第" + (f.getLineIndex() + 1) + "行");
+                    }
+                }
+                Toast.makeText(this, msg.toString(), Toast.LENGTH_LONG).show();
+            }
         } else {
             Toast.makeText(this, getString(R.string.receipt_saved), Toast.LENGTH_SHORT).show();
             finish();
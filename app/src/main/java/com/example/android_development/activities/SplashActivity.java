@@ -2,27 +2,23 @@ package com.example.android_development.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
 import com.example.android_development.util.PrefsManager;
+import com.example.android_development.util.StartupPipeline;
 
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 1500; // 1.5秒
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
-        // 延迟跳转
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkLoginStatus();
-            }
-        }, SPLASH_DELAY);
+        // 后台打开数据库并预热缓存，关键阶段完成后立即跳转（不再固定等待）
+        StartupPipeline.start(this).whenCriticalReady(() -> {
+            if (isFinishing() || isDestroyed()) return;
+            checkLoginStatus();
+        });
     }
 
     private void checkLoginStatus() {
@@ -8,9 +8,10 @@ import androidx.core.content.FileProvider;
 import com.example.android_development.adapters.StockCountAdapter;
 import com.example.android_development.adapters.ProductAdapter;
 import com.example.android_development.R;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.services.InventoryService;
 import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 import java.util.List;
 
 public class StockCountActivity extends AppCompatActivity {
@@ -51,8 +52,7 @@ public class StockCountActivity extends AppCompatActivity {
         if (listViewCounts.getLayoutManager() == null) listViewCounts.setLayoutManager(new LinearLayoutManager(this));
         if (listViewLowStockAlerts.getLayoutManager() == null) listViewLowStockAlerts.setLayoutManager(new LinearLayoutManager(this));
 
-        DatabaseHelper db = new DatabaseHelper(this);
-        inventoryDAO = new com.example.android_development.database.InventoryDAO(db.getWritableDatabase());
+        inventoryDAO = AppDatabase.getInstance(this).getInventoryDAO();
         inventoryService = new InventoryService(this);
 
         buttonExportLowStock.setOnClickListener(v -> exportLowStockCsv());
@@ -76,8 +76,8 @@ public class StockCountActivity extends AppCompatActivity {
     }
 
     private void loadLowStockAlerts() {
-        List<Product> lowStockProducts = inventoryService.getLowStockAlerts();
-        int alertCount = inventoryService.getLowStockAlertCount();
+        List<ProductSummary> lowStockProducts = inventoryService.getLowStockAlertSummaries();
+        int alertCount = lowStockProducts != null ? lowStockProducts.size() : 0;
 
         // 更新预警数量显示
         textViewLowStockCount.setText("共有 " + alertCount + " 件商品库存不足");
@@ -95,7 +95,7 @@ public class StockCountActivity extends AppCompatActivity {
         ProductAdapter adapter = new ProductAdapter(this, lowStockProducts, false);
         adapter.setOnItemClickListener(new ProductAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(int position, Product product) {
+            public void onItemClick(int position, ProductSummary product) {
                 // 点击跳转到商品详情页
                 android.content.Intent intent = new android.content.Intent(StockCountActivity.this, ProductDetailActivity.class);
                 intent.putExtra("product_id", product.getId());
@@ -103,22 +103,22 @@ public class StockCountActivity extends AppCompatActivity {
             }
 
             @Override
-            public boolean onItemLongClick(int position, Product product) {
+            public boolean onItemLongClick(int position, ProductSummary product) {
                 return false;
             }
 
             @Override
-            public void onActionEdit(int position, Product product) {
+            public void onActionEdit(int position, ProductSummary product) {
                 // 不显示编辑按钮
             }
 
             @Override
-            public void onActionDelete(int position, Product product) {
+            public void onActionDelete(int position, ProductSummary product) {
                 // 不显示删除按钮
             }
 
             @Override
-            public void onActionAdjustStock(int position, Product product) {
+            public void onActionAdjustStock(int position, ProductSummary product) {
                 // 不显示调整按钮
             }
         });
@@ -3,18 +3,14 @@ package com.example.android_development.activities;
 import android.os.Bundle;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.LinearLayoutManager;
-import com.example.android_development.adapters.StockTransactionAdapter;
+import com.example.android_development.adapters.StockHistoryPagedAdapter;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.android_development.R;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.DaoExecutor;
 import com.example.android_development.database.ProductDAO;
-import com.example.android_development.model.StockTransaction;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
+import com.example.android_development.model.StockHistoryFilter;
+import com.example.android_development.model.StockHistoryPage;
 
 public class StockHistoryActivity extends AppCompatActivity {
 
@@ -26,6 +22,12 @@ public class StockHistoryActivity extends AppCompatActivity {
     private android.widget.Button buttonSearchHistory;
     private android.widget.Button buttonClearHistorySearch;
 
+    private static final int PAGE_SIZE = 50;
+
+    private DaoExecutor dbExecutor;
+    private StockHistoryPagedAdapter adapter;
+    private StockHistoryFilter filter = new StockHistoryFilter();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -35,8 +37,11 @@ public class StockHistoryActivity extends AppCompatActivity {
         if (listViewStockHistory.getLayoutManager() == null) listViewStockHistory.setLayoutManager(new LinearLayoutManager(this));
         buttonHistoryBack = findViewById(R.id.buttonHistoryBack);
 
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        productDAO = new ProductDAO(dbHelper.getReadableDatabase());
+        AppDatabase appDb = AppDatabase.getInstance(this);
+        productDAO = appDb.getProductDAO();
+        dbExecutor = appDb.getExecutor();
+        adapter = new StockHistoryPagedAdapter(this, this::loadPage);
+        listViewStockHistory.setAdapter(adapter);
 
         String productId = getIntent().getStringExtra("product_id");
         layoutHistorySearch = findViewById(R.id.layoutHistorySearch);
@@ -47,158 +52,49 @@ public class StockHistoryActivity extends AppCompatActivity {
         if (productId == null) {
             // 全局历史视图：显示搜索控件并加载全部历史
             layoutHistorySearch.setVisibility(android.view.View.VISIBLE);
-            // 尝试回填历史表中的 product_name（从 products 表拷贝），以便旧记录显示名称
-            DatabaseHelper dbh = new DatabaseHelper(this);
-            ProductDAO dao = new ProductDAO(dbh.getWritableDatabase());
-            dao.backfillStockTransactionProductNames();
-            loadAllHistory();
+            // 尝试回填历史表中的 product_name（从 products 表拷贝），以便旧记录显示名称；
+            // 回填在串行写线程执行，完成后再加载第一页
+            dbExecutor.write(this, () -> {
+                productDAO.backfillStockTransactionProductNames();
+                return true;
+            }, done -> reloadHistory(new StockHistoryFilter()));
 
             buttonSearchHistory.setOnClickListener(v -> {
                 String kw = etHistorySearch.getText().toString().trim();
-                if (kw.isEmpty()) loadAllHistory();
-                else loadHistoryByProductName(kw);
+                reloadHistory(new StockHistoryFilter().setProductNameLike(kw));
             });
 
             buttonClearHistorySearch.setOnClickListener(v -> {
                 etHistorySearch.setText("");
-                loadAllHistory();
+                reloadHistory(new StockHistoryFilter());
             });
         } else {
-            loadHistory(productId);
+            reloadHistory(new StockHistoryFilter().setProductId(productId));
         }
 
         buttonHistoryBack.setOnClickListener(v -> finish());
     }
 
-    private String formatTitle(StockTransaction tx, String qtyStr) {
-        String type = tx.getType() != null ? tx.getType().toUpperCase() : "";
-        switch (type) {
-            case "IN":
-                return getString(R.string.stock_tx_type_in, qtyStr);
-            case "OUT":
-                return getString(R.string.stock_tx_type_out, qtyStr);
-            case "ADD":
-                return getString(R.string.stock_tx_type_add, qtyStr);
-            case "DELETE":
-                return getString(R.string.stock_tx_type_delete, qtyStr);
-            case "IN_FROM_WAREHOUSE":
-                return getString(R.string.stock_tx_type_in_from_warehouse, qtyStr);
-            case "WAREHOUSE_OUT":
-                return getString(R.string.stock_tx_type_warehouse_out, qtyStr);
-            case "WAREHOUSE_IN":
-                return getString(R.string.stock_tx_type_warehouse_in, qtyStr);
-            case "WAREHOUSE_IN_FROM_SHELF":
-                return getString(R.string.stock_tx_type_warehouse_in_from_shelf, qtyStr);
-            default:
-                return type.isEmpty() ? qtyStr : type + " " + qtyStr;
-        }
-    }
-
-    private void loadHistory(String productId) {
-        List<StockTransaction> list = productDAO.getStockHistory(productId);
-
-        List<Map<String, String>> data = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-        // 用 DatabaseHelper 将 userId 映射为用户显示名
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        for (StockTransaction tx : list) {
-            Map<String, String> map = new HashMap<>();
-            String qtyStr = tx.getQuantity() > 0 ? "+" + tx.getQuantity() : String.valueOf(tx.getQuantity());
-            String title = formatTitle(tx, qtyStr);
-            // 若在全局模式，显示产品名称以便识别已删除的商品
-            if (tx.getProductName() != null && !tx.getProductName().isEmpty()) {
-                title = title + " — " + tx.getProductName();
-            }
-            map.put("title", title);
-
-            String user = "-";
-            if (tx.getUserId() != null && !tx.getUserId().isEmpty()) {
-                com.example.android_development.model.User u = dbHelper.getUserByIdObject(tx.getUserId());
-                if (u != null) {
-                    if (u.getFullName() != null && !u.getFullName().isEmpty()) user = u.getFullName();
-                    else if (u.getUsername() != null && !u.getUsername().isEmpty()) user = u.getUsername();
-                }
-            }
-
-            String detail;
-            if (tx.getUserRole() != null && !tx.getUserRole().isEmpty()) {
-                detail = getString(R.string.stock_tx_detail_with_role, tx.getStockBefore(), tx.getStockAfter(), user, tx.getUserRole());
-            } else {
-                detail = getString(R.string.stock_tx_detail, tx.getStockBefore(), tx.getStockAfter(), user);
-            }
-            map.put("detail", detail);
-            map.put("reason", (tx.getReason() == null || tx.getReason().isEmpty()) ? sdf.format(tx.getTimestamp()) : sdf.format(tx.getTimestamp()) + " — " + tx.getReason());
-            data.add(map);
-        }
-
-        // 使用类型化 StockTransactionAdapter
-        java.util.List<StockTransaction> txList = new java.util.ArrayList<>();
-        for (Map<String, String> m : data) {
-            // We already have titles/details in map; we'll create dummy StockTransaction to hold displayed strings
-            StockTransaction t = new StockTransaction();
-            t.setType(m.get("title"));
-            t.setReason(m.get("reason"));
-            // reuse detail in user field
-            t.setUserId(m.get("detail"));
-            txList.add(t);
-        }
-        StockTransactionAdapter adapter = new StockTransactionAdapter(this, txList);
-        listViewStockHistory.setAdapter(adapter);
-    }
-
-    private void loadAllHistory() {
-        List<StockTransaction> list = productDAO.getAllStockHistory();
-
-        populateListFromTransactions(list);
-    }
-
-    private void loadHistoryByProductName(String productName) {
-        List<StockTransaction> list = productDAO.searchStockHistoryByProductName(productName);
-        populateListFromTransactions(list);
+    // 按当前查询条件重新从第一页加载
+    private void reloadHistory(StockHistoryFilter newFilter) {
+        filter = newFilter;
+        adapter.reload();
     }
 
-    private void populateListFromTransactions(List<StockTransaction> list) {
-        List<Map<String, String>> data = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-        DatabaseHelper dbHelper = new DatabaseHelper(this);
-        for (StockTransaction tx : list) {
-            Map<String, String> map = new HashMap<>();
-            String qtyStr = tx.getQuantity() > 0 ? "+" + tx.getQuantity() : String.valueOf(tx.getQuantity());
-            String title = formatTitle(tx, qtyStr);
-            if (tx.getProductName() != null && !tx.getProductName().isEmpty()) {
-                title = title + " — " + tx.getProductName();
-            }
-            map.put("title", title);
-
-            String user = "-";
-            if (tx.getUserId() != null && !tx.getUserId().isEmpty()) {
-                com.example.android_development.model.User u = dbHelper.getUserByIdObject(tx.getUserId());
-                if (u != null) {
-                    if (u.getFullName() != null && !u.getFullName().isEmpty()) user = u.getFullName();
-                    else if (u.getUsername() != null && !u.getUsername().isEmpty()) user = u.getUsername();
-                }
+    // 分页查询在后台读线程执行，结果回到主线程交给适配器
+    private void loadPage(String pageToken, java.util.function.Consumer<StockHistoryPage> onLoaded) {
+        final StockHistoryFilter f = filter;
+        dbExecutor.read(this, () -> productDAO.getStockHistoryPage(f, pageToken, PAGE_SIZE), new DaoExecutor.Callback<StockHistoryPage>() {
+            @Override
+            public void onResult(StockHistoryPage page) {
+                onLoaded.accept(page);
             }
 
-            String detail;
-            if (tx.getUserRole() != null && !tx.getUserRole().isEmpty()) {
-                detail = getString(R.string.stock_tx_detail_with_role, tx.getStockBefore(), tx.getStockAfter(), user, tx.getUserRole());
-            } else {
-                detail = getString(R.string.stock_tx_detail, tx.getStockBefore(), tx.getStockAfter(), user);
+            @Override
+            public void onError(Throwable error) {
+                error.printStackTrace();
+                onLoaded.accept(null);
             }
-            map.put("detail", detail);
-            map.put("reason", (tx.getReason() == null || tx.getReason().isEmpty()) ? sdf.format(tx.getTimestamp()) : sdf.format(tx.getTimestamp()) + " — " + tx.getReason());
-            data.add(map);
-        }
-
-        java.util.List<StockTransaction> txList = new java.util.ArrayList<>();
-        for (Map<String, String> m : data) {
-            StockTransaction t = new StockTransaction();
-            t.setType(m.get("title"));
-            t.setReason(m.get("reason"));
-            t.setUserId(m.get("detail"));
-            txList.add(t);
-        }
-        StockTransactionAdapter adapter = new StockTransactionAdapter(this, txList);
-        listViewStockHistory.setAdapter(adapter);
+        });
     }
 }
@@ -12,8 +12,9 @@ import android.widget.TextView;
 import com.example.android_development.R;
 import com.example.android_development.model.PurchaseLine;
 import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 import com.example.android_development.database.ProductDAO;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import java.util.List;
 
 public class PoLineAdapter extends BaseAdapter {
@@ -37,8 +38,7 @@ public class PoLineAdapter extends BaseAdapter {
     public PoLineAdapter(Context ctx, List<PurchaseLine> lines, List<Product> products, boolean editable, OnLinesChangeListener listener) {
         this.ctx = ctx; this.lines = lines; this.products = products; this.editable = editable; this.listener = listener;
         try {
-            DatabaseHelper dh = new DatabaseHelper(ctx);
-            db = dh.getWritableDatabase();
+            db = AppDatabase.getInstance(ctx).getDatabase();
         } catch (Exception ignored) { db = null; }
     }
 
@@ -109,21 +109,23 @@ public class PoLineAdapter extends BaseAdapter {
             tvName.setOnClickListener(v -> {
                 if (db == null) return;
                 ProductDAO productDAO = new ProductDAO(db);
-                List<Product> all = productDAO.getAllProducts();
+                // 选择框只需 id/名称，取精简行
+                List<ProductSummary> all = productDAO.getAllProductSummaries();
                 if (all == null || all.isEmpty()) {
                     android.widget.Toast.makeText(ctx, ctx.getString(R.string.no_products_available), android.widget.Toast.LENGTH_SHORT).show();
                     return;
                 }
                 final List<String> names = new java.util.ArrayList<>();
-                for (Product prod : all) names.add(prod.getName() == null ? prod.getId() : prod.getName());
+                for (ProductSummary prod : all) names.add(prod.getName() == null ? prod.getId() : prod.getName());
                 android.app.AlertDialog.Builder b = new android.app.AlertDialog.Builder(ctx);
                 b.setTitle(ctx.getString(R.string.select_product));
                 b.setItems(names.toArray(new String[0]), (dialog, which) -> {
-                    Product sel = all.get(which);
+                    ProductSummary sel = all.get(which);
                     lines.get(position).setProductId(sel.getId());
                     if (products != null) {
-                        if (position < products.size()) products.set(position, sel);
-                        else products.add(sel);
+                        Product shown = new Product(sel.getId(), sel.getName(), sel.getPrice(), sel.getStock());
+                        if (position < products.size()) products.set(position, shown);
+                        else products.add(shown);
                     }
                     tvName.setText(sel.getName());
                 });
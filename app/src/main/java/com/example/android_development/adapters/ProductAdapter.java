@@ -12,8 +12,9 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android_development.R;
-import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 
+import java.util.ArrayList;
 import java.util.List;
 import androidx.recyclerview.widget.DiffUtil;
 import com.bumptech.glide.Glide;
@@ -22,31 +23,32 @@ import java.lang.reflect.Method;
 
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHolder> {
     private final Context context;
-    private final List<Product> data;
+    private final List<ProductSummary> data;
     private OnItemClickListener listener;
     private boolean showActions = true;
 
     public interface OnItemClickListener {
-        void onItemClick(int position, Product product);
-        boolean onItemLongClick(int position, Product product);
-        void onActionEdit(int position, Product product);
-        void onActionDelete(int position, Product product);
-        void onActionAdjustStock(int position, Product product);
+        void onItemClick(int position, ProductSummary product);
+        boolean onItemLongClick(int position, ProductSummary product);
+        void onActionEdit(int position, ProductSummary product);
+        void onActionDelete(int position, ProductSummary product);
+        void onActionAdjustStock(int position, ProductSummary product);
     }
 
-    public ProductAdapter(Context context, List<Product> data) {
+    // 列表行只需精简字段；需要完整 Product 的操作（编辑、删除撤销等）由回调方按 id 加载
+    public ProductAdapter(Context context, List<ProductSummary> data) {
         this.context = context;
-        this.data = data;
+        this.data = data != null ? new ArrayList<>(data) : new ArrayList<>();
         this.showActions = true;
     }
 
-    public ProductAdapter(Context context, List<Product> data, boolean showActions) {
+    public ProductAdapter(Context context, List<ProductSummary> data, boolean showActions) {
         this.context = context;
-        this.data = data;
+        this.data = data != null ? new ArrayList<>(data) : new ArrayList<>();
         this.showActions = showActions;
     }
 
-    public void submitList(List<Product> newList) {
+    public void submitList(List<ProductSummary> newList) {
         if (this.data == null) {
             // set directly
             this.data.clear();
@@ -71,8 +73,8 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
 
             @Override
             public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                Product o = data.get(oldItemPosition);
-                Product n = newList.get(newItemPosition);
+                ProductSummary o = data.get(oldItemPosition);
+                ProductSummary n = newList.get(newItemPosition);
                 return o.getName().equals(n.getName()) && o.getPrice() == n.getPrice() && o.getStock() == n.getStock() && o.getWarehouseStock() == n.getWarehouseStock();
             }
         });
@@ -94,7 +96,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ViewHold
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Product p = data.get(position);
+        ProductSummary p = data.get(position);
         if (p == null) return;
         holder.name.setText(p.getName());
         holder.price.setText(String.format("￥%.2f", p.getPrice()));
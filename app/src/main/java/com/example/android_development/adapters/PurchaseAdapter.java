@@ -56,6 +56,7 @@ public class PurchaseAdapter extends RecyclerView.Adapter<PurchaseAdapter.ViewHo
             int color = android.graphics.Color.DKGRAY;
             if ("approved".equalsIgnoreCase(po.getStatus())) color = android.graphics.Color.parseColor("#388E3C");
             else if ("received".equalsIgnoreCase(po.getStatus())) color = android.graphics.Color.parseColor("#1976D2");
+            else if ("partially_received".equalsIgnoreCase(po.getStatus())) color = android.graphics.Color.parseColor("#0288D1");
             else if ("rejected".equalsIgnoreCase(po.getStatus())) color = android.graphics.Color.parseColor("#D32F2F");
             else if ("submitted".equalsIgnoreCase(po.getStatus())) color = android.graphics.Color.parseColor("#F57C00");
             holder.t2.setTextColor(color);
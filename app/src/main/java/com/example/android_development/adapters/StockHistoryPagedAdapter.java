@@ -0,0 +1,166 @@
+package com.example.android_development.adapters;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android_development.R;
+import com.example.android_development.model.StockHistoryPage;
+import com.example.android_development.model.StockTransaction;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 库存历史的分页适配器：按页向 PageLoader 请求数据，滚动到接近末尾时自动加载下一页；
+ * 只保存原始 StockTransaction，标题/详情/时间在绑定时才格式化（日期格式化器整个适配器复用一个）。
+ */
+public class StockHistoryPagedAdapter extends RecyclerView.Adapter<StockHistoryPagedAdapter.ViewHolder> {
+
+    // 距离已加载末尾还剩多少行时预取下一页
+    private static final int PREFETCH_DISTANCE = 15;
+
+    public interface PageLoader {
+        // pageToken 为 null 表示第一页；加载完成后在主线程调用 onLoaded（失败时传 null）
+        void loadPage(String pageToken, Consumer<StockHistoryPage> onLoaded);
+    }
+
+    private final Context context;
+    private final PageLoader loader;
+    private final List<StockTransaction> items = new ArrayList<>();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+    private final Date reusableDate = new Date();
+
+    private String nextToken;
+    private boolean hasMore;
+    private boolean loading;
+    // 每次 reload 递增，丢弃旧查询条件下迟到的页
+    private int generation;
+
+    public StockHistoryPagedAdapter(Context context, PageLoader loader) {
+        this.context = context;
+        this.loader = loader;
+    }
+
+    // 清空并从第一页重新加载（查询条件变化后调用）
+    public void reload() {
+        generation++;
+        items.clear();
+        nextToken = null;
+        hasMore = true;
+        loading = false;
+        notifyDataSetChanged();
+        loadMore();
+    }
+
+    private void loadMore() {
+        if (loading || !hasMore) return;
+        loading = true;
+        final int gen = generation;
+        loader.loadPage(nextToken, page -> {
+            if (gen != generation) return;
+            loading = false;
+            if (page == null) {
+                hasMore = false;
+                return;
+            }
+            int start = items.size();
+            items.addAll(page.getItems());
+            nextToken = page.getNextToken();
+            hasMore = page.hasMore();
+            notifyItemRangeInserted(start, page.getItems().size());
+        });
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(context).inflate(R.layout.item_stock_tx, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        if (position >= items.size() - PREFETCH_DISTANCE) {
+            // 不能在布局过程中修改数据集，推迟到下一帧
+            holder.itemView.post(this::loadMore);
+        }
+        StockTransaction tx = items.get(position);
+
+        String qtyStr = tx.getQuantity() > 0 ? "+" + tx.getQuantity() : String.valueOf(tx.getQuantity());
+        String title = formatTitle(tx, qtyStr);
+        // 显示产品名称以便识别已删除的商品
+        if (tx.getProductName() != null && !tx.getProductName().isEmpty()) {
+            title = title + " — " + tx.getProductName();
+        }
+        holder.title.setText(title);
+
+        String user = tx.getUserDisplayName() != null ? tx.getUserDisplayName() : "-";
+        if (tx.getUserRole() != null && !tx.getUserRole().isEmpty()) {
+            holder.detail.setText(context.getString(R.string.stock_tx_detail_with_role, tx.getStockBefore(), tx.getStockAfter(), user, tx.getUserRole()));
+        } else {
+            holder.detail.setText(context.getString(R.string.stock_tx_detail, tx.getStockBefore(), tx.getStockAfter(), user));
+        }
+
+        reusableDate.setTime(tx.getTimestamp());
+        String time = dateFormat.format(reusableDate);
+        holder.reason.setText((tx.getReason() == null || tx.getReason().isEmpty()) ? time : time + " — " + tx.getReason());
+
+        // click shows detail dialog with full info
+        holder.itemView.setOnClickListener(v -> {
+            android.app.AlertDialog.Builder b = new android.app.AlertDialog.Builder(v.getContext());
+            b.setTitle(holder.title.getText());
+            b.setMessage("详情:\n" + holder.detail.getText() + "\n" + holder.reason.getText());
+            b.setPositiveButton("关闭", null);
+            b.show();
+        });
+    }
+
+    private String formatTitle(StockTransaction tx, String qtyStr) {
+        String type = tx.getType() != null ? tx.getType().toUpperCase() : "";
+        switch (type) {
+            case "IN":
+                return context.getString(R.string.stock_tx_type_in, qtyStr);
+            case "OUT":
+                return context.getString(R.string.stock_tx_type_out, qtyStr);
+            case "ADD":
+                return context.getString(R.string.stock_tx_type_add, qtyStr);
+            case "DELETE":
+                return context.getString(R.string.stock_tx_type_delete, qtyStr);
+            case "IN_FROM_WAREHOUSE":
+                return context.getString(R.string.stock_tx_type_in_from_warehouse, qtyStr);
+            case "WAREHOUSE_OUT":
+                return context.getString(R.string.stock_tx_type_warehouse_out, qtyStr);
+            case "WAREHOUSE_IN":
+                return context.getString(R.string.stock_tx_type_warehouse_in, qtyStr);
+            case "WAREHOUSE_IN_FROM_SHELF":
+                return context.getString(R.string.stock_tx_type_warehouse_in_from_shelf, qtyStr);
+            case "IMPORT":
+                return context.getString(R.string.stock_tx_type_import, qtyStr);
+            default:
+                return type.isEmpty() ? qtyStr : type + " " + qtyStr;
+        }
+    }
+
+    @Override
+    public int getItemCount() { return items.size(); }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView title, detail, reason;
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.textViewTxType);
+            detail = itemView.findViewById(R.id.textViewTxDetail);
+            reason = itemView.findViewById(R.id.textViewTxReason);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.android_development.database;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import com.example.android_development.util.Audit;
+
+/**
+ * 进程级共享数据库引擎。
+ * 整个应用只持有一个 DatabaseHelper，数据库文件只打开一次并启用 WAL：
+ * 读操作由系统连接池分配只读连接并发执行，写操作与事务统一走唯一的主连接。
+ * 各页面/适配器/服务通过 getInstance(context) 获取，并从这里取得 DAO，
+ * 不要再自行 new DatabaseHelper，也不要关闭这里返回的 SQLiteDatabase。
+ */
+public final class AppDatabase {
+
+    private static volatile AppDatabase instance;
+
+    // 关闭前等待写线程上已提交任务的最长时间
+    private static final long SHUTDOWN_TIMEOUT_MS = 3000;
+
+    private final Context appContext;
+    private final DatabaseHelper helper;
+    private final SQLiteDatabase db;
+
+    private final ProductDAO productDAO;
+    private final SaleDAO saleDAO;
+    private final PurchaseDAO purchaseDAO;
+    private final InventoryDAO inventoryDAO;
+    private final SupplierDAO supplierDAO;
+    private final UserDAO userDAO;
+    private final DaoExecutor executor = new DaoExecutor();
+
+    private AppDatabase(Context context) {
+        Context app = context.getApplicationContext();
+        this.appContext = app != null ? app : context;
+        // 管理员在上次运行时选择了恢复快照：打开数据库之前替换数据库文件
+        boolean restored = DatabaseBackup.applyPendingRestore(appContext);
+        this.helper = new DatabaseHelper(appContext);
+        // 首次打开时执行 onCreate/onUpgrade 及待执行的迁移步骤（见 SchemaMigrations），之后整个进程复用同一连接池
+        this.db = helper.getWritableDatabase();
+        // 快照中的 products_fts 按快照生成前的 rowid 建立，替换后整体重建
+        if (restored) new ProductSearchEngine(db).rebuildIndex();
+
+        this.productDAO = new ProductDAO(db);
+        this.saleDAO = new SaleDAO(db, appContext);
+        this.purchaseDAO = new PurchaseDAO(db, appContext);
+        this.inventoryDAO = new InventoryDAO(db, appContext);
+        this.supplierDAO = new SupplierDAO(db);
+        this.userDAO = new UserDAO(helper);
+        this.userDAO.open();
+
+        // 收银联想用的拼音索引、扫码用的条码索引由启动预热流程（StartupPipeline）在后台构建；
+        // 未经启动页进入时，首次查询会自行触发后台加载
+
+        // 可调试构建下检查登记的 DAO 查询是否退化为全表扫描（结果见 logcat 的 QueryPlan 标签）
+        if ((appContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            try { QueryPlanChecker.logFullScans(db); } catch (Exception ignored) {}
+            // 商品缓存命中统计（结果见 logcat 的 ProductCache 标签）
+            ProductCache.of(db).setLogEvery(100);
+            // 营收汇总表与明细表的一致性校验需要全表扫描，放到后台线程
+            Thread verify = new Thread(() -> {
+                try { SalesRollup.logVerify(db); } catch (Exception ignored) {}
+            }, "rollup-verify");
+            verify.setDaemon(true);
+            verify.start();
+        }
+    }
+
+    public static AppDatabase getInstance(Context context) {
+        AppDatabase local = instance;
+        if (local == null) {
+            synchronized (AppDatabase.class) {
+                local = instance;
+                if (local == null) {
+                    local = new AppDatabase(context);
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * 进程即将主动退出时调用（如安排恢复快照后重启）：等待写线程上已提交的写任务，
+     * 写出审计队列中尚未落盘的条目，再关闭数据库（checkpoint WAL）。之后本进程不应再访问数据库。
+     * 会阻塞调用线程，应在后台线程调用。
+     */
+    public static void shutdown() {
+        AppDatabase local;
+        synchronized (AppDatabase.class) {
+            local = instance;
+            instance = null;
+        }
+        if (local == null) return;
+        if (!local.executor.shutdown(SHUTDOWN_TIMEOUT_MS)) Log.w("AppDatabase", "pending writes did not finish before shutdown");
+        Audit.flush(local.db);
+        local.helper.close();
+    }
+
+    public DatabaseHelper getHelper() { return helper; }
+
+    // 共享连接：读写均可使用，生命周期由本类管理，调用方不得 close()
+    public SQLiteDatabase getDatabase() { return db; }
+
+    public ProductDAO getProductDAO() { return productDAO; }
+
+    // 以下 DAO 绑定 ApplicationContext，写操作会按当前登录角色做权限校验
+    public SaleDAO getSaleDAO() { return saleDAO; }
+
+    public PurchaseDAO getPurchaseDAO() { return purchaseDAO; }
+
+    public InventoryDAO getInventoryDAO() { return inventoryDAO; }
+
+    public SupplierDAO getSupplierDAO() { return supplierDAO; }
+
+    public UserDAO getUserDAO() { return userDAO; }
+
+    public ProductCache getProductCache() { return ProductCache.of(db); }
+
+    // 页面调用 DAO 时使用：读走后台读线程池，写走串行写线程，结果回到主线程
+    public DaoExecutor getExecutor() { return executor; }
+}
@@ -0,0 +1,259 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 收银扫码用的内存条码索引：条码 -> (商品 id, 名称, 售价, 货架库存)。
+ * 纯数字条码（EAN-13/UPC-A/EAN-8 等，最多 17 位）直接解析成 long 键放入开放寻址表，
+ * 键中带上位数以保留前导零；其他条码退回 HashMap<String, Integer>。
+ * 命中时只做数组读取并写入调用方复用的 Hit 对象，不访问数据库、不分配对象。
+ * 商品行变化提交后由写路径（CatalogChanges）按商品 id 精确失效，下一次扫码再从数据库读取该行；
+ * 库存只是扫码时的快照，扣减库存仍以 InventoryDAO 的条件更新为准。
+ */
+public final class BarcodeIndex {
+
+    private static final Map<SQLiteDatabase, BarcodeIndex> INDEXES = new WeakHashMap<>();
+
+    private static final int MAX_NUMERIC_DIGITS = 17;
+    private static final long NO_NUMERIC_KEY = -1L;
+
+    // 扫码查询结果，由调用方持有并重复使用
+    public static final class Hit {
+        public String productId;
+        public String name;
+        public double price;
+        public int stock;
+    }
+
+    private final SQLiteDatabase db;
+    private final AtomicBoolean loadStarted = new AtomicBoolean(false);
+    private volatile boolean loaded;
+
+    private final LongIntHashMap numericSlots = new LongIntHashMap(1024);
+    private final Map<String, Integer> textSlots = new HashMap<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+
+    // 槽位表（并行数组）
+    private String[] ids = new String[64];
+    private String[] names = new String[64];
+    private double[] prices = new double[64];
+    private int[] stocks = new int[64];
+    private long[] numericKeys = new long[64];
+    private String[] textKeys = new String[64];
+    private int slotCount;
+    private final List<Integer> freeSlots = new ArrayList<>();
+
+    // 每次失效递增；单行回填前后比对，避免把失效之前读到的旧数据写回索引
+    private long generation;
+    // 全量加载期间被失效的商品，加载结果中跳过
+    private Set<String> invalidatedDuringLoad;
+
+    private BarcodeIndex(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public static BarcodeIndex of(SQLiteDatabase db) {
+        synchronized (INDEXES) {
+            BarcodeIndex idx = INDEXES.get(db);
+            if (idx == null) {
+                idx = new BarcodeIndex(db);
+                INDEXES.put(db, idx);
+            }
+            return idx;
+        }
+    }
+
+    public boolean isLoaded() { return loaded; }
+
+    // 在后台线程加载（只会触发一次）
+    public void loadAsync() {
+        if (!loadStarted.compareAndSet(false, true)) return;
+        Thread t = new Thread(this::load, "barcode-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // 在当前线程加载（只会触发一次；已由其他线程开始时直接返回），供启动预热流程调用
+    public void loadOnce() {
+        if (loadStarted.compareAndSet(false, true)) load();
+    }
+
+    // 同步加载全部带条码的商品
+    public void load() {
+        loadStarted.set(true);
+        synchronized (this) {
+            invalidatedDuringLoad = new HashSet<>();
+        }
+        List<Object[]> rows = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT " + Constants.COLUMN_BARCODE + ", " + Constants.COLUMN_PRODUCT_ID + ", " + Constants.COLUMN_PRODUCT_NAME + ", " +
+                    Constants.COLUMN_PRICE + ", " + Constants.COLUMN_STOCK + " FROM " + Constants.TABLE_PRODUCTS +
+                    " WHERE " + Constants.COLUMN_BARCODE + " IS NOT NULL AND " + Constants.COLUMN_BARCODE + " != ''", null);
+            while (c.moveToNext()) {
+                rows.add(new Object[]{c.getString(0), c.getString(1), c.getString(2), c.getDouble(3), c.getInt(4)});
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+
+        synchronized (this) {
+            for (Object[] r : rows) {
+                String id = (String) r[1];
+                if (id == null || invalidatedDuringLoad.contains(id) || slotById.containsKey(id)) continue;
+                putLocked((String) r[0], id, (String) r[2], (Double) r[3], (Integer) r[4]);
+            }
+            invalidatedDuringLoad = null;
+            loaded = true;
+        }
+    }
+
+    /**
+     * 按条码查找，找到时填充 out 并返回 true。
+     * 索引中没有的条码（尚未加载或刚失效）查询一次数据库并回填。
+     */
+    public boolean lookup(String barcode, Hit out) {
+        if (barcode == null || barcode.isEmpty() || out == null) return false;
+        long key = numericKey(barcode);
+        long gen;
+        synchronized (this) {
+            int slot = key != NO_NUMERIC_KEY ? numericSlots.get(key) : slotOf(textSlots.get(barcode));
+            if (slot >= 0) {
+                out.productId = ids[slot];
+                out.name = names[slot];
+                out.price = prices[slot];
+                out.stock = stocks[slot];
+                return true;
+            }
+            gen = generation;
+        }
+        if (!loaded) loadAsync();
+        return loadOne(barcode, gen, out);
+    }
+
+    // 商品行发生变化（改名/改价/改条码/库存变动/删除）后调用
+    public synchronized void invalidate(String productId) {
+        if (productId == null) return;
+        generation++;
+        if (invalidatedDuringLoad != null) invalidatedDuringLoad.add(productId);
+        Integer slot = slotById.get(productId);
+        if (slot != null) removeSlotLocked(slot);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        numericSlots.clear();
+        textSlots.clear();
+        slotById.clear();
+        freeSlots.clear();
+        slotCount = 0;
+    }
+
+    // 纯数字且不超过 17 位的条码 -> (数值 << 5) | 位数；否则返回 NO_NUMERIC_KEY
+    static long numericKey(String barcode) {
+        int len = barcode.length();
+        if (len == 0 || len > MAX_NUMERIC_DIGITS) return NO_NUMERIC_KEY;
+        long v = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = barcode.charAt(i);
+            if (ch < '0' || ch > '9') return NO_NUMERIC_KEY;
+            v = v * 10 + (ch - '0');
+        }
+        return (v << 5) | len;
+    }
+
+    private static int slotOf(Integer slot) {
+        return slot != null ? slot : LongIntHashMap.MISSING;
+    }
+
+    private boolean loadOne(String barcode, long gen, Hit out) {
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT " + Constants.COLUMN_PRODUCT_ID + ", " + Constants.COLUMN_PRODUCT_NAME + ", " +
+                    Constants.COLUMN_PRICE + ", " + Constants.COLUMN_STOCK + " FROM " + Constants.TABLE_PRODUCTS +
+                    " WHERE " + Constants.COLUMN_BARCODE + " = ? LIMIT 1", new String[]{barcode});
+            if (!c.moveToFirst()) return false;
+            out.productId = c.getString(0);
+            out.name = c.getString(1);
+            out.price = c.getDouble(2);
+            out.stock = c.getInt(3);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (c != null) c.close();
+        }
+        // 事务中读到的可能是未提交的数据，不回填
+        if (out.productId == null || db.inTransaction()) return true;
+        synchronized (this) {
+            if (gen == generation && !slotById.containsKey(out.productId)) {
+                putLocked(barcode, out.productId, out.name, out.price, out.stock);
+            }
+        }
+        return true;
+    }
+
+    // ---------- 以下方法需持有 this 锁 ----------
+
+    private void putLocked(String barcode, String id, String name, double price, int stock) {
+        if (barcode == null || barcode.isEmpty()) return;
+        long key = numericKey(barcode);
+        // 条码已被其他商品占用（例如两次改条码之间）时先移除旧槽位
+        int existing = key != NO_NUMERIC_KEY ? numericSlots.get(key) : slotOf(textSlots.get(barcode));
+        if (existing >= 0) removeSlotLocked(existing);
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.remove(freeSlots.size() - 1);
+        } else {
+            if (slotCount == ids.length) grow();
+            slot = slotCount++;
+        }
+        ids[slot] = id;
+        names[slot] = name;
+        prices[slot] = price;
+        stocks[slot] = stock;
+        numericKeys[slot] = key;
+        if (key != NO_NUMERIC_KEY) {
+            numericSlots.put(key, slot);
+            textKeys[slot] = null;
+        } else {
+            textSlots.put(barcode, slot);
+            textKeys[slot] = barcode;
+        }
+        slotById.put(id, slot);
+    }
+
+    private void removeSlotLocked(int slot) {
+        slotById.remove(ids[slot]);
+        if (numericKeys[slot] != NO_NUMERIC_KEY) numericSlots.remove(numericKeys[slot]);
+        if (textKeys[slot] != null) textSlots.remove(textKeys[slot]);
+        ids[slot] = null;
+        names[slot] = null;
+        textKeys[slot] = null;
+        numericKeys[slot] = NO_NUMERIC_KEY;
+        freeSlots.add(slot);
+    }
+
+    private void grow() {
+        int cap = ids.length * 2;
+        ids = Arrays.copyOf(ids, cap);
+        names = Arrays.copyOf(names, cap);
+        prices = Arrays.copyOf(prices, cap);
+        stocks = Arrays.copyOf(stocks, cap);
+        numericKeys = Arrays.copyOf(numericKeys, cap);
+        textKeys = Arrays.copyOf(textKeys, cap);
+    }
+}
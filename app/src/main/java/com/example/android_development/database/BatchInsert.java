@@ -0,0 +1,78 @@
+package com.example.android_development.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.util.List;
+
+/**
+ * 多行 INSERT：INSERT INTO t (...) VALUES (...),(...),... 按绑定参数上限分块执行，
+ * 用于结账、收货、批量导入等一次写入几十上百行的场景，代替逐行 insert。
+ * 整块的语句通过 StatementCache 复用，最后不足一块的部分临时编译。需在调用方事务中执行。
+ */
+final class BatchInsert {
+
+    // 旧版 SQLite（3.32 之前）单条语句最多 999 个绑定参数
+    private static final int MAX_BIND_ARGS = 999;
+
+    private BatchInsert() {}
+
+    static void insertRows(SQLiteDatabase db, String table, String[] columns, List<Object[]> rows) {
+        insertRows(db, table, columns, rows, null);
+    }
+
+    /**
+     * suffix 追加在 VALUES 列表之后，例如 upsert 的 " ON CONFLICT(barcode) DO UPDATE SET ..."（需 SQLite 3.24+）。
+     */
+    static void insertRows(SQLiteDatabase db, String table, String[] columns, List<Object[]> rows, String suffix) {
+        if (rows == null || rows.isEmpty()) return;
+        int rowsPerChunk = Math.max(1, MAX_BIND_ARGS / columns.length);
+        StatementCache cache = StatementCache.of(db);
+        for (int start = 0; start < rows.size(); start += rowsPerChunk) {
+            int end = Math.min(rows.size(), start + rowsPerChunk);
+            int count = end - start;
+            String sql = buildSql(table, columns, count);
+            if (suffix != null) sql += suffix;
+            if (count == rowsPerChunk) {
+                final int from = start;
+                cache.executeUpdateDelete(sql, st -> bindRows(st, rows, from, count));
+            } else {
+                SQLiteStatement st = db.compileStatement(sql);
+                try {
+                    bindRows(st, rows, start, count);
+                    st.executeUpdateDelete();
+                } finally {
+                    st.close();
+                }
+            }
+        }
+    }
+
+    private static void bindRows(SQLiteStatement st, List<Object[]> rows, int from, int count) {
+        int index = 1;
+        for (int r = from; r < from + count; r++) {
+            for (Object value : rows.get(r)) {
+                DatabaseUtils.bindObjectToProgram(st, index++, value);
+            }
+        }
+    }
+
+    static String buildSql(String table, String[] columns, int rowCount) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(columns[i]);
+        }
+        sb.append(") VALUES ");
+        for (int r = 0; r < rowCount; r++) {
+            if (r > 0) sb.append(',');
+            sb.append('(');
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append('?');
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+}
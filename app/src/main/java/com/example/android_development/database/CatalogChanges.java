@@ -0,0 +1,87 @@
+package com.example.android_development.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.util.Audit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品写路径的统一通知点：商品新增/修改/删除或货架库存变化后调用，
+ * 由这里转发给各个内存索引（拼音索引、条码索引）和商品缓存，避免每个写入点分别维护。
+ * 通知必须在数据提交之后生效：提交前失效的话，其他线程（WAL 读连接）会按旧数据重新载入并以新版本缓存。
+ * 因此在事务中调用时只记在本线程，由最外层事务的发起方在 endTransaction 之后调用 transactionEnded 执行。
+ * transactionEnded 同时处理事务中记下的普通审计（见 AuditWriter）。
+ */
+final class CatalogChanges {
+
+    // 本线程事务中尚未生效的通知
+    private static final ThreadLocal<List<Runnable>> PENDING = ThreadLocal.withInitial(ArrayList::new);
+
+    private CatalogChanges() {}
+
+    // 商品新增或修改（名称、价格、条码等）
+    static void productSaved(SQLiteDatabase db, String productId, String name) {
+        if (productId == null) return;
+        dispatch(db, () -> {
+            PinyinIndex.of(db).onProductSaved(productId, name);
+            BarcodeIndex.of(db).invalidate(productId);
+            ProductCache.of(db).invalidate(productId);
+        });
+    }
+
+    static void productDeleted(SQLiteDatabase db, String productId) {
+        if (productId == null) return;
+        dispatch(db, () -> {
+            PinyinIndex.of(db).onProductDeleted(productId);
+            BarcodeIndex.of(db).invalidate(productId);
+            ProductCache.of(db).invalidate(productId);
+        });
+    }
+
+    // 批量写入大量商品后（CSV 导入、恢复备份）：整体重建内存索引并清空缓存，代替逐个商品通知。应在后台线程调用
+    static void catalogReloaded(SQLiteDatabase db) {
+        dispatch(db, () -> {
+            ProductCache.of(db).clear();
+            PinyinIndex.of(db).load();
+            BarcodeIndex.of(db).clear();
+            BarcodeIndex.of(db).load();
+        });
+    }
+
+    // 货架库存变化（名称不变，只需失效条码索引中的库存快照与商品缓存）
+    static void stockChanged(SQLiteDatabase db, String productId) {
+        if (productId == null) return;
+        dispatch(db, () -> {
+            BarcodeIndex.of(db).invalidate(productId);
+            ProductCache.of(db).invalidate(productId);
+        });
+    }
+
+    // 仓库库存变化（条码索引不含仓库库存）
+    static void warehouseStockChanged(SQLiteDatabase db, String productId) {
+        if (productId == null) return;
+        dispatch(db, () -> ProductCache.of(db).invalidate(productId));
+    }
+
+    /**
+     * 事务发起方在 endTransaction 之后调用（只有最外层事务结束时才处理）：
+     * committed 为 true 时执行事务中记下的通知，回滚时丢弃。
+     */
+    static void transactionEnded(SQLiteDatabase db, boolean committed) {
+        if (db.inTransaction()) return;
+        Audit.transactionEnded(db, committed);
+        List<Runnable> pending = PENDING.get();
+        if (pending.isEmpty()) return;
+        List<Runnable> run = new ArrayList<>(pending);
+        pending.clear();
+        if (!committed) return;
+        for (Runnable r : run) {
+            try { r.run(); } catch (Exception e) { e.printStackTrace(); }
+        }
+    }
+
+    private static void dispatch(SQLiteDatabase db, Runnable notification) {
+        if (db.inTransaction()) PENDING.get().add(notification);
+        else notification.run();
+    }
+}
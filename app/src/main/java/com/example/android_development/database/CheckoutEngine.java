@@ -0,0 +1,234 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.example.android_development.model.CheckoutResult;
+import com.example.android_development.model.Sale;
+import com.example.android_development.model.SaleLine;
+import com.example.android_development.util.Audit;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 整单结账：语句数量与购物篮行数基本无关。
+ * 1. 合并同一商品、同一单价的重复行；
+ * 2. 事务内用一条 IN 查询读取全部商品的货架库存并校验，任何一行不满足时整单不写入并返回逐行失败原因；
+ * 3. 销售行、库存扣减（CASE 表达式的单条 UPDATE）和库存事务均按批写入。
+ * 校验与写入在同一个写事务中，期间没有其他写入，因此扣减不需要再做逐行的条件检查。
+ */
+class CheckoutEngine {
+
+    // 旧版 SQLite 单条语句的绑定参数上限
+    private static final int MAX_BIND_ARGS = 999;
+
+    private static final String[] SALE_LINE_COLUMNS = {
+            Constants.COLUMN_SALE_LINE_ID, Constants.COLUMN_SALE_LINE_SALE_ID, Constants.COLUMN_SALE_LINE_PRODUCT_ID,
+            Constants.COLUMN_SALE_LINE_PRODUCT_NAME, Constants.COLUMN_SALE_LINE_QTY, Constants.COLUMN_SALE_LINE_PRICE
+    };
+
+    static final String[] STOCK_TX_COLUMNS = {
+            Constants.COLUMN_STOCK_TX_ID, Constants.COLUMN_STOCK_TX_PRODUCT_ID, Constants.COLUMN_STOCK_TX_PRODUCT_NAME,
+            Constants.COLUMN_STOCK_TX_USER_ID, Constants.COLUMN_STOCK_TX_USER_ROLE, Constants.COLUMN_STOCK_TX_TYPE,
+            Constants.COLUMN_STOCK_TX_QUANTITY, Constants.COLUMN_STOCK_TX_BEFORE, Constants.COLUMN_STOCK_TX_AFTER,
+            Constants.COLUMN_STOCK_TX_REASON, Constants.COLUMN_STOCK_TX_TIMESTAMP
+    };
+
+    private final SQLiteDatabase db;
+
+    CheckoutEngine(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    // 单个商品在本单中的汇总
+    private static final class Demand {
+        final String productId;
+        final int firstLine;
+        int qty;
+        String name;
+        int stock = -1; // -1 表示商品不存在
+
+        Demand(String productId, int firstLine) {
+            this.productId = productId;
+            this.firstLine = firstLine;
+        }
+    }
+
+    CheckoutResult checkout(Sale sale, String userId, String userRole) {
+        CheckoutResult result = new CheckoutResult();
+        List<SaleLine> original = sale.getLines() != null ? sale.getLines() : new ArrayList<>();
+
+        // 逐行检查数量，并按商品汇总需求
+        Map<String, Demand> demands = new LinkedHashMap<>();
+        for (int i = 0; i < original.size(); i++) {
+            SaleLine l = original.get(i);
+            if (l.getProductId() == null || l.getQty() <= 0) {
+                result.addFailure(new CheckoutResult.LineFailure(i, l.getProductId(), l.getProductName(), l.getQty(), 0, CheckoutResult.REASON_INVALID_QTY));
+                continue;
+            }
+            Demand d = demands.get(l.getProductId());
+            if (d == null) {
+                d = new Demand(l.getProductId(), i);
+                demands.put(l.getProductId(), d);
+            }
+            d.qty += l.getQty();
+        }
+        if (demands.isEmpty() && result.getFailures().isEmpty()) {
+            // 空单
+            result.addFailure(new CheckoutResult.LineFailure(-1, null, null, 0, 0, CheckoutResult.REASON_INVALID_QTY));
+        }
+        if (!result.getFailures().isEmpty()) return result;
+
+        List<SaleLine> lines = mergeLines(original);
+
+        db.beginTransaction();
+        try {
+            // 1. 一次查询校验整单库存
+            loadStock(demands);
+            for (Demand d : demands.values()) {
+                if (d.stock < 0) {
+                    result.addFailure(new CheckoutResult.LineFailure(d.firstLine, d.productId, nameOf(original, d), d.qty, 0, CheckoutResult.REASON_NOT_FOUND));
+                } else if (d.stock < d.qty) {
+                    result.addFailure(new CheckoutResult.LineFailure(d.firstLine, d.productId, nameOf(original, d), d.qty, d.stock, CheckoutResult.REASON_INSUFFICIENT_STOCK));
+                }
+            }
+            if (!result.getFailures().isEmpty()) return result;
+
+            // 2. 销售单与销售行
+            if (sale.getId() == null || sale.getId().isEmpty()) sale.setId(UUID.randomUUID().toString());
+            long now = System.currentTimeMillis();
+            sale.setTimestamp(now);
+            long rowId = StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_SALE, st -> StatementBinders.bindSale(st, sale));
+            if (rowId == -1) throw new Exception("Failed to insert sale");
+
+            List<Object[]> lineRows = new ArrayList<>(lines.size());
+            for (SaleLine l : lines) {
+                if (l.getId() == null || l.getId().isEmpty()) l.setId(UUID.randomUUID().toString());
+                l.setSaleId(sale.getId());
+                lineRows.add(new Object[]{l.getId(), l.getSaleId(), l.getProductId(), l.getProductName(), l.getQty(), l.getPrice()});
+            }
+            BatchInsert.insertRows(db, Constants.TABLE_SALE_LINES, SALE_LINE_COLUMNS, lineRows);
+
+            // 3. 库存扣减
+            List<Demand> all = new ArrayList<>(demands.values());
+            int updated = decrementShelfStock(all, now);
+            if (updated != all.size()) throw new Exception("stock update touched " + updated + " of " + all.size() + " products");
+
+            // 4. 库存事务
+            List<Object[]> txRows = new ArrayList<>(all.size());
+            for (Demand d : all) {
+                txRows.add(new Object[]{UUID.randomUUID().toString(), d.productId, d.name, userId, userRole, "OUT",
+                        d.qty, d.stock, d.stock - d.qty, "sale", now});
+            }
+            BatchInsert.insertRows(db, Constants.TABLE_STOCK_TRANSACTIONS, STOCK_TX_COLUMNS, txRows);
+
+            db.setTransactionSuccessful();
+            sale.setLines(lines);
+            result.setRowId(rowId);
+        } catch (Exception e) {
+            e.printStackTrace();
+            // 整单回滚：给出明确原因，调用方不会把“未成功且没有失败项”误判为校验问题
+            result.addFailure(new CheckoutResult.LineFailure(-1, null, null, 0, 0, CheckoutResult.REASON_INTERNAL));
+            return result;
+        } finally {
+            db.endTransaction();
+        }
+
+        // 提交后：失效条码索引中的库存快照，审计走后台批量写入
+        for (Demand d : demands.values()) {
+            CatalogChanges.stockChanged(db, d.productId);
+            try { Audit.writeSystemAudit(db, userId, userRole, "product:" + d.productId, "out", "sale"); } catch (Exception ignored) {}
+        }
+        try { Audit.writeSystemAudit(db, userId, userRole, "sale:" + sale.getId(), "create", "create_sale"); } catch (Exception ignored) {}
+        return result;
+    }
+
+    // 同一商品、同一单价的行合并为一行（保持首次出现的顺序）
+    static List<SaleLine> mergeLines(List<SaleLine> lines) {
+        Map<String, SaleLine> merged = new LinkedHashMap<>();
+        for (SaleLine l : lines) {
+            String key = l.getProductId() + "\u0001" + l.getPrice();
+            SaleLine m = merged.get(key);
+            if (m == null) {
+                m = new SaleLine();
+                m.setId(l.getId());
+                m.setProductId(l.getProductId());
+                m.setProductName(l.getProductName());
+                m.setPrice(l.getPrice());
+                merged.put(key, m);
+            }
+            m.setQty(m.getQty() + l.getQty());
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static String nameOf(List<SaleLine> lines, Demand d) {
+        if (d.name != null) return d.name;
+        return lines.get(d.firstLine).getProductName();
+    }
+
+    private void loadStock(Map<String, Demand> demands) {
+        List<String> ids = new ArrayList<>(demands.keySet());
+        for (int start = 0; start < ids.size(); start += MAX_BIND_ARGS) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_BIND_ARGS));
+            String sql = "SELECT " + Constants.COLUMN_PRODUCT_ID + ", " + Constants.COLUMN_PRODUCT_NAME + ", " + Constants.COLUMN_STOCK +
+                    " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " IN (" + placeholders(chunk.size()) + ")";
+            Cursor c = null;
+            try {
+                c = db.rawQuery(sql, chunk.toArray(new String[0]));
+                while (c.moveToNext()) {
+                    Demand d = demands.get(c.getString(0));
+                    if (d == null) continue;
+                    d.name = c.getString(1);
+                    d.stock = c.getInt(2);
+                }
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+    }
+
+    // UPDATE products SET stock = stock - CASE product_id WHEN ? THEN ? ... END WHERE product_id IN (...)
+    private int decrementShelfStock(List<Demand> all, long now) {
+        int perChunk = (MAX_BIND_ARGS - 1) / 3;
+        int total = 0;
+        for (int start = 0; start < all.size(); start += perChunk) {
+            List<Demand> chunk = all.subList(start, Math.min(all.size(), start + perChunk));
+            StringBuilder sql = new StringBuilder("UPDATE ").append(Constants.TABLE_PRODUCTS).append(" SET ")
+                    .append(Constants.COLUMN_STOCK).append(" = ").append(Constants.COLUMN_STOCK).append(" - CASE ").append(Constants.COLUMN_PRODUCT_ID);
+            List<Object> args = new ArrayList<>(chunk.size() * 3 + 1);
+            for (Demand d : chunk) {
+                sql.append(" WHEN ? THEN ?");
+                args.add(d.productId);
+                args.add(d.qty);
+            }
+            sql.append(" ELSE 0 END, ").append(Constants.COLUMN_UPDATED_AT).append(" = ? WHERE ")
+                    .append(Constants.COLUMN_PRODUCT_ID).append(" IN (").append(placeholders(chunk.size())).append(")");
+            args.add(now);
+            for (Demand d : chunk) args.add(d.productId);
+
+            SQLiteStatement st = db.compileStatement(sql.toString());
+            try {
+                for (int i = 0; i < args.size(); i++) DatabaseUtils.bindObjectToProgram(st, i + 1, args.get(i));
+                total += st.executeUpdateDelete();
+            } finally {
+                st.close();
+            }
+        }
+        return total;
+    }
+
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.android_development.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DAO 的后台执行层：页面不再在主线程直接调用 DAO。
+ * - 读操作在有界读线程池中并发执行（WAL 下由系统连接池分配只读连接）；
+ * - 写操作在唯一的写线程上按提交顺序串行执行，避免多个写事务争用主连接；
+ * - 结果在主线程回调；页面销毁或任务被取消后结果直接丢弃，不会回调到已销毁的 Activity。
+ *
+ * 用法（在 Activity 中）：
+ *   DaoExecutor.DbTask<List<Product>> t = AppDatabase.getInstance(this).getExecutor()
+ *           .read(this, () -> productDAO.getAllProducts(), list -> showProducts(list));
+ * 同一输入框的联想查询可在提交新任务前 cancel() 上一个任务，只保留最新结果。
+ */
+public final class DaoExecutor {
+
+    // 主线程回调
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Throwable error) {
+            error.printStackTrace();
+        }
+    }
+
+    private final ExecutorService readPool;
+    private final ExecutorService writer;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    DaoExecutor() {
+        int readers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(readers, readers, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "db-read-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.readPool = pool;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "db-write");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // 在读线程池执行；owner 可为 null（不绑定生命周期）
+    public <T> DbTask<T> read(LifecycleOwner owner, Callable<T> work, Callback<T> callback) {
+        return submit(readPool, owner, work, callback, true);
+    }
+
+    // 在写线程上串行执行；owner 销毁只会丢弃回调，排队中和已开始的写操作都照常完成
+    public <T> DbTask<T> write(LifecycleOwner owner, Callable<T> work, Callback<T> callback) {
+        return submit(writer, owner, work, callback, false);
+    }
+
+    private <T> DbTask<T> submit(ExecutorService executor, LifecycleOwner owner, Callable<T> work, Callback<T> callback,
+                                 boolean cancelOnDestroy) {
+        DbTask<T> task = new DbTask<>(work, callback, mainHandler, cancelOnDestroy);
+        if (owner != null) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                task.bind(owner);
+            } else {
+                mainHandler.post(() -> task.bind(owner));
+            }
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    // 进程退出前调用：不再接受新任务，等待已提交的写任务执行完（最多 timeoutMs），返回是否全部完成
+    boolean shutdown(long timeoutMs) {
+        readPool.shutdown();
+        writer.shutdown();
+        try {
+            return writer.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 可取消的后台任务。cancel() 后尚未开始的任务不再执行，已完成的结果不再回调；
+     * 不会中断正在执行的 SQL（SQLite 语句不响应线程中断）。
+     * owner 销毁时：读任务直接取消；写任务只丢弃回调，不取消（避免已提交的销售等写入丢失）。
+     */
+    public static final class DbTask<T> extends FutureTask<T> {
+
+        private final Callback<T> callback;
+        private final Handler mainHandler;
+        private final boolean cancelOnDestroy;
+        private LifecycleOwner owner;
+        private LifecycleEventObserver observer;
+        // 已完成但尚未回调时被取消，也要丢弃结果
+        private volatile boolean dropped;
+
+        DbTask(Callable<T> work, Callback<T> callback, Handler mainHandler, boolean cancelOnDestroy) {
+            super(work);
+            this.callback = callback;
+            this.mainHandler = mainHandler;
+            this.cancelOnDestroy = cancelOnDestroy;
+        }
+
+        public void cancel() {
+            cancel(false);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            dropped = true;
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        // 仅在主线程调用
+        void bind(LifecycleOwner owner) {
+            if (dropped) return;
+            Lifecycle lifecycle = owner.getLifecycle();
+            if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                ownerDestroyed();
+                return;
+            }
+            this.owner = owner;
+            this.observer = (source, event) -> {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    ownerDestroyed();
+                    unbind();
+                }
+            };
+            lifecycle.addObserver(observer);
+        }
+
+        // 写任务只丢弃回调，任务本身继续排队执行
+        private void ownerDestroyed() {
+            if (cancelOnDestroy) {
+                cancel(false);
+            } else {
+                dropped = true;
+            }
+        }
+
+        private void unbind() {
+            if (owner != null && observer != null) owner.getLifecycle().removeObserver(observer);
+            owner = null;
+            observer = null;
+        }
+
+        @Override
+        protected void done() {
+            mainHandler.post(this::deliver);
+        }
+
+        private void deliver() {
+            unbind();
+            if (dropped || callback == null) return;
+            T value;
+            try {
+                value = get();
+            } catch (CancellationException e) {
+                return;
+            } catch (ExecutionException e) {
+                callback.onError(e.getCause() != null ? e.getCause() : e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            callback.onResult(value);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.android_development.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+import com.example.android_development.util.Audit;
+import com.example.android_development.util.Constants;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 数据库在线快照备份与恢复。
+ * - 备份：另开一个连接执行 VACUUM INTO 生成一致性快照（WAL 下只占一个读事务，收银写入不受阻塞），
+ *   再 gzip 压缩写入 files/backups，文件名带时间与表结构版本；
+ * - 保留：最近 KEEP_HOURLY 小时每小时保留最新一份，最近 KEEP_DAILY 天每天保留最新一份，其余删除；
+ * - 恢复：先解压到临时文件并校验（integrity_check、表结构版本、必需表），通过后放到数据库目录等待替换；
+ *   下次进程启动、AppDatabase 打开数据库之前替换数据库文件（见 applyPendingRestore），旧版本快照随后按 SchemaMigrations 升级，
+ *   打开后重建商品全文检索（products 没有 INTEGER PRIMARY KEY，VACUUM INTO 后 rowid 可能与快照中的 products_fts 不一致）。
+ * 备份与校验涉及整库读写，应在后台线程调用（定时任务见 BackupJobService）。
+ */
+public final class DatabaseBackup {
+
+    private static final String TAG = "Backup";
+
+    static final String DIR = "backups";
+    private static final String PREFIX = "supermarket-";
+    private static final String SUFFIX = ".db.gz";
+    private static final Pattern NAME = Pattern.compile("supermarket-(\\d{8}-\\d{6})-v(\\d+)\\.db\\.gz");
+    private static final String PENDING_RESTORE_SUFFIX = ".restore";
+    // 替换期间原数据库（连同 -wal 等）暂存的文件名后缀；替换失败时改回
+    private static final String REPLACED_SUFFIX = ".replaced";
+
+    public static final int KEEP_HOURLY = 24;
+    public static final int KEEP_DAILY = 14;
+    private static final long HOUR_MS = 60L * 60 * 1000;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // 同一时间只执行一个备份/恢复
+    private static final Object LOCK = new Object();
+
+    public static final class Snapshot {
+        public final File file;
+        public final long createdAt;
+        public final int schemaVersion;
+
+        Snapshot(File file, long createdAt, int schemaVersion) {
+            this.file = file;
+            this.createdAt = createdAt;
+            this.schemaVersion = schemaVersion;
+        }
+
+        public long getSizeBytes() { return file.length(); }
+    }
+
+    // 一次备份的耗时与吞吐
+    public static final class Stats {
+        public final File file;
+        public final long databaseBytes;
+        public final long compressedBytes;
+        public final long snapshotMs;
+        public final long compressMs;
+
+        Stats(File file, long databaseBytes, long compressedBytes, long snapshotMs, long compressMs) {
+            this.file = file;
+            this.databaseBytes = databaseBytes;
+            this.compressedBytes = compressedBytes;
+            this.snapshotMs = snapshotMs;
+            this.compressMs = compressMs;
+        }
+
+        public long getTotalMs() { return snapshotMs + compressMs; }
+
+        // 以数据库原始大小计算的 MB/s
+        public double getMegabytesPerSecond() {
+            long ms = getTotalMs();
+            return ms > 0 ? databaseBytes / 1048576.0 * 1000 / ms : 0;
+        }
+
+        @Override
+        public String toString() {
+            return file.getName() + " db=" + databaseBytes + "B gz=" + compressedBytes + "B snapshot=" + snapshotMs +
+                    "ms compress=" + compressMs + "ms " + String.format(Locale.US, "%.1f", getMegabytesPerSecond()) + "MB/s";
+        }
+    }
+
+    private final Context appContext;
+
+    public DatabaseBackup(Context context) {
+        Context app = context.getApplicationContext();
+        this.appContext = app != null ? app : context;
+    }
+
+    public File getBackupDir() {
+        return new File(appContext.getFilesDir(), DIR);
+    }
+
+    /** 生成一份压缩快照；失败抛出 IOException（未完成的文件会被删除） */
+    public Stats backupNow() throws IOException {
+        synchronized (LOCK) {
+            // 队列中的审计先落盘，快照中才包含
+            Audit.flush(AppDatabase.getInstance(appContext).getDatabase());
+
+            File dir = getBackupDir();
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+            File raw = new File(dir, "snapshot.tmp");
+            if (raw.exists() && !raw.delete()) throw new IOException("cannot delete " + raw);
+
+            long createdAt = System.currentTimeMillis();
+            long t0 = SystemClock.elapsedRealtime();
+            int version;
+            SQLiteDatabase conn = openSeparate(appContext.getDatabasePath(Constants.DATABASE_NAME), true);
+            try {
+                version = userVersion(conn);
+                conn.execSQL("VACUUM INTO ?", new Object[]{raw.getPath()});
+            } finally {
+                conn.close();
+            }
+            long snapshotMs = SystemClock.elapsedRealtime() - t0;
+
+            String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date(createdAt));
+            File out = new File(dir, PREFIX + stamp + "-v" + version + SUFFIX);
+            File part = new File(dir, out.getName() + ".part");
+            long t1 = SystemClock.elapsedRealtime();
+            try {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(raw), BUFFER_SIZE);
+                     OutputStream os = new GZIPOutputStream(new FileOutputStream(part), BUFFER_SIZE)) {
+                    copy(in, os);
+                }
+                if (!part.renameTo(out)) throw new IOException("cannot rename " + part);
+            } finally {
+                part.delete();
+            }
+            long compressMs = SystemClock.elapsedRealtime() - t1;
+            long rawBytes = raw.length();
+            raw.delete();
+
+            Stats stats = new Stats(out, rawBytes, out.length(), snapshotMs, compressMs);
+            Log.i(TAG, "备份完成: " + stats);
+            return stats;
+        }
+    }
+
+    // 现有快照，按时间从新到旧
+    public List<Snapshot> listSnapshots() {
+        List<Snapshot> list = new ArrayList<>();
+        File[] files = getBackupDir().listFiles();
+        if (files == null) return list;
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US);
+        for (File f : files) {
+            Matcher m = NAME.matcher(f.getName());
+            if (!m.matches()) continue;
+            try {
+                list.add(new Snapshot(f, fmt.parse(m.group(1)).getTime(), Integer.parseInt(m.group(2))));
+            } catch (Exception ignored) {}
+        }
+        list.sort((a, b) -> Long.compare(b.createdAt, a.createdAt));
+        return list;
+    }
+
+    /** 按保留策略删除多余快照，返回删除的个数；最新一份始终保留 */
+    public int prune(long now) {
+        synchronized (LOCK) {
+            List<Snapshot> all = listSnapshots();
+            Set<Long> hours = new HashSet<>();
+            Set<String> days = new HashSet<>();
+            SimpleDateFormat dayFmt = new SimpleDateFormat("yyyyMMdd", Locale.US);
+            int deleted = 0;
+            for (int i = 0; i < all.size(); i++) {
+                Snapshot s = all.get(i);
+                long age = now - s.createdAt;
+                boolean keep = i == 0;
+                // 列表从新到旧，每个小时/每天第一次出现的即为该时段最新的一份
+                if (age < KEEP_HOURLY * HOUR_MS && hours.add(s.createdAt / HOUR_MS)) keep = true;
+                if (age < KEEP_DAILY * DAY_MS && days.add(dayFmt.format(new Date(s.createdAt)))) keep = true;
+                if (!keep && s.file.delete()) deleted++;
+            }
+            if (deleted > 0) Log.i(TAG, "删除过期快照 " + deleted + " 份");
+            return deleted;
+        }
+    }
+
+    /** 校验快照，返回其表结构版本；不可用时抛出 IOException（消息为原因） */
+    public int verify(File snapshot) throws IOException {
+        File tmp = new File(appContext.getCacheDir(), "verify-" + snapshot.getName() + ".db");
+        try {
+            return decompressAndVerify(snapshot, tmp);
+        } finally {
+            deleteWithSidecars(tmp);
+        }
+    }
+
+    /**
+     * 校验并准备恢复：先备份当前数据库，再把快照解压到数据库目录，下次启动时替换。
+     * 调用方随后应重启应用（当前进程仍在使用原数据库）。
+     */
+    public void scheduleRestore(File snapshot) throws IOException {
+        synchronized (LOCK) {
+            File dbFile = appContext.getDatabasePath(Constants.DATABASE_NAME);
+            File staging = new File(dbFile.getPath() + PENDING_RESTORE_SUFFIX + ".tmp");
+            try {
+                int version = decompressAndVerify(snapshot, staging);
+                backupNow();
+                File pending = new File(dbFile.getPath() + PENDING_RESTORE_SUFFIX);
+                if (pending.exists() && !pending.delete()) throw new IOException("cannot delete " + pending);
+                if (!staging.renameTo(pending)) throw new IOException("cannot rename " + staging);
+                Log.i(TAG, "已准备恢复 " + snapshot.getName() + " (v" + version + ")，下次启动时生效");
+            } finally {
+                deleteWithSidecars(staging);
+            }
+        }
+    }
+
+    /**
+     * 在打开数据库之前调用：存在待恢复的快照时替换数据库文件，返回是否已替换。
+     * 原数据库连同 -wal/-shm 先整体改名暂存，快照就位后才删除；任何一步失败都改回原文件，
+     * 待恢复的快照保留到下次启动再试。替换后调用方应在打开数据库后重建商品全文检索。
+     */
+    static boolean applyPendingRestore(Context context) {
+        File dbFile = context.getDatabasePath(Constants.DATABASE_NAME);
+        File pending = new File(dbFile.getPath() + PENDING_RESTORE_SUFFIX);
+        if (!pending.exists()) return false;
+        File replaced = new File(dbFile.getPath() + REPLACED_SUFFIX);
+        deleteWithSidecars(replaced);
+        if (!renameWithSidecars(dbFile, replaced)) {
+            renameWithSidecars(replaced, dbFile);
+            Log.e(TAG, "恢复失败：无法移开当前数据库文件，保留原数据库");
+            return false;
+        }
+        if (!pending.renameTo(dbFile)) {
+            deleteWithSidecars(dbFile);
+            if (!renameWithSidecars(replaced, dbFile)) Log.e(TAG, "恢复失败且无法改回原数据库，原文件保留在 " + replaced);
+            else Log.e(TAG, "恢复失败：无法替换数据库文件，已改回原数据库");
+            return false;
+        }
+        deleteWithSidecars(replaced);
+        Log.i(TAG, "已从快照恢复数据库");
+        return true;
+    }
+
+    private int decompressAndVerify(File snapshot, File target) throws IOException {
+        deleteWithSidecars(target);
+        try (InputStream in = new GZIPInputStream(new FileInputStream(snapshot), BUFFER_SIZE);
+             OutputStream os = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE)) {
+            copy(in, os);
+        }
+        SQLiteDatabase conn;
+        try {
+            conn = openSeparate(target, false);
+        } catch (Exception e) {
+            throw new IOException("无法打开快照: " + e.getMessage());
+        }
+        try {
+            String check = null;
+            Cursor c = conn.rawQuery("PRAGMA integrity_check", null);
+            try {
+                if (c.moveToFirst()) check = c.getString(0);
+            } finally {
+                c.close();
+            }
+            if (!"ok".equalsIgnoreCase(check)) throw new IOException("完整性检查失败: " + check);
+
+            int version = userVersion(conn);
+            if (version <= 0 || version > Constants.DATABASE_VERSION) {
+                throw new IOException("表结构版本不兼容: v" + version + "（当前 v" + Constants.DATABASE_VERSION + "）");
+            }
+            for (String table : new String[]{Constants.TABLE_USERS, Constants.TABLE_PRODUCTS}) {
+                c = conn.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table});
+                try {
+                    if (!c.moveToFirst()) throw new IOException("缺少数据表: " + table);
+                } finally {
+                    c.close();
+                }
+            }
+            return version;
+        } finally {
+            conn.close();
+        }
+    }
+
+    // 独立连接：不写 android_metadata，不占用共享连接池；wal 与线上库的日志模式保持一致，临时文件不需要
+    private static SQLiteDatabase openSeparate(File file, boolean wal) {
+        int flags = SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.NO_LOCALIZED_COLLATORS;
+        if (wal) flags |= SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING;
+        return SQLiteDatabase.openDatabase(file.getPath(), null, flags);
+    }
+
+    private static int userVersion(SQLiteDatabase conn) {
+        Cursor c = conn.rawQuery("PRAGMA user_version", null);
+        try {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream os) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) > 0) os.write(buf, 0, n);
+    }
+
+    private static final String[] SIDECARS = {"-wal", "-shm", "-journal"};
+
+    // 数据库文件及存在的 -wal/-shm/-journal 一起改名；任一失败返回 false（已改名的保持原样，由调用方改回）
+    private static boolean renameWithSidecars(File from, File to) {
+        for (String suffix : SIDECARS) {
+            File f = new File(from.getPath() + suffix);
+            if (f.exists() && !f.renameTo(new File(to.getPath() + suffix))) return false;
+        }
+        return !from.exists() || from.renameTo(to);
+    }
+
+    private static void deleteWithSidecars(File db) {
+        db.delete();
+        for (String suffix : SIDECARS) new File(db.getPath() + suffix).delete();
+    }
+}
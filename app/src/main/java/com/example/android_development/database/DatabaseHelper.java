@@ -10,37 +10,19 @@ import com.example.android_development.util.Constants;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import com.example.android_development.model.CursorMapper;
 import com.example.android_development.model.Product;
 import com.example.android_development.model.User;
 import com.example.android_development.util.Audit;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
-    public DatabaseHelper(Context context) {
+    // 仅由 AppDatabase 创建；其它地方请使用 AppDatabase.getInstance(context).getHelper()
+    DatabaseHelper(Context context) {
                 super(context, Constants.DATABASE_NAME, null, Constants.DATABASE_VERSION);
                 this.context = context;
-    }
-
-    // Ensure a column exists on a table; if missing, attempt ALTER TABLE ADD COLUMN
-    private void ensureColumnExists(SQLiteDatabase db, String tableName, String columnName, String columnDef) {
-            try {
-                    android.database.Cursor c = db.rawQuery("PRAGMA table_info(" + tableName + ")", null);
-                    boolean found = false;
-                    if (c != null) {
-                            while (c.moveToNext()) {
-                                    String name = c.getString(c.getColumnIndexOrThrow("name"));
-                                    if (columnName.equals(name)) { found = true; break; }
-                            }
-                            c.close();
-                    }
-                    if (!found) {
-                            try {
-                                    db.execSQL("ALTER TABLE " + tableName + " ADD COLUMN " + columnName + " " + columnDef);
-                            } catch (Exception ignored) {
-                                    // some SQLite versions may not allow ALTER ADD in certain contexts — ignore
-                            }
-                    }
-            } catch (Exception ignored) {}
+                // WAL：读写互不阻塞，读操作可并发使用连接池中的只读连接
+                setWriteAheadLoggingEnabled(true);
     }
 
         private Context context;
@@ -81,15 +63,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 try {
                         db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_COUNT_LINES);
                 } catch (Exception ignored) {}
+                // 系统审计表（此前只在升级路径创建，新安装时审计写入会全部失败）
+                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SYSTEM_AUDIT); } catch (Exception ignored) {}
 
-                // 创建商品相关索引以提高查询性能
+                // 创建商品相关索引以提高查询性能（名称/分类由访问路径索引中的键集分页索引覆盖）
                 try {
-                        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_NAME);
                         db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_BARCODE);
-                        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_CATEGORY);
                 } catch (Exception e) {
                         e.printStackTrace();
                 }
+                createAccessPathIndexes(db);
+                boolean searchIndexCreated = createProductSearchIndex(db);
+                createSalesRollups(db);
+                // 新建的即是最新结构：所有迁移步骤记为已执行；全文检索没建成时留待下次打开重试
+                SchemaMigrations.markAppliedUpTo(db, SchemaMigrations.latestId());
+                if (!searchIndexCreated) SchemaMigrations.markProductSearchIndexPending(db);
 
         // 插入不同角色的测试用户
         insertTestUsers(db);
@@ -257,7 +245,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         // ---------- Product CRUD ----------
         public long addProduct(ContentValues values) {
                 SQLiteDatabase db = getWritableDatabase();
-                return db.insertWithOnConflict(Constants.TABLE_PRODUCTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                long res = db.insertWithOnConflict(Constants.TABLE_PRODUCTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                if (res != -1) CatalogChanges.productSaved(db, values.getAsString(Constants.COLUMN_PRODUCT_ID), values.getAsString(Constants.COLUMN_PRODUCT_NAME));
+                return res;
         }
 
         public Cursor getProductById(String productId) {
@@ -276,20 +266,32 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 SQLiteDatabase db = getWritableDatabase();
                 String where = Constants.COLUMN_PRODUCT_ID + " = ?";
                 String[] whereArgs = new String[]{productId};
-                return db.update(Constants.TABLE_PRODUCTS, values, where, whereArgs);
+                int rows = db.update(Constants.TABLE_PRODUCTS, values, where, whereArgs);
+                if (rows > 0) {
+                        if (values.containsKey(Constants.COLUMN_PRODUCT_NAME)) {
+                                CatalogChanges.productSaved(db, productId, values.getAsString(Constants.COLUMN_PRODUCT_NAME));
+                        } else {
+                                CatalogChanges.stockChanged(db, productId);
+                        }
+                }
+                return rows;
         }
 
         public int deleteProduct(String productId) {
                 SQLiteDatabase db = getWritableDatabase();
                 String where = Constants.COLUMN_PRODUCT_ID + " = ?";
                 String[] whereArgs = new String[]{productId};
-                return db.delete(Constants.TABLE_PRODUCTS, where, whereArgs);
+                int rows = db.delete(Constants.TABLE_PRODUCTS, where, whereArgs);
+                if (rows > 0) CatalogChanges.productDeleted(db, productId);
+                return rows;
         }
 
         // ---------- User CRUD ----------
         public long addUser(ContentValues values) {
                 SQLiteDatabase db = getWritableDatabase();
-                return db.insertWithOnConflict(Constants.TABLE_USERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                long res = db.insertWithOnConflict(Constants.TABLE_USERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                if (res != -1) UserDirectory.of(db).invalidate();
+                return res;
         }
 
         public Cursor getUserById(String userId) {
@@ -308,14 +310,18 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 SQLiteDatabase db = getWritableDatabase();
                 String where = Constants.COLUMN_USER_ID + " = ?";
                 String[] whereArgs = new String[]{userId};
-                return db.update(Constants.TABLE_USERS, values, where, whereArgs);
+                int rows = db.update(Constants.TABLE_USERS, values, where, whereArgs);
+                if (rows > 0) UserDirectory.of(db).invalidate();
+                return rows;
         }
 
         public int deleteUser(String userId) {
                 SQLiteDatabase db = getWritableDatabase();
                 String where = Constants.COLUMN_USER_ID + " = ?";
                 String[] whereArgs = new String[]{userId};
-                return db.delete(Constants.TABLE_USERS, where, whereArgs);
+                int rows = db.delete(Constants.TABLE_USERS, where, whereArgs);
+                if (rows > 0) UserDirectory.of(db).invalidate();
+                return rows;
         }
 
         // ---------- Object/POJO wrappers ----------
@@ -323,8 +329,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 List<Product> list = new ArrayList<>();
                 Cursor c = getAllProducts();
                 if (c != null) {
+                        CursorMapper<Product> mapper = Product.mapper(c);
                         while (c.moveToNext()) {
-                                Product p = Product.fromCursor(c);
+                                Product p = mapper.map(c);
                                 list.add(p);
                         }
                         c.close();
@@ -333,6 +340,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
 
         public Product getProductByIdObject(String productId) {
+                return ProductCache.of(getReadableDatabase()).getById(productId, () -> loadProductByIdObject(productId));
+        }
+
+        private Product loadProductByIdObject(String productId) {
                 Cursor c = getProductById(productId);
                 Product p = null;
                 if (c != null) {
@@ -346,8 +357,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 List<User> list = new ArrayList<>();
                 Cursor c = getAllUsers();
                 if (c != null) {
+                        CursorMapper<User> mapper = User.mapper(c);
                         while (c.moveToNext()) {
-                                User u = User.fromCursor(c);
+                                User u = mapper.map(c);
                                 list.add(u);
                         }
                         c.close();
@@ -374,14 +386,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 long now = System.currentTimeMillis();
                 if (product.getCreatedAt() == 0) product.setCreatedAt(now);
                 product.setUpdatedAt(now);
-                ContentValues v = product.toContentValues();
-                return addProduct(v);
+                SQLiteDatabase db = getWritableDatabase();
+                long res = StatementCache.of(db).executeInsert(StatementBinders.SQL_REPLACE_PRODUCT,
+                                st -> StatementBinders.bindProduct(st, product));
+                if (res != -1) CatalogChanges.productSaved(db, product.getId(), product.getName());
+                return res;
         }
 
         public int updateProduct(Product product) {
                 if (product == null || product.getId() == null) return 0;
                 product.setUpdatedAt(System.currentTimeMillis());
-                return updateProduct(product.getId(), product.toContentValues());
+                SQLiteDatabase db = getWritableDatabase();
+                int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PRODUCT,
+                                st -> StatementBinders.bindProductUpdate(st, product));
+                if (rows > 0) CatalogChanges.productSaved(db, product.getId(), product.getName());
+                return rows;
         }
 
         public long addUser(User user) {
@@ -390,13 +409,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                         user.setId(UUID.randomUUID().toString());
                 }
                 if (user.getCreatedAt() == 0) user.setCreatedAt(System.currentTimeMillis());
-                ContentValues v = user.toContentValues();
-                return addUser(v);
+                SQLiteDatabase db = getWritableDatabase();
+                long res = StatementCache.of(db).executeInsert(StatementBinders.SQL_REPLACE_USER,
+                                st -> StatementBinders.bindUser(st, user));
+                if (res != -1) UserDirectory.of(db).invalidate();
+                return res;
         }
 
         public int updateUser(User user) {
                 if (user == null || user.getId() == null) return 0;
-                return updateUser(user.getId(), user.toContentValues());
+                SQLiteDatabase db = getWritableDatabase();
+                int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_USER,
+                                st -> StatementBinders.bindUserUpdate(st, user));
+                if (rows > 0) UserDirectory.of(db).invalidate();
+                return rows;
         }
 
         // ---------- Role-checked helpers (简单的基于角色的权限校验) ----------
@@ -430,26 +456,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 try {
                         if (res > 0) {
                                 SQLiteDatabase db = getWritableDatabase();
-                                // ensure product_name column exists before inserting
-                                ensureColumnExists(db, Constants.TABLE_STOCK_TRANSACTIONS, Constants.COLUMN_STOCK_TX_PRODUCT_NAME, "TEXT");
-                                ContentValues tx = new ContentValues();
-                                tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, product.getId());
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, product.getName());
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ID, userId);
                                 String role = null;
                                 if (userId != null) {
                                         User uobj = getUserByIdObject(userId);
                                         if (uobj != null) role = uobj.getRole();
                                 }
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, role);
-                                tx.put(Constants.COLUMN_STOCK_TX_TYPE, "ADD");
-                                tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, product != null ? product.getStock() : 0);
-                                tx.put(Constants.COLUMN_STOCK_TX_BEFORE, 0);
-                                tx.put(Constants.COLUMN_STOCK_TX_AFTER, product != null ? product.getStock() : 0);
-                                tx.put(Constants.COLUMN_STOCK_TX_REASON, "添加商品");
-                                tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                                try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
+                                int stock = product != null ? product.getStock() : 0;
+                                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, product.getId(), product.getName(), userId, role, "ADD", stock, 0, stock, "添加商品", System.currentTimeMillis()); } catch (Exception ignored) {}
                                 try { Audit.writeSystemAudit(db, userId, role, "product:" + product.getId(), "add", "添加商品"); } catch (Exception ignored) {}
                         }
                 } catch (Exception ignored) {}
@@ -463,52 +476,41 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
                 SQLiteDatabase db = getWritableDatabase();
                 int rows = 0;
+                boolean committed = false;
                 db.beginTransaction();
                 try {
                         // 获取修改前的库存
                         Product before = getProductByIdObject(product.getId());
                         int beforeStock = before != null ? before.getStock() : 0;
                         // 执行更新
-                        ContentValues v = product.toContentValues();
-                        String where = Constants.COLUMN_PRODUCT_ID + " = ?";
-                        String[] whereArgs = new String[]{product.getId()};
                         product.setUpdatedAt(System.currentTimeMillis());
-                        rows = (int) db.update(Constants.TABLE_PRODUCTS, v, where, whereArgs);
+                        rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PRODUCT,
+                                        st -> StatementBinders.bindProductUpdate(st, product));
 
                         // 如果库存发生变化，记录事务
                         int afterStock = product.getStock();
                         if (rows > 0 && beforeStock != afterStock) {
-                                ContentValues tx = new ContentValues();
-                                // ensure product_name column exists before inserting
-                                ensureColumnExists(db, Constants.TABLE_STOCK_TRANSACTIONS, Constants.COLUMN_STOCK_TX_PRODUCT_NAME, "TEXT");
-                                tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, product.getId());
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, product.getName());
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ID, userId);
                                 // 查询用户角色并写入
                                 String role = null;
                                 if (userId != null) {
                                         User uobj = getUserByIdObject(userId);
                                         if (uobj != null) role = uobj.getRole();
                                 }
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, role);
                                 String type = afterStock > beforeStock ? "IN" : "OUT";
-                                tx.put(Constants.COLUMN_STOCK_TX_TYPE, type);
-                                tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, Math.abs(afterStock - beforeStock));
-                                tx.put(Constants.COLUMN_STOCK_TX_BEFORE, beforeStock);
-                                tx.put(Constants.COLUMN_STOCK_TX_AFTER, afterStock);
-                                tx.put(Constants.COLUMN_STOCK_TX_REASON, "管理员修改库存");
-                                tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                                try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
+                                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, product.getId(), product.getName(), userId, role, type, Math.abs(afterStock - beforeStock), beforeStock, afterStock, "管理员修改库存", System.currentTimeMillis()); } catch (Exception ignored) {}
                                 try { Audit.writeSystemAudit(db, userId, role, "product:" + product.getId(), type.toLowerCase(), "管理员修改库存"); } catch (Exception ignored) {}
                         }
 
                         db.setTransactionSuccessful();
+                        committed = true;
                 } catch (Exception e) {
                         e.printStackTrace();
                 } finally {
                         db.endTransaction();
+                        CatalogChanges.transactionEnded(db, committed);
                 }
+                // 提交后再失效缓存与索引（提交前失效会被并发读取按旧数据重新缓存）
+                if (committed && rows > 0) CatalogChanges.productSaved(db, product.getId(), product.getName());
 
                 return rows;
         }
@@ -521,28 +523,14 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 try {
                         if (rows > 0) {
                                 SQLiteDatabase db = getWritableDatabase();
-                                // ensure product_name column exists before inserting
-                                ensureColumnExists(db, Constants.TABLE_STOCK_TRANSACTIONS, Constants.COLUMN_STOCK_TX_PRODUCT_NAME, "TEXT");
-                                ContentValues tx = new ContentValues();
-                                tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, productId);
-                                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, p != null ? p.getName() : null);
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ID, userId);
                                 String role = null;
                                 if (userId != null) {
                                         User uobj = getUserByIdObject(userId);
                                         if (uobj != null) role = uobj.getRole();
                                 }
-                                tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, role);
-                                tx.put(Constants.COLUMN_STOCK_TX_TYPE, "DELETE");
                                 int beforeStock = p != null ? p.getStock() : 0;
-                                tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, beforeStock);
-                                tx.put(Constants.COLUMN_STOCK_TX_BEFORE, beforeStock);
-                                tx.put(Constants.COLUMN_STOCK_TX_AFTER, 0);
-                                tx.put(Constants.COLUMN_STOCK_TX_REASON, "删除商品");
-                                tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                                try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
-                                try { Audit.writeSystemAudit(db, userId, role, "product:" + productId, "delete", "删除商品"); } catch (Exception ignored) {}
+                                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, productId, p != null ? p.getName() : null, userId, role, "DELETE", beforeStock, beforeStock, 0, "删除商品", System.currentTimeMillis()); } catch (Exception ignored) {}
+                                try { Audit.writeSystemAuditDurable(db, userId, role, "product:" + productId, "delete", "删除商品"); } catch (Exception ignored) {}
                         }
                 } catch (Exception ignored) {}
 
@@ -570,42 +558,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 String roleUserId = null;
                 SQLiteDatabase db = getWritableDatabase();
                 int rows = 0;
+                boolean committed = false;
                 db.beginTransaction();
                 try {
                         Product before = getProductByIdObject(product.getId());
                         int beforeStock = before != null ? before.getStock() : 0;
 
-                        ContentValues v = product.toContentValues();
-                        String where = Constants.COLUMN_PRODUCT_ID + " = ?";
-                        String[] whereArgs = new String[]{product.getId()};
                         product.setUpdatedAt(System.currentTimeMillis());
-                        rows = (int) db.update(Constants.TABLE_PRODUCTS, v, where, whereArgs);
+                        rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PRODUCT,
+                                        st -> StatementBinders.bindProductUpdate(st, product));
 
                         int afterStock = product.getStock();
                         if (rows > 0 && beforeStock != afterStock) {
-                                        ContentValues tx = new ContentValues();
-                                        tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                                        tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, product.getId());
-                                        tx.put(Constants.COLUMN_STOCK_TX_USER_ID, roleUserId);
                                         // Include user role when recording transactions
-                                        tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, userRole);
                                         String type = afterStock > beforeStock ? "IN" : "OUT";
-                                        tx.put(Constants.COLUMN_STOCK_TX_TYPE, type);
-                                        tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, Math.abs(afterStock - beforeStock));
-                                        tx.put(Constants.COLUMN_STOCK_TX_BEFORE, beforeStock);
-                                        tx.put(Constants.COLUMN_STOCK_TX_AFTER, afterStock);
-                                        tx.put(Constants.COLUMN_STOCK_TX_REASON, "通过角色修改库存");
-                                        tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                                        db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx);
+                                        StatementBinders.insertStockTransaction(StatementCache.of(db), null, product.getId(), null, roleUserId, userRole, type, Math.abs(afterStock - beforeStock), beforeStock, afterStock, "通过角色修改库存", System.currentTimeMillis());
                                         try { Audit.writeSystemAudit(db, roleUserId, userRole, "product:" + product.getId(), type.toLowerCase(), "通过角色修改库存"); } catch (Exception ignored) {}
                         }
 
                         db.setTransactionSuccessful();
+                        committed = true;
                 } catch (Exception e) {
                         e.printStackTrace();
                 } finally {
                         db.endTransaction();
+                        CatalogChanges.transactionEnded(db, committed);
                 }
+                // 提交后再失效缓存与索引（提交前失效会被并发读取按旧数据重新缓存）
+                if (committed && rows > 0) CatalogChanges.productSaved(db, product.getId(), product.getName());
 
                 return rows;
         }
@@ -621,191 +601,76 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-                // 使用增量迁移策略，尽量保留数据。仅在必要时添加新列或创建缺失表。
+                // 增量迁移见 SchemaMigrations。引入迁移表之前的库：编号不超过 oldVersion 的步骤当时已按版本执行过，直接记为已执行
+                // 待执行的步骤留给 onOpen：这里处于 SQLiteOpenHelper 的事务中，单步回滚会连带回滚整个升级
                 android.util.Log.d("DEBUG", "数据库从版本 " + oldVersion + " 升级到 " + newVersion);
+                if (oldVersion < SchemaMigrations.FIRST_TRACKED_VERSION) SchemaMigrations.markAppliedUpTo(db, oldVersion);
+    }
 
-                if (oldVersion < 4) {
-                    // Add new columns for warehouse stock
-                    ensureColumnExists(db, Constants.TABLE_PRODUCTS, Constants.COLUMN_WAREHOUSE_STOCK, "INTEGER DEFAULT 0");
-                    ensureColumnExists(db, Constants.TABLE_PRODUCTS, Constants.COLUMN_MIN_WAREHOUSE_STOCK, "INTEGER DEFAULT 0");
-                }
-
-                if (oldVersion < 5) {
-                    // Add new columns for production and expiration dates
-                    ensureColumnExists(db, Constants.TABLE_PRODUCTS, Constants.COLUMN_PRODUCTION_DATE, "INTEGER");
-                    ensureColumnExists(db, Constants.TABLE_PRODUCTS, Constants.COLUMN_EXPIRATION_DATE, "INTEGER");
-                }
-
-                                if (oldVersion < 6) {
-                                                // Ensure purchase_orders has status column and create approvals table
-                                                ensureColumnExists(db, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_STATUS, "TEXT DEFAULT '" + Constants.PO_STATUS_CREATED + "'");
-                                                try { db.execSQL(DbContract.SQL_CREATE_TABLE_PO_APPROVALS); } catch (Exception ignored) {}
-                                }
-
-                                if (oldVersion < 7) {
-                                        // Add PO name column
-                                        ensureColumnExists(db, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_NAME, "TEXT");
-                                        // For existing rows, populate a default name if empty: use PO-<first8 of id>
-                                        try {
-                                                db.execSQL("UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " + Constants.COLUMN_PO_NAME + " = ('PO-' || substr(" + Constants.COLUMN_PO_ID + ",1,8)) WHERE " + Constants.COLUMN_PO_NAME + " IS NULL OR trim(" + Constants.COLUMN_PO_NAME + ") = ''");
-                                        } catch (Exception ignored) {}
-                                }
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+                super.onConfigure(db);
+                // 商品全文检索的触发器调用 ngrams()，连接池中的每个连接都会注册（API 30 起可用）
+                db.setCustomScalarFunction(DbContract.FUNCTION_NGRAMS, ProductSearchEngine::grams);
+        }
 
-                // 保障 users 和 products 表存在（如果是非常旧的版本）
-                if (oldVersion < 2) {
-                        try {
-                                db.execSQL(DbContract.SQL_CREATE_TABLE_USERS);
-                        } catch (Exception ignored) {}
-                        try {
-                                db.execSQL(DbContract.SQL_CREATE_TABLE_PRODUCTS);
-                        } catch (Exception ignored) {}
-                        try {
-                                db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_TRANSACTIONS);
-                        } catch (Exception ignored) {}
-                }
+        @Override
+        public void onOpen(SQLiteDatabase db) {
+                super.onOpen(db);
+                // 补执行上次失败或尚未执行的步骤；没有待执行步骤时只读一次 schema_migrations
+                if (!db.isReadOnly()) SchemaMigrations.runPending(db);
+        }
 
-                if (oldVersion < 8) {
-                        // Add payment_method column to sales table
-                        try { ensureColumnExists(db, Constants.TABLE_SALES, Constants.COLUMN_SALE_PAYMENT_METHOD, "TEXT"); } catch (Exception ignored) {}
+        // 营收日/小时汇总表及 sales/refunds/purchase_orders 上的维护触发器
+        static void createSalesRollups(SQLiteDatabase db) {
+                try {
+                        db.execSQL(DbContract.SQL_CREATE_TABLE_SALES_ROLLUP_DAILY);
+                        db.execSQL(DbContract.SQL_CREATE_TABLE_SALES_ROLLUP_HOURLY);
+                        for (String sql : DbContract.SQL_CREATE_SALES_ROLLUP_TRIGGERS) db.execSQL(sql);
+                } catch (Exception e) {
+                        e.printStackTrace();
                 }
+        }
 
-                // 从版本 <3 升级：使用安全迁移脚本保留数据并为每条记录填充 user_role（如能从 users 表推断）
-                if (oldVersion < 3) {
-                        Cursor c = null;
-                        boolean tableExists = false;
-                        try {
-                                c = db.rawQuery("SELECT name FROM sqlite_master WHERE type='table' AND name='" + Constants.TABLE_STOCK_TRANSACTIONS + "'", null);
-                                if (c != null && c.moveToFirst()) tableExists = true;
-                        } catch (Exception e) {
-                                e.printStackTrace();
-                        } finally {
-                                if (c != null) c.close();
-                        }
-
-                        if (!tableExists) {
-                                // 表不存在，直接创建
-                                try {
-                                        db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_TRANSACTIONS);
-                                } catch (Exception e) {
-                                        e.printStackTrace();
-                                }
-                        } else {
-                                // 表存在但可能缺少 user_role，执行更安全的拷贝迁移：
-                                // 1) 创建新表 stock_transactions_new（带 user_role）
-                                // 2) 将旧表数据拷贝过来，同时通过 users 表填充 user_role
-                                // 3) 重命名表并删除旧表
-                                db.beginTransaction();
-                                try {
-                                        String newTable = Constants.TABLE_STOCK_TRANSACTIONS + "_new";
-                                        String createNew = "CREATE TABLE " + newTable + " (" +
-                                                Constants.COLUMN_STOCK_TX_ID + " TEXT PRIMARY KEY," +
-                                                Constants.COLUMN_STOCK_TX_PRODUCT_ID + " TEXT NOT NULL," +
-                                                Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " TEXT," +
-                                                Constants.COLUMN_STOCK_TX_USER_ID + " TEXT," +
-                                                Constants.COLUMN_STOCK_TX_USER_ROLE + " TEXT," +
-                                                Constants.COLUMN_STOCK_TX_TYPE + " TEXT NOT NULL," +
-                                                Constants.COLUMN_STOCK_TX_QUANTITY + " INTEGER NOT NULL," +
-                                                Constants.COLUMN_STOCK_TX_BEFORE + " INTEGER," +
-                                                Constants.COLUMN_STOCK_TX_AFTER + " INTEGER," +
-                                                Constants.COLUMN_STOCK_TX_REASON + " TEXT," +
-                                                Constants.COLUMN_STOCK_TX_TIMESTAMP + " INTEGER" +
-                                                ")";
-
-                                        db.execSQL(createNew);
-
-                                        // 将旧表数据拷贝到新表，同时尝试从 users 表获取 role
-                                        String insertSQL = "INSERT INTO " + newTable + " (" +
-                                                Constants.COLUMN_STOCK_TX_ID + "," +
-                                                Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," +
-                                                Constants.COLUMN_STOCK_TX_PRODUCT_NAME + "," +
-                                                Constants.COLUMN_STOCK_TX_USER_ID + "," +
-                                                Constants.COLUMN_STOCK_TX_USER_ROLE + "," +
-                                                Constants.COLUMN_STOCK_TX_TYPE + "," +
-                                                Constants.COLUMN_STOCK_TX_QUANTITY + "," +
-                                                Constants.COLUMN_STOCK_TX_BEFORE + "," +
-                                                Constants.COLUMN_STOCK_TX_AFTER + "," +
-                                                Constants.COLUMN_STOCK_TX_REASON + "," +
-                                                Constants.COLUMN_STOCK_TX_TIMESTAMP + 
-                                                ") SELECT " +
-                                                Constants.COLUMN_STOCK_TX_ID + "," +
-                                                Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," +
-                                                "(SELECT " + Constants.COLUMN_PRODUCT_NAME + " FROM " + Constants.TABLE_PRODUCTS + " p WHERE p." + Constants.COLUMN_PRODUCT_ID + " = " + Constants.TABLE_STOCK_TRANSACTIONS + "." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + ") as " + Constants.COLUMN_STOCK_TX_PRODUCT_NAME + "," +
-                                                Constants.COLUMN_STOCK_TX_USER_ID + "," +
-                                                "(SELECT " + Constants.COLUMN_ROLE + " FROM " + Constants.TABLE_USERS + " u WHERE u." + Constants.COLUMN_USER_ID + " = " + Constants.TABLE_STOCK_TRANSACTIONS + "." + Constants.COLUMN_STOCK_TX_USER_ID + ") as " + Constants.COLUMN_STOCK_TX_USER_ROLE + "," +
-                                                Constants.COLUMN_STOCK_TX_TYPE + "," +
-                                                Constants.COLUMN_STOCK_TX_QUANTITY + "," +
-                                                Constants.COLUMN_STOCK_TX_BEFORE + "," +
-                                                Constants.COLUMN_STOCK_TX_AFTER + "," +
-                                                Constants.COLUMN_STOCK_TX_REASON + "," +
-                                                Constants.COLUMN_STOCK_TX_TIMESTAMP + 
-                                                " FROM " + Constants.TABLE_STOCK_TRANSACTIONS;
-
-                                        db.execSQL(insertSQL);
-
-                                        // 将旧表重命名并替换
-                                        String oldTemp = Constants.TABLE_STOCK_TRANSACTIONS + "_old";
-                                        db.execSQL("ALTER TABLE " + Constants.TABLE_STOCK_TRANSACTIONS + " RENAME TO " + oldTemp);
-                                        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + Constants.TABLE_STOCK_TRANSACTIONS);
-                                        db.execSQL("DROP TABLE IF EXISTS " + oldTemp);
-
-                                        db.setTransactionSuccessful();
-                                } catch (Exception e) {
-                                        e.printStackTrace();
-                                        // 兜底：如果迁移失败，确保目标表存在
-                                        try {
-                                                db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_TRANSACTIONS);
-                                        } catch (Exception ex) {
-                                                ex.printStackTrace();
-                                        }
-                                } finally {
-                                        db.endTransaction();
-                                }
+        // 商品全文检索（FTS4 + ngrams() 二元片段）。返回是否建成；失败时删除不完整的表和触发器，
+        // 此时 ProductSearchEngine 自动退回 LIKE 查询。
+        static boolean createProductSearchIndex(SQLiteDatabase db) {
+                try {
+                        db.execSQL(DbContract.SQL_CREATE_PRODUCTS_FTS);
+                } catch (Exception e) {
+                        android.util.Log.w("DatabaseHelper", "FTS4 not available, product search falls back to LIKE: " + e.getMessage());
+                        return false;
                 }
-
-                // 确保在任何升级路径完成后，索引存在以提升查询性能
                 try {
-                        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_NAME);
-                        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_BARCODE);
-                        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_CATEGORY);
+                        db.execSQL(DbContract.SQL_CREATE_TRIGGER_PRODUCTS_FTS_INSERT);
+                        db.execSQL(DbContract.SQL_CREATE_TRIGGER_PRODUCTS_FTS_DELETE);
+                        db.execSQL(DbContract.SQL_CREATE_TRIGGER_PRODUCTS_FTS_UPDATE);
+                        for (String sql : DbContract.SQL_REBUILD_PRODUCTS_FTS) db.execSQL(sql);
+                        return true;
                 } catch (Exception e) {
                         e.printStackTrace();
+                        try {
+                                for (String sql : DbContract.SQL_DROP_PRODUCTS_FTS) db.execSQL(sql);
+                        } catch (Exception ignored) {}
+                        return false;
                 }
-                }
-
-                // 兜底：确保采购/盘点/销售等脚手架表在任何升级路径后都存在，防止旧数据库缺失表导致运行时异常
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SUPPLIERS); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_PURCHASE_ORDERS); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_PO_APPROVALS); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SYSTEM_AUDIT); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_PURCHASE_LINES); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SYSTEM_AUDIT); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_COUNTS); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_COUNT_LINES); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SALES); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_SALE_LINES); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_REFUNDS); } catch (Exception ignored) {}
-    }
+        }
 
-        @Override
-        public void onConfigure(SQLiteDatabase db) {
-                super.onConfigure(db);
-                // 在打开数据库时保障产品表包含 thumb_url 列（兼容老版本）
-                try {
-                        ensureColumnExists(db, Constants.TABLE_PRODUCTS, Constants.COLUMN_THUMB_URL, "TEXT");
-                } catch (Exception ignored) {}
-                try {
-                        ensureColumnExists(db, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_NAME, "TEXT");
-                } catch (Exception ignored) {}
-                try { ensureColumnExists(db, Constants.TABLE_SALES, Constants.COLUMN_SALE_PAYMENT_METHOD, "TEXT"); } catch (Exception ignored) {}
-                try { ensureColumnExists(db, Constants.TABLE_SALES, Constants.COLUMN_SALE_REFUNDED, "INTEGER"); } catch (Exception ignored) {}
-                try { ensureColumnExists(db, Constants.TABLE_SALES, Constants.COLUMN_SALE_REFUNDED_AT, "INTEGER"); } catch (Exception ignored) {}
-                try { db.execSQL(DbContract.SQL_CREATE_TABLE_REFUNDS); } catch (Exception ignored) {}
+        // 外键与时间范围访问路径索引；单条失败（如旧库缺表）不影响其余索引
+        static void createAccessPathIndexes(SQLiteDatabase db) {
+                for (String sql : DbContract.SQL_CREATE_ACCESS_PATH_INDEXES) {
+                        try { db.execSQL(sql); } catch (Exception e) { e.printStackTrace(); }
+                }
         }
 
         // 根据条码查询商品（返回 Product 对象）
         public Product getProductByBarcodeObject(String barcode) {
                 if (barcode == null || barcode.isEmpty()) return null;
                 SQLiteDatabase db = getReadableDatabase();
+                return ProductCache.of(db).getByBarcode(barcode, () -> loadProductByBarcodeObject(db, barcode));
+        }
+
+        private Product loadProductByBarcodeObject(SQLiteDatabase db, String barcode) {
                 String selection = Constants.COLUMN_BARCODE + " = ?";
                 String[] selectionArgs = new String[]{barcode};
                 Cursor c = db.query(Constants.TABLE_PRODUCTS, null, selection, selectionArgs, null, null, null);
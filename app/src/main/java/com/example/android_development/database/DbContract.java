@@ -50,6 +50,7 @@ public class DbContract {
             "DROP TABLE IF EXISTS " + Constants.TABLE_PRODUCTS;
 
     // 商品表索引（提升按名称/条码/分类的查询性能）
+    // name、category 两个单列索引已被 idx_products_name_id / idx_products_category_name_id 取代，只在旧迁移步骤中使用
     public static final String SQL_CREATE_INDEX_PRODUCTS_NAME =
             "CREATE INDEX IF NOT EXISTS idx_products_name ON " + Constants.TABLE_PRODUCTS + "(" + Constants.COLUMN_PRODUCT_NAME + ")";
 
@@ -59,6 +60,226 @@ public class DbContract {
     public static final String SQL_CREATE_INDEX_PRODUCTS_CATEGORY =
             "CREATE INDEX IF NOT EXISTS idx_products_category ON " + Constants.TABLE_PRODUCTS + "(" + Constants.COLUMN_CATEGORY + ")";
 
+    // 被键集分页索引取代的商品单列索引（升级到 19 时删除）
+    public static final String[] SQL_DROP_SUPERSEDED_PRODUCT_INDEXES = {
+            "DROP INDEX IF EXISTS idx_products_name",
+            "DROP INDEX IF EXISTS idx_products_category"
+    };
+
+    // 外键/时间范围访问路径索引（版本 9 引入）
+    // 版本 14 起包含 tx_id，库存历史按 (timestamp, tx_id) 键集分页时无需额外排序
+    public static final String SQL_CREATE_INDEX_STOCK_TX_PRODUCT_TS =
+            "CREATE INDEX IF NOT EXISTS idx_stock_tx_product_ts_id ON " + Constants.TABLE_STOCK_TRANSACTIONS + "(" + Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," + Constants.COLUMN_STOCK_TX_TIMESTAMP + "," + Constants.COLUMN_STOCK_TX_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_STOCK_TX_TS =
+            "CREATE INDEX IF NOT EXISTS idx_stock_tx_ts_id ON " + Constants.TABLE_STOCK_TRANSACTIONS + "(" + Constants.COLUMN_STOCK_TX_TIMESTAMP + "," + Constants.COLUMN_STOCK_TX_ID + ")";
+
+    // 被上面两个索引取代的旧索引（版本 9 引入，升级到 14 时删除）
+    public static final String[] SQL_DROP_SUPERSEDED_STOCK_TX_INDEXES = {
+            "DROP INDEX IF EXISTS idx_stock_tx_product_ts",
+            "DROP INDEX IF EXISTS idx_stock_tx_ts"
+    };
+
+    public static final String SQL_CREATE_INDEX_SALE_LINES_SALE_ID =
+            "CREATE INDEX IF NOT EXISTS idx_sale_lines_sale_id ON " + Constants.TABLE_SALE_LINES + "(" + Constants.COLUMN_SALE_LINE_SALE_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_SALES_TIMESTAMP =
+            "CREATE INDEX IF NOT EXISTS idx_sales_timestamp ON " + Constants.TABLE_SALES + "(" + Constants.COLUMN_SALE_TIMESTAMP + ")";
+
+    public static final String SQL_CREATE_INDEX_REFUNDS_SALE_ID =
+            "CREATE INDEX IF NOT EXISTS idx_refunds_sale_id ON " + Constants.TABLE_REFUNDS + "(" + Constants.COLUMN_REFUND_SALE_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_PURCHASE_LINES_PO_ID =
+            "CREATE INDEX IF NOT EXISTS idx_purchase_lines_po_id ON " + Constants.TABLE_PURCHASE_LINES + "(" + Constants.COLUMN_PO_LINE_PO_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_PO_APPROVALS_PO_ID =
+            "CREATE INDEX IF NOT EXISTS idx_po_approvals_po_id ON " + Constants.TABLE_PO_APPROVALS + "(" + Constants.COLUMN_PO_APPROVAL_PO_ID + "," + Constants.COLUMN_PO_APPROVAL_TIMESTAMP + ")";
+
+    public static final String SQL_CREATE_INDEX_SYSTEM_AUDIT_ENTITY =
+            "CREATE INDEX IF NOT EXISTS idx_system_audit_entity ON " + Constants.TABLE_SYSTEM_AUDIT + "(" + Constants.COLUMN_SYSTEM_AUDIT_ENTITY + "," + Constants.COLUMN_SYSTEM_AUDIT_TIMESTAMP + ")";
+
+    // 采购单按创建时间范围读取（版本 13 引入）；已被 idx_purchase_orders_created_id 取代，升级到 17 时删除
+    public static final String SQL_DROP_INDEX_PURCHASE_ORDERS_CREATED_AT =
+            "DROP INDEX IF EXISTS idx_purchase_orders_created_at";
+
+    // 采购单列表键集分页（版本 17 引入）：状态/供应商筛选 + 创建时间倒序，名称排序；均以 po_id 作为同值时的次序。
+    // (created_at, po_id) 同时用于营收明细导出按创建时间范围倒序分页读取
+    // (status, created_at DESC, po_id DESC) 同时用于按状态筛选和按状态排序
+    public static final String SQL_CREATE_INDEX_PURCHASE_ORDERS_CREATED_ID =
+            "CREATE INDEX IF NOT EXISTS idx_purchase_orders_created_id ON " + Constants.TABLE_PURCHASE_ORDERS + "(" + Constants.COLUMN_PO_CREATED_AT + "," + Constants.COLUMN_PO_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_PURCHASE_ORDERS_STATUS_CREATED =
+            "CREATE INDEX IF NOT EXISTS idx_purchase_orders_status_created ON " + Constants.TABLE_PURCHASE_ORDERS + "(" + Constants.COLUMN_PO_STATUS + "," + Constants.COLUMN_PO_CREATED_AT + " DESC," + Constants.COLUMN_PO_ID + " DESC)";
+
+    public static final String SQL_CREATE_INDEX_PURCHASE_ORDERS_SUPPLIER_CREATED =
+            "CREATE INDEX IF NOT EXISTS idx_purchase_orders_supplier_created ON " + Constants.TABLE_PURCHASE_ORDERS + "(" + Constants.COLUMN_PO_SUPPLIER_ID + "," + Constants.COLUMN_PO_CREATED_AT + "," + Constants.COLUMN_PO_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_PURCHASE_ORDERS_NAME_ID =
+            "CREATE INDEX IF NOT EXISTS idx_purchase_orders_name_id ON " + Constants.TABLE_PURCHASE_ORDERS + "(" + Constants.COLUMN_PO_NAME + " COLLATE NOCASE," + Constants.COLUMN_PO_ID + ")";
+
+    // 商品键集分页索引（版本 10 引入）：(name, product_id) 与按分类过滤的 (category, name, product_id)
+    public static final String SQL_CREATE_INDEX_PRODUCTS_NAME_ID =
+            "CREATE INDEX IF NOT EXISTS idx_products_name_id ON " + Constants.TABLE_PRODUCTS + "(" + Constants.COLUMN_PRODUCT_NAME + "," + Constants.COLUMN_PRODUCT_ID + ")";
+
+    public static final String SQL_CREATE_INDEX_PRODUCTS_CATEGORY_NAME_ID =
+            "CREATE INDEX IF NOT EXISTS idx_products_category_name_id ON " + Constants.TABLE_PRODUCTS + "(" + Constants.COLUMN_CATEGORY + "," + Constants.COLUMN_PRODUCT_NAME + "," + Constants.COLUMN_PRODUCT_ID + ")";
+
+    // 商品全文检索（版本 11 引入，版本 18 改为 FTS4 + 二元分词）：系统 SQLite（minSdk 30 为 3.28）没有 FTS5 trigram，
+    // 改由 ngrams() 函数（DatabaseHelper.onConfigure 注册，见 ProductSearchEngine.grams）把文本拆成相邻两字的片段写入 FTS4，
+    // 查询时把关键字拆成同样的片段按短语匹配，等价于任意子串匹配（关键字至少 2 个字符）。
+    // 以 products.rowid 作为 docid，由触发器同步；只在文本列变化时更新，库存更新不会触及该表。
+    // 注意：products 没有 INTEGER PRIMARY KEY，VACUUM/恢复备份后 rowid 可能变化，需要执行 rebuild。
+    public static final String TABLE_PRODUCTS_FTS = "products_fts";
+
+    // 片段生成函数名，触发器与重建语句中使用
+    public static final String FUNCTION_NGRAMS = "ngrams";
+
+    private static final String FTS_COLUMNS =
+            Constants.COLUMN_PRODUCT_NAME + ", " + Constants.COLUMN_BRAND + ", " + Constants.COLUMN_BARCODE + ", " +
+                    Constants.COLUMN_CATEGORY + ", " + Constants.COLUMN_DESCRIPTION;
+
+    private static String ftsValues(String prefix) {
+        String[] columns = {Constants.COLUMN_PRODUCT_NAME, Constants.COLUMN_BRAND, Constants.COLUMN_BARCODE,
+                Constants.COLUMN_CATEGORY, Constants.COLUMN_DESCRIPTION};
+        StringBuilder sb = new StringBuilder();
+        for (String col : columns) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(FUNCTION_NGRAMS).append('(').append(prefix).append(col).append(')');
+        }
+        return sb.toString();
+    }
+
+    // simple 分词器按 ASCII 非字母数字切分，ngrams() 输出的片段以空格分隔、只含字母数字，每个片段即一个词
+    public static final String SQL_CREATE_PRODUCTS_FTS =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_PRODUCTS_FTS + " USING fts4(" + FTS_COLUMNS + ", tokenize=simple)";
+
+    public static final String SQL_CREATE_TRIGGER_PRODUCTS_FTS_INSERT =
+            "CREATE TRIGGER IF NOT EXISTS products_fts_ai AFTER INSERT ON " + Constants.TABLE_PRODUCTS + " BEGIN " +
+                    "INSERT INTO " + TABLE_PRODUCTS_FTS + "(docid, " + FTS_COLUMNS + ") VALUES (new.rowid, " + ftsValues("new.") + "); END";
+
+    public static final String SQL_CREATE_TRIGGER_PRODUCTS_FTS_DELETE =
+            "CREATE TRIGGER IF NOT EXISTS products_fts_ad AFTER DELETE ON " + Constants.TABLE_PRODUCTS + " BEGIN " +
+                    "DELETE FROM " + TABLE_PRODUCTS_FTS + " WHERE docid = old.rowid; END";
+
+    public static final String SQL_CREATE_TRIGGER_PRODUCTS_FTS_UPDATE =
+            "CREATE TRIGGER IF NOT EXISTS products_fts_au AFTER UPDATE OF " + FTS_COLUMNS + " ON " + Constants.TABLE_PRODUCTS + " BEGIN " +
+                    "DELETE FROM " + TABLE_PRODUCTS_FTS + " WHERE docid = old.rowid; " +
+                    "INSERT INTO " + TABLE_PRODUCTS_FTS + "(docid, " + FTS_COLUMNS + ") VALUES (new.rowid, " + ftsValues("new.") + "); END";
+
+    // 从 products 全量重建（同一事务内按顺序执行）
+    public static final String[] SQL_REBUILD_PRODUCTS_FTS = {
+            "DELETE FROM " + TABLE_PRODUCTS_FTS,
+            "INSERT INTO " + TABLE_PRODUCTS_FTS + "(docid, " + FTS_COLUMNS + ") SELECT rowid, " + ftsValues("") + " FROM " + Constants.TABLE_PRODUCTS
+    };
+
+    // 删除全文检索表及其触发器：版本 18 删除旧的 FTS5 trigram 表（在支持的设备上曾经建成），建表不完整时清理
+    public static final String[] SQL_DROP_PRODUCTS_FTS = {
+            "DROP TRIGGER IF EXISTS products_fts_ai",
+            "DROP TRIGGER IF EXISTS products_fts_ad",
+            "DROP TRIGGER IF EXISTS products_fts_au",
+            "DROP TABLE IF EXISTS " + TABLE_PRODUCTS_FTS
+    };
+
+    // 营收汇总表（版本 12 引入）：按本地日期 / 小时累计销售额、笔数、退款额、采购额。
+    // 由 sales / refunds / purchase_orders 上的触发器在同一事务内增量维护；退款计入原销售所在的时段（与原报表口径一致）。
+    // 时段按写入时设备时区计算，时区变化或怀疑数据不一致时用 SalesRollup.rebuild 重建。
+    public static final String TABLE_SALES_ROLLUP_DAILY = "sales_rollup_daily";
+    public static final String TABLE_SALES_ROLLUP_HOURLY = "sales_rollup_hourly";
+
+    public static final String COLUMN_ROLLUP_PERIOD = "period"; // yyyy-MM-dd 或 yyyy-MM-dd HH
+    public static final String COLUMN_ROLLUP_SALES_TOTAL = "sales_total";
+    public static final String COLUMN_ROLLUP_SALES_COUNT = "sales_count";
+    public static final String COLUMN_ROLLUP_REFUND_TOTAL = "refund_total";
+    public static final String COLUMN_ROLLUP_PURCHASE_TOTAL = "purchase_total";
+
+    static final String DAY_FORMAT = "%Y-%m-%d";
+    static final String HOUR_FORMAT = "%Y-%m-%d %H";
+
+    // 毫秒时间戳表达式 -> 本地时段
+    static String periodOf(String format, String millisExpr) {
+        return "strftime('" + format + "', " + millisExpr + "/1000, 'unixepoch', 'localtime')";
+    }
+
+    private static String createRollupTable(String table) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                COLUMN_ROLLUP_PERIOD + " TEXT NOT NULL PRIMARY KEY," +
+                COLUMN_ROLLUP_SALES_TOTAL + " REAL NOT NULL DEFAULT 0," +
+                COLUMN_ROLLUP_SALES_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_ROLLUP_REFUND_TOTAL + " REAL NOT NULL DEFAULT 0," +
+                COLUMN_ROLLUP_PURCHASE_TOTAL + " REAL NOT NULL DEFAULT 0" +
+                ") WITHOUT ROWID";
+    }
+
+    public static final String SQL_CREATE_TABLE_SALES_ROLLUP_DAILY = createRollupTable(TABLE_SALES_ROLLUP_DAILY);
+    public static final String SQL_CREATE_TABLE_SALES_ROLLUP_HOURLY = createRollupTable(TABLE_SALES_ROLLUP_HOURLY);
+
+    // 在日表和小时表上各累加一次：先确保时段行存在，再更新（时段为 NULL 时两条语句都不生效）
+    private static String bump(String millisExpr, String setClause) {
+        StringBuilder sb = new StringBuilder();
+        String[][] targets = {{TABLE_SALES_ROLLUP_DAILY, DAY_FORMAT}, {TABLE_SALES_ROLLUP_HOURLY, HOUR_FORMAT}};
+        for (String[] t : targets) {
+            String period = periodOf(t[1], millisExpr);
+            sb.append("INSERT OR IGNORE INTO ").append(t[0]).append("(").append(COLUMN_ROLLUP_PERIOD).append(") VALUES (").append(period).append("); ");
+            sb.append("UPDATE ").append(t[0]).append(" SET ").append(setClause).append(" WHERE ").append(COLUMN_ROLLUP_PERIOD).append(" = ").append(period).append("; ");
+        }
+        return sb.toString();
+    }
+
+    private static String salesDelta(String row, String sign) {
+        return COLUMN_ROLLUP_SALES_TOTAL + " = " + COLUMN_ROLLUP_SALES_TOTAL + " " + sign + " COALESCE(" + row + "." + Constants.COLUMN_SALE_TOTAL + ", 0), " +
+                COLUMN_ROLLUP_SALES_COUNT + " = " + COLUMN_ROLLUP_SALES_COUNT + " " + sign + " 1";
+    }
+
+    private static String refundDelta(String row, String sign) {
+        return COLUMN_ROLLUP_REFUND_TOTAL + " = " + COLUMN_ROLLUP_REFUND_TOTAL + " " + sign + " COALESCE(" + row + "." + Constants.COLUMN_REFUND_AMOUNT + ", 0)";
+    }
+
+    private static String purchaseDelta(String row, String sign) {
+        return COLUMN_ROLLUP_PURCHASE_TOTAL + " = " + COLUMN_ROLLUP_PURCHASE_TOTAL + " " + sign + " COALESCE(" + row + "." + Constants.COLUMN_PO_TOTAL + ", 0)";
+    }
+
+    private static String saleTimeOf(String row) {
+        return "(SELECT " + Constants.COLUMN_SALE_TIMESTAMP + " FROM " + Constants.TABLE_SALES + " WHERE " + Constants.COLUMN_SALE_ID + " = " + row + "." + Constants.COLUMN_REFUND_SALE_ID + ")";
+    }
+
+    public static final String[] SQL_CREATE_SALES_ROLLUP_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS sales_rollup_ai AFTER INSERT ON " + Constants.TABLE_SALES + " BEGIN " +
+                    bump("new." + Constants.COLUMN_SALE_TIMESTAMP, salesDelta("new", "+")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS sales_rollup_ad AFTER DELETE ON " + Constants.TABLE_SALES + " BEGIN " +
+                    bump("old." + Constants.COLUMN_SALE_TIMESTAMP, salesDelta("old", "-")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS sales_rollup_au AFTER UPDATE OF " + Constants.COLUMN_SALE_TOTAL + ", " + Constants.COLUMN_SALE_TIMESTAMP + " ON " + Constants.TABLE_SALES + " BEGIN " +
+                    bump("old." + Constants.COLUMN_SALE_TIMESTAMP, salesDelta("old", "-")) +
+                    bump("new." + Constants.COLUMN_SALE_TIMESTAMP, salesDelta("new", "+")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS refunds_rollup_ai AFTER INSERT ON " + Constants.TABLE_REFUNDS + " BEGIN " +
+                    bump(saleTimeOf("new"), refundDelta("new", "+")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS refunds_rollup_ad AFTER DELETE ON " + Constants.TABLE_REFUNDS + " BEGIN " +
+                    bump(saleTimeOf("old"), refundDelta("old", "-")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS purchase_orders_rollup_ai AFTER INSERT ON " + Constants.TABLE_PURCHASE_ORDERS + " BEGIN " +
+                    bump("new." + Constants.COLUMN_PO_CREATED_AT, purchaseDelta("new", "+")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS purchase_orders_rollup_ad AFTER DELETE ON " + Constants.TABLE_PURCHASE_ORDERS + " BEGIN " +
+                    bump("old." + Constants.COLUMN_PO_CREATED_AT, purchaseDelta("old", "-")) + "END",
+            "CREATE TRIGGER IF NOT EXISTS purchase_orders_rollup_au AFTER UPDATE OF " + Constants.COLUMN_PO_TOTAL + ", " + Constants.COLUMN_PO_CREATED_AT + " ON " + Constants.TABLE_PURCHASE_ORDERS + " BEGIN " +
+                    bump("old." + Constants.COLUMN_PO_CREATED_AT, purchaseDelta("old", "-")) +
+                    bump("new." + Constants.COLUMN_PO_CREATED_AT, purchaseDelta("new", "+")) + "END"
+    };
+
+    public static final String[] SQL_CREATE_ACCESS_PATH_INDEXES = {
+            SQL_CREATE_INDEX_STOCK_TX_PRODUCT_TS,
+            SQL_CREATE_INDEX_STOCK_TX_TS,
+            SQL_CREATE_INDEX_SALE_LINES_SALE_ID,
+            SQL_CREATE_INDEX_SALES_TIMESTAMP,
+            SQL_CREATE_INDEX_REFUNDS_SALE_ID,
+            SQL_CREATE_INDEX_PURCHASE_LINES_PO_ID,
+            SQL_CREATE_INDEX_PO_APPROVALS_PO_ID,
+            SQL_CREATE_INDEX_SYSTEM_AUDIT_ENTITY,
+            SQL_CREATE_INDEX_PRODUCTS_NAME_ID,
+            SQL_CREATE_INDEX_PRODUCTS_CATEGORY_NAME_ID,
+            SQL_CREATE_INDEX_PURCHASE_ORDERS_CREATED_ID,
+            SQL_CREATE_INDEX_PURCHASE_ORDERS_STATUS_CREATED,
+            SQL_CREATE_INDEX_PURCHASE_ORDERS_SUPPLIER_CREATED,
+            SQL_CREATE_INDEX_PURCHASE_ORDERS_NAME_ID
+    };
+
     // 库存事务表创建SQL
     public static final String SQL_CREATE_TABLE_STOCK_TRANSACTIONS =
             "CREATE TABLE " + Constants.TABLE_STOCK_TRANSACTIONS + " (" +
@@ -115,7 +336,8 @@ public class DbContract {
                     Constants.COLUMN_PO_LINE_PRODUCT_ID + " TEXT," +
                     Constants.COLUMN_PO_LINE_SKU + " TEXT," +
                     Constants.COLUMN_PO_LINE_QTY + " INTEGER," +
-                    Constants.COLUMN_PO_LINE_PRICE + " REAL" +
+                    Constants.COLUMN_PO_LINE_PRICE + " REAL," +
+                    Constants.COLUMN_PO_LINE_RECEIVED_QTY + " INTEGER DEFAULT 0" +
                     ")";
 
     public static final String SQL_DROP_TABLE_PURCHASE_LINES =
@@ -213,6 +435,19 @@ public class DbContract {
                     Constants.COLUMN_REFUND_TIMESTAMP + " INTEGER" +
                     ")";
 
+    // 迁移记录表：每个已执行的迁移步骤一行（见 SchemaMigrations）
+    public static final String TABLE_SCHEMA_MIGRATIONS = "schema_migrations";
+    public static final String COLUMN_MIGRATION_ID = "id";
+    public static final String COLUMN_MIGRATION_NAME = "name";
+    public static final String COLUMN_MIGRATION_APPLIED_AT = "applied_at";
+
+    public static final String SQL_CREATE_TABLE_SCHEMA_MIGRATIONS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SCHEMA_MIGRATIONS + " (" +
+                    COLUMN_MIGRATION_ID + " INTEGER PRIMARY KEY," +
+                    COLUMN_MIGRATION_NAME + " TEXT NOT NULL," +
+                    COLUMN_MIGRATION_APPLIED_AT + " INTEGER NOT NULL" +
+                    ")";
+
     public static final String SQL_DROP_TABLE_SALES =
             "DROP TABLE IF EXISTS " + Constants.TABLE_SALES;
 
@@ -1,11 +1,11 @@
 package com.example.android_development.database;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import com.example.android_development.util.PrefsManager;
 import com.example.android_development.util.Audit;
+import com.example.android_development.model.CursorMapper;
 import com.example.android_development.model.StockCount;
 import com.example.android_development.util.Constants;
 import java.util.ArrayList;
@@ -24,72 +24,49 @@ public class InventoryDAO {
         if (ctx != null) this.prefsManager = new PrefsManager(ctx);
     }
 
-    // 并发保护的货架库存调整（可用于销售等场景）
+    // 货架库存增量调整（可用于销售等场景）；库存不足时返回 false，不会把库存截断为 0
     public static boolean adjustShelfStock(SQLiteDatabase db, PrefsManager prefsManager, String productId, int delta, String reason, String type) {
         if (productId == null) return false;
         if (delta == 0) return true;
 
         boolean localTxStarted = false;
-        Cursor c = null;
+        boolean committed = false;
         try {
             if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
 
-            c = db.rawQuery("SELECT " + Constants.COLUMN_STOCK + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?", new String[]{productId});
-            if (c == null) return false;
-            if (!c.moveToFirst()) return false;
-            int before = c.getInt(0);
-            c.close();
-            c = null;
-
-            int after = before + delta;
-            if (after < 0) after = 0;
-
-            android.content.ContentValues pv = new android.content.ContentValues();
-            pv.put(Constants.COLUMN_STOCK, after);
-            int rows = db.update(Constants.TABLE_PRODUCTS, pv, Constants.COLUMN_PRODUCT_ID + " = ? AND " + Constants.COLUMN_STOCK + " = ?", new String[]{productId, String.valueOf(before)});
-            if (rows == 0) return false;
+            StockMutations.Change change = StockMutations.shelf(productId, delta);
+            if (!StockMutations.apply(db, change)) return false;
 
             // 写审计记录
             try {
-                ContentValues tx = new ContentValues();
-                tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, productId);
-                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, (String) null);
                 String uid = null;
                 String urole = null;
                 if (prefsManager != null) {
                     try { uid = prefsManager.getUserId(); } catch (Exception ignored) {}
                     try { urole = prefsManager.getUserRole(); } catch (Exception ignored) {}
                 }
-                tx.put(Constants.COLUMN_STOCK_TX_USER_ID, uid);
-                tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, urole);
-                tx.put(Constants.COLUMN_STOCK_TX_TYPE, type);
-                tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, Math.abs(delta));
-                tx.put(Constants.COLUMN_STOCK_TX_BEFORE, before);
-                tx.put(Constants.COLUMN_STOCK_TX_AFTER, after);
-                tx.put(Constants.COLUMN_STOCK_TX_REASON, reason);
-                tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                    try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
-                    try { Audit.writeSystemAudit(db, uid, urole, "product:" + productId, type.toLowerCase(), reason); } catch (Exception ignored) {}
+                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, productId, null, uid, urole, type, Math.abs(delta), change.before, change.after, reason, System.currentTimeMillis()); } catch (Exception ignored) {}
+                try { Audit.writeSystemAudit(db, uid, urole, "product:" + productId, type.toLowerCase(), reason); } catch (Exception ignored) {}
             } catch (Exception ignored) {}
 
-            if (localTxStarted) db.setTransactionSuccessful();
+            if (localTxStarted) { db.setTransactionSuccessful(); committed = true; }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
-            if (c != null) try { c.close(); } catch (Exception ignored) {}
             if (localTxStarted) {
                 try { db.endTransaction(); } catch (Exception ignored) {}
+                CatalogChanges.transactionEnded(db, committed);
             }
         }
     }
 
     public long createStockCount(StockCount sc) {
         if (sc == null) return -1;
-        ContentValues v = sc.toContentValues();
-        return db.insert(Constants.TABLE_STOCK_COUNTS, null, v);
+        if (sc.getId() == null) sc.setId(java.util.UUID.randomUUID().toString());
+        return StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_STOCK_COUNT,
+                st -> StatementBinders.bindStockCount(st, sc));
     }
 
     public StockCount getStockCountById(String id) {
@@ -107,15 +84,16 @@ public class InventoryDAO {
         List<StockCount> list = new ArrayList<>();
         Cursor c = db.query(Constants.TABLE_STOCK_COUNTS, null, null, null, null, null, Constants.COLUMN_STOCK_COUNT_CREATED_AT + " DESC");
         if (c != null && c.moveToFirst()) {
+            CursorMapper<StockCount> mapper = StockCount.mapper(c);
             do {
-                list.add(StockCount.fromCursor(c));
+                list.add(mapper.map(c));
             } while (c.moveToNext());
             c.close();
         }
         return list;
     }
 
-    // 内部补货：仓库 -> 货架（read→update，带并发保护与审计）
+    // 内部补货：仓库 -> 货架（增量更新，带审计）
     public boolean restockShelf(String productId, int qty) {
         if (productId == null) return false;
         if (qty <= 0) return false;
@@ -127,74 +105,43 @@ public class InventoryDAO {
         }
 
         boolean localTxStarted = false;
-        Cursor c = null;
+        boolean committed = false;
         try {
             if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
 
-            // 1. 读取当前仓库和货架库存
-            c = db.rawQuery("SELECT " + Constants.COLUMN_WAREHOUSE_STOCK + ", " + Constants.COLUMN_STOCK + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?", new String[]{productId});
-            if (c == null) return false;
-            if (!c.moveToFirst()) return false;
-            int currentWarehouse = c.getInt(0);
-            int currentShelf = c.getInt(1);
-            c.close();
-            c = null;
-
-            if (currentWarehouse < qty) return false; // 仓库库存不足
+            // 仓库减、货架加，两个增量在同一事务中执行（仓库库存不足时整体失败）
+            List<StockMutations.Change> changes = new ArrayList<>();
+            changes.add(StockMutations.warehouse(productId, -qty));
+            changes.add(StockMutations.shelf(productId, qty));
+            List<StockMutations.Change> applied = StockMutations.applyAll(db, changes);
+            if (applied == null) return false;
+            StockMutations.Change wh = applied.get(0);
 
-            int newWarehouse = currentWarehouse - qty;
-            int newShelf = currentShelf + qty;
-
-            // 2. 条件更新仓库库存（以当前值做并发保护）
-            android.content.ContentValues v1 = new android.content.ContentValues();
-            v1.put(Constants.COLUMN_WAREHOUSE_STOCK, newWarehouse);
-            int rows1 = db.update(Constants.TABLE_PRODUCTS, v1, Constants.COLUMN_PRODUCT_ID + " = ? AND " + Constants.COLUMN_WAREHOUSE_STOCK + " = ?", new String[]{productId, String.valueOf(currentWarehouse)});
-            if (rows1 == 0) return false; // 并发冲突或商品被删除
-
-            // 3. 条件更新货架库存（以当前值做并发保护）
-            android.content.ContentValues v2 = new android.content.ContentValues();
-            v2.put(Constants.COLUMN_STOCK, newShelf);
-            int rows2 = db.update(Constants.TABLE_PRODUCTS, v2, Constants.COLUMN_PRODUCT_ID + " = ? AND " + Constants.COLUMN_STOCK + " = ?", new String[]{productId, String.valueOf(currentShelf)});
-            if (rows2 == 0) return false; // 并发冲突
-
-            // 4. 写入审计记录（补货）
+            // 写入审计记录（补货）
             try {
-                ContentValues tx = new ContentValues();
-                tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, productId);
-                tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, (String) null);
                 String uid = null;
                 String urole = null;
                 if (prefsManager != null) {
                     try { uid = prefsManager.getUserId(); } catch (Exception ignored) {}
                     try { urole = prefsManager.getUserRole(); } catch (Exception ignored) {}
                 }
-                tx.put(Constants.COLUMN_STOCK_TX_USER_ID, uid);
-                tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, urole);
-                tx.put(Constants.COLUMN_STOCK_TX_TYPE, "IN");
-                tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, qty);
-                tx.put(Constants.COLUMN_STOCK_TX_BEFORE, currentWarehouse);
-                tx.put(Constants.COLUMN_STOCK_TX_AFTER, newWarehouse);
-                tx.put(Constants.COLUMN_STOCK_TX_REASON, "补货");
-                tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
+                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, productId, null, uid, urole, "IN", qty, wh.before, wh.after, "补货", System.currentTimeMillis()); } catch (Exception ignored) {}
                 try { Audit.writeSystemAudit(db, uid, urole, "product:" + productId, "restock", "补货"); } catch (Exception ignored) {}
             } catch (Exception ignored) {}
 
-            if (localTxStarted) db.setTransactionSuccessful();
+            if (localTxStarted) { db.setTransactionSuccessful(); committed = true; }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
-            if (c != null) try { c.close(); } catch (Exception ignored) {}
             if (localTxStarted) {
                 try { db.endTransaction(); } catch (Exception ignored) {}
+                CatalogChanges.transactionEnded(db, committed);
             }
         }
     }
 
-    // 外部采购入库：供应商 -> 仓库
     public boolean receivePurchase(String productId, int qty) {
         if (productId == null) return false;
         if (qty <= 0) return false; // 不接受 0 或负数入库
@@ -206,57 +153,34 @@ public class InventoryDAO {
         }
 
         boolean localTxStarted = false;
+        boolean committed = false;
         try {
             if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
 
-            // 1. 查询当前仓库库存
-            Cursor c = db.rawQuery("SELECT " + Constants.COLUMN_WAREHOUSE_STOCK + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?", new String[]{productId});
-            if (c == null) return false;
-            try {
-                if (!c.moveToFirst()) return false; // product not found
-                int current = c.getInt(0);
-                int updated = current + qty;
-                android.content.ContentValues v = new android.content.ContentValues();
-                v.put(Constants.COLUMN_WAREHOUSE_STOCK, updated);
-                int rows = db.update(Constants.TABLE_PRODUCTS, v, Constants.COLUMN_PRODUCT_ID + " = ?", new String[]{productId});
-                if (rows > 0) {
-                    // 写审计记录（尽量不影响主流程）
-                    try {
-                        ContentValues tx = new ContentValues();
-                        tx.put(Constants.COLUMN_STOCK_TX_ID, java.util.UUID.randomUUID().toString());
-                        tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, productId);
-                        tx.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, (String) null);
-                        String uid = null;
-                        String urole = null;
-                        if (prefsManager != null) {
-                            try { uid = prefsManager.getUserId(); } catch (Exception ignored) {}
-                            try { urole = prefsManager.getUserRole(); } catch (Exception ignored) {}
-                        }
-                        tx.put(Constants.COLUMN_STOCK_TX_USER_ID, uid);
-                        tx.put(Constants.COLUMN_STOCK_TX_USER_ROLE, urole);
-                        tx.put(Constants.COLUMN_STOCK_TX_TYPE, "IN");
-                        tx.put(Constants.COLUMN_STOCK_TX_QUANTITY, qty);
-                        tx.put(Constants.COLUMN_STOCK_TX_BEFORE, current);
-                        tx.put(Constants.COLUMN_STOCK_TX_AFTER, updated);
-                        tx.put(Constants.COLUMN_STOCK_TX_REASON, "采购入库");
-                        tx.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, System.currentTimeMillis());
-                            try { db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, tx); } catch (Exception ignored) {}
-                            try { Audit.writeSystemAudit(db, uid, urole, "product:" + productId, "in", "采购入库"); } catch (Exception ignored) {}
-                    } catch (Exception ignored) {}
+            StockMutations.Change change = StockMutations.warehouse(productId, qty);
+            if (!StockMutations.apply(db, change)) return false; // product not found
 
-                    if (localTxStarted) db.setTransactionSuccessful();
-                    return true;
+            // 写审计记录（尽量不影响主流程）
+            try {
+                String uid = null;
+                String urole = null;
+                if (prefsManager != null) {
+                    try { uid = prefsManager.getUserId(); } catch (Exception ignored) {}
+                    try { urole = prefsManager.getUserRole(); } catch (Exception ignored) {}
                 }
-                return false;
-            } finally {
-                if (c != null) c.close();
-            }
+                try { StatementBinders.insertStockTransaction(StatementCache.of(db), null, productId, null, uid, urole, "IN", qty, change.before, change.after, "采购入库", System.currentTimeMillis()); } catch (Exception ignored) {}
+                try { Audit.writeSystemAudit(db, uid, urole, "product:" + productId, "in", "采购入库"); } catch (Exception ignored) {}
+            } catch (Exception ignored) {}
+
+            if (localTxStarted) { db.setTransactionSuccessful(); committed = true; }
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
             if (localTxStarted) {
                 try { db.endTransaction(); } catch (Exception ignored) {}
+                CatalogChanges.transactionEnded(db, committed);
             }
         }
     }
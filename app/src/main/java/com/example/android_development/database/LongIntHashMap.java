@@ -0,0 +1,112 @@
+package com.example.android_development.database;
+
+import java.util.Arrays;
+
+/**
+ * long -> int 开放寻址哈希表（线性探测，删除时回移后继元素，不使用墓碑）。
+ * 键值均为基本类型，查找过程不产生任何对象分配。非线程安全，由调用方加锁。
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    LongIntHashMap(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        allocate(cap);
+    }
+
+    int size() { return size; }
+
+    int get(long key) {
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY_KEY) return MISSING;
+            if (k == key) return values[i];
+            i = (i + 1) & mask;
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY_KEY) throw new IllegalArgumentException("reserved key");
+        if ((size + 1) * 2 > keys.length) rehash(keys.length << 1);
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY_KEY) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    void remove(long key) {
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY_KEY) return;
+            if (k == key) break;
+            i = (i + 1) & mask;
+        }
+        // 回移：把探测链上后续元素前移，保证查找不会提前遇到空位
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == EMPTY_KEY) break;
+            int home = index(k);
+            // home 不在 (gap, j] 区间内时，元素可以移动到 gap
+            boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (movable) {
+                keys[gap] = k;
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+        size--;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new int[cap];
+        Arrays.fill(keys, EMPTY_KEY);
+        mask = cap - 1;
+        size = 0;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCap);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
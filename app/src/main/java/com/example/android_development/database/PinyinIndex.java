@@ -0,0 +1,341 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.icu.text.Transliterator;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品名称拼音索引：支持按拼音首字母（kl -> 可乐）和全拼前缀（kangshifu -> 康师傅）查找。
+ * 结构为按键排序的紧凑前缀表（扁平化的 trie）：keys 有序数组 + 对应的商品槽位，
+ * 前缀查找 = 二分定位 + 顺序读取，只需两个数组，不为每个字符分配节点。
+ * 首次使用时在后台线程从 products 表加载；之后商品新增/改名/删除时由写路径增量更新。
+ * 加载期间发生的变更先记下，加载结果替换进来时再补上（加载读到的可能是变更前的数据）。
+ * 加载完成前 lookup 返回空列表，调用方应同时使用全文检索结果。
+ */
+public final class PinyinIndex {
+
+    private static final Map<SQLiteDatabase, PinyinIndex> INDEXES = new WeakHashMap<>();
+
+    // 单字转写缓存：常用汉字只需转写一次
+    private static final Map<Character, String> SYLLABLE_CACHE = new HashMap<>();
+    private static Transliterator transliterator;
+
+    private final SQLiteDatabase db;
+    private final AtomicBoolean loadStarted = new AtomicBoolean(false);
+    private volatile boolean loaded;
+    // 加载进行中（持有 this 锁读写）；期间的变更记入 pendingChanges：商品 id -> 新名称，null 表示已删除
+    private boolean loading;
+    private final Map<String, String> pendingChanges = new LinkedHashMap<>();
+
+    // 有序键表
+    private String[] keys = new String[0];
+    private int[] owners = new int[0];
+    private int size;
+
+    // 槽位表：slot -> 商品 id / 名称 / 生成的键
+    private final List<String> slotIds = new ArrayList<>();
+    private final List<String> slotNames = new ArrayList<>();
+    private final List<String[]> slotKeys = new ArrayList<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+
+    private PinyinIndex(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public static PinyinIndex of(SQLiteDatabase db) {
+        synchronized (INDEXES) {
+            PinyinIndex idx = INDEXES.get(db);
+            if (idx == null) {
+                idx = new PinyinIndex(db);
+                INDEXES.put(db, idx);
+            }
+            return idx;
+        }
+    }
+
+    public boolean isLoaded() { return loaded; }
+
+    // 在后台线程加载（只会触发一次）
+    public void loadAsync() {
+        if (!loadStarted.compareAndSet(false, true)) return;
+        Thread t = new Thread(this::load, "pinyin-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // 在当前线程加载（只会触发一次；已由其他线程开始时直接返回），供启动预热流程调用
+    public void loadOnce() {
+        if (loadStarted.compareAndSet(false, true)) load();
+    }
+
+    // 同步加载全部商品名称
+    public void load() {
+        loadStarted.set(true);
+        synchronized (this) {
+            loading = true;
+        }
+        List<String[]> rows = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = db.query(Constants.TABLE_PRODUCTS, new String[]{Constants.COLUMN_PRODUCT_ID, Constants.COLUMN_PRODUCT_NAME},
+                    null, null, null, null, null);
+            while (c.moveToNext()) rows.add(new String[]{c.getString(0), c.getString(1)});
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+
+        // 先在锁外完成转写与排序，再一次性替换索引内容
+        List<String[]> rowKeys = new ArrayList<>(rows.size());
+        List<String> allKeys = new ArrayList<>();
+        List<Integer> allRows = new ArrayList<>();
+        for (int r = 0; r < rows.size(); r++) {
+            String[] row = rows.get(r);
+            String[] k = (row[0] == null || row[1] == null) ? new String[0] : keysFor(row[1]);
+            rowKeys.add(k);
+            for (String key : k) {
+                allKeys.add(key);
+                allRows.add(r);
+            }
+        }
+        Integer[] order = new Integer[allKeys.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> allKeys.get(a).compareTo(allKeys.get(b)));
+
+        synchronized (this) {
+            clear();
+            int[] slotOfRow = new int[rows.size()];
+            for (int r = 0; r < rows.size(); r++) {
+                String[] row = rows.get(r);
+                slotOfRow[r] = rowKeys.get(r).length == 0 ? -1 : allocSlot(row[0], row[1], rowKeys.get(r));
+            }
+            keys = new String[Math.max(16, order.length)];
+            owners = new int[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = allKeys.get(order[i]);
+                owners[i] = slotOfRow[allRows.get(order[i])];
+            }
+            size = order.length;
+            for (Map.Entry<String, String> e : pendingChanges.entrySet()) {
+                applyLocked(e.getKey(), e.getValue(), e.getValue() != null ? keysFor(e.getValue()) : null);
+            }
+            pendingChanges.clear();
+            loading = false;
+            loaded = true;
+        }
+    }
+
+    // 商品新增或改名后调用
+    public void onProductSaved(String productId, String name) {
+        if (productId == null) return;
+        String[] k = name != null ? keysFor(name) : null;
+        synchronized (this) {
+            if (!loaded) {
+                if (loading) pendingChanges.put(productId, name);
+                return;
+            }
+            applyLocked(productId, name, k);
+        }
+    }
+
+    // 商品删除后调用
+    public void onProductDeleted(String productId) {
+        if (productId == null) return;
+        synchronized (this) {
+            if (!loaded) {
+                if (loading) pendingChanges.put(productId, null);
+                return;
+            }
+            removeLocked(productId);
+        }
+    }
+
+    // 返回匹配的商品名称（首字母/全拼前缀，按键的字典序，完全匹配的键排在前面）
+    public synchronized List<String> lookupNames(String query, int limit) {
+        List<String> names = new ArrayList<>();
+        for (int slot : lookupSlots(query, limit)) names.add(slotNames.get(slot));
+        return names;
+    }
+
+    public synchronized List<String> lookupIds(String query, int limit) {
+        List<String> ids = new ArrayList<>();
+        for (int slot : lookupSlots(query, limit)) ids.add(slotIds.get(slot));
+        return ids;
+    }
+
+    private synchronized List<Integer> lookupSlots(String query, int limit) {
+        if (!loaded) {
+            loadAsync();
+            return new ArrayList<>();
+        }
+        String q = normalizeQuery(query);
+        if (q.isEmpty() || limit <= 0) return new ArrayList<>();
+        LinkedHashSet<Integer> slots = new LinkedHashSet<>();
+        for (int i = lowerBound(q); i < size && slots.size() < limit; i++) {
+            if (!keys[i].startsWith(q)) break;
+            slots.add(owners[i]);
+        }
+        return new ArrayList<>(slots);
+    }
+
+    // 查询只保留小写字母和数字（允许用户输入空格或大写）
+    public static String normalizeQuery(String query) {
+        if (query == null) return "";
+        StringBuilder sb = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char ch = Character.toLowerCase(query.charAt(i));
+            if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    // 查询是否可能是拼音输入（只含 ASCII 字母/空格）
+    public static boolean looksLikePinyin(String query) {
+        if (query == null || query.isEmpty()) return false;
+        boolean hasLetter = false;
+        for (int i = 0; i < query.length(); i++) {
+            char ch = query.charAt(i);
+            if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')) hasLetter = true;
+            else if (ch != ' ') return false;
+        }
+        return hasLetter;
+    }
+
+    // 名称 -> {首字母键, 全拼键}；非汉字的字母数字按原样（小写）连续保留
+    static String[] keysFor(String name) {
+        StringBuilder initials = new StringBuilder();
+        StringBuilder full = new StringBuilder();
+        boolean inLatinRun = false;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.UnicodeScript.of(ch) == Character.UnicodeScript.HAN) {
+                String syllable = syllableOf(ch);
+                if (!syllable.isEmpty()) {
+                    initials.append(syllable.charAt(0));
+                    full.append(syllable);
+                }
+                inLatinRun = false;
+            } else {
+                char lc = Character.toLowerCase(ch);
+                if ((lc >= 'a' && lc <= 'z') || (lc >= '0' && lc <= '9')) {
+                    if (!inLatinRun) initials.append(lc);
+                    full.append(lc);
+                    inLatinRun = true;
+                } else {
+                    inLatinRun = false;
+                }
+            }
+        }
+        String a = initials.toString();
+        String b = full.toString();
+        if (b.isEmpty()) return new String[0];
+        if (a.equals(b)) return new String[]{b};
+        return new String[]{a, b};
+    }
+
+    private static String syllableOf(char ch) {
+        synchronized (SYLLABLE_CACHE) {
+            String s = SYLLABLE_CACHE.get(ch);
+            if (s != null) return s;
+            if (transliterator == null) {
+                transliterator = Transliterator.getInstance("Han-Latin; Latin-ASCII; Lower");
+            }
+            s = normalizeQuery(transliterator.transliterate(String.valueOf(ch)));
+            SYLLABLE_CACHE.put(ch, s);
+            return s;
+        }
+    }
+
+    // ---------- 以下方法需持有 this 锁 ----------
+
+    private void clear() {
+        keys = new String[16];
+        owners = new int[16];
+        size = 0;
+        slotIds.clear();
+        slotNames.clear();
+        slotKeys.clear();
+        freeSlots.clear();
+        slotById.clear();
+    }
+
+    // name 为 null 时只移除
+    private void applyLocked(String productId, String name, String[] k) {
+        removeLocked(productId);
+        if (name == null) return;
+        int slot = allocSlot(productId, name, k);
+        for (String key : k) insertKey(key, slot);
+    }
+
+    private int allocSlot(String id, String name, String[] k) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.remove(freeSlots.size() - 1);
+            slotIds.set(slot, id);
+            slotNames.set(slot, name);
+            slotKeys.set(slot, k);
+        } else {
+            slot = slotIds.size();
+            slotIds.add(id);
+            slotNames.add(name);
+            slotKeys.add(k);
+        }
+        slotById.put(id, slot);
+        return slot;
+    }
+
+    private void removeLocked(String productId) {
+        Integer slot = slotById.remove(productId);
+        if (slot == null) return;
+        for (String key : slotKeys.get(slot)) {
+            for (int i = lowerBound(key); i < size && keys[i].equals(key); i++) {
+                if (owners[i] == slot) {
+                    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                    System.arraycopy(owners, i + 1, owners, i, size - i - 1);
+                    size--;
+                    keys[size] = null;
+                    break;
+                }
+            }
+        }
+        slotIds.set(slot, null);
+        slotNames.set(slot, null);
+        slotKeys.set(slot, new String[0]);
+        freeSlots.add(slot);
+    }
+
+    private void insertKey(String key, int slot) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            owners = Arrays.copyOf(owners, size * 2);
+        }
+        int pos = lowerBound(key);
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(owners, pos, owners, pos + 1, size - pos);
+        keys[pos] = key;
+        owners[pos] = slot;
+        size++;
+    }
+
+    // 第一个 >= key 的位置
+    private int lowerBound(String key) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
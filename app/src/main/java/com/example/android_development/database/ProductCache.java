@@ -0,0 +1,237 @@
+package com.example.android_development.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 进程内共享的商品读缓存（读穿透）。
+ * - 单个商品：按 id 的有界 LRU，另有 条码 -> id 的映射，只覆盖已缓存的商品；
+ * - 列表查询（全部商品、低库存等）：按查询名缓存整张列表，只在目录版本不变时有效；
+ *   精简行（ProductSummary）列表单独缓存，对象不可变，直接共享不复制。
+ * 任何商品写入提交后都经 CatalogChanges 调用 invalidate：对应商品移出 LRU，全局目录版本加一，所有缓存列表随之失效。
+ * 失效必须在提交之后：提交前加版本的话，并发读取仍读到旧的已提交数据，会以新版本存入缓存且不再失效。
+ * 返回给调用方的都是副本，页面修改 Product 对象不会污染缓存。
+ */
+public final class ProductCache {
+
+    private static final String TAG = "ProductCache";
+
+    private static final int MAX_PRODUCTS = 512;
+
+    private static final Map<SQLiteDatabase, ProductCache> INSTANCES = new WeakHashMap<>();
+
+    public static ProductCache of(SQLiteDatabase db) {
+        synchronized (INSTANCES) {
+            ProductCache cache = INSTANCES.get(db);
+            if (cache == null) {
+                cache = new ProductCache(db);
+                INSTANCES.put(db, cache);
+            }
+            return cache;
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private final Object lock = new Object();
+
+    // accessOrder = true：按访问顺序淘汰
+    private final LinkedHashMap<String, Product> byId = new LinkedHashMap<String, Product>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Product> eldest) {
+            if (size() <= MAX_PRODUCTS) return false;
+            String barcode = eldest.getValue().getBarcode();
+            if (barcode != null) byBarcode.remove(barcode);
+            evictions++;
+            return true;
+        }
+    };
+    private final HashMap<String, String> byBarcode = new HashMap<>();
+    private final HashMap<String, List<Product>> lists = new HashMap<>();
+    private final HashMap<String, List<ProductSummary>> summaryLists = new HashMap<>();
+
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    // >0 时每累计这么多次未命中写一次统计日志（可调试构建下由 AppDatabase 开启）
+    private volatile int logEvery;
+
+    private ProductCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    // 当前目录版本：每次商品写入后递增，可用于页面判断数据是否需要刷新
+    public long getVersion() {
+        synchronized (lock) {
+            return version;
+        }
+    }
+
+    public Product getById(String productId, Supplier<Product> loader) {
+        if (productId == null) return null;
+        long v;
+        long m;
+        synchronized (lock) {
+            Product p = byId.get(productId);
+            if (p != null) {
+                hits++;
+                return new Product(p);
+            }
+            m = ++misses;
+            v = version;
+        }
+        maybeLogStats(m);
+        Product loaded = loader.get();
+        if (loaded != null) store(loaded, v);
+        return loaded;
+    }
+
+    public Product getByBarcode(String barcode, Supplier<Product> loader) {
+        if (barcode == null || barcode.isEmpty()) return null;
+        long v;
+        long m;
+        synchronized (lock) {
+            String id = byBarcode.get(barcode);
+            Product p = id != null ? byId.get(id) : null;
+            if (p != null) {
+                hits++;
+                return new Product(p);
+            }
+            m = ++misses;
+            v = version;
+        }
+        maybeLogStats(m);
+        Product loaded = loader.get();
+        if (loaded != null) store(loaded, v);
+        return loaded;
+    }
+
+    // 缓存整张列表查询的结果；key 为调用方定义的查询名（参数不同的查询应使用不同的 key）
+    public List<Product> getList(String key, Supplier<List<Product>> loader) {
+        long v;
+        long m;
+        synchronized (lock) {
+            List<Product> cached = lists.get(key);
+            if (cached != null) {
+                hits++;
+                return copyOf(cached);
+            }
+            m = ++misses;
+            v = version;
+        }
+        maybeLogStats(m);
+        List<Product> loaded = loader.get();
+        if (loaded == null) return null;
+        // 事务中读到的可能是未提交的数据，不缓存
+        if (db.inTransaction()) return loaded;
+        List<Product> snapshot = copyOf(loaded);
+        synchronized (lock) {
+            if (version == v) lists.put(key, snapshot);
+        }
+        return loaded;
+    }
+
+    // 精简行列表；返回不可修改的共享列表
+    public List<ProductSummary> getSummaryList(String key, Supplier<List<ProductSummary>> loader) {
+        long v;
+        long m;
+        synchronized (lock) {
+            List<ProductSummary> cached = summaryLists.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            m = ++misses;
+            v = version;
+        }
+        maybeLogStats(m);
+        List<ProductSummary> loaded = loader.get();
+        if (loaded == null) return null;
+        List<ProductSummary> snapshot = Collections.unmodifiableList(loaded);
+        if (db.inTransaction()) return snapshot;
+        synchronized (lock) {
+            if (version == v) summaryLists.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    private void store(Product loaded, long loadedAtVersion) {
+        if (loaded.getId() == null || db.inTransaction()) return;
+        Product copy = new Product(loaded);
+        synchronized (lock) {
+            // 读取期间发生过写入：结果可能已过期，不缓存
+            if (version != loadedAtVersion) return;
+            Product old = byId.put(copy.getId(), copy);
+            if (old != null && old.getBarcode() != null) byBarcode.remove(old.getBarcode());
+            if (copy.getBarcode() != null) byBarcode.put(copy.getBarcode(), copy.getId());
+        }
+    }
+
+    // 商品写入提交后调用（经 CatalogChanges）
+    void invalidate(String productId) {
+        warnIfInTransaction("invalidate " + productId);
+        synchronized (lock) {
+            version++;
+            lists.clear();
+            summaryLists.clear();
+            Product old = byId.remove(productId);
+            if (old != null && old.getBarcode() != null) byBarcode.remove(old.getBarcode());
+        }
+    }
+
+    // 批量导入、恢复备份等无法逐条通知的写入提交后调用
+    public void clear() {
+        warnIfInTransaction("clear");
+        synchronized (lock) {
+            version++;
+            lists.clear();
+            summaryLists.clear();
+            byId.clear();
+            byBarcode.clear();
+        }
+    }
+
+    // 事务中失效说明有写路径绕过了 CatalogChanges 的提交后通知，并发读取可能把旧数据按新版本缓存
+    private void warnIfInTransaction(String what) {
+        if (db.inTransaction()) Log.w(TAG, what + " called inside a transaction; invalidate after commit via CatalogChanges");
+    }
+
+    private static List<Product> copyOf(List<Product> list) {
+        List<Product> out = new ArrayList<>(list.size());
+        for (Product p : list) out.add(new Product(p));
+        return out;
+    }
+
+    public String stats() {
+        synchronized (lock) {
+            long total = hits + misses;
+            return "products=" + byId.size() + " lists=" + (lists.size() + summaryLists.size()) + " version=" + version +
+                    " hits=" + hits + " misses=" + misses + " evictions=" + evictions +
+                    " hitRate=" + (total == 0 ? "n/a" : String.format(java.util.Locale.US, "%.1f%%", hits * 100.0 / total));
+        }
+    }
+
+    public void logStats() {
+        Log.d(TAG, stats());
+    }
+
+    void setLogEvery(int lookups) {
+        this.logEvery = lookups;
+    }
+
+    // 只在未命中时检查，命中路径不额外开销
+    private void maybeLogStats(long missCount) {
+        int every = logEvery;
+        if (every > 0 && missCount % every == 0) logStats();
+    }
+}
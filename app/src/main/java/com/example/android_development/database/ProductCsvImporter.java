@@ -0,0 +1,595 @@
+package com.example.android_development.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import com.example.android_development.util.Audit;
+import com.example.android_development.util.Constants;
+import com.example.android_development.util.DaoResult;
+import com.example.android_development.util.PrefsManager;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 商品 CSV 批量导入（新店建档一次导入数万商品）。应在后台线程调用，例如 DaoExecutor.write。
+ * - 流式读取，每 batchSize 行一个事务，内存占用与文件大小无关；
+ * - 表头经 headerMapping 映射到商品列（默认识别列名及常用中文表头），未识别的列忽略，必须包含名称和售价；
+ * - 有条码的行按条码 upsert（ON CONFLICT(barcode) DO UPDATE），只覆盖文件中出现的列；无条码的行作为新商品插入；
+ * - 写入走 BatchInsert 多行语句，不再逐行做权限查询、用户查询和单独的流水/审计；
+ * - 每批只写一条汇总的库存流水（类型 IMPORT）和一条审计；
+ * - 某批多行语句失败时回滚该批并逐行重试，只拒绝出错的行；
+ * - 结束后整体重建拼音/条码索引并清空商品缓存（全文索引由触发器同步）。
+ * 空单元格：数值列记 0，日期/成本记 NULL，文本列记 NULL。
+ */
+public final class ProductCsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 2000;
+    // 拒绝行只保留前若干条明细，总数见 Result.getRejectedCount()
+    private static final int MAX_REJECTED_DETAILS = 200;
+    // 查询已有条码时 IN 列表的最大参数个数
+    private static final int MAX_IN_ARGS = 900;
+
+    public static final String TX_TYPE_IMPORT = "IMPORT";
+
+    /** 默认表头映射：表头（忽略大小写与首尾空白）-> 商品列 */
+    public static final Map<String, String> DEFAULT_HEADER_MAPPING;
+
+    static {
+        Map<String, String> m = new HashMap<>();
+        alias(m, Constants.COLUMN_PRODUCT_NAME, "name", "名称", "商品名称", "品名");
+        alias(m, Constants.COLUMN_BARCODE, "条码", "条形码");
+        alias(m, Constants.COLUMN_PRICE, "售价", "价格");
+        alias(m, Constants.COLUMN_COST, "成本", "进价");
+        alias(m, Constants.COLUMN_CATEGORY, "分类", "类别");
+        alias(m, Constants.COLUMN_BRAND, "品牌");
+        alias(m, Constants.COLUMN_STOCK, "库存", "货架库存");
+        alias(m, Constants.COLUMN_WAREHOUSE_STOCK, "仓库库存");
+        alias(m, Constants.COLUMN_MIN_STOCK, "货架预警");
+        alias(m, Constants.COLUMN_MIN_WAREHOUSE_STOCK, "仓库预警");
+        alias(m, Constants.COLUMN_UNIT, "单位");
+        alias(m, Constants.COLUMN_PRODUCTION_DATE, "生产日期");
+        alias(m, Constants.COLUMN_EXPIRATION_DATE, "过期日期", "保质期至");
+        alias(m, Constants.COLUMN_DESCRIPTION, "描述");
+        alias(m, Constants.COLUMN_THUMB_URL, "缩略图");
+        alias(m, Constants.COLUMN_SUPPLIER_ID, "供应商id");
+        DEFAULT_HEADER_MAPPING = Collections.unmodifiableMap(m);
+    }
+
+    private static void alias(Map<String, String> m, String column, String... headers) {
+        m.put(column, column);
+        for (String h : headers) m.put(h.toLowerCase(Locale.ROOT), column);
+    }
+
+    // 可导入的列及其类型（顺序即写入的列顺序）
+    private static final String[] IMPORTABLE = {
+            Constants.COLUMN_PRODUCT_NAME, Constants.COLUMN_BARCODE, Constants.COLUMN_CATEGORY, Constants.COLUMN_BRAND,
+            Constants.COLUMN_PRICE, Constants.COLUMN_COST, Constants.COLUMN_STOCK, Constants.COLUMN_WAREHOUSE_STOCK,
+            Constants.COLUMN_MIN_STOCK, Constants.COLUMN_MIN_WAREHOUSE_STOCK, Constants.COLUMN_UNIT,
+            Constants.COLUMN_PRODUCTION_DATE, Constants.COLUMN_EXPIRATION_DATE, Constants.COLUMN_DESCRIPTION,
+            Constants.COLUMN_THUMB_URL, Constants.COLUMN_SUPPLIER_ID
+    };
+    private static final Set<String> INT_COLUMNS = new HashSet<>(java.util.Arrays.asList(
+            Constants.COLUMN_STOCK, Constants.COLUMN_WAREHOUSE_STOCK, Constants.COLUMN_MIN_STOCK, Constants.COLUMN_MIN_WAREHOUSE_STOCK));
+    private static final Set<String> REAL_COLUMNS = new HashSet<>(java.util.Arrays.asList(
+            Constants.COLUMN_PRICE, Constants.COLUMN_COST));
+    private static final Set<String> DATE_COLUMNS = new HashSet<>(java.util.Arrays.asList(
+            Constants.COLUMN_PRODUCTION_DATE, Constants.COLUMN_EXPIRATION_DATE));
+
+    // 在导入线程回调，每批一次及结束时一次；result 为进行中的统计，只读
+    public interface ProgressListener {
+        void onProgress(Result result, long bytesRead, long totalBytes);
+    }
+
+    public static final class RejectedRow {
+        public final long line;
+        public final String reason;
+
+        RejectedRow(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+    }
+
+    public static final class Result {
+        private long rowsRead;
+        private int inserted;
+        private int updated;
+        private int rejectedCount;
+        private int batches;
+        private long elapsedMs;
+        private final List<RejectedRow> rejected = new ArrayList<>();
+
+        public long getRowsRead() { return rowsRead; }
+        public int getInserted() { return inserted; }
+        public int getUpdated() { return updated; }
+        public int getRejectedCount() { return rejectedCount; }
+        public List<RejectedRow> getRejected() { return rejected; }
+        public int getBatches() { return batches; }
+        public long getElapsedMs() { return elapsedMs; }
+
+        public double getRowsPerSecond() {
+            return elapsedMs > 0 ? rowsRead * 1000.0 / elapsedMs : 0;
+        }
+
+        void reject(long line, String reason) {
+            rejectedCount++;
+            if (rejected.size() < MAX_REJECTED_DETAILS) rejected.add(new RejectedRow(line, reason));
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private final Context ctx;
+    private final String userId;
+    private final String userRole;
+    private Map<String, String> headerMapping = DEFAULT_HEADER_MAPPING;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+
+    public ProductCsvImporter(SQLiteDatabase db, Context ctx) {
+        this.db = db;
+        this.ctx = ctx;
+        String uid = null, urole = null;
+        if (ctx != null) {
+            PrefsManager prefs = new PrefsManager(ctx);
+            uid = prefs.getUserId();
+            urole = prefs.getUserRole();
+        }
+        this.userId = uid;
+        this.userRole = urole;
+        dateFormat.setLenient(false);
+    }
+
+    // 自定义表头映射：键为表头（小写），值为商品列名
+    public ProductCsvImporter setHeaderMapping(Map<String, String> mapping) {
+        if (mapping != null) this.headerMapping = mapping;
+        return this;
+    }
+
+    public ProductCsvImporter setBatchSize(int batchSize) {
+        if (batchSize > 0) this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 导入 UTF-8 编码的 CSV（可带 BOM）。totalBytes 仅用于进度，未知时传 0。
+     * 无权限或表头缺少名称/售价时返回 null，原因见 DaoResult；读取失败抛出 IOException，
+     * 某批的汇总流水无法写入时抛出 SQLException，两种情况下已提交的批次都保留。
+     */
+    public Result importCsv(InputStream in, long totalBytes, ProgressListener listener) throws IOException {
+        if (ctx != null && !Constants.ROLE_ADMIN.equals(userRole)) {
+            DaoResult.setError(DaoResult.ERR_PERMISSION, "no permission to import products");
+            return null;
+        }
+        long startedAt = SystemClock.elapsedRealtime();
+        CountingInputStream counting = new CountingInputStream(in);
+        CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 64 * 1024));
+
+        List<String> header = csv.next();
+        if (header == null) {
+            DaoResult.setError(DaoResult.ERR_INVALID, "empty csv");
+            return null;
+        }
+        // fieldOf[i]：IMPORTABLE[i] 对应的 CSV 字段下标，-1 表示文件中没有该列
+        int[] fieldOf = new int[IMPORTABLE.length];
+        java.util.Arrays.fill(fieldOf, -1);
+        for (int f = 0; f < header.size(); f++) {
+            String column = headerMapping.get(header.get(f).trim().toLowerCase(Locale.ROOT));
+            if (column == null) continue;
+            for (int i = 0; i < IMPORTABLE.length; i++) {
+                if (IMPORTABLE[i].equals(column) && fieldOf[i] == -1) fieldOf[i] = f;
+            }
+        }
+        if (fieldOf[indexOf(Constants.COLUMN_PRODUCT_NAME)] == -1 || fieldOf[indexOf(Constants.COLUMN_PRICE)] == -1) {
+            DaoResult.setError(DaoResult.ERR_INVALID, "csv header must contain name and price");
+            return null;
+        }
+
+        Plan plan = new Plan(fieldOf);
+        String importId = UUID.randomUUID().toString();
+        Result result = new Result();
+        Batch batch = new Batch();
+        List<String> record;
+        try {
+            while ((record = csv.next()) != null) {
+                // 跳过空行
+                if (record.size() == 1 && record.get(0).trim().isEmpty()) continue;
+                result.rowsRead++;
+                String error = batch.add(plan, record, csv.recordLine);
+                if (error != null) result.reject(csv.recordLine, error);
+                if (batch.size() >= batchSize) {
+                    writeBatch(plan, batch, importId, result);
+                    batch = new Batch();
+                    result.elapsedMs = SystemClock.elapsedRealtime() - startedAt;
+                    if (listener != null) listener.onProgress(result, counting.count, totalBytes);
+                }
+            }
+            if (batch.size() > 0) writeBatch(plan, batch, importId, result);
+        } finally {
+            if (result.batches > 0) CatalogChanges.catalogReloaded(db);
+        }
+        result.elapsedMs = SystemClock.elapsedRealtime() - startedAt;
+        if (listener != null) listener.onProgress(result, counting.count, Math.max(totalBytes, counting.count));
+        return result;
+    }
+
+    private void writeBatch(Plan plan, Batch batch, String importId, Result result) {
+        result.batches++;
+        Set<String> existing = existingBarcodes(batch.byBarcode.keySet());
+        List<Object[]> upserts = new ArrayList<>(batch.byBarcode.values());
+        long now = System.currentTimeMillis();
+        for (Object[] row : upserts) plan.stamp(row, now);
+        for (Object[] row : batch.plain) plan.stamp(row, now);
+
+        int inserted = 0, updated = batch.duplicates;
+        for (String barcode : batch.byBarcode.keySet()) {
+            if (existing.contains(barcode)) updated++; else inserted++;
+        }
+        inserted += batch.plain.size();
+
+        boolean ok = false;
+        db.beginTransaction();
+        try {
+            BatchInsert.insertRows(db, Constants.TABLE_PRODUCTS, plan.columns, upserts, plan.upsertSuffix);
+            BatchInsert.insertRows(db, Constants.TABLE_PRODUCTS, plan.columns, batch.plain, null);
+            writeLedger(importId, result.batches, inserted, updated, batch.shelfStock);
+            db.setTransactionSuccessful();
+            ok = true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            db.endTransaction();
+        }
+        if (ok) {
+            result.inserted += inserted;
+            result.updated += updated;
+            return;
+        }
+
+        // 多行语句失败：逐行重试，出错的行单独拒绝（单条语句失败只回滚该语句，不影响同一事务中的其他行）。
+        // 数量与库存合计只按实际写入的行重新统计，与正常路径口径一致（同批重复条码计入更新）
+        inserted = 0;
+        updated = 0;
+        long shelfStock = 0;
+        db.beginTransaction();
+        try {
+            for (Map.Entry<String, Object[]> e : batch.byBarcode.entrySet()) {
+                try {
+                    BatchInsert.insertRows(db, Constants.TABLE_PRODUCTS, plan.columns, Collections.singletonList(e.getValue()), plan.upsertSuffix);
+                    if (existing.contains(e.getKey())) updated++; else inserted++;
+                    updated += batch.barcodeDuplicates.getOrDefault(e.getKey(), 0);
+                    shelfStock += plan.stockOf(e.getValue());
+                } catch (SQLException ex) {
+                    result.reject(batch.barcodeLines.get(e.getKey()), String.valueOf(ex.getMessage()));
+                }
+            }
+            for (int r = 0; r < batch.plain.size(); r++) {
+                try {
+                    BatchInsert.insertRows(db, Constants.TABLE_PRODUCTS, plan.columns, Collections.singletonList(batch.plain.get(r)), null);
+                    inserted++;
+                    shelfStock += plan.stockOf(batch.plain.get(r));
+                } catch (SQLException ex) {
+                    result.reject(batch.plainLines.get(r), String.valueOf(ex.getMessage()));
+                }
+            }
+            writeLedger(importId, result.batches, inserted, updated, shelfStock);
+            db.setTransactionSuccessful();
+            result.inserted += inserted;
+            result.updated += updated;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 每批一条汇总流水 + 一条审计，随该批一起提交；流水写入失败时抛出 SQLException，整批回滚
+    private void writeLedger(String importId, int batchNo, int inserted, int updated, long shelfStock) {
+        String detail = "批量导入第 " + batchNo + " 批：新增 " + inserted + "，更新 " + updated + "，货架库存合计 " + shelfStock;
+        int qty = (int) Math.min(Integer.MAX_VALUE, shelfStock);
+        long rowId = StatementBinders.insertStockTransaction(StatementCache.of(db), null, "import:" + importId, "批量导入",
+                userId, userRole, TX_TYPE_IMPORT, qty, 0, qty, detail, System.currentTimeMillis());
+        if (rowId == -1) throw new SQLException("failed to write import ledger for batch " + batchNo);
+        Audit.writeSystemAuditDurable(db, userId, userRole, "product_import:" + importId, "import", detail);
+    }
+
+    private Set<String> existingBarcodes(Set<String> barcodes) {
+        Set<String> found = new HashSet<>();
+        List<String> all = new ArrayList<>(barcodes);
+        for (int start = 0; start < all.size(); start += MAX_IN_ARGS) {
+            List<String> chunk = all.subList(start, Math.min(all.size(), start + MAX_IN_ARGS));
+            StringBuilder sql = new StringBuilder("SELECT ").append(Constants.COLUMN_BARCODE).append(" FROM ")
+                    .append(Constants.TABLE_PRODUCTS).append(" WHERE ").append(Constants.COLUMN_BARCODE).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i > 0 ? ",?" : "?");
+            sql.append(')');
+            Cursor c = null;
+            try {
+                c = db.rawQuery(sql.toString(), chunk.toArray(new String[0]));
+                while (c.moveToNext()) found.add(c.getString(0));
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+        return found;
+    }
+
+    private static int indexOf(String column) {
+        for (int i = 0; i < IMPORTABLE.length; i++) if (IMPORTABLE[i].equals(column)) return i;
+        return -1;
+    }
+
+    /** 本次导入的写入列与 upsert 语句，由表头决定 */
+    private final class Plan {
+        final String[] columns;
+        // 与 columns 对齐：>=0 为 CSV 字段下标；ID/CREATED/UPDATED 为自动填充
+        final int[] sources;
+        final String[] types;
+        final String upsertSuffix;
+        final int barcodeSlot;
+        final int stockSlot;
+
+        static final int ID = -1, CREATED = -2, UPDATED = -3;
+
+        Plan(int[] fieldOf) {
+            List<String> cols = new ArrayList<>();
+            List<Integer> src = new ArrayList<>();
+            cols.add(Constants.COLUMN_PRODUCT_ID); src.add(ID);
+            cols.add(Constants.COLUMN_CREATED_AT); src.add(CREATED);
+            cols.add(Constants.COLUMN_UPDATED_AT); src.add(UPDATED);
+            for (int i = 0; i < IMPORTABLE.length; i++) {
+                if (fieldOf[i] == -1) continue;
+                cols.add(IMPORTABLE[i]);
+                src.add(fieldOf[i]);
+            }
+            columns = cols.toArray(new String[0]);
+            sources = new int[columns.length];
+            types = new String[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                sources[i] = src.get(i);
+                types[i] = INT_COLUMNS.contains(columns[i]) ? "int" : REAL_COLUMNS.contains(columns[i]) ? "real"
+                        : DATE_COLUMNS.contains(columns[i]) ? "date" : "text";
+            }
+            barcodeSlot = cols.indexOf(Constants.COLUMN_BARCODE);
+            stockSlot = cols.indexOf(Constants.COLUMN_STOCK);
+
+            // 条码冲突时更新文件中出现的列（不改 id、创建时间和条码本身）
+            StringBuilder sb = new StringBuilder(" ON CONFLICT(").append(Constants.COLUMN_BARCODE).append(") DO UPDATE SET ");
+            boolean first = true;
+            for (String c : columns) {
+                if (c.equals(Constants.COLUMN_PRODUCT_ID) || c.equals(Constants.COLUMN_CREATED_AT) || c.equals(Constants.COLUMN_BARCODE)) continue;
+                if (!first) sb.append(", ");
+                sb.append(c).append(" = excluded.").append(c);
+                first = false;
+            }
+            upsertSuffix = sb.toString();
+        }
+
+        // 解析一行，出错时返回原因
+        Object[] parse(List<String> record, String[] error) {
+            Object[] row = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                if (sources[i] < 0) continue;
+                String raw = sources[i] < record.size() ? record.get(sources[i]).trim() : "";
+                try {
+                    row[i] = convert(types[i], raw);
+                } catch (IllegalArgumentException e) {
+                    error[0] = columns[i] + " 格式错误: " + raw;
+                    return null;
+                }
+            }
+            Object name = row[columnIndex(Constants.COLUMN_PRODUCT_NAME)];
+            if (name == null) {
+                error[0] = "缺少商品名称";
+                return null;
+            }
+            Object price = row[columnIndex(Constants.COLUMN_PRICE)];
+            if (price == null) {
+                error[0] = "缺少售价";
+                return null;
+            }
+            return row;
+        }
+
+        private Object convert(String type, String raw) {
+            switch (type) {
+                case "int": {
+                    if (raw.isEmpty()) return 0;
+                    int v;
+                    try {
+                        v = Integer.parseInt(raw);
+                    } catch (NumberFormatException e) {
+                        double d = Double.parseDouble(raw);
+                        if (d != Math.rint(d) || Math.abs(d) > Integer.MAX_VALUE) throw new IllegalArgumentException(raw);
+                        v = (int) d;
+                    }
+                    if (v < 0) throw new IllegalArgumentException(raw);
+                    return v;
+                }
+                case "real": {
+                    if (raw.isEmpty()) return null;
+                    double d = Double.parseDouble(raw);
+                    if (Double.isNaN(d) || Double.isInfinite(d) || d < 0) throw new IllegalArgumentException(raw);
+                    return d;
+                }
+                case "date": {
+                    if (raw.isEmpty()) return null;
+                    boolean digits = true;
+                    for (int i = 0; i < raw.length() && digits; i++) digits = Character.isDigit(raw.charAt(i));
+                    if (digits) return Long.parseLong(raw);
+                    try {
+                        return dateFormat.parse(raw).getTime();
+                    } catch (ParseException e) {
+                        throw new IllegalArgumentException(raw);
+                    }
+                }
+                default:
+                    return raw.isEmpty() ? null : raw;
+            }
+        }
+
+        int columnIndex(String column) {
+            for (int i = 0; i < columns.length; i++) if (columns[i].equals(column)) return i;
+            return -1;
+        }
+
+        // 该行的货架库存；文件中没有库存列时为 0
+        int stockOf(Object[] row) {
+            return stockSlot >= 0 ? (Integer) row[stockSlot] : 0;
+        }
+
+        void stamp(Object[] row, long now) {
+            for (int i = 0; i < columns.length; i++) {
+                if (sources[i] == ID) row[i] = UUID.randomUUID().toString();
+                else if (sources[i] == CREATED || sources[i] == UPDATED) row[i] = now;
+            }
+        }
+    }
+
+    /** 一批待写入的行：有条码的按条码去重（同批内后出现的覆盖先出现的），无条码的直接插入 */
+    private static final class Batch {
+        final LinkedHashMap<String, Object[]> byBarcode = new LinkedHashMap<>();
+        final Map<String, Long> barcodeLines = new HashMap<>();
+        // 同批中被后出现的同条码行覆盖的行数（按条码）
+        final Map<String, Integer> barcodeDuplicates = new HashMap<>();
+        final List<Object[]> plain = new ArrayList<>();
+        final List<Long> plainLines = new ArrayList<>();
+        int duplicates;
+        long shelfStock;
+
+        String add(Plan plan, List<String> record, long line) {
+            String[] error = new String[1];
+            Object[] row = plan.parse(record, error);
+            if (row == null) return error[0];
+            shelfStock += plan.stockOf(row);
+            String barcode = plan.barcodeSlot >= 0 ? (String) row[plan.barcodeSlot] : null;
+            if (barcode == null) {
+                plain.add(row);
+                plainLines.add(line);
+            } else {
+                Object[] previous = byBarcode.put(barcode, row);
+                barcodeLines.put(barcode, line);
+                if (previous != null) {
+                    shelfStock -= plan.stockOf(previous);
+                    duplicates++;
+                    barcodeDuplicates.merge(barcode, 1, Integer::sum);
+                }
+            }
+            return null;
+        }
+
+        int size() {
+            return byBarcode.size() + plain.size();
+        }
+    }
+
+    /** RFC 4180 风格的 CSV 记录读取：支持引号、引号内的逗号/换行及 "" 转义，去掉开头的 BOM */
+    private static final class CsvReader {
+        private final Reader in;
+        private long line = 1;
+        // 最近一条记录的起始行号（用于报告拒绝行）
+        long recordLine;
+        private boolean first = true;
+        private int pushback = -2;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (pushback != -2) {
+                int c = pushback;
+                pushback = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (first) {
+                first = false;
+                if (c == '\uFEFF') c = read();
+            }
+            if (c == -1) return null;
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        fields.add(sb.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            sb.append('"');
+                        } else {
+                            quoted = false;
+                            c = n;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') line++;
+                        sb.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n' || c == '\r') {
+                    fields.add(sb.toString());
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') pushback = n;
+                    }
+                    if (c != -1) line++;
+                    return fields;
+                } else if (c == ',') {
+                    fields.add(sb.toString());
+                    sb.setLength(0);
+                } else if (c == '"' && sb.length() == 0) {
+                    quoted = true;
+                } else {
+                    sb.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.android_development.database;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.model.CursorMapper;
 import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductPage;
+import com.example.android_development.model.ProductSummary;
+import com.example.android_development.model.ProductSummaryPage;
 import com.example.android_development.util.Constants;
 import java.util.ArrayList;
 import java.util.List;
+import com.example.android_development.model.StockHistoryFilter;
+import com.example.android_development.model.StockHistoryPage;
 import com.example.android_development.model.StockTransaction;
 import com.example.android_development.util.Audit;
 import java.util.UUID;
@@ -14,62 +19,32 @@ import java.util.UUID;
 public class ProductDAO {
 
     private SQLiteDatabase db;
+    private final ProductSearchEngine searchEngine;
 
     public ProductDAO(SQLiteDatabase db) {
         this.db = db;
+        this.searchEngine = new ProductSearchEngine(db);
     }
 
-    // 添加商品
-    public long addProduct(Product product) {
-        ContentValues values = new ContentValues();
-        values.put(Constants.COLUMN_PRODUCT_ID, product.getId());
-        values.put(Constants.COLUMN_PRODUCT_NAME, product.getName());
-        values.put(Constants.COLUMN_THUMB_URL, product.getThumbUrl());
-        values.put(Constants.COLUMN_CATEGORY, product.getCategory());
-        values.put(Constants.COLUMN_BRAND, product.getBrand());
-        values.put(Constants.COLUMN_PRICE, product.getPrice());
-        values.put(Constants.COLUMN_COST, product.getCost());
-        values.put(Constants.COLUMN_STOCK, product.getStock());
-        values.put(Constants.COLUMN_WAREHOUSE_STOCK, product.getWarehouseStock());
-        values.put(Constants.COLUMN_MIN_STOCK, product.getMinStock());
-        values.put(Constants.COLUMN_MIN_WAREHOUSE_STOCK, product.getMinWarehouseStock());
-        values.put(Constants.COLUMN_UNIT, product.getUnit());
-        values.put(Constants.COLUMN_PRODUCTION_DATE, product.getProductionDate());
-        values.put(Constants.COLUMN_EXPIRATION_DATE, product.getExpirationDate());
-        values.put(Constants.COLUMN_BARCODE, product.getBarcode());
-        values.put(Constants.COLUMN_DESCRIPTION, product.getDescription());
-        values.put(Constants.COLUMN_SUPPLIER_ID, product.getSupplierId());
-        values.put(Constants.COLUMN_CREATED_AT, product.getCreatedAt());
-        values.put(Constants.COLUMN_UPDATED_AT, product.getUpdatedAt());
-
-        return db.insert(Constants.TABLE_PRODUCTS, null, values);
-    }
-
-    // 更新商品
-    public int updateProduct(Product product) {
-        ContentValues values = new ContentValues();
-        values.put(Constants.COLUMN_PRODUCT_NAME, product.getName());
-        values.put(Constants.COLUMN_THUMB_URL, product.getThumbUrl());
-        values.put(Constants.COLUMN_CATEGORY, product.getCategory());
-        values.put(Constants.COLUMN_BRAND, product.getBrand());
-        values.put(Constants.COLUMN_PRICE, product.getPrice());
-        values.put(Constants.COLUMN_COST, product.getCost());
-        values.put(Constants.COLUMN_STOCK, product.getStock());
-        values.put(Constants.COLUMN_WAREHOUSE_STOCK, product.getWarehouseStock());
-        values.put(Constants.COLUMN_MIN_STOCK, product.getMinStock());
-        values.put(Constants.COLUMN_MIN_WAREHOUSE_STOCK, product.getMinWarehouseStock());
-        values.put(Constants.COLUMN_UNIT, product.getUnit());
-        values.put(Constants.COLUMN_PRODUCTION_DATE, product.getProductionDate());
-        values.put(Constants.COLUMN_EXPIRATION_DATE, product.getExpirationDate());
-        values.put(Constants.COLUMN_BARCODE, product.getBarcode());
-        values.put(Constants.COLUMN_DESCRIPTION, product.getDescription());
-        values.put(Constants.COLUMN_SUPPLIER_ID, product.getSupplierId());
-        values.put(Constants.COLUMN_UPDATED_AT, System.currentTimeMillis());
+    public ProductSearchEngine getSearchEngine() {
+        return searchEngine;
+    }
 
-        String whereClause = Constants.COLUMN_PRODUCT_ID + " = ?";
-        String[] whereArgs = {product.getId()};
+    // 添加商品（预编译语句，批量导入等场景下避免重复编译）
+    public long addProduct(Product product) {
+        long res = StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_PRODUCT,
+                st -> StatementBinders.bindProduct(st, product));
+        if (res != -1) CatalogChanges.productSaved(db, product.getId(), product.getName());
+        return res;
+    }
 
-        return db.update(Constants.TABLE_PRODUCTS, values, whereClause, whereArgs);
+    // 更新商品（预编译语句）
+    public int updateProduct(Product product) {
+        product.setUpdatedAt(System.currentTimeMillis());
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PRODUCT,
+                st -> StatementBinders.bindProductUpdate(st, product));
+        if (rows > 0) CatalogChanges.productSaved(db, product.getId(), product.getName());
+        return rows;
     }
 
     // 删除商品
@@ -77,11 +52,17 @@ public class ProductDAO {
         String whereClause = Constants.COLUMN_PRODUCT_ID + " = ?";
         String[] whereArgs = {productId};
 
-        return db.delete(Constants.TABLE_PRODUCTS, whereClause, whereArgs);
+        int rows = db.delete(Constants.TABLE_PRODUCTS, whereClause, whereArgs);
+        if (rows > 0) CatalogChanges.productDeleted(db, productId);
+        return rows;
     }
 
-    // 根据ID获取商品
+    // 根据ID获取商品（经商品缓存读穿透）
     public Product getProductById(String productId) {
+        return ProductCache.of(db).getById(productId, () -> loadProductById(productId));
+    }
+
+    private Product loadProductById(String productId) {
         String[] columns = getAllColumns();
         String selection = Constants.COLUMN_PRODUCT_ID + " = ?";
         String[] selectionArgs = {productId};
@@ -132,33 +113,31 @@ public class ProductDAO {
 
     // 模糊匹配商品名称，返回匹配的商品列表（用于候选提示）
     public List<Product> getProductsByNameLike(String q) {
-        List<Product> products = new ArrayList<>();
-        if (q == null) return products;
-        String like = "%" + q + "%";
-        String[] columns = getAllColumns();
-        String selection = Constants.COLUMN_PRODUCT_NAME + " LIKE ?";
-        String[] selectionArgs = {like};
-        Cursor cursor = db.query(
-                Constants.TABLE_PRODUCTS,
-                columns,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                Constants.COLUMN_PRODUCT_NAME + " ASC",
-                "50"
-        );
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                products.add(cursorToProduct(cursor));
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        return products;
+        if (q == null) return new ArrayList<>();
+        // 走全文检索（相关度排序），短关键字由引擎退回前缀/LIKE
+        return searchEngine.search(q, 50);
     }
 
-    // 获取所有商品
+    // 获取所有商品（按目录版本缓存整张列表）
     public List<Product> getAllProducts() {
+        return ProductCache.of(db).getList("all", this::loadAllProducts);
+    }
+
+    // 根据条码获取商品（经商品缓存读穿透）
+    public Product getProductByBarcode(String barcode) {
+        if (barcode == null || barcode.isEmpty()) return null;
+        return ProductCache.of(db).getByBarcode(barcode, () -> {
+            Cursor cursor = null;
+            try {
+                cursor = db.query(Constants.TABLE_PRODUCTS, getAllColumns(), Constants.COLUMN_BARCODE + " = ?", new String[]{barcode}, null, null, null, "1");
+                return cursor.moveToFirst() ? cursorToProduct(cursor) : null;
+            } finally {
+                if (cursor != null) cursor.close();
+            }
+        });
+    }
+
+    private List<Product> loadAllProducts() {
         List<Product> products = new ArrayList<>();
 
         String[] columns = getAllColumns();
@@ -175,8 +154,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -205,8 +185,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -218,26 +199,27 @@ public class ProductDAO {
     // 搜索商品（按名称或条码）
     public List<Product> searchProducts(String keyword) {
         List<Product> products = new ArrayList<>();
+        if (keyword == null || keyword.trim().isEmpty()) return getAllProducts();
 
-        String[] columns = getAllColumns();
-        String selection = Constants.COLUMN_PRODUCT_NAME + " LIKE ? OR " +
-                Constants.COLUMN_BARCODE + " LIKE ?";
-        String[] selectionArgs = {"%" + keyword + "%", "%" + keyword + "%"};
+        StringBuilder selection = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        searchEngine.appendKeywordFilter(selection, args, keyword);
         String orderBy = Constants.COLUMN_PRODUCT_NAME + " ASC";
 
         Cursor cursor = db.query(
                 Constants.TABLE_PRODUCTS,
-                columns,
-                selection,
-                selectionArgs,
+                getAllColumns(),
+                selection.toString(),
+                args.toArray(new String[0]),
                 null,
                 null,
                 orderBy
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -246,7 +228,8 @@ public class ProductDAO {
         return products;
     }
 
-    // 分页获取商品（limit, offset）
+    // 分页获取商品（limit, offset）；深分页时 SQLite 需逐行跳过 offset，列表页请改用 getProductsPageAfter
+    @Deprecated
     public List<Product> getProductsPage(int limit, int offset) {
         List<Product> products = new ArrayList<>();
 
@@ -267,8 +250,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -277,13 +261,16 @@ public class ProductDAO {
         return products;
     }
 
-    // 分页搜索（按名称或条码）
+    // 分页搜索（按名称或条码）；同上，请改用 getProductsPageAfter
+    @Deprecated
     public List<Product> searchProductsPage(String keyword, int limit, int offset) {
         List<Product> products = new ArrayList<>();
         String[] columns = getAllColumns();
-        String selection = Constants.COLUMN_PRODUCT_NAME + " LIKE ? OR " +
-                Constants.COLUMN_BARCODE + " LIKE ?";
-        String[] selectionArgs = {"%" + keyword + "%", "%" + keyword + "%"};
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        searchEngine.appendKeywordFilter(where, args, keyword);
+        String selection = where.toString();
+        String[] selectionArgs = args.toArray(new String[0]);
         String orderBy = Constants.COLUMN_PRODUCT_NAME + " ASC";
         String limitStr = offset + "," + limit;
 
@@ -299,8 +286,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -309,8 +297,104 @@ public class ProductDAO {
         return products;
     }
 
+    /**
+     * 键集分页：按 (name, product_id) 排序，从 pageToken 之后取 limit 条。
+     * 借助 (name, product_id) / (category, name, product_id) 索引直接定位起点，每页代价只与页大小相关。
+     * @param keyword      名称/条码关键字，可为 null
+     * @param category     分类，可为 null 表示全部
+     * @param lowStockOnly 仅返回货架库存不高于预警值的商品
+     * @param pageToken    上一页返回的 nextToken，第一页传 null
+     */
+    public ProductPage getProductsPageAfter(String keyword, String category, boolean lowStockOnly, String pageToken, int limit) {
+        if (limit <= 0) limit = 20;
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendPageFilter(where, args, keyword, category, lowStockOnly, pageToken);
+
+        // 多取一条用于判断是否还有下一页
+        List<Product> products = new ArrayList<>();
+        Cursor cursor = db.rawQuery(productPageSql(getAllColumns(), where.toString(), limit + 1),
+                args.isEmpty() ? null : args.toArray(new String[0]));
+        if (cursor != null) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
+            while (cursor.moveToNext()) {
+                products.add(mapper.map(cursor));
+            }
+            cursor.close();
+        }
+
+        String nextToken = null;
+        if (products.size() > limit) {
+            products.remove(products.size() - 1);
+            Product last = products.get(products.size() - 1);
+            nextToken = ProductPage.encodeToken(last.getName(), last.getId());
+        }
+        return new ProductPage(products, nextToken);
+    }
+
+    /**
+     * 同 getProductsPageAfter，但只投影 ProductSummary.COLUMNS（列表页使用）。
+     * token 与 getProductsPageAfter 通用。
+     */
+    public ProductSummaryPage getProductSummaryPageAfter(String keyword, String category, boolean lowStockOnly, String pageToken, int limit) {
+        if (limit <= 0) limit = 20;
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendPageFilter(where, args, keyword, category, lowStockOnly, pageToken);
+
+        List<ProductSummary> items = rawQuerySummaries(productPageSql(ProductSummary.COLUMNS, where.toString(), limit + 1),
+                args.isEmpty() ? null : args.toArray(new String[0]));
+
+        String nextToken = null;
+        if (items.size() > limit) {
+            items.remove(items.size() - 1);
+            ProductSummary last = items.get(items.size() - 1);
+            nextToken = ProductPage.encodeToken(last.getName(), last.getId());
+        }
+        return new ProductSummaryPage(items, nextToken);
+    }
+
+    // 键集分页的过滤条件：起点 + 分类 + 低库存 + 关键字
+    private void appendPageFilter(StringBuilder where, List<String> args, String keyword, String category, boolean lowStockOnly, String pageToken) {
+        appendKeysetFilter(where, args, ProductPage.decodeToken(pageToken), category, lowStockOnly);
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            if (where.length() > 0) where.append(" AND ");
+            searchEngine.appendKeywordFilter(where, args, keyword);
+        }
+    }
+
+    // 不含关键字的部分（QueryPlanChecker 用同一段条件检查执行计划）
+    static void appendKeysetFilter(StringBuilder where, List<String> args, String[] after, String category, boolean lowStockOnly) {
+        if (after != null) {
+            where.append("(").append(Constants.COLUMN_PRODUCT_NAME).append(", ").append(Constants.COLUMN_PRODUCT_ID).append(") > (?, ?)");
+            args.add(after[0]);
+            args.add(after[1]);
+        }
+        if (category != null && !category.isEmpty()) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append(Constants.COLUMN_CATEGORY).append(" = ?");
+            args.add(category);
+        }
+        if (lowStockOnly) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append(Constants.COLUMN_STOCK).append(" <= ").append(Constants.COLUMN_MIN_STOCK)
+                    .append(" AND ").append(Constants.COLUMN_MIN_STOCK).append(" > 0");
+        }
+    }
+
+    // 键集分页语句：where 为不含 WHERE 关键字的条件（可为空），按 (name, product_id) 升序
+    static String productPageSql(String[] columns, String where, int limit) {
+        return "SELECT " + String.join(", ", columns) + " FROM " + Constants.TABLE_PRODUCTS +
+                (where.isEmpty() ? "" : " WHERE " + where) +
+                " ORDER BY " + Constants.COLUMN_PRODUCT_NAME + " ASC, " + Constants.COLUMN_PRODUCT_ID + " ASC LIMIT " + limit;
+    }
+
     // 获取低库存商品 (货架库存 < 货架预警)
     public List<Product> getLowStockProducts() {
+        return ProductCache.of(db).getList("low_stock", this::loadLowStockProducts);
+    }
+
+    private List<Product> loadLowStockProducts() {
         List<Product> products = new ArrayList<>();
 
         String[] columns = getAllColumns();
@@ -329,8 +413,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -339,6 +424,59 @@ public class ProductDAO {
         return products;
     }
 
+    // 全部商品的精简行（商品查询页），按目录版本缓存
+    public List<ProductSummary> getAllProductSummaries() {
+        return ProductCache.of(db).getSummaryList("all", () ->
+                querySummaries(null, null, Constants.COLUMN_PRODUCT_NAME + " ASC", null));
+    }
+
+    // 低货架库存商品的精简行（补货、预警列表）
+    public List<ProductSummary> getLowStockSummaries() {
+        return ProductCache.of(db).getSummaryList("low_stock", () ->
+                querySummaries(Constants.COLUMN_STOCK + " <= " + Constants.COLUMN_MIN_STOCK + " AND " + Constants.COLUMN_MIN_STOCK + " > 0",
+                        null, Constants.COLUMN_STOCK + " ASC", null));
+    }
+
+    // 低仓库库存商品的精简行（采购入库列表）
+    public List<ProductSummary> getLowWarehouseStockSummaries() {
+        return querySummaries(Constants.COLUMN_WAREHOUSE_STOCK + " <= " + Constants.COLUMN_MIN_WAREHOUSE_STOCK + " AND " + Constants.COLUMN_MIN_WAREHOUSE_STOCK + " > 0",
+                null, Constants.COLUMN_WAREHOUSE_STOCK + " ASC", null);
+    }
+
+    private List<ProductSummary> rawQuerySummaries(String sql, String[] args) {
+        List<ProductSummary> items = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, args);
+            CursorMapper<ProductSummary> mapper = ProductSummary.mapper(cursor);
+            while (cursor.moveToNext()) {
+                items.add(mapper.map(cursor));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return items;
+    }
+
+    private List<ProductSummary> querySummaries(String selection, String[] selectionArgs, String orderBy, String limit) {
+        List<ProductSummary> items = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(Constants.TABLE_PRODUCTS, ProductSummary.COLUMNS, selection, selectionArgs, null, null, orderBy, limit);
+            CursorMapper<ProductSummary> mapper = ProductSummary.mapper(cursor);
+            while (cursor.moveToNext()) {
+                items.add(mapper.map(cursor));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return items;
+    }
+
     // 获取低仓库库存商品 (仓库库存 < 仓库预警)
     public List<Product> getLowWarehouseStockProducts() {
         List<Product> products = new ArrayList<>();
@@ -359,8 +497,9 @@ public class ProductDAO {
         );
 
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<Product> mapper = Product.mapper(cursor);
             do {
-                Product product = cursorToProduct(cursor);
+                Product product = mapper.map(cursor);
                 products.add(product);
             } while (cursor.moveToNext());
             cursor.close();
@@ -371,35 +510,31 @@ public class ProductDAO {
 
     // 更新库存数量
     public int updateStock(String productId, int newStock) {
-        ContentValues values = new ContentValues();
-        values.put(Constants.COLUMN_STOCK, newStock);
-        values.put(Constants.COLUMN_UPDATED_AT, System.currentTimeMillis());
-
-        String whereClause = Constants.COLUMN_PRODUCT_ID + " = ?";
-        String[] whereArgs = {productId};
-
-        return db.update(Constants.TABLE_PRODUCTS, values, whereClause, whereArgs);
+        long now = System.currentTimeMillis();
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_SET_SHELF_STOCK, st -> {
+            st.bindLong(1, newStock);
+            st.bindLong(2, now);
+            StatementCache.bindString(st, 3, productId);
+        });
+        if (rows > 0) CatalogChanges.stockChanged(db, productId);
+        return rows;
     }
 
     // 更新仓库库存数量
     public int updateWarehouseStock(String productId, int newWarehouseStock) {
-        ContentValues values = new ContentValues();
-        values.put(Constants.COLUMN_WAREHOUSE_STOCK, newWarehouseStock);
-        values.put(Constants.COLUMN_UPDATED_AT, System.currentTimeMillis());
-
-        String whereClause = Constants.COLUMN_PRODUCT_ID + " = ?";
-        String[] whereArgs = {productId};
-
-        return db.update(Constants.TABLE_PRODUCTS, values, whereClause, whereArgs);
+        long now = System.currentTimeMillis();
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_SET_WAREHOUSE_STOCK, st -> {
+            st.bindLong(1, newWarehouseStock);
+            st.bindLong(2, now);
+            StatementCache.bindString(st, 3, productId);
+        });
+        if (rows > 0) CatalogChanges.warehouseStockChanged(db, productId);
+        return rows;
     }
 
     // 增加库存（入库）
     public int increaseStock(String productId, int quantity) {
-        Product product = getProductById(productId);
-        if (product == null) return 0;
-
-        int newStock = product.getStock() + quantity;
-        return updateStock(productId, newStock);
+        return StockMutations.apply(db, StockMutations.shelf(productId, quantity)) ? 1 : 0;
     }
 
     // 减少库存（出库/销售）
@@ -416,211 +551,139 @@ public class ProductDAO {
     // 添加库存事务记录
     public long addStockTransaction(StockTransaction tx) {
         if (tx == null) return -1;
-        ContentValues values = new ContentValues();
         if (tx.getId() == null || tx.getId().isEmpty()) tx.setId(UUID.randomUUID().toString());
-        values.put(Constants.COLUMN_STOCK_TX_ID, tx.getId());
-        values.put(Constants.COLUMN_STOCK_TX_PRODUCT_ID, tx.getProductId());
-        values.put(Constants.COLUMN_STOCK_TX_PRODUCT_NAME, tx.getProductName());
-        values.put(Constants.COLUMN_STOCK_TX_USER_ID, tx.getUserId());
-        values.put(Constants.COLUMN_STOCK_TX_USER_ROLE, tx.getUserRole());
-        values.put(Constants.COLUMN_STOCK_TX_TYPE, tx.getType());
-        values.put(Constants.COLUMN_STOCK_TX_QUANTITY, tx.getQuantity());
-        values.put(Constants.COLUMN_STOCK_TX_BEFORE, tx.getStockBefore());
-        values.put(Constants.COLUMN_STOCK_TX_AFTER, tx.getStockAfter());
-        values.put(Constants.COLUMN_STOCK_TX_REASON, tx.getReason());
-        values.put(Constants.COLUMN_STOCK_TX_TIMESTAMP, tx.getTimestamp() == 0 ? System.currentTimeMillis() : tx.getTimestamp());
+        if (tx.getTimestamp() == 0) tx.setTimestamp(System.currentTimeMillis());
+        StatementCache cache = StatementCache.of(db);
 
-        try {
-            long res = db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, values);
-            if (res > 0) {
-                try { Audit.writeSystemAudit(db, tx.getUserId(), tx.getUserRole(), "product:" + tx.getProductId(), tx.getType() != null ? tx.getType().toLowerCase() : "tx", tx.getReason()); } catch (Exception ignored) {}
-            }
-            return res;
-        } catch (android.database.sqlite.SQLiteException e) {
-            // 可能缺少 product_name 列或其它列，尝试添加列后重试
+        long res = cache.executeInsert(StatementBinders.SQL_INSERT_STOCK_TX, st -> StatementBinders.bindStockTransaction(st, tx));
+        if (res == -1) {
+            // 可能缺少 product_name 列（迁移未完成的旧库），补执行待执行的迁移后重试
             try {
-                android.database.Cursor c = db.rawQuery("PRAGMA table_info(" + Constants.TABLE_STOCK_TRANSACTIONS + ")", null);
-                boolean has = false;
-                if (c != null) {
-                    while (c.moveToNext()) {
-                        String name = c.getString(c.getColumnIndexOrThrow("name"));
-                        if (Constants.COLUMN_STOCK_TX_PRODUCT_NAME.equals(name)) { has = true; break; }
-                    }
-                    c.close();
-                }
-                if (!has) {
-                    try { db.execSQL("ALTER TABLE " + Constants.TABLE_STOCK_TRANSACTIONS + " ADD COLUMN " + Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " TEXT"); } catch (Exception ignored) {}
+                if (!SchemaModel.of(db).hasColumn(Constants.TABLE_STOCK_TRANSACTIONS, Constants.COLUMN_STOCK_TX_PRODUCT_NAME)) {
+                    if (SchemaMigrations.runPending(db) == 0) return -1;
+                    cache.clear();
                 }
-                long res = db.insert(Constants.TABLE_STOCK_TRANSACTIONS, null, values);
-                if (res > 0) {
-                    try { Audit.writeSystemAudit(db, tx.getUserId(), tx.getUserRole(), "product:" + tx.getProductId(), tx.getType() != null ? tx.getType().toLowerCase() : "tx", tx.getReason()); } catch (Exception ignored) {}
-                }
-                return res;
+                res = cache.executeInsert(StatementBinders.SQL_INSERT_STOCK_TX, st -> StatementBinders.bindStockTransaction(st, tx));
             } catch (Exception ex) {
                 ex.printStackTrace();
                 return -1;
             }
         }
+        if (res > 0) {
+            try { Audit.writeSystemAudit(db, tx.getUserId(), tx.getUserRole(), "product:" + tx.getProductId(), tx.getType() != null ? tx.getType().toLowerCase() : "tx", tx.getReason()); } catch (Exception ignored) {}
+        }
+        return res;
     }
 
     // 调整库存并写入事务（在事务中执行）
     public boolean adjustStockWithTransaction(String productId, int quantity, String type, String userId, String userRole, String reason) {
         if (productId == null || type == null) return false;
+        boolean in = "IN".equalsIgnoreCase(type);
+        if (!in && !"OUT".equalsIgnoreCase(type)) return false;
+        boolean committed = false;
         db.beginTransaction();
         try {
-            Product product = getProductById(productId);
-            if (product == null) return false;
-
-            int before = product.getStock();
-            int after;
-            if ("IN".equalsIgnoreCase(type)) {
-                after = before + quantity;
-            } else if ("OUT".equalsIgnoreCase(type)) {
-                // 如果货架库存不足，拒绝出库
-                if (before < quantity) {
-                    return false;
-                }
-                after = before - quantity;
-            } else {
-                return false;
-            }
+            // 货架出库（下架）时货物回到仓库：货架减、仓库加；货架库存不足时拒绝出库
+            List<StockMutations.Change> changes = new ArrayList<>();
+            changes.add(StockMutations.shelf(productId, in ? quantity : -quantity));
+            if (!in) changes.add(StockMutations.warehouse(productId, quantity));
+            List<StockMutations.Change> applied = StockMutations.applyAll(db, changes);
+            if (applied == null) return false;
 
-            int updated = updateStock(productId, after);
-            if (updated <= 0) return false;
-
-            StockTransaction tx = new StockTransaction();
-            tx.setProductId(productId);
             // 尝试设置产品名称，便于删除商品后仍保留可读历史
-            tx.setProductName(product.getName());
-            tx.setUserId(userId);
-            tx.setUserRole(userRole);
-            tx.setType(type.toUpperCase());
-            tx.setQuantity(quantity);
-            tx.setStockBefore(before);
-            tx.setStockAfter(after);
-            tx.setReason(reason);
-            tx.setTimestamp(System.currentTimeMillis());
-
-            addStockTransaction(tx);
-
-            // 当货架下架（即把货从货架移回仓库）时，同时增加仓库库存并写入对应事务记录
-            if ("OUT".equalsIgnoreCase(type)) {
-                int whBefore = product.getWarehouseStock();
-                int whAfter = whBefore + quantity;
-                int updWh = updateWarehouseStock(productId, whAfter);
-                if (updWh <= 0) {
-                    return false;
-                }
-
-                StockTransaction whTx = new StockTransaction();
-                whTx.setProductId(productId);
-                whTx.setProductName(product.getName());
-                whTx.setUserId(userId);
-                whTx.setUserRole(userRole);
-                whTx.setType("WAREHOUSE_IN_FROM_SHELF");
-                whTx.setQuantity(quantity);
-                whTx.setStockBefore(whBefore);
-                whTx.setStockAfter(whAfter);
-                whTx.setReason("货架下架: " + (reason == null ? "" : reason));
-                whTx.setTimestamp(System.currentTimeMillis());
-
-                addStockTransaction(whTx);
+            String productName = getProductNameById(productId);
+            StockMutations.Change shelf = applied.get(0);
+            addStockTransaction(newStockTransaction(productId, productName, userId, userRole, type.toUpperCase(), quantity, shelf, reason));
+
+            if (!in) {
+                StockMutations.Change wh = applied.get(1);
+                addStockTransaction(newStockTransaction(productId, productName, userId, userRole, "WAREHOUSE_IN_FROM_SHELF", quantity, wh,
+                        "货架下架: " + (reason == null ? "" : reason)));
             }
 
             db.setTransactionSuccessful();
+            committed = true;
             return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
             db.endTransaction();
+            CatalogChanges.transactionEnded(db, committed);
         }
     }
 
     // 调整仓库库存并写入事务（在事务中执行）
     public boolean adjustWarehouseWithTransaction(String productId, int quantity, String type, String userId, String userRole, String reason) {
         if (productId == null || type == null) return false;
+        boolean in = "IN".equalsIgnoreCase(type);
+        if (!in && !"OUT".equalsIgnoreCase(type)) return false;
+        boolean committed = false;
         db.beginTransaction();
         try {
-            Product product = getProductById(productId);
-            if (product == null) return false;
-
-            int before = product.getWarehouseStock();
-            int after;
-            if ("IN".equalsIgnoreCase(type)) {
-                after = before + quantity;
-            } else if ("OUT".equalsIgnoreCase(type)) {
-                // 如果仓库库存不足，拒绝仓库出库
-                if (before < quantity) {
-                    return false;
-                }
-                after = before - quantity;
-            } else {
-                return false;
-            }
-
-            int updated = updateWarehouseStock(productId, after);
-            if (updated <= 0) return false;
-            // 写入仓库库存事务
-            StockTransaction tx = new StockTransaction();
-            tx.setProductId(productId);
-            tx.setProductName(product.getName());
-            tx.setUserId(userId);
-            tx.setUserRole(userRole);
-            tx.setType(("IN".equalsIgnoreCase(type) ? "WAREHOUSE_IN" : "WAREHOUSE_OUT"));
-            tx.setQuantity(quantity);
-            tx.setStockBefore(before);
-            tx.setStockAfter(after);
-            tx.setReason(reason);
-            tx.setTimestamp(System.currentTimeMillis());
-
-            addStockTransaction(tx);
-
-            // 当仓库出库（即把货从仓库放到货架）时，同时增加货架库存并写入另一条事务记录
-            if ("OUT".equalsIgnoreCase(type)) {
-                int shelfBefore = product.getStock();
-                int shelfAfter = shelfBefore + quantity;
-                int updShelf = updateStock(productId, shelfAfter);
-                if (updShelf <= 0) {
-                    return false;
-                }
-
-                StockTransaction shelfTx = new StockTransaction();
-                shelfTx.setProductId(productId);
-                shelfTx.setProductName(product.getName());
-                shelfTx.setUserId(userId);
-                shelfTx.setUserRole(userRole);
-                shelfTx.setType("IN_FROM_WAREHOUSE");
-                shelfTx.setQuantity(quantity);
-                shelfTx.setStockBefore(shelfBefore);
-                shelfTx.setStockAfter(shelfAfter);
-                shelfTx.setReason("来自仓库: " + (reason == null ? "" : reason));
-                shelfTx.setTimestamp(System.currentTimeMillis());
-
-                addStockTransaction(shelfTx);
+            // 仓库出库（即把货从仓库放到货架）时同时增加货架库存；仓库库存不足时拒绝出库
+            List<StockMutations.Change> changes = new ArrayList<>();
+            changes.add(StockMutations.warehouse(productId, in ? quantity : -quantity));
+            if (!in) changes.add(StockMutations.shelf(productId, quantity));
+            List<StockMutations.Change> applied = StockMutations.applyAll(db, changes);
+            if (applied == null) return false;
+
+            String productName = getProductNameById(productId);
+            StockMutations.Change wh = applied.get(0);
+            addStockTransaction(newStockTransaction(productId, productName, userId, userRole, in ? "WAREHOUSE_IN" : "WAREHOUSE_OUT", quantity, wh, reason));
+
+            if (!in) {
+                StockMutations.Change shelf = applied.get(1);
+                addStockTransaction(newStockTransaction(productId, productName, userId, userRole, "IN_FROM_WAREHOUSE", quantity, shelf,
+                        "来自仓库: " + (reason == null ? "" : reason)));
             }
 
             db.setTransactionSuccessful();
+            committed = true;
             return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
             db.endTransaction();
+            CatalogChanges.transactionEnded(db, committed);
         }
     }
 
+    private String getProductNameById(String productId) {
+        try {
+            return StatementCache.of(db).simpleQueryForString(StatementBinders.SQL_SELECT_PRODUCT_NAME, st -> st.bindString(1, productId));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static StockTransaction newStockTransaction(String productId, String productName, String userId, String userRole,
+                                                        String type, int quantity, StockMutations.Change change, String reason) {
+        StockTransaction tx = new StockTransaction();
+        tx.setProductId(productId);
+        tx.setProductName(productName);
+        tx.setUserId(userId);
+        tx.setUserRole(userRole);
+        tx.setType(type);
+        tx.setQuantity(quantity);
+        tx.setStockBefore(change.before);
+        tx.setStockAfter(change.after);
+        tx.setReason(reason);
+        tx.setTimestamp(System.currentTimeMillis());
+        return tx;
+    }
+
     // 获取商品的库存事务历史（按时间倒序）
     public List<StockTransaction> getStockHistory(String productId) {
         List<StockTransaction> list = new ArrayList<>();
-        String selection = Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = ?";
         String[] selectionArgs = new String[]{productId};
-        String orderBy = Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
 
-        Cursor cursor = db.query(Constants.TABLE_STOCK_TRANSACTIONS, null, selection, selectionArgs, null, null, orderBy);
+        Cursor cursor = db.rawQuery(stockHistorySql(" WHERE st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = ?"), selectionArgs);
         if (cursor != null && cursor.moveToFirst()) {
+            CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
             do {
-                StockTransaction tx = StockTransaction.fromCursor(cursor);
+                StockTransaction tx = mapper.map(cursor);
                 list.add(tx);
             } while (cursor.moveToNext());
             cursor.close();
@@ -629,15 +692,81 @@ public class ProductDAO {
         return list;
     }
 
-    // 获取所有库存事务（全局历史）
+    /**
+     * 库存历史键集分页：按 (timestamp, tx_id) 倒序，从 pageToken 之后取 limit 条，操作人显示名由 JOIN 带出。
+     * 借助 (timestamp, tx_id) / (product_id, timestamp, tx_id) 索引定位起点，每页代价只与页大小相关，与历史总量无关。
+     * @param filter    查询条件，可为 null 表示全部
+     * @param pageToken 上一页返回的 nextToken，第一页传 null
+     */
+    public StockHistoryPage getStockHistoryPage(StockHistoryFilter filter, String pageToken, int limit) {
+        if (limit <= 0) limit = 50;
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+
+        String[] after = StockHistoryPage.decodeToken(pageToken);
+        if (after != null) {
+            where.append("(st.").append(Constants.COLUMN_STOCK_TX_TIMESTAMP).append(", st.").append(Constants.COLUMN_STOCK_TX_ID).append(") < (?, ?)");
+            args.add(after[0]);
+            args.add(after[1]);
+        }
+        if (filter != null) {
+            appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = ?", filter.getProductId());
+            appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_TYPE + " = ?", filter.getType());
+            appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_USER_ID + " = ?", filter.getUserId());
+            if (filter.getProductNameLike() != null && !filter.getProductNameLike().trim().isEmpty()) {
+                appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " LIKE ?", "%" + filter.getProductNameLike().trim() + "%");
+            }
+            if (filter.getFromMillis() > 0) {
+                appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + " >= ?", String.valueOf(filter.getFromMillis()));
+            }
+            if (filter.getToMillis() > 0) {
+                appendFilter(where, args, "st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + " <= ?", String.valueOf(filter.getToMillis()));
+            }
+        }
+
+        // 多取一条用于判断是否还有下一页
+        String sql = stockHistoryPageSql(where.toString(), limit + 1);
+
+        List<StockTransaction> items = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, args.toArray(new String[0]));
+            CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
+            while (cursor.moveToNext()) {
+                items.add(mapper.map(cursor));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+
+        String nextToken = null;
+        if (items.size() > limit) {
+            items.remove(items.size() - 1);
+            StockTransaction last = items.get(items.size() - 1);
+            nextToken = StockHistoryPage.encodeToken(last.getTimestamp(), last.getId());
+        }
+        return new StockHistoryPage(items, nextToken);
+    }
+
+    private static void appendFilter(StringBuilder where, List<String> args, String clause, String value) {
+        if (value == null || value.isEmpty()) return;
+        if (where.length() > 0) where.append(" AND ");
+        where.append(clause);
+        args.add(value);
+    }
+
+    // 获取所有库存事务（全局历史）；历史较多时请改用 getStockHistoryPage
+    @Deprecated
     public List<StockTransaction> getAllStockHistory() {
         List<StockTransaction> list = new ArrayList<>();
-        String orderBy = Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
         try {
-            Cursor cursor = db.query(Constants.TABLE_STOCK_TRANSACTIONS, null, null, null, null, null, orderBy);
+            Cursor cursor = db.rawQuery(stockHistorySql(""), null);
             if (cursor != null && cursor.moveToFirst()) {
+                CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
                 do {
-                    StockTransaction tx = StockTransaction.fromCursor(cursor);
+                    StockTransaction tx = mapper.map(cursor);
                     list.add(tx);
                 } while (cursor.moveToNext());
                 cursor.close();
@@ -648,8 +777,9 @@ public class ProductDAO {
                 String sql = "SELECT * FROM " + Constants.TABLE_STOCK_TRANSACTIONS + " ORDER BY " + Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
                 Cursor cursor = db.rawQuery(sql, null);
                 if (cursor != null && cursor.moveToFirst()) {
+                    CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
                     do {
-                        StockTransaction tx = StockTransaction.fromCursor(cursor);
+                        StockTransaction tx = mapper.map(cursor);
                         list.add(tx);
                     } while (cursor.moveToNext());
                     cursor.close();
@@ -677,40 +807,31 @@ public class ProductDAO {
     // 按产品名称搜索库存事务（支持模糊匹配）
     public List<StockTransaction> searchStockHistoryByProductName(String productName) {
         List<StockTransaction> list = new ArrayList<>();
-        String orderBy = Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
         try {
-            // 先尝试直接在事务表上按 product_name 搜索（如果列存在）
-            Cursor check = db.rawQuery("PRAGMA table_info(" + Constants.TABLE_STOCK_TRANSACTIONS + ")", null);
-            boolean hasProductNameCol = false;
-            if (check != null && check.moveToFirst()) {
-                do {
-                    String colName = check.getString(check.getColumnIndexOrThrow("name"));
-                    if (Constants.COLUMN_STOCK_TX_PRODUCT_NAME.equals(colName)) {
-                        hasProductNameCol = true;
-                        break;
-                    }
-                } while (check.moveToNext());
-                check.close();
-            }
+            // 先尝试直接在事务表上按 product_name 搜索（如果列存在；查内存表结构模型，不再每次 PRAGMA）
+            boolean hasProductNameCol = SchemaModel.of(db).hasColumn(Constants.TABLE_STOCK_TRANSACTIONS, Constants.COLUMN_STOCK_TX_PRODUCT_NAME);
 
             if (hasProductNameCol) {
-                String selection = Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " LIKE ?";
                 String[] selectionArgs = new String[]{"%" + productName + "%"};
-                Cursor cursor = db.query(Constants.TABLE_STOCK_TRANSACTIONS, null, selection, selectionArgs, null, null, orderBy);
+                Cursor cursor = db.rawQuery(stockHistorySql(" WHERE st." + Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " LIKE ?"), selectionArgs);
                 if (cursor != null && cursor.moveToFirst()) {
+                    CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
                     do {
-                        StockTransaction tx = StockTransaction.fromCursor(cursor);
+                        StockTransaction tx = mapper.map(cursor);
                         list.add(tx);
                     } while (cursor.moveToNext());
                     cursor.close();
                 }
             } else {
                 // 如果事务表没有 product_name 列，尝试通过关联 products 表来按名称搜索
-                String sql = "SELECT st.* FROM " + Constants.TABLE_STOCK_TRANSACTIONS + " st JOIN " + Constants.TABLE_PRODUCTS + " p ON st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = p." + Constants.COLUMN_PRODUCT_ID + " WHERE p." + Constants.COLUMN_PRODUCT_NAME + " LIKE ? ORDER BY st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
+                String sql = "SELECT st.*, " + UserDirectory.displayNameSql("u") + " AS " + Constants.COLUMN_USER_DISPLAY_NAME +
+                        " FROM " + Constants.TABLE_STOCK_TRANSACTIONS + " st JOIN " + Constants.TABLE_PRODUCTS + " p ON st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = p." + Constants.COLUMN_PRODUCT_ID +
+                        UserDirectory.joinUsers("u", "st." + Constants.COLUMN_STOCK_TX_USER_ID) + " WHERE p." + Constants.COLUMN_PRODUCT_NAME + " LIKE ? ORDER BY st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
                 Cursor cursor = db.rawQuery(sql, new String[]{"%" + productName + "%"});
                 if (cursor != null && cursor.moveToFirst()) {
+                    CursorMapper<StockTransaction> mapper = StockTransaction.mapper(cursor);
                     do {
-                        StockTransaction tx = StockTransaction.fromCursor(cursor);
+                        StockTransaction tx = mapper.map(cursor);
                         list.add(tx);
                     } while (cursor.moveToNext());
                     cursor.close();
@@ -724,8 +845,21 @@ public class ProductDAO {
         return list;
     }
 
+    // 库存历史查询：同一条语句 JOIN users 带出操作人显示名，列表页不再逐行查询用户
+    static String stockHistorySql(String where) {
+        return "SELECT st.*, " + UserDirectory.displayNameSql("u") + " AS " + Constants.COLUMN_USER_DISPLAY_NAME +
+                " FROM " + Constants.TABLE_STOCK_TRANSACTIONS + " st" +
+                UserDirectory.joinUsers("u", "st." + Constants.COLUMN_STOCK_TX_USER_ID) +
+                where + " ORDER BY st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + " DESC";
+    }
+
+    // 分页版本：where 为不含 WHERE 关键字的条件（可为空），按 (timestamp, tx_id) 倒序
+    static String stockHistoryPageSql(String where, int limit) {
+        return stockHistorySql(where.isEmpty() ? "" : " WHERE " + where) + ", st." + Constants.COLUMN_STOCK_TX_ID + " DESC LIMIT " + limit;
+    }
+
     // 获取所有列名
-    private String[] getAllColumns() {
+    static String[] getAllColumns() {
         return new String[] {
                 Constants.COLUMN_PRODUCT_ID,
                 Constants.COLUMN_PRODUCT_NAME,
@@ -751,7 +885,7 @@ public class ProductDAO {
 
     // 将Cursor转换为Product对象
     private Product cursorToProduct(Cursor cursor) {
-        // Delegate to Product.fromCursor which handles thumb_url and missing columns safely
+        // 单行读取；多行循环请用 Product.mapper(cursor) 复用列下标
         return Product.fromCursor(cursor);
     }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.model.CursorMapper;
+import com.example.android_development.model.Product;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 商品搜索引擎：基于 products_fts（FTS4 + 二元片段）做任意子串匹配与排序，
+ * 供商品列表、收银联想等界面统一使用；收银联想另外接入拼音索引（PinyinIndex）。
+ * minSdk 30 的系统 SQLite 为 3.28，没有 FTS5 trigram：索引中存的是 grams() 拆出的相邻两字片段，
+ * 关键字拆成同样的片段按短语匹配。单个字符的关键字改走名称前缀索引 + LIKE 补足；
+ * FTS 表不存在时整体退回 LIKE。FTS4 没有 bm25，相关度按条码/名称命中与名称长度近似排序。
+ */
+public class ProductSearchEngine {
+
+    private static final int MIN_GRAM_LENGTH = 2;
+
+    // 词与词之间的占位片段：查询片段都是两个字符，单字符的占位片段保证短语不会跨词匹配
+    private static final String WORD_BREAK = "w";
+
+    private final SQLiteDatabase db;
+    private volatile Boolean ftsAvailable;
+
+    public ProductSearchEngine(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public boolean isFtsAvailable() {
+        Boolean available = ftsAvailable;
+        if (available == null) {
+            available = SchemaModel.of(db).hasTable(DbContract.TABLE_PRODUCTS_FTS);
+            ftsAvailable = available;
+        }
+        return available;
+    }
+
+    // 从 products 表重建全文索引（恢复备份或批量修复数据后调用）
+    public void rebuildIndex() {
+        if (!isFtsAvailable()) return;
+        db.beginTransaction();
+        try {
+            for (String sql : DbContract.SQL_REBUILD_PRODUCTS_FTS) db.execSQL(sql);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 文本 -> 以空格分隔的二元片段（即 SQL 函数 ngrams()，由 DatabaseHelper 注册，触发器写入 products_fts 时调用）。
+     * 按非字母数字切分为词，转小写后词内相邻两字一组；单字词原样输出，词之间插入 WORD_BREAK。
+     */
+    static String grams(String text) {
+        if (text == null || text.isEmpty()) return text;
+        StringBuilder sb = new StringBuilder(text.length() * 3);
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i == start) break;
+            if (sb.length() > 0) sb.append(' ').append(WORD_BREAK).append(' ');
+            appendWordGrams(sb, text.substring(start, i).toLowerCase(Locale.ROOT));
+        }
+        return sb.toString();
+    }
+
+    private static void appendWordGrams(StringBuilder sb, String word) {
+        if (word.length() < MIN_GRAM_LENGTH) {
+            sb.append(word);
+            return;
+        }
+        for (int j = 0; j + MIN_GRAM_LENGTH <= word.length(); j++) {
+            if (j > 0) sb.append(' ');
+            sb.append(word, j, j + MIN_GRAM_LENGTH);
+        }
+    }
+
+    /**
+     * 排序的搜索：条码完全相同、名称以关键字开头、名称包含第一个关键字的排在前面，其余名称短的在前。
+     * 关键字按空白拆分，各片段之间为 AND 关系。
+     */
+    public List<Product> search(String query, int limit) {
+        List<Product> result = new ArrayList<>();
+        String q = query == null ? "" : query.trim();
+        if (q.isEmpty()) return result;
+        if (limit <= 0) limit = 50;
+
+        String[] tokens = q.split("\\s+");
+        List<String> likeTokens = new ArrayList<>();
+        String match = buildMatchExpression(tokens, likeTokens);
+        if (match == null) {
+            return searchShort(q, tokens, limit);
+        }
+
+        StringBuilder sql = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        sql.append("SELECT p.* FROM ").append(DbContract.TABLE_PRODUCTS_FTS)
+                .append(" JOIN ").append(Constants.TABLE_PRODUCTS).append(" p ON p.rowid = ").append(DbContract.TABLE_PRODUCTS_FTS).append(".rowid")
+                .append(" WHERE ").append(DbContract.TABLE_PRODUCTS_FTS).append(" MATCH ?");
+        args.add(match);
+        for (String t : likeTokens) {
+            sql.append(" AND (p.").append(Constants.COLUMN_PRODUCT_NAME).append(" LIKE ? OR p.").append(Constants.COLUMN_BARCODE).append(" LIKE ?)");
+            args.add("%" + t + "%");
+            args.add("%" + t + "%");
+        }
+        // 排序：条码完全匹配 > 名称前缀匹配 > 名称包含第一个关键字 > 名称长度
+        sql.append(" ORDER BY (p.").append(Constants.COLUMN_BARCODE).append(" = ?) DESC, (p.").append(Constants.COLUMN_PRODUCT_NAME).append(" LIKE ?) DESC, ")
+                .append("(instr(lower(p.").append(Constants.COLUMN_PRODUCT_NAME).append("), ?) > 0) DESC, length(p.").append(Constants.COLUMN_PRODUCT_NAME).append(")")
+                .append(" LIMIT ").append(limit);
+        args.add(q);
+        args.add(tokens[0] + "%");
+        args.add(tokens[0].toLowerCase(Locale.ROOT));
+
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+            CursorMapper<Product> mapper = Product.mapper(c);
+            while (c.moveToNext()) result.add(mapper.map(c));
+        } catch (Exception e) {
+            // 非法 MATCH 表达式等情况退回 LIKE
+            e.printStackTrace();
+            return searchLike(q, limit);
+        } finally {
+            if (c != null) c.close();
+        }
+        return result;
+    }
+
+    // 收银台联想：纯字母输入先按拼音（首字母/全拼）匹配，不足部分由全文检索补足
+    public List<String> suggestNames(String query, int limit) {
+        java.util.LinkedHashSet<String> names = new java.util.LinkedHashSet<>();
+        if (PinyinIndex.looksLikePinyin(query)) {
+            names.addAll(PinyinIndex.of(db).lookupNames(query, limit));
+        }
+        if (names.size() < limit) {
+            for (Product p : search(query, limit)) {
+                if (names.size() >= limit) break;
+                names.add(p.getName());
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * 供分页查询拼接 WHERE 条件（以 products 为主表、不带别名）。
+     * 有 FTS 时用 rowid IN (MATCH 子查询) 过滤，排序仍由调用方决定（如键集分页的 name, product_id）。
+     */
+    public void appendKeywordFilter(StringBuilder where, List<String> args, String keyword) {
+        String q = keyword == null ? "" : keyword.trim();
+        if (q.isEmpty()) {
+            where.append("1");
+            return;
+        }
+        String[] tokens = q.split("\\s+");
+        List<String> likeTokens = new ArrayList<>();
+        String match = buildMatchExpression(tokens, likeTokens);
+        if (match == null) {
+            // 全部为短片段：按原有语义对整个关键字做 LIKE
+            where.append("(").append(Constants.COLUMN_PRODUCT_NAME).append(" LIKE ? OR ").append(Constants.COLUMN_BARCODE).append(" LIKE ?)");
+            args.add("%" + q + "%");
+            args.add("%" + q + "%");
+            return;
+        }
+        where.append("rowid IN (SELECT rowid FROM ").append(DbContract.TABLE_PRODUCTS_FTS)
+                .append(" WHERE ").append(DbContract.TABLE_PRODUCTS_FTS).append(" MATCH ?)");
+        args.add(match);
+        for (String t : likeTokens) {
+            where.append(" AND (").append(Constants.COLUMN_PRODUCT_NAME).append(" LIKE ? OR ").append(Constants.COLUMN_BARCODE).append(" LIKE ?)");
+            args.add("%" + t + "%");
+            args.add("%" + t + "%");
+        }
+    }
+
+    private String buildMatchExpression(String[] tokens, List<String> likeTokens) {
+        if (!isFtsAvailable()) return null;
+        return matchExpression(tokens, likeTokens);
+    }
+
+    /**
+     * 由关键字组成 FTS 表达式：每个长度 >= 2 的词拆成二元片段，作为一个短语加引号（防止被解析为运算符），短语之间为 AND。
+     * 不是单个完整词的关键字（含标点、单字符等）片段匹配只是必要条件，加入 likeTokens 由调用方再做 LIKE 精确过滤。
+     * 没有可用的词时返回 null。
+     */
+    static String matchExpression(String[] tokens, List<String> likeTokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String t : tokens) {
+            if (t.length() < MIN_GRAM_LENGTH || !isWord(t)) likeTokens.add(t);
+            for (String word : grams(t).split(" " + WORD_BREAK + " ")) {
+                if (word.length() < MIN_GRAM_LENGTH) continue;
+                if (sb.length() > 0) sb.append(' ');
+                sb.append('"').append(word).append('"');
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    private static boolean isWord(String t) {
+        for (int i = 0; i < t.length(); i++) {
+            if (!Character.isLetterOrDigit(t.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // 短关键字：先走名称前缀（可用 idx_products_name_id 索引），不足 limit 时再用子串 LIKE 补足
+    private List<Product> searchShort(String q, String[] tokens, int limit) {
+        Map<String, Product> found = new LinkedHashMap<>();
+        if (tokens.length == 1) {
+            Cursor c = null;
+            try {
+                c = db.query(Constants.TABLE_PRODUCTS, null,
+                        Constants.COLUMN_PRODUCT_NAME + " >= ? AND " + Constants.COLUMN_PRODUCT_NAME + " < ?",
+                        new String[]{q, q + '\uffff'}, null, null,
+                        Constants.COLUMN_PRODUCT_NAME + " ASC, " + Constants.COLUMN_PRODUCT_ID + " ASC", String.valueOf(limit));
+                CursorMapper<Product> mapper = Product.mapper(c);
+                while (c.moveToNext()) {
+                    Product p = mapper.map(c);
+                    found.put(p.getId(), p);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+        if (found.size() < limit) {
+            for (Product p : searchLike(q, limit)) {
+                if (found.size() >= limit) break;
+                if (!found.containsKey(p.getId())) found.put(p.getId(), p);
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    // 兜底：名称/条码 LIKE '%q%'
+    private List<Product> searchLike(String q, int limit) {
+        List<Product> result = new ArrayList<>();
+        Cursor c = null;
+        try {
+            String like = "%" + q + "%";
+            c = db.query(Constants.TABLE_PRODUCTS, null,
+                    Constants.COLUMN_PRODUCT_NAME + " LIKE ? OR " + Constants.COLUMN_BARCODE + " LIKE ?",
+                    new String[]{like, like}, null, null, Constants.COLUMN_PRODUCT_NAME + " ASC", String.valueOf(limit));
+            CursorMapper<Product> mapper = Product.mapper(c);
+            while (c.moveToNext()) result.add(mapper.map(c));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+        return result;
+    }
+}
@@ -4,19 +4,26 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.content.Context;
+import com.example.android_development.model.CursorMapper;
 import com.example.android_development.model.PurchaseLine;
 import com.example.android_development.model.PurchaseOrder;
+import com.example.android_development.model.PurchaseOrderFilter;
+import com.example.android_development.model.PurchaseOrderPage;
+import com.example.android_development.model.ReceivingSummary;
 import com.example.android_development.util.Constants;
 import com.example.android_development.util.PrefsManager;
 import com.example.android_development.security.Auth;
 import com.example.android_development.util.Audit;
+import com.example.android_development.util.DaoResult;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
 
 public class PurchaseDAO {
     private SQLiteDatabase db;
-    private InventoryDAO inventoryDAO;
     private PrefsManager prefsManager;
     private Context ctx;
 
@@ -27,7 +34,6 @@ public class PurchaseDAO {
     public PurchaseDAO(SQLiteDatabase db, Context ctx) {
         this.db = db;
         this.ctx = ctx;
-        this.inventoryDAO = new InventoryDAO(db, ctx);
         if (ctx != null) this.prefsManager = new PrefsManager(ctx);
     }
 
@@ -39,8 +45,8 @@ public class PurchaseDAO {
             return -1;
         }
         if (po.getId() == null) po.setId(UUID.randomUUID().toString());
-        ContentValues v = po.toContentValues();
-        long r = db.insert(Constants.TABLE_PURCHASE_ORDERS, null, v);
+        long r = StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_PURCHASE_ORDER,
+                st -> StatementBinders.bindPurchaseOrder(st, po));
         if (r > 0) {
             try {
                 String uid = null, urole = null;
@@ -57,7 +63,7 @@ public class PurchaseDAO {
             com.example.android_development.util.DaoResult.setError(com.example.android_development.util.DaoResult.ERR_PERMISSION, "no permission to add PO line");
             return -1;
         }
-        // Prevent adding lines to a received purchase order
+        // Prevent adding lines to a (partially) received purchase order
         if (line.getPoId() != null) {
             Cursor c = db.query(Constants.TABLE_PURCHASE_ORDERS, new String[]{Constants.COLUMN_PO_STATUS}, Constants.COLUMN_PO_ID + " = ?", new String[]{line.getPoId()}, null, null, null);
             if (c != null) {
@@ -65,7 +71,7 @@ public class PurchaseDAO {
                     int idx = c.getColumnIndex(Constants.COLUMN_PO_STATUS);
                     if (idx != -1) {
                         String st = c.getString(idx);
-                        if (Constants.PO_STATUS_RECEIVED.equalsIgnoreCase(st)) {
+                        if (receivingStarted(st)) {
                             c.close();
                             return -1;
                         }
@@ -75,8 +81,8 @@ public class PurchaseDAO {
             }
         }
         if (line.getId() == null) line.setId(UUID.randomUUID().toString());
-        ContentValues v = line.toContentValues();
-        long r = db.insert(Constants.TABLE_PURCHASE_LINES, null, v);
+        long r = StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_PURCHASE_LINE,
+                st -> StatementBinders.bindPurchaseLine(st, line));
         if (r > 0) {
             try {
                 String uid = null, urole = null;
@@ -107,11 +113,15 @@ public class PurchaseDAO {
                 return false;
             }
         } catch (Exception ignored) {}
-        ContentValues v = new ContentValues();
-        v.put(Constants.COLUMN_PO_STATUS, Constants.PO_STATUS_SUBMITTED);
         // allow submit if currently in CREATED/OPEN/DRAFT to avoid blocking existing "open" POs
-        String where = Constants.COLUMN_PO_ID + " = ? AND (LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? OR LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? OR LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? OR LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? )";
-        int rows = db.update(Constants.TABLE_PURCHASE_ORDERS, v, where, new String[]{poId, Constants.PO_STATUS_CREATED.toLowerCase(), "open", "draft", Constants.PO_STATUS_REJECTED.toLowerCase()});
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PO_STATUS_FROM_4, st -> {
+            st.bindString(1, Constants.PO_STATUS_SUBMITTED);
+            st.bindString(2, poId);
+            st.bindString(3, Constants.PO_STATUS_CREATED.toLowerCase());
+            st.bindString(4, "open");
+            st.bindString(5, "draft");
+            st.bindString(6, Constants.PO_STATUS_REJECTED.toLowerCase());
+        });
         boolean ok = rows > 0;
         if (ok) {
             try {
@@ -119,15 +129,7 @@ public class PurchaseDAO {
                 if (prefsManager != null) { uid = prefsManager.getUserId(); urole = prefsManager.getUserRole(); }
                 Audit.writeSystemAudit(db, uid, urole, "purchase_order:" + poId, "submit", "submit_po");
                 // insert a PO approval record for the submit action so it shows in history
-                ContentValues ap = new ContentValues();
-                ap.put(Constants.COLUMN_PO_APPROVAL_ID, java.util.UUID.randomUUID().toString());
-                ap.put(Constants.COLUMN_PO_APPROVAL_PO_ID, poId);
-                ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ID, uid);
-                ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ROLE, urole);
-                ap.put(Constants.COLUMN_PO_APPROVAL_DECISION, Constants.PO_STATUS_SUBMITTED);
-                ap.put(Constants.COLUMN_PO_APPROVAL_COMMENT, "");
-                ap.put(Constants.COLUMN_PO_APPROVAL_TIMESTAMP, System.currentTimeMillis());
-                db.insert(Constants.TABLE_PO_APPROVALS, null, ap);
+                StatementBinders.insertPoApproval(StatementCache.of(db), poId, uid, urole, Constants.PO_STATUS_SUBMITTED, "", System.currentTimeMillis());
             } catch (Exception ignored) {}
         }
         return ok;
@@ -145,28 +147,22 @@ public class PurchaseDAO {
             if (!db.inTransaction()) { db.beginTransaction(); localTx = true; }
 
             // conditionally update status from submitted/pending to approved
-            ContentValues v = new ContentValues();
-            v.put(Constants.COLUMN_PO_STATUS, Constants.PO_STATUS_APPROVED);
-            String where = Constants.COLUMN_PO_ID + " = ? AND (LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? OR LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? )";
-            int updated = db.update(Constants.TABLE_PURCHASE_ORDERS, v, where, new String[]{poId, Constants.PO_STATUS_SUBMITTED.toLowerCase(), Constants.PO_STATUS_PENDING.toLowerCase()});
+            int updated = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PO_STATUS_FROM_2, st -> {
+                st.bindString(1, Constants.PO_STATUS_APPROVED);
+                st.bindString(2, poId);
+                st.bindString(3, Constants.PO_STATUS_SUBMITTED.toLowerCase());
+                st.bindString(4, Constants.PO_STATUS_PENDING.toLowerCase());
+            });
             if (updated == 0) {
                 if (localTx) db.endTransaction();
                 return false; // concurrent or invalid state
             }
 
             // insert approval record
-            ContentValues ap = new ContentValues();
-            ap.put(Constants.COLUMN_PO_APPROVAL_ID, java.util.UUID.randomUUID().toString());
-            ap.put(Constants.COLUMN_PO_APPROVAL_PO_ID, poId);
-            ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ID, approverId);
             String role = null;
             if (prefsManager != null) role = prefsManager.getUserRole();
-            ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ROLE, role);
-            ap.put(Constants.COLUMN_PO_APPROVAL_DECISION, Constants.PO_STATUS_APPROVED);
-            ap.put(Constants.COLUMN_PO_APPROVAL_COMMENT, comment);
-            ap.put(Constants.COLUMN_PO_APPROVAL_TIMESTAMP, System.currentTimeMillis());
-            db.insert(Constants.TABLE_PO_APPROVALS, null, ap);
-            try { Audit.writeSystemAudit(db, approverId, role, "purchase_order:" + poId, "approve", comment); } catch (Exception ignored) {}
+            StatementBinders.insertPoApproval(StatementCache.of(db), poId, approverId, role, Constants.PO_STATUS_APPROVED, comment, System.currentTimeMillis());
+            try { Audit.writeSystemAuditDurable(db, approverId, role, "purchase_order:" + poId, "approve", comment); } catch (Exception ignored) {}
 
             if (localTx) db.setTransactionSuccessful();
             return true;
@@ -188,27 +184,21 @@ public class PurchaseDAO {
         try {
             if (!db.inTransaction()) { db.beginTransaction(); localTx = true; }
 
-            ContentValues v = new ContentValues();
-            v.put(Constants.COLUMN_PO_STATUS, Constants.PO_STATUS_REJECTED);
-            String where = Constants.COLUMN_PO_ID + " = ? AND (LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? OR LOWER(" + Constants.COLUMN_PO_STATUS + ") = ? )";
-            int updated = db.update(Constants.TABLE_PURCHASE_ORDERS, v, where, new String[]{poId, Constants.PO_STATUS_SUBMITTED.toLowerCase(), Constants.PO_STATUS_PENDING.toLowerCase()});
+            int updated = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PO_STATUS_FROM_2, st -> {
+                st.bindString(1, Constants.PO_STATUS_REJECTED);
+                st.bindString(2, poId);
+                st.bindString(3, Constants.PO_STATUS_SUBMITTED.toLowerCase());
+                st.bindString(4, Constants.PO_STATUS_PENDING.toLowerCase());
+            });
             if (updated == 0) {
                 if (localTx) db.endTransaction();
                 return false;
             }
 
-            ContentValues ap = new ContentValues();
-            ap.put(Constants.COLUMN_PO_APPROVAL_ID, java.util.UUID.randomUUID().toString());
-            ap.put(Constants.COLUMN_PO_APPROVAL_PO_ID, poId);
-            ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ID, approverId);
             String role = null;
             if (prefsManager != null) role = prefsManager.getUserRole();
-            ap.put(Constants.COLUMN_PO_APPROVAL_APPROVER_ROLE, role);
-            ap.put(Constants.COLUMN_PO_APPROVAL_DECISION, Constants.PO_STATUS_REJECTED);
-            ap.put(Constants.COLUMN_PO_APPROVAL_COMMENT, comment);
-            ap.put(Constants.COLUMN_PO_APPROVAL_TIMESTAMP, System.currentTimeMillis());
-            db.insert(Constants.TABLE_PO_APPROVALS, null, ap);
-            try { Audit.writeSystemAudit(db, approverId, role, "purchase_order:" + poId, "reject", comment); } catch (Exception ignored) {}
+            StatementBinders.insertPoApproval(StatementCache.of(db), poId, approverId, role, Constants.PO_STATUS_REJECTED, comment, System.currentTimeMillis());
+            try { Audit.writeSystemAuditDurable(db, approverId, role, "purchase_order:" + poId, "reject", comment); } catch (Exception ignored) {}
 
             if (localTx) db.setTransactionSuccessful();
             return true;
@@ -249,18 +239,162 @@ public class PurchaseDAO {
         List<PurchaseOrder> list = new ArrayList<>();
         Cursor c = db.query(Constants.TABLE_PURCHASE_ORDERS, null, null, null, null, null, Constants.COLUMN_PO_CREATED_AT + " DESC");
         if (c != null && c.moveToFirst()) {
-            do { list.add(PurchaseOrder.fromCursor(c)); } while (c.moveToNext());
+            CursorMapper<PurchaseOrder> mapper = PurchaseOrder.mapper(c);
+            do { list.add(mapper.map(c)); } while (c.moveToNext());
             c.close();
         }
         return list;
     }
 
+    /**
+     * 采购单列表分页：状态、供应商、关键字、创建时间范围与排序都在 SQL 中完成，按索引键集分页。
+     * 第一页（pageToken 为 null）同时返回除状态外其余条件下各状态的单数。
+     */
+    public PurchaseOrderPage getPurchaseOrderPage(PurchaseOrderFilter filter, String pageToken, int limit) {
+        if (limit <= 0) limit = 20;
+        if (filter == null) filter = new PurchaseOrderFilter();
+        String sort = filter.getSort();
+
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendPoFilter(where, args, filter);
+        String status = filter.getStatus();
+        if (status != null && !status.isEmpty()) {
+            appendClause(where, Constants.COLUMN_PO_STATUS + " = ?");
+            args.add(status.toLowerCase(Locale.ROOT));
+        }
+        // 键集起点
+        if (PurchaseOrderFilter.SORT_NAME.equals(sort)) {
+            String[] after = PurchaseOrderPage.decodeToken(pageToken, sort, 2);
+            if (after != null) {
+                // 行值比较带 COLLATE 时不能定位索引起点，展开为 >= 加同名次序
+                appendClause(where, Constants.COLUMN_PO_NAME + " >= ? COLLATE NOCASE AND (" + Constants.COLUMN_PO_NAME + " > ? COLLATE NOCASE OR "
+                        + Constants.COLUMN_PO_ID + " > ?)");
+                args.add(after[0]);
+                args.add(after[0]);
+                args.add(after[1]);
+            }
+        } else if (PurchaseOrderFilter.SORT_STATUS.equals(sort)) {
+            String[] after = PurchaseOrderPage.decodeToken(pageToken, sort, 3);
+            if (after != null) {
+                // 外层 >= 使状态索引可以直接定位起点
+                appendClause(where, Constants.COLUMN_PO_STATUS + " >= ? AND (" + Constants.COLUMN_PO_STATUS + " > ? OR ("
+                        + Constants.COLUMN_PO_CREATED_AT + ", " + Constants.COLUMN_PO_ID + ") < (?, ?))");
+                args.add(after[0]);
+                args.add(after[0]);
+                args.add(after[1]);
+                args.add(after[2]);
+            }
+        } else {
+            sort = PurchaseOrderFilter.SORT_DATE;
+            String[] after = PurchaseOrderPage.decodeToken(pageToken, sort, 2);
+            if (after != null) {
+                appendClause(where, "(" + Constants.COLUMN_PO_CREATED_AT + ", " + Constants.COLUMN_PO_ID + ") < (?, ?)");
+                args.add(after[0]);
+                args.add(after[1]);
+            }
+        }
+
+        // 多取一条用于判断是否还有下一页
+        List<PurchaseOrder> items = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery(purchaseOrderPageSql(where.toString(), sort, limit + 1), args.toArray(new String[0]));
+            CursorMapper<PurchaseOrder> mapper = PurchaseOrder.mapper(c);
+            while (c.moveToNext()) items.add(mapper.map(c));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+
+        String nextToken = null;
+        if (items.size() > limit) {
+            items.remove(items.size() - 1);
+            PurchaseOrder last = items.get(items.size() - 1);
+            String id = last.getId();
+            if (PurchaseOrderFilter.SORT_NAME.equals(sort)) {
+                nextToken = PurchaseOrderPage.encodeToken(sort, last.getName(), id);
+            } else if (PurchaseOrderFilter.SORT_STATUS.equals(sort)) {
+                nextToken = PurchaseOrderPage.encodeToken(sort, last.getStatus(), String.valueOf(last.getCreatedAt()), id);
+            } else {
+                nextToken = PurchaseOrderPage.encodeToken(sort, String.valueOf(last.getCreatedAt()), id);
+            }
+        }
+        Map<String, Integer> counts = pageToken == null ? countPurchaseOrdersByStatus(filter) : null;
+        return new PurchaseOrderPage(items, nextToken, counts);
+    }
+
+    // 除状态外的筛选条件下各状态的单数（GROUP BY 走状态索引）
+    private Map<String, Integer> countPurchaseOrdersByStatus(PurchaseOrderFilter filter) {
+        StringBuilder where = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        appendPoFilter(where, args, filter);
+        String sql = "SELECT " + Constants.COLUMN_PO_STATUS + ", COUNT(*) FROM " + Constants.TABLE_PURCHASE_ORDERS
+                + (where.length() > 0 ? " WHERE " + where : "") + " GROUP BY " + Constants.COLUMN_PO_STATUS;
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, args.toArray(new String[0]));
+            while (c.moveToNext()) counts.put(c.getString(0), c.getInt(1));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+        return counts;
+    }
+
+    // 供应商 + 关键字 + 创建时间范围
+    private static void appendPoFilter(StringBuilder where, List<String> args, PurchaseOrderFilter filter) {
+        if (filter.getSupplierId() != null && !filter.getSupplierId().isEmpty()) {
+            appendClause(where, Constants.COLUMN_PO_SUPPLIER_ID + " = ?");
+            args.add(filter.getSupplierId());
+        }
+        String keyword = filter.getKeyword() == null ? "" : filter.getKeyword().trim();
+        if (!keyword.isEmpty()) {
+            String like = "%" + keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            appendClause(where, "(" + Constants.COLUMN_PO_NAME + " LIKE ? ESCAPE '\\' OR " + Constants.COLUMN_PO_ID + " LIKE ? ESCAPE '\\')");
+            args.add(like);
+            args.add(like);
+        }
+        if (filter.getFromMillis() > 0) {
+            appendClause(where, Constants.COLUMN_PO_CREATED_AT + " >= ?");
+            args.add(String.valueOf(filter.getFromMillis()));
+        }
+        if (filter.getToMillis() > 0) {
+            appendClause(where, Constants.COLUMN_PO_CREATED_AT + " <= ?");
+            args.add(String.valueOf(filter.getToMillis()));
+        }
+    }
+
+    private static void appendClause(StringBuilder where, String clause) {
+        if (where.length() > 0) where.append(" AND ");
+        where.append(clause);
+    }
+
+    // 各排序方式的 ORDER BY 与 DbContract 中的采购单列表索引一一对应
+    static String purchaseOrderPageSql(String where, String sort, int limit) {
+        String orderBy;
+        if (PurchaseOrderFilter.SORT_NAME.equals(sort)) {
+            orderBy = Constants.COLUMN_PO_NAME + " COLLATE NOCASE ASC, " + Constants.COLUMN_PO_ID + " ASC";
+        } else if (PurchaseOrderFilter.SORT_STATUS.equals(sort)) {
+            orderBy = Constants.COLUMN_PO_STATUS + " ASC, " + Constants.COLUMN_PO_CREATED_AT + " DESC, " + Constants.COLUMN_PO_ID + " DESC";
+        } else {
+            orderBy = Constants.COLUMN_PO_CREATED_AT + " DESC, " + Constants.COLUMN_PO_ID + " DESC";
+        }
+        return "SELECT * FROM " + Constants.TABLE_PURCHASE_ORDERS
+                + (where == null || where.isEmpty() ? "" : " WHERE " + where)
+                + " ORDER BY " + orderBy + " LIMIT " + limit;
+    }
+
     public List<PurchaseLine> getLinesForPo(String poId) {
         List<PurchaseLine> list = new ArrayList<>();
         if (poId == null) return list;
         Cursor c = db.query(Constants.TABLE_PURCHASE_LINES, null, Constants.COLUMN_PO_LINE_PO_ID + " = ?", new String[]{poId}, null, null, null);
         if (c != null && c.moveToFirst()) {
-            do { list.add(PurchaseLine.fromCursor(c)); } while (c.moveToNext());
+            CursorMapper<PurchaseLine> mapper = PurchaseLine.mapper(c);
+            do { list.add(mapper.map(c)); } while (c.moveToNext());
             c.close();
         }
         return list;
@@ -270,7 +404,8 @@ public class PurchaseDAO {
         List<PurchaseOrder> list = new ArrayList<>();
         Cursor c = db.query(Constants.TABLE_PURCHASE_ORDERS, null, Constants.COLUMN_PO_STATUS + " = ?", new String[]{Constants.PO_STATUS_PENDING}, null, null, Constants.COLUMN_PO_CREATED_AT + " DESC");
         if (c != null && c.moveToFirst()) {
-            do { list.add(PurchaseOrder.fromCursor(c)); } while (c.moveToNext());
+            CursorMapper<PurchaseOrder> mapper = PurchaseOrder.mapper(c);
+            do { list.add(mapper.map(c)); } while (c.moveToNext());
             c.close();
         }
         return list;
@@ -287,15 +422,14 @@ public class PurchaseDAO {
                     int idx = c.getColumnIndex(Constants.COLUMN_PO_STATUS);
                     if (idx != -1) {
                         String st = c.getString(idx);
-                        if (Constants.PO_STATUS_RECEIVED.equalsIgnoreCase(st)) { c.close(); return 0; }
+                        if (receivingStarted(st)) { c.close(); return 0; }
                     }
                 }
                 c.close();
             }
         }
-        ContentValues v = line.toContentValues();
-        v.remove(Constants.COLUMN_PO_LINE_ID);
-        int rows = db.update(Constants.TABLE_PURCHASE_LINES, v, Constants.COLUMN_PO_LINE_ID + " = ?", new String[]{line.getId()});
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PURCHASE_LINE,
+                st -> StatementBinders.bindPurchaseLine(st, line));
         if (rows > 0) {
             try {
                 String uid = null, urole = null;
@@ -326,7 +460,7 @@ public class PurchaseDAO {
                     int idx = pc.getColumnIndex(Constants.COLUMN_PO_STATUS);
                     if (idx != -1) {
                         String st = pc.getString(idx);
-                        if (Constants.PO_STATUS_RECEIVED.equalsIgnoreCase(st)) { pc.close(); return 0; }
+                        if (receivingStarted(st)) { pc.close(); return 0; }
                     }
                 }
                 pc.close();
@@ -353,14 +487,13 @@ public class PurchaseDAO {
                 int idx = c.getColumnIndex(Constants.COLUMN_PO_STATUS);
                     if (idx != -1) {
                         String st = c.getString(idx);
-                        if (Constants.PO_STATUS_RECEIVED.equalsIgnoreCase(st)) { c.close(); return 0; }
+                        if (receivingStarted(st)) { c.close(); return 0; }
                     }
             }
             c.close();
         }
-        ContentValues v = po.toContentValues();
-        v.remove(Constants.COLUMN_PO_ID);
-        int rows = db.update(Constants.TABLE_PURCHASE_ORDERS, v, Constants.COLUMN_PO_ID + " = ?", new String[]{po.getId()});
+        int rows = StatementCache.of(db).executeUpdateDelete(StatementBinders.SQL_UPDATE_PURCHASE_ORDER,
+                st -> StatementBinders.bindPurchaseOrder(st, po));
         if (rows > 0) {
             try {
                 String uid = null, urole = null;
@@ -371,37 +504,31 @@ public class PurchaseDAO {
         return rows;
     }
 
-    // Transactional receive: for each line increase warehouse stock, then mark PO received
+    // 已开始收货（含部分收货）的采购单不能再增删改采购行
+    private static boolean receivingStarted(String status) {
+        return Constants.PO_STATUS_RECEIVED.equalsIgnoreCase(status) || Constants.PO_STATUS_PARTIALLY_RECEIVED.equalsIgnoreCase(status);
+    }
+
+    // 整单收货：收取所有行的全部未到数量，成功后采购单状态为 received
     public boolean receiveAndMatchPo(String poId) {
-        if (poId == null) return false;
+        ReceivingSummary summary = receivePo(poId, null);
+        return summary != null && summary.isSuccess();
+    }
+
+    /**
+     * 按行收货（可分批）：quantities 为采购行 ID -> 本次收货数量，为 null 时收取全部未到数量。
+     * 整单在一个事务中完成；仍有未到齐的行时采购单状态为 partially_received。
+     * 无权限时返回 null 并设置 DaoResult。
+     */
+    public ReceivingSummary receivePo(String poId, Map<String, Integer> quantities) {
+        if (poId == null) return null;
         // 权限检查：接收 PO 需要 RECEIVE_PO
-        if (ctx != null && !Auth.hasPermission(ctx, Constants.PERM_RECEIVE_PO)) return false;
-        db.beginTransaction();
-        boolean allOk = true;
-        try {
-            List<PurchaseLine> lines = getLinesForPo(poId);
-            for (PurchaseLine l : lines) {
-                boolean ok = inventoryDAO.receivePurchase(l.getProductId(), l.getQty());
-                if (!ok) { allOk = false; break; }
-            }
-            if (!allOk) {
-                return false;
-            }
-            ContentValues v = new ContentValues();
-            v.put(Constants.COLUMN_PO_STATUS, Constants.PO_STATUS_RECEIVED);
-                db.update(Constants.TABLE_PURCHASE_ORDERS, v, Constants.COLUMN_PO_ID + " = ?", new String[]{poId});
-                try {
-                    String uid = null, urole = null;
-                    if (prefsManager != null) { uid = prefsManager.getUserId(); urole = prefsManager.getUserRole(); }
-                    Audit.writeSystemAudit(db, uid, urole, "purchase_order:" + poId, "receive", "receive_and_match");
-                } catch (Exception ignored) {}
-            db.setTransactionSuccessful();
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        } finally {
-            try { db.endTransaction(); } catch (Exception ignored) {}
+        if (ctx != null && !Auth.hasPermission(ctx, Constants.PERM_RECEIVE_PO)) {
+            DaoResult.setError(DaoResult.ERR_PERMISSION, "no permission to receive purchase");
+            return null;
         }
+        String uid = null, urole = null;
+        if (prefsManager != null) { uid = prefsManager.getUserId(); urole = prefsManager.getUserRole(); }
+        return new ReceivingEngine(db).receive(poId, quantities, uid, urole);
     }
 }
@@ -0,0 +1,133 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import com.example.android_development.model.ProductSummary;
+import com.example.android_development.model.PurchaseOrderFilter;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查询计划回归检查：对 DAO 中按外键/时间范围查找的语句执行 EXPLAIN QUERY PLAN，
+ * 找出退化为全表 SCAN（未使用索引）的语句。
+ * 可调试构建下由 AppDatabase 在打开数据库后调用一次，结果写入 logcat；
+ * 新增或修改 DAO 查询时请同步在 QUERIES 中登记对应的语句。
+ */
+public final class QueryPlanChecker {
+
+    private static final String TAG = "QueryPlan";
+
+    private QueryPlanChecker() {}
+
+    // 语句名称 -> SQL（参数位置用 ? 即可，EXPLAIN 不需要实际值）
+    static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("ProductDAO.getStockHistory",
+                ProductDAO.stockHistorySql(" WHERE st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = ?"));
+        QUERIES.put("ProductDAO.getAllStockHistory",
+                ProductDAO.stockHistorySql(""));
+        QUERIES.put("ProductDAO.getStockHistoryPage",
+                ProductDAO.stockHistoryPageSql("(st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + ", st." + Constants.COLUMN_STOCK_TX_ID + ") < (?, ?)", 51));
+        QUERIES.put("ProductDAO.getStockHistoryPage(product)",
+                ProductDAO.stockHistoryPageSql("(st." + Constants.COLUMN_STOCK_TX_TIMESTAMP + ", st." + Constants.COLUMN_STOCK_TX_ID + ") < (?, ?) AND st." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + " = ?", 51));
+        QUERIES.put("ProductDAO.getProductById",
+                "SELECT * FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?");
+        QUERIES.put("ProductDAO.getProductsByCategory",
+                "SELECT * FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_CATEGORY + " = ?");
+        QUERIES.put("ProductDAO.getProductsPageAfter",
+                ProductDAO.productPageSql(ProductDAO.getAllColumns(), productKeyset(null), 21));
+        QUERIES.put("ProductDAO.getProductsPageAfter(category)",
+                ProductDAO.productPageSql(ProductDAO.getAllColumns(), productKeyset("c"), 21));
+        QUERIES.put("ProductDAO.getProductSummaryPageAfter",
+                ProductDAO.productPageSql(ProductSummary.COLUMNS, productKeyset(null), 21));
+        QUERIES.put("DatabaseHelper.getProductByBarcode",
+                "SELECT * FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_BARCODE + " = ?");
+        QUERIES.put("SaleDAO.getSaleById",
+                "SELECT * FROM " + Constants.TABLE_SALES + " WHERE " + Constants.COLUMN_SALE_ID + " = ?");
+        QUERIES.put("SaleDAO.getLinesForSale",
+                "SELECT * FROM " + Constants.TABLE_SALE_LINES + " WHERE " + Constants.COLUMN_SALE_LINE_SALE_ID + " = ?");
+        QUERIES.put("SaleDAO.getRecentSales", SaleDAO.SQL_RECENT_SALES);
+        QUERIES.put("SaleDAO.getLinesForSales", SaleDAO.linesForSalesSql(3));
+        QUERIES.put("SaleDAO.getDetailedEntriesForPeriod(sales)", SaleDAO.SQL_PERIOD_SALES);
+        QUERIES.put("SaleDAO.getDetailedEntriesForPeriod(refunds)", SaleDAO.SQL_PERIOD_REFUNDS);
+        QUERIES.put("SaleDAO.getDetailedEntriesForPeriod(purchases)", SaleDAO.SQL_PERIOD_PURCHASES);
+        QUERIES.put("refunds.bySaleId",
+                "SELECT * FROM " + Constants.TABLE_REFUNDS + " WHERE " + Constants.COLUMN_REFUND_SALE_ID + " = ?");
+        QUERIES.put("PurchaseDAO.getLinesForPo",
+                "SELECT * FROM " + Constants.TABLE_PURCHASE_LINES + " WHERE " + Constants.COLUMN_PO_LINE_PO_ID + " = ?");
+        QUERIES.put("PurchaseDAO.getApprovalHistory",
+                "SELECT * FROM " + Constants.TABLE_PO_APPROVALS + " WHERE " + Constants.COLUMN_PO_APPROVAL_PO_ID + " = ? ORDER BY " + Constants.COLUMN_PO_APPROVAL_TIMESTAMP + " ASC");
+        QUERIES.put("PurchaseDAO.getPurchaseOrderById",
+                "SELECT * FROM " + Constants.TABLE_PURCHASE_ORDERS + " WHERE " + Constants.COLUMN_PO_ID + " = ?");
+        String poAfter = "(" + Constants.COLUMN_PO_CREATED_AT + ", " + Constants.COLUMN_PO_ID + ") < (?, ?)";
+        QUERIES.put("PurchaseDAO.getPurchaseOrderPage",
+                PurchaseDAO.purchaseOrderPageSql(poAfter, PurchaseOrderFilter.SORT_DATE, 21));
+        QUERIES.put("PurchaseDAO.getPurchaseOrderPage(status)",
+                PurchaseDAO.purchaseOrderPageSql(Constants.COLUMN_PO_STATUS + " = ? AND " + poAfter, PurchaseOrderFilter.SORT_DATE, 21));
+        QUERIES.put("PurchaseDAO.getPurchaseOrderPage(supplier)",
+                PurchaseDAO.purchaseOrderPageSql(Constants.COLUMN_PO_SUPPLIER_ID + " = ? AND " + poAfter, PurchaseOrderFilter.SORT_DATE, 21));
+        QUERIES.put("PurchaseDAO.getPurchaseOrderPage(name)",
+                PurchaseDAO.purchaseOrderPageSql(Constants.COLUMN_PO_NAME + " >= ? COLLATE NOCASE AND (" + Constants.COLUMN_PO_NAME + " > ? COLLATE NOCASE OR " + Constants.COLUMN_PO_ID + " > ?)", PurchaseOrderFilter.SORT_NAME, 21));
+        QUERIES.put("PurchaseDAO.getPurchaseOrderPage(sort status)",
+                PurchaseDAO.purchaseOrderPageSql(Constants.COLUMN_PO_STATUS + " >= ? AND (" + Constants.COLUMN_PO_STATUS + " > ? OR " + poAfter + ")", PurchaseOrderFilter.SORT_STATUS, 21));
+        QUERIES.put("SalesRollup.getDaily",
+                SalesRollup.periodSql(DbContract.TABLE_SALES_ROLLUP_DAILY, DbContract.DAY_FORMAT));
+        QUERIES.put("SalesRollup.getHourly",
+                SalesRollup.periodSql(DbContract.TABLE_SALES_ROLLUP_HOURLY, DbContract.HOUR_FORMAT));
+        QUERIES.put("Audit.byEntity",
+                "SELECT * FROM " + Constants.TABLE_SYSTEM_AUDIT + " WHERE " + Constants.COLUMN_SYSTEM_AUDIT_ENTITY + " = ? ORDER BY " + Constants.COLUMN_SYSTEM_AUDIT_TIMESTAMP + " DESC");
+    }
+
+    // 商品键集分页的条件（非首页，可选分类），与 ProductDAO.appendPageFilter 去掉关键字后的部分相同
+    private static String productKeyset(String category) {
+        StringBuilder where = new StringBuilder();
+        ProductDAO.appendKeysetFilter(where, new ArrayList<>(), new String[]{"", ""}, category, false);
+        return where.toString();
+    }
+
+    // 返回形如 "名称: 计划明细" 的违规列表；为空表示所有登记语句都走了索引
+    public static List<String> findFullScans(SQLiteDatabase db) {
+        List<String> violations = new ArrayList<>();
+        if (db == null) return violations;
+        for (Map.Entry<String, String> e : QUERIES.entrySet()) {
+            Cursor c = null;
+            try {
+                c = db.rawQuery("EXPLAIN QUERY PLAN " + e.getValue(), null);
+                int detailIdx = c.getColumnIndex("detail");
+                while (c.moveToNext()) {
+                    String detail = c.getString(detailIdx);
+                    if (isFullScan(detail)) violations.add(e.getKey() + ": " + detail);
+                }
+            } catch (Exception ex) {
+                // 旧库缺表等情况：记录但不中断其余检查
+                violations.add(e.getKey() + ": " + ex.getMessage());
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+        return violations;
+    }
+
+    // "SCAN products" / "SCAN TABLE products" 为全表扫描；"SCAN ... USING INDEX" 为按索引顺序扫描，不算违规
+    static boolean isFullScan(String detail) {
+        if (detail == null) return false;
+        String d = detail.trim().toUpperCase();
+        if (!d.startsWith("SCAN ")) return false;
+        if (d.contains(" USING ")) return false;
+        return !d.contains("SUBQUERY");
+    }
+
+    public static void logFullScans(SQLiteDatabase db) {
+        List<String> violations = findFullScans(db);
+        if (violations.isEmpty()) {
+            Log.d(TAG, "all " + QUERIES.size() + " registered queries use an index");
+            return;
+        }
+        for (String v : violations) Log.w(TAG, "full table scan -> " + v);
+    }
+}
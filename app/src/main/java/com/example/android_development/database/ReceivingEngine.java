@@ -0,0 +1,274 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.example.android_development.model.CursorMapper;
+import com.example.android_development.model.PurchaseLine;
+import com.example.android_development.model.ReceivingSummary;
+import com.example.android_development.util.Audit;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 采购单收货：语句数量与采购行数基本无关。
+ * 1. 一次查询读取采购单全部行，按已收数量校验本次收货数量（未指定时收取全部未到数量）；
+ * 2. 本次收货写入临时表 po_receipt，一条联表查询校验商品存在并读取入库前库存；
+ * 3. 仓库库存、采购行已收数量各一条集合 UPDATE，库存事务按批写入，最后更新采购单状态。
+ * 任何一行不满足时整单不写入并返回逐行失败原因。临时表只属于当前连接，写入都在同一写事务中。
+ */
+class ReceivingEngine {
+
+    private static final String RECEIPT_TABLE = "po_receipt";
+    private static final String RECEIPT = "temp." + RECEIPT_TABLE;
+    private static final String[] RECEIPT_COLUMNS = {"line_id", "product_id", "qty"};
+
+    static final String REASON_RECEIVE = "采购入库";
+
+    private final SQLiteDatabase db;
+
+    ReceivingEngine(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    // 单个商品在本次收货中的汇总
+    private static final class Inbound {
+        final String productId;
+        int qty;
+        String name;
+        int before;
+
+        Inbound(String productId) {
+            this.productId = productId;
+        }
+    }
+
+    /**
+     * @param quantities 采购行 ID -> 本次收货数量；为 null 时收取所有行的全部未到数量
+     */
+    ReceivingSummary receive(String poId, Map<String, Integer> quantities, String userId, String userRole) {
+        ReceivingSummary summary = new ReceivingSummary(poId);
+        Map<String, Inbound> inbound = new LinkedHashMap<>();
+
+        db.beginTransaction();
+        try {
+            // 1. 采购单状态与全部采购行
+            String status = loadStatus(poId);
+            if (status == null) {
+                summary.addFailure(new ReceivingSummary.LineFailure(null, null, 0, 0, ReceivingSummary.REASON_PO_NOT_FOUND));
+                return summary;
+            }
+            if (!Constants.PO_STATUS_APPROVED.equals(status) && !Constants.PO_STATUS_PARTIALLY_RECEIVED.equals(status)) {
+                summary.addFailure(new ReceivingSummary.LineFailure(null, null, 0, 0, ReceivingSummary.REASON_BAD_STATUS));
+                return summary;
+            }
+            Map<String, PurchaseLine> lines = loadLines(poId);
+
+            // 2. 校验本次收货数量
+            List<Object[]> receiptRows = new ArrayList<>();
+            Map<String, Integer> receiving = new LinkedHashMap<>();
+            if (quantities == null) {
+                for (PurchaseLine l : lines.values()) {
+                    if (l.getOutstandingQty() > 0) receiving.put(l.getId(), l.getOutstandingQty());
+                }
+            } else {
+                for (Map.Entry<String, Integer> e : quantities.entrySet()) {
+                    PurchaseLine l = lines.get(e.getKey());
+                    int qty = e.getValue() != null ? e.getValue() : 0;
+                    if (l == null) {
+                        summary.addFailure(new ReceivingSummary.LineFailure(e.getKey(), null, qty, 0, ReceivingSummary.REASON_UNKNOWN_LINE));
+                    } else if (qty < 0) {
+                        summary.addFailure(new ReceivingSummary.LineFailure(l.getId(), l.getProductId(), qty, l.getOutstandingQty(), ReceivingSummary.REASON_INVALID_QTY));
+                    } else if (qty > l.getOutstandingQty()) {
+                        summary.addFailure(new ReceivingSummary.LineFailure(l.getId(), l.getProductId(), qty, l.getOutstandingQty(), ReceivingSummary.REASON_OVER_RECEIPT));
+                    } else if (qty > 0) {
+                        receiving.put(l.getId(), qty);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> e : receiving.entrySet()) {
+                PurchaseLine l = lines.get(e.getKey());
+                if (l.getProductId() == null || l.getProductId().isEmpty()) {
+                    summary.addFailure(new ReceivingSummary.LineFailure(l.getId(), null, e.getValue(), l.getOutstandingQty(), ReceivingSummary.REASON_NO_PRODUCT));
+                    continue;
+                }
+                receiptRows.add(new Object[]{l.getId(), l.getProductId(), e.getValue()});
+            }
+            if (receiptRows.isEmpty() && summary.getFailures().isEmpty()) {
+                summary.addFailure(new ReceivingSummary.LineFailure(null, null, 0, 0, ReceivingSummary.REASON_NOTHING_TO_RECEIVE));
+            }
+            if (!summary.getFailures().isEmpty()) return summary;
+
+            // 3. 本次收货写入临时表，一次联表查询校验商品并读取入库前库存
+            prepareReceiptTable();
+            BatchInsert.insertRows(db, RECEIPT, RECEIPT_COLUMNS, receiptRows);
+            loadInbound(inbound);
+            for (Inbound in : inbound.values()) {
+                if (in.before < 0) {
+                    for (Object[] row : receiptRows) {
+                        if (!in.productId.equals(row[1])) continue;
+                        String lineId = (String) row[0];
+                        summary.addFailure(new ReceivingSummary.LineFailure(lineId, in.productId, (Integer) row[2],
+                                lines.get(lineId).getOutstandingQty(), ReceivingSummary.REASON_PRODUCT_NOT_FOUND));
+                    }
+                }
+            }
+            if (!summary.getFailures().isEmpty()) return summary;
+
+            // 4. 仓库库存与已收数量
+            long now = System.currentTimeMillis();
+            int updated = incrementWarehouseStock(now);
+            if (updated != inbound.size()) throw new Exception("warehouse update touched " + updated + " of " + inbound.size() + " products");
+            int lineUpdates = addReceivedQty();
+            if (lineUpdates != receiptRows.size()) throw new Exception("line update touched " + lineUpdates + " of " + receiptRows.size() + " lines");
+
+            // 5. 库存事务
+            List<Object[]> txRows = new ArrayList<>(inbound.size());
+            int units = 0;
+            for (Inbound in : inbound.values()) {
+                txRows.add(new Object[]{UUID.randomUUID().toString(), in.productId, in.name, userId, userRole, "IN",
+                        in.qty, in.before, in.before + in.qty, REASON_RECEIVE, now});
+                units += in.qty;
+            }
+            BatchInsert.insertRows(db, Constants.TABLE_STOCK_TRANSACTIONS, CheckoutEngine.STOCK_TX_COLUMNS, txRows);
+
+            // 6. 采购单状态：仍有未到齐的行时为部分收货
+            int linesOutstanding = 0, unitsOutstanding = 0;
+            for (PurchaseLine l : lines.values()) {
+                Integer got = receiving.get(l.getId());
+                int left = l.getOutstandingQty() - (got != null ? got : 0);
+                if (left > 0) {
+                    linesOutstanding++;
+                    unitsOutstanding += left;
+                }
+            }
+            String newStatus = linesOutstanding == 0 ? Constants.PO_STATUS_RECEIVED : Constants.PO_STATUS_PARTIALLY_RECEIVED;
+            SQLiteStatement st = db.compileStatement("UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " + Constants.COLUMN_PO_STATUS
+                    + " = ? WHERE " + Constants.COLUMN_PO_ID + " = ?");
+            try {
+                st.bindString(1, newStatus);
+                st.bindString(2, poId);
+                st.executeUpdateDelete();
+            } finally {
+                st.close();
+            }
+            db.execSQL("DELETE FROM " + RECEIPT);
+
+            db.setTransactionSuccessful();
+            summary.setCommitted(true);
+            summary.setStatus(newStatus);
+            summary.setLinesReceived(receiptRows.size());
+            summary.setUnitsReceived(units);
+            summary.setProductsUpdated(inbound.size());
+            summary.setLinesOutstanding(linesOutstanding);
+            summary.setUnitsOutstanding(unitsOutstanding);
+        } catch (Exception e) {
+            e.printStackTrace();
+            // 整单回滚：给出明确原因，调用方不会把“未提交且没有失败项”误判为其他情况
+            summary.setCommitted(false);
+            summary.addFailure(new ReceivingSummary.LineFailure(null, null, 0, 0, ReceivingSummary.REASON_INTERNAL));
+            return summary;
+        } finally {
+            db.endTransaction();
+        }
+
+        // 提交后：失效缓存中的仓库库存，审计走后台批量写入
+        for (Inbound in : inbound.values()) {
+            CatalogChanges.warehouseStockChanged(db, in.productId);
+            try { Audit.writeSystemAudit(db, userId, userRole, "product:" + in.productId, "in", REASON_RECEIVE); } catch (Exception ignored) {}
+        }
+        try {
+            Audit.writeSystemAudit(db, userId, userRole, "purchase_order:" + poId, "receive",
+                    "receive_and_match:" + summary.getStatus() + " lines=" + summary.getLinesReceived() + " units=" + summary.getUnitsReceived());
+        } catch (Exception ignored) {}
+        return summary;
+    }
+
+    private String loadStatus(String poId) {
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT " + Constants.COLUMN_PO_STATUS + " FROM " + Constants.TABLE_PURCHASE_ORDERS
+                    + " WHERE " + Constants.COLUMN_PO_ID + " = ?", new String[]{poId});
+            return c.moveToFirst() ? c.getString(0) : null;
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    private Map<String, PurchaseLine> loadLines(String poId) {
+        Map<String, PurchaseLine> lines = new LinkedHashMap<>();
+        Cursor c = null;
+        try {
+            c = db.query(Constants.TABLE_PURCHASE_LINES, null, Constants.COLUMN_PO_LINE_PO_ID + " = ?", new String[]{poId}, null, null, null);
+            CursorMapper<PurchaseLine> mapper = PurchaseLine.mapper(c);
+            while (c.moveToNext()) {
+                PurchaseLine l = mapper.map(c);
+                lines.put(l.getId(), l);
+            }
+        } finally {
+            if (c != null) c.close();
+        }
+        return lines;
+    }
+
+    // 临时表在连接上首次使用时创建；上次异常回滚后可能留有数据，先清空
+    private void prepareReceiptTable() {
+        db.execSQL("CREATE TEMP TABLE IF NOT EXISTS " + RECEIPT_TABLE
+                + " (line_id TEXT PRIMARY KEY, product_id TEXT NOT NULL, qty INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS temp.idx_po_receipt_product ON " + RECEIPT_TABLE + "(product_id)");
+        db.execSQL("DELETE FROM " + RECEIPT);
+    }
+
+    // 按商品汇总本次收货并读取入库前仓库库存；商品不存在时 name 为 null、before 为 -1
+    private void loadInbound(Map<String, Inbound> inbound) {
+        String sql = "SELECT r.product_id, p." + Constants.COLUMN_PRODUCT_ID + ", p." + Constants.COLUMN_PRODUCT_NAME
+                + ", COALESCE(p." + Constants.COLUMN_WAREHOUSE_STOCK + ", 0), SUM(r.qty)"
+                + " FROM " + RECEIPT + " r LEFT JOIN " + Constants.TABLE_PRODUCTS + " p ON p." + Constants.COLUMN_PRODUCT_ID + " = r.product_id"
+                + " GROUP BY r.product_id";
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, null);
+            while (c.moveToNext()) {
+                Inbound in = new Inbound(c.getString(0));
+                boolean exists = !c.isNull(1);
+                in.name = exists ? c.getString(2) : null;
+                in.before = exists ? c.getInt(3) : -1;
+                in.qty = c.getInt(4);
+                inbound.put(in.productId, in);
+            }
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    // 设备上的 SQLite 版本不支持 UPDATE ... FROM，用相关子查询按商品汇总
+    private int incrementWarehouseStock(long now) {
+        SQLiteStatement st = db.compileStatement("UPDATE " + Constants.TABLE_PRODUCTS + " SET "
+                + Constants.COLUMN_WAREHOUSE_STOCK + " = COALESCE(" + Constants.COLUMN_WAREHOUSE_STOCK + ", 0)"
+                + " + (SELECT SUM(r.qty) FROM " + RECEIPT + " r WHERE r.product_id = " + Constants.TABLE_PRODUCTS + "." + Constants.COLUMN_PRODUCT_ID + "), "
+                + Constants.COLUMN_UPDATED_AT + " = ?"
+                + " WHERE " + Constants.COLUMN_PRODUCT_ID + " IN (SELECT product_id FROM " + RECEIPT + ")");
+        try {
+            st.bindLong(1, now);
+            return st.executeUpdateDelete();
+        } finally {
+            st.close();
+        }
+    }
+
+    private int addReceivedQty() {
+        SQLiteStatement st = db.compileStatement("UPDATE " + Constants.TABLE_PURCHASE_LINES + " SET "
+                + Constants.COLUMN_PO_LINE_RECEIVED_QTY + " = COALESCE(" + Constants.COLUMN_PO_LINE_RECEIVED_QTY + ", 0)"
+                + " + (SELECT r.qty FROM " + RECEIPT + " r WHERE r.line_id = " + Constants.TABLE_PURCHASE_LINES + "." + Constants.COLUMN_PO_LINE_ID + ")"
+                + " WHERE " + Constants.COLUMN_PO_LINE_ID + " IN (SELECT line_id FROM " + RECEIPT + ")");
+        try {
+            return st.executeUpdateDelete();
+        } finally {
+            st.close();
+        }
+    }
+}
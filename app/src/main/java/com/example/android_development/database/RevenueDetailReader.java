@@ -0,0 +1,170 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.util.Constants;
+
+/**
+ * 营收明细的顺序读取器：把销售、退款（按原销售时间）、采购三类记录按时间倒序合并成一条流。
+ * 每一类记录用 (时间, rowid) 键集分页读取，每页只保留 PAGE_SIZE 行，内存占用与时间范围无关；
+ * 三路已各自有序，合并时只需比较当前行，不需要整体排序。
+ * 每行同时带出本地日期/月份标签（由 SQLite strftime 计算），调用方无需逐行格式化日期。
+ *
+ * 用法：while (reader.next()) { reader.getType() ... }，用完调用 close()。
+ * 构造或 next() 时查询出错会抛出 SQLException，不会当作已读完，避免调用方把截断的结果当成完整数据。
+ */
+public class RevenueDetailReader implements java.io.Closeable {
+
+    public static final String TYPE_SALE = "sale";
+    public static final String TYPE_REFUND = "refund";
+    public static final String TYPE_PURCHASE = "purchase";
+
+    private static final int PAGE_SIZE = 500;
+
+    private final Source[] sources;
+    private Source current;
+
+    /**
+     * @param monthly true 时标签为 yyyy-MM，否则为 yyyy-MM-dd
+     */
+    public RevenueDetailReader(SQLiteDatabase db, long startMillis, long endMillis, boolean monthly) {
+        String format = monthly ? "%Y-%m" : DbContract.DAY_FORMAT;
+        String saleTs = "s." + Constants.COLUMN_SALE_TIMESTAMP;
+        String poTs = "po." + Constants.COLUMN_PO_CREATED_AT;
+        sources = new Source[3];
+        try {
+            sources[0] = new Source(db, TYPE_SALE,
+                        "SELECT " + saleTs + ", s.rowid, s." + Constants.COLUMN_SALE_ID + ", s." + Constants.COLUMN_SALE_TOTAL + ", NULL, " + DbContract.periodOf(format, saleTs) +
+                                " FROM " + Constants.TABLE_SALES + " s",
+                        saleTs, "s.rowid", 1, startMillis, endMillis);
+            sources[1] = new Source(db, TYPE_REFUND,
+                        "SELECT " + saleTs + ", r.rowid, r." + Constants.COLUMN_REFUND_ID + ", r." + Constants.COLUMN_REFUND_AMOUNT + ", r." + Constants.COLUMN_REFUND_REASON + ", " + DbContract.periodOf(format, saleTs) +
+                                " FROM " + Constants.TABLE_SALES + " s JOIN " + Constants.TABLE_REFUNDS + " r ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID,
+                        saleTs, "r.rowid", -1, startMillis, endMillis);
+            sources[2] = new Source(db, TYPE_PURCHASE,
+                        "SELECT " + poTs + ", po.rowid, po." + Constants.COLUMN_PO_ID + ", COALESCE(po." + Constants.COLUMN_PO_TOTAL + ", 0), NULL, " + DbContract.periodOf(format, poTs) +
+                                " FROM " + Constants.TABLE_PURCHASE_ORDERS + " po",
+                        poTs, "po.rowid", -1, startMillis, endMillis);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // 明细总行数（用于进度显示；三条 COUNT 均走时间索引）
+    public static long count(SQLiteDatabase db, long startMillis, long endMillis) {
+        String[] args = {String.valueOf(startMillis), String.valueOf(endMillis)};
+        String sql = "SELECT " +
+                "(SELECT COUNT(*) FROM " + Constants.TABLE_SALES + " WHERE " + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ?1 AND ?2) + " +
+                "(SELECT COUNT(*) FROM " + Constants.TABLE_SALES + " s JOIN " + Constants.TABLE_REFUNDS + " r ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID +
+                " WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ?1 AND ?2) + " +
+                "(SELECT COUNT(*) FROM " + Constants.TABLE_PURCHASE_ORDERS + " WHERE " + Constants.COLUMN_PO_CREATED_AT + " BETWEEN ?1 AND ?2)";
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, args);
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    // 前进到下一行（三路中时间最新的一行）；没有更多数据时返回 false，读取下一页出错时抛出 SQLException
+    public boolean next() {
+        if (current != null) current.advance();
+        current = null;
+        for (Source s : sources) {
+            if (!s.hasRow()) continue;
+            if (current == null || s.ts() > current.ts()) current = s;
+        }
+        return current != null;
+    }
+
+    public String getType() { return current.type; }
+    public String getId() { return current.id(); }
+    // 销售为正数，退款与采购为负数（与报表口径一致）
+    public double getAmount() { return current.sign * current.amount(); }
+    public long getTimestamp() { return current.ts(); }
+    public String getReason() { return current.reason(); }
+    public String getPeriodLabel() { return current.label(); }
+
+    @Override
+    public void close() {
+        for (Source s : sources) {
+            if (s != null) s.close();
+        }
+    }
+
+    // 单一类型的键集分页读取
+    private static final class Source {
+        final SQLiteDatabase db;
+        final String type;
+        final String baseSql;
+        final String tsExpr;
+        final String rowidExpr;
+        final int sign;
+        final long startMillis;
+        final long endMillis;
+
+        Cursor page;
+        int rowsInPage;
+        boolean exhausted;
+        long lastTs;
+        long lastRowid;
+
+        Source(SQLiteDatabase db, String type, String baseSql, String tsExpr, String rowidExpr, int sign, long startMillis, long endMillis) {
+            this.db = db;
+            this.type = type;
+            this.baseSql = baseSql;
+            this.tsExpr = tsExpr;
+            this.rowidExpr = rowidExpr;
+            this.sign = sign;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            fetch(true);
+        }
+
+        boolean hasRow() { return page != null && !page.isAfterLast(); }
+        long ts() { return page.getLong(0); }
+        String id() { return page.getString(2); }
+        double amount() { return page.getDouble(3); }
+        String reason() { return page.isNull(4) ? null : page.getString(4); }
+        String label() { return page.getString(5); }
+
+        void advance() {
+            lastTs = page.getLong(0);
+            lastRowid = page.getLong(1);
+            page.moveToNext();
+            if (page.isAfterLast() && rowsInPage == PAGE_SIZE) fetch(false);
+        }
+
+        private void fetch(boolean first) {
+            if (page != null) page.close();
+            page = null;
+            if (exhausted) return;
+            String where = " WHERE " + tsExpr + " BETWEEN ? AND ?" + (first ? "" : " AND (" + tsExpr + ", " + rowidExpr + ") < (?, ?)");
+            String sql = baseSql + where + " ORDER BY " + tsExpr + " DESC, " + rowidExpr + " DESC LIMIT " + PAGE_SIZE;
+            String[] args = first
+                    ? new String[]{String.valueOf(startMillis), String.valueOf(endMillis)}
+                    : new String[]{String.valueOf(startMillis), String.valueOf(endMillis), String.valueOf(lastTs), String.valueOf(lastRowid)};
+            try {
+                page = db.rawQuery(sql, args);
+                rowsInPage = page.getCount();
+                if (rowsInPage < PAGE_SIZE) exhausted = true;
+                page.moveToFirst();
+            } catch (RuntimeException e) {
+                exhausted = true;
+                if (page != null) page.close();
+                page = null;
+                throw e;
+            }
+        }
+
+        void close() {
+            if (page != null) page.close();
+            page = null;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import android.content.Context;
 import com.example.android_development.util.PrefsManager;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.model.CursorMapper;
+import com.example.android_development.model.CheckoutResult;
 import com.example.android_development.model.Sale;
 import com.example.android_development.model.SaleLine;
 import com.example.android_development.util.Constants;
@@ -17,63 +19,54 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class SaleDAO {
+    // 旧版 SQLite 单条语句的绑定参数上限
+    private static final int MAX_BIND_ARGS = 999;
+
     private SQLiteDatabase db;
     private PrefsManager prefsManager;
     private android.content.Context ctx;
 
-    public SaleDAO(SQLiteDatabase db) { this.db = db; }
+    private final CheckoutEngine checkoutEngine;
+
+    public SaleDAO(SQLiteDatabase db) {
+        this.db = db;
+        this.checkoutEngine = new CheckoutEngine(db);
+    }
 
     public SaleDAO(SQLiteDatabase db, Context ctx) {
         this.db = db;
         this.ctx = ctx;
+        this.checkoutEngine = new CheckoutEngine(db);
         if (ctx != null) this.prefsManager = new PrefsManager(ctx);
     }
 
     public long addSale(Sale sale) {
-        if (sale == null) return -1;
+        CheckoutResult result = checkout(sale);
+        return result.isSuccess() ? result.getRowId() : -1;
+    }
+
+    /**
+     * 整单结账（见 CheckoutEngine）：库存不足或商品不存在时整单不写入，
+     * 返回结果中列出每个失败的销售行，供界面逐行提示。
+     */
+    public CheckoutResult checkout(Sale sale) {
+        CheckoutResult result = new CheckoutResult();
+        if (sale == null) return result;
         // 权限检查：销售创建需要调整库存权限（收银员/管理员）
         if (ctx != null && !com.example.android_development.security.Auth.hasPermission(ctx, com.example.android_development.util.Constants.PERM_ADJUST_STOCK)) {
             com.example.android_development.util.DaoResult.setError(com.example.android_development.util.DaoResult.ERR_PERMISSION, "no permission to create sale");
-            return -1;
+            return result;
         }
-        db.beginTransaction();
-        try {
-            if (sale.getId() == null || sale.getId().isEmpty()) sale.setId(UUID.randomUUID().toString());
-            long now = System.currentTimeMillis();
-            sale.setTimestamp(now);
-
-            ContentValues v = sale.toContentValues();
-            long res = db.insert(Constants.TABLE_SALES, null, v);
-            if (res == -1) throw new Exception("Failed to insert sale");
-
-            // insert lines
-            if (sale.getLines() != null) {
-                for (SaleLine l : sale.getLines()) {
-                    if (l.getId() == null || l.getId().isEmpty()) l.setId(UUID.randomUUID().toString());
-                    l.setSaleId(sale.getId());
-                    db.insert(Constants.TABLE_SALE_LINES, null, l.toContentValues());
-
-                    // 使用 InventoryDAO 提供的并发保护调整并写审计
-                    boolean ok = InventoryDAO.adjustShelfStock(db, prefsManager, l.getProductId(), -l.getQty(), "sale", "OUT");
-                    if (!ok) {
-                        throw new Exception("Failed to adjust stock for product " + l.getProductId());
-                    }
-                }
-            }
-            db.setTransactionSuccessful();
-            // 写入操作审计（记录销售单创建）
-            try {
-                String uid = null, urole = null;
-                if (prefsManager != null) { uid = prefsManager.getUserId(); urole = prefsManager.getUserRole(); }
-                Audit.writeSystemAudit(db, uid, urole, "sale:" + sale.getId(), "create", "create_sale");
-            } catch (Exception ignored) {}
-            return res;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return -1;
-        } finally {
-            db.endTransaction();
+        String uid = null, urole = null;
+        if (prefsManager != null) {
+            try { uid = prefsManager.getUserId(); } catch (Exception ignored) {}
+            try { urole = prefsManager.getUserRole(); } catch (Exception ignored) {}
+        }
+        result = checkoutEngine.checkout(sale, uid, urole);
+        if (!result.isSuccess() && !result.getFailures().isEmpty()) {
+            com.example.android_development.util.DaoResult.setError(com.example.android_development.util.DaoResult.ERR_CONFLICT, "checkout failed for " + result.getFailures().size() + " line(s)");
         }
+        return result;
     }
 
     public Sale getSaleById(String saleId) {
@@ -97,35 +90,113 @@ public class SaleDAO {
         String[] args = new String[]{saleId};
         Cursor c = db.query(Constants.TABLE_SALE_LINES, null, sel, args, null, null, null);
         if (c != null && c.moveToFirst()) {
+            CursorMapper<SaleLine> mapper = SaleLine.mapper(c);
             do {
-                list.add(SaleLine.fromCursor(c));
+                list.add(mapper.map(c));
             } while (c.moveToNext());
             c.close();
         }
         return list;
     }
 
+    // JOIN users 带出收银员显示名，小票列表不再逐行查询用户
+    static final String SQL_RECENT_SALES =
+            "SELECT s.*, " + UserDirectory.displayNameSql("u") + " AS " + Constants.COLUMN_USER_DISPLAY_NAME +
+                    " FROM " + Constants.TABLE_SALES + " s" + UserDirectory.joinUsers("u", "s." + Constants.COLUMN_SALE_USER_ID) +
+                    " ORDER BY s." + Constants.COLUMN_SALE_TIMESTAMP + " DESC LIMIT ?";
+
+    // 最近的销售单（含销售行）：单头一条查询，销售行按批一次取回
     public List<Sale> getRecentSales(int limit) {
+        List<Sale> list = getRecentSaleHeaders(limit);
+        attachLines(list);
+        return list;
+    }
+
+    // 最近的销售单，只含单头（列表页使用；销售行在打开小票时再按 getSaleById 加载）
+    public List<Sale> getRecentSaleHeaders(int limit) {
         List<Sale> list = new ArrayList<>();
-        String order = Constants.COLUMN_SALE_TIMESTAMP + " DESC";
-        String lim = String.valueOf(limit);
-        Cursor c = db.query(Constants.TABLE_SALES, null, null, null, null, null, order, lim);
-        if (c != null && c.moveToFirst()) {
-            do {
-                Sale s = Sale.fromCursor(c);
-                s.setLines(getLinesForSale(s.getId()));
-                list.add(s);
-            } while (c.moveToNext());
-            c.close();
+        Cursor c = null;
+        try {
+            c = db.rawQuery(SQL_RECENT_SALES, new String[]{String.valueOf(limit)});
+            CursorMapper<Sale> mapper = Sale.mapper(c);
+            while (c.moveToNext()) {
+                list.add(mapper.map(c));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
         }
         return list;
     }
 
+    // 为一批销售单填充销售行
+    public void attachLines(List<Sale> sales) {
+        if (sales == null || sales.isEmpty()) return;
+        List<String> ids = new ArrayList<>(sales.size());
+        for (Sale s : sales) ids.add(s.getId());
+        Map<String, List<SaleLine>> bySale = getLinesForSales(ids);
+        for (Sale s : sales) {
+            List<SaleLine> lines = bySale.get(s.getId());
+            s.setLines(lines != null ? lines : new ArrayList<>());
+        }
+    }
+
+    /**
+     * 批量读取多张销售单的销售行：按绑定参数上限分块执行 sale_id IN (...)（走 idx_sale_lines_sale_id），
+     * 读取时一次遍历按 sale_id 分组。返回 sale_id -> 销售行；没有销售行的单不在结果中。
+     */
+    public Map<String, List<SaleLine>> getLinesForSales(List<String> saleIds) {
+        Map<String, List<SaleLine>> result = new HashMap<>();
+        if (saleIds == null || saleIds.isEmpty()) return result;
+        for (int start = 0; start < saleIds.size(); start += MAX_BIND_ARGS) {
+            List<String> chunk = saleIds.subList(start, Math.min(saleIds.size(), start + MAX_BIND_ARGS));
+            Cursor c = null;
+            try {
+                c = db.rawQuery(linesForSalesSql(chunk.size()), chunk.toArray(new String[0]));
+                CursorMapper<SaleLine> mapper = SaleLine.mapper(c);
+                while (c.moveToNext()) {
+                    SaleLine line = mapper.map(c);
+                    List<SaleLine> lines = result.get(line.getSaleId());
+                    if (lines == null) {
+                        lines = new ArrayList<>();
+                        result.put(line.getSaleId(), lines);
+                    }
+                    lines.add(line);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+        return result;
+    }
+
+    static String linesForSalesSql(int n) {
+        return "SELECT * FROM " + Constants.TABLE_SALE_LINES + " WHERE " + Constants.COLUMN_SALE_LINE_SALE_ID +
+                " IN (" + CheckoutEngine.placeholders(n) + ")";
+    }
+
+    // 明细导出的三条区间查询（参数均为 startMillis, endMillis）
+    static final String SQL_PERIOD_SALES =
+            "SELECT * FROM " + Constants.TABLE_SALES + " WHERE " + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ?" +
+                    " ORDER BY " + Constants.COLUMN_SALE_TIMESTAMP + " DESC";
+
+    // 退款按原销售时间归属（refunds JOIN sales）
+    static final String SQL_PERIOD_REFUNDS =
+            "SELECT r.* , s." + Constants.COLUMN_SALE_TIMESTAMP + " as sale_ts FROM " + Constants.TABLE_REFUNDS + " r JOIN " + Constants.TABLE_SALES + " s ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID +
+                    " WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? ORDER BY s." + Constants.COLUMN_SALE_TIMESTAMP + " DESC";
+
+    static final String SQL_PERIOD_PURCHASES =
+            "SELECT * FROM " + Constants.TABLE_PURCHASE_ORDERS + " WHERE " + Constants.COLUMN_PO_CREATED_AT + " BETWEEN ? AND ?" +
+                    " ORDER BY " + Constants.COLUMN_PO_CREATED_AT + " DESC";
+
     // 返回指定时间段内的明细条目：包含销售、退款（作为负数）和采购（作为负数）
     public List<android.content.ContentValues> getDetailedEntriesForPeriod(long startMillis, long endMillis) {
         List<android.content.ContentValues> list = new ArrayList<>();
         // Sales
-        Cursor sc = db.query(Constants.TABLE_SALES, null, Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ?", new String[]{String.valueOf(startMillis), String.valueOf(endMillis)}, null, null, Constants.COLUMN_SALE_TIMESTAMP + " DESC");
+        Cursor sc = db.rawQuery(SQL_PERIOD_SALES, new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
         if (sc != null && sc.moveToFirst()) {
             do {
                 android.content.ContentValues cv = new android.content.ContentValues();
@@ -142,8 +213,7 @@ public class SaleDAO {
         }
 
         // Refunds allocated by original sale time (join refunds -> sales)
-        String rsql = "SELECT r.* , s." + Constants.COLUMN_SALE_TIMESTAMP + " as sale_ts FROM " + Constants.TABLE_REFUNDS + " r JOIN " + Constants.TABLE_SALES + " s ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID + " WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? ORDER BY s." + Constants.COLUMN_SALE_TIMESTAMP + " DESC";
-        Cursor rc = db.rawQuery(rsql, new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
+        Cursor rc = db.rawQuery(SQL_PERIOD_REFUNDS, new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
         if (rc != null && rc.moveToFirst()) {
             do {
                 android.content.ContentValues cv = new android.content.ContentValues();
@@ -164,7 +234,7 @@ public class SaleDAO {
         }
 
         // Purchases (use created_at and treat as negative expense)
-        Cursor pc = db.query(Constants.TABLE_PURCHASE_ORDERS, null, Constants.COLUMN_PO_CREATED_AT + " BETWEEN ? AND ?", new String[]{String.valueOf(startMillis), String.valueOf(endMillis)}, null, null, Constants.COLUMN_PO_CREATED_AT + " DESC");
+        Cursor pc = db.rawQuery(SQL_PERIOD_PURCHASES, new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
         if (pc != null && pc.moveToFirst()) {
             do {
                 android.content.ContentValues cv = new android.content.ContentValues();
@@ -193,6 +263,7 @@ public class SaleDAO {
             com.example.android_development.util.DaoResult.setError(com.example.android_development.util.DaoResult.ERR_PERMISSION, "no permission to refund");
             return false;
         }
+        boolean committed = false;
         db.beginTransaction();
         try {
             Sale s = getSaleById(saleId);
@@ -206,11 +277,12 @@ public class SaleDAO {
             }
 
             // 标记已退款
-            android.content.ContentValues v = new android.content.ContentValues();
-            v.put(com.example.android_development.util.Constants.COLUMN_SALE_REFUNDED, 1);
             long now = System.currentTimeMillis();
-            v.put(com.example.android_development.util.Constants.COLUMN_SALE_REFUNDED_AT, now);
-            int updated = db.update(com.example.android_development.util.Constants.TABLE_SALES, v, com.example.android_development.util.Constants.COLUMN_SALE_ID + " = ?", new String[]{saleId});
+            StatementCache cache = StatementCache.of(db);
+            int updated = cache.executeUpdateDelete(StatementBinders.SQL_MARK_SALE_REFUNDED, st -> {
+                st.bindLong(1, now);
+                st.bindString(2, saleId);
+            });
             if (updated <= 0) throw new Exception("Failed to mark sale refunded");
 
             try {
@@ -226,67 +298,37 @@ public class SaleDAO {
                 rr.setUserRole(urole);
                 rr.setReason(reason);
                 rr.setTimestamp(now);
-                db.insert(com.example.android_development.util.Constants.TABLE_REFUNDS, null, rr.toContentValues());
+                cache.executeInsert(StatementBinders.SQL_INSERT_REFUND, st -> StatementBinders.bindRefund(st, rr));
 
-                com.example.android_development.util.Audit.writeSystemAudit(db, uid, urole, "sale:" + saleId, "refund", "refund_sale");
+                com.example.android_development.util.Audit.writeSystemAuditDurable(db, uid, urole, "sale:" + saleId, "refund", "refund_sale");
             } catch (Exception ignored) {}
 
             db.setTransactionSuccessful();
+            committed = true;
             return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
         } finally {
             db.endTransaction();
+            // 恢复库存产生的缓存失效在提交后生效
+            CatalogChanges.transactionEnded(db, committed);
         }
     }
 
     // 按天汇总：返回 periodLabel=yyyy-MM-dd 的汇总列表（包含指定时间范围内）
     public List<SalesSummary> getDailySalesSummary(long startMillis, long endMillis) {
-        List<SalesSummary> list = new ArrayList<>();
-        // 合并销售和退款，但退款按原销售时间计入（使用 refunds JOIN sales，退款金额取负）
-        String sql = "SELECT period, SUM(amount) as total, SUM(cnt) as cnt FROM (" +
-            "  SELECT strftime('%Y-%m-%d', s." + Constants.COLUMN_SALE_TIMESTAMP + "/1000, 'unixepoch', 'localtime') as period, SUM(s." + Constants.COLUMN_SALE_TOTAL + ") as amount, COUNT(*) as cnt FROM " + Constants.TABLE_SALES + " s WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? GROUP BY period" +
-            "  UNION ALL" +
-            "  SELECT strftime('%Y-%m-%d', s." + Constants.COLUMN_SALE_TIMESTAMP + "/1000, 'unixepoch', 'localtime') as period, -SUM(r." + Constants.COLUMN_REFUND_AMOUNT + ") as amount, 0 as cnt FROM " + Constants.TABLE_REFUNDS + " r JOIN " + Constants.TABLE_SALES + " s ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID + " WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? GROUP BY period" +
-            "  UNION ALL" +
-            "  SELECT strftime('%Y-%m-%d', po." + Constants.COLUMN_PO_CREATED_AT + "/1000, 'unixepoch', 'localtime') as period, -SUM(po." + Constants.COLUMN_PO_TOTAL + ") as amount, 0 as cnt FROM " + Constants.TABLE_PURCHASE_ORDERS + " po WHERE po." + Constants.COLUMN_PO_CREATED_AT + " BETWEEN ? AND ? GROUP BY period" +
-            ") GROUP BY period ORDER BY period DESC";
-        String[] args = new String[]{String.valueOf(startMillis), String.valueOf(endMillis), String.valueOf(startMillis), String.valueOf(endMillis), String.valueOf(startMillis), String.valueOf(endMillis)};
-        Cursor c = db.rawQuery(sql, args);
-        if (c != null && c.moveToFirst()) {
-            do {
-                String period = c.getString(c.getColumnIndexOrThrow("period"));
-                double total = c.getDouble(c.getColumnIndexOrThrow("total"));
-                int cnt = c.getInt(c.getColumnIndexOrThrow("cnt"));
-                list.add(new SalesSummary(period, total, cnt));
-            } while (c.moveToNext());
-            c.close();
-        }
-        return list;
+        // 读取营收汇总表（由触发器随销售/退款/采购写入同步维护），退款按原销售日期计入
+        return SalesRollup.getDaily(db, startMillis, endMillis);
     }
 
     // 按月汇总：返回 periodLabel=yyyy-MM 的汇总列表
     public List<SalesSummary> getMonthlySalesSummary(long startMillis, long endMillis) {
-        List<SalesSummary> list = new ArrayList<>();
-        String sql = "SELECT period, SUM(amount) as total, SUM(cnt) as cnt FROM (" +
-            "  SELECT strftime('%Y-%m', s." + Constants.COLUMN_SALE_TIMESTAMP + "/1000, 'unixepoch', 'localtime') as period, SUM(s." + Constants.COLUMN_SALE_TOTAL + ") as amount, COUNT(*) as cnt FROM " + Constants.TABLE_SALES + " s WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? GROUP BY period" +
-            "  UNION ALL" +
-            "  SELECT strftime('%Y-%m', s." + Constants.COLUMN_SALE_TIMESTAMP + "/1000, 'unixepoch', 'localtime') as period, -SUM(r." + Constants.COLUMN_REFUND_AMOUNT + ") as amount, 0 as cnt FROM " + Constants.TABLE_REFUNDS + " r JOIN " + Constants.TABLE_SALES + " s ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID + " WHERE s." + Constants.COLUMN_SALE_TIMESTAMP + " BETWEEN ? AND ? GROUP BY period" +
-            "  UNION ALL" +
-            "  SELECT strftime('%Y-%m', po." + Constants.COLUMN_PO_CREATED_AT + "/1000, 'unixepoch', 'localtime') as period, -SUM(po." + Constants.COLUMN_PO_TOTAL + ") as amount, 0 as cnt FROM " + Constants.TABLE_PURCHASE_ORDERS + " po WHERE po." + Constants.COLUMN_PO_CREATED_AT + " BETWEEN ? AND ? GROUP BY period" +
-            ") GROUP BY period ORDER BY period DESC";
-        String[] args = new String[]{String.valueOf(startMillis), String.valueOf(endMillis), String.valueOf(startMillis), String.valueOf(endMillis), String.valueOf(startMillis), String.valueOf(endMillis)};
-        Cursor c = db.rawQuery(sql, args);
-        if (c != null && c.moveToFirst()) {
-            do {
-                String period = c.getString(c.getColumnIndexOrThrow("period"));
-                double total = c.getDouble(c.getColumnIndexOrThrow("total"));
-                int cnt = c.getInt(c.getColumnIndexOrThrow("cnt"));
-                list.add(new SalesSummary(period, total, cnt));
-            } while (c.moveToNext());
-            c.close();
-        }
-        return list;
+        return SalesRollup.getMonthly(db, startMillis, endMillis);
+    }
+
+    // 按小时汇总：返回 periodLabel=yyyy-MM-dd HH 的汇总列表
+    public List<SalesSummary> getHourlySalesSummary(long startMillis, long endMillis) {
+        return SalesRollup.getHourly(db, startMillis, endMillis);
     }
 }
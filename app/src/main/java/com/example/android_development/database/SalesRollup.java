@@ -0,0 +1,164 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+import com.example.android_development.model.SalesSummary;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 营收汇总表的读取、重建与校验。
+ * 汇总表由触发器维护（见 DbContract.SQL_CREATE_SALES_ROLLUP_TRIGGERS），报表只需按时段主键做范围读取，
+ * 不再对 sales / refunds / purchase_orders 全量分组。
+ * 报表金额口径与原实现一致：销售额 - 退款额 - 采购额；笔数为销售笔数。
+ */
+public final class SalesRollup {
+
+    private static final String TAG = "SalesRollup";
+
+    // 校验时允许的浮点累计误差
+    private static final double TOLERANCE = 0.005;
+
+    private SalesRollup() {}
+
+    private static final String NET =
+            "SUM(" + DbContract.COLUMN_ROLLUP_SALES_TOTAL + " - " + DbContract.COLUMN_ROLLUP_REFUND_TOTAL + " - " + DbContract.COLUMN_ROLLUP_PURCHASE_TOTAL + ")";
+
+    private static final String NON_EMPTY =
+            DbContract.COLUMN_ROLLUP_SALES_COUNT + " != 0 OR " + DbContract.COLUMN_ROLLUP_SALES_TOTAL + " != 0 OR " +
+                    DbContract.COLUMN_ROLLUP_REFUND_TOTAL + " != 0 OR " + DbContract.COLUMN_ROLLUP_PURCHASE_TOTAL + " != 0";
+
+    // 按日汇总：periodLabel = yyyy-MM-dd，按日期倒序；起止时间所在的整天都计入
+    public static List<SalesSummary> getDaily(SQLiteDatabase db, long startMillis, long endMillis) {
+        return query(db, periodSql(DbContract.TABLE_SALES_ROLLUP_DAILY, DbContract.DAY_FORMAT), startMillis, endMillis);
+    }
+
+    // 按月汇总：periodLabel = yyyy-MM，由日汇总再聚合（一年最多 366 行）
+    public static List<SalesSummary> getMonthly(SQLiteDatabase db, long startMillis, long endMillis) {
+        String month = "substr(" + DbContract.COLUMN_ROLLUP_PERIOD + ", 1, 7)";
+        String sql = "SELECT " + month + " AS m, " + NET + ", SUM(" + DbContract.COLUMN_ROLLUP_SALES_COUNT + ")" +
+                " FROM " + DbContract.TABLE_SALES_ROLLUP_DAILY +
+                " WHERE " + DbContract.COLUMN_ROLLUP_PERIOD + " BETWEEN " + DbContract.periodOf(DbContract.DAY_FORMAT, "?") + " AND " + DbContract.periodOf(DbContract.DAY_FORMAT, "?") +
+                " AND (" + NON_EMPTY + ")" +
+                " GROUP BY m ORDER BY m DESC";
+        return query(db, sql, startMillis, endMillis);
+    }
+
+    // 按小时汇总：periodLabel = yyyy-MM-dd HH
+    public static List<SalesSummary> getHourly(SQLiteDatabase db, long startMillis, long endMillis) {
+        return query(db, periodSql(DbContract.TABLE_SALES_ROLLUP_HOURLY, DbContract.HOUR_FORMAT), startMillis, endMillis);
+    }
+
+    // 日/小时汇总表的区间查询（QueryPlanChecker 也登记这条语句）
+    static String periodSql(String table, String format) {
+        return "SELECT " + DbContract.COLUMN_ROLLUP_PERIOD + ", " + NET + ", SUM(" + DbContract.COLUMN_ROLLUP_SALES_COUNT + ")" +
+                " FROM " + table +
+                " WHERE " + DbContract.COLUMN_ROLLUP_PERIOD + " BETWEEN " + DbContract.periodOf(format, "?") + " AND " + DbContract.periodOf(format, "?") +
+                " AND (" + NON_EMPTY + ")" +
+                " GROUP BY " + DbContract.COLUMN_ROLLUP_PERIOD + " ORDER BY " + DbContract.COLUMN_ROLLUP_PERIOD + " DESC";
+    }
+
+    private static List<SalesSummary> query(SQLiteDatabase db, String sql, long startMillis, long endMillis) {
+        List<SalesSummary> list = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
+            while (c.moveToNext()) {
+                list.add(new SalesSummary(c.getString(0), c.getDouble(1), c.getInt(2)));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+        return list;
+    }
+
+    // 从明细表重新计算某一粒度的汇总（全表扫描，只用于重建与校验）
+    private static String aggregateSql(String format) {
+        String saleDay = DbContract.periodOf(format, "s." + Constants.COLUMN_SALE_TIMESTAMP);
+        String poDay = DbContract.periodOf(format, "po." + Constants.COLUMN_PO_CREATED_AT);
+        return "SELECT period, SUM(st) AS st, SUM(sc) AS sc, SUM(rt) AS rt, SUM(pt) AS pt FROM (" +
+                " SELECT " + saleDay + " AS period, SUM(COALESCE(s." + Constants.COLUMN_SALE_TOTAL + ", 0)) AS st, COUNT(*) AS sc, 0 AS rt, 0 AS pt" +
+                " FROM " + Constants.TABLE_SALES + " s GROUP BY period" +
+                " UNION ALL" +
+                " SELECT " + saleDay + " AS period, 0, 0, SUM(COALESCE(r." + Constants.COLUMN_REFUND_AMOUNT + ", 0)), 0" +
+                " FROM " + Constants.TABLE_REFUNDS + " r JOIN " + Constants.TABLE_SALES + " s ON r." + Constants.COLUMN_REFUND_SALE_ID + " = s." + Constants.COLUMN_SALE_ID + " GROUP BY period" +
+                " UNION ALL" +
+                " SELECT " + poDay + " AS period, 0, 0, 0, SUM(COALESCE(po." + Constants.COLUMN_PO_TOTAL + ", 0))" +
+                " FROM " + Constants.TABLE_PURCHASE_ORDERS + " po GROUP BY period" +
+                ") WHERE period IS NOT NULL GROUP BY period";
+    }
+
+    // 清空并按明细表重建日/小时汇总（升级、恢复备份或时区变化后调用）
+    public static boolean rebuild(SQLiteDatabase db) {
+        boolean localTxStarted = false;
+        try {
+            if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
+            rebuildTable(db, DbContract.TABLE_SALES_ROLLUP_DAILY, DbContract.DAY_FORMAT);
+            rebuildTable(db, DbContract.TABLE_SALES_ROLLUP_HOURLY, DbContract.HOUR_FORMAT);
+            if (localTxStarted) db.setTransactionSuccessful();
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (localTxStarted) {
+                try { db.endTransaction(); } catch (Exception ignored) {}
+            }
+        }
+    }
+
+    private static void rebuildTable(SQLiteDatabase db, String table, String format) {
+        db.execSQL("DELETE FROM " + table);
+        db.execSQL("INSERT INTO " + table + " (" + DbContract.COLUMN_ROLLUP_PERIOD + ", " + DbContract.COLUMN_ROLLUP_SALES_TOTAL + ", " +
+                DbContract.COLUMN_ROLLUP_SALES_COUNT + ", " + DbContract.COLUMN_ROLLUP_REFUND_TOTAL + ", " + DbContract.COLUMN_ROLLUP_PURCHASE_TOTAL + ") " +
+                "SELECT period, st, sc, rt, pt FROM (" + aggregateSql(format) + ")");
+    }
+
+    /**
+     * 校验汇总表与明细表是否一致，返回不一致的时段（形如 "daily 2025-01-02"）；为空表示一致。
+     * 发现不一致时可调用 rebuild 修复。
+     */
+    public static List<String> verify(SQLiteDatabase db) {
+        List<String> mismatches = new ArrayList<>();
+        verifyTable(db, DbContract.TABLE_SALES_ROLLUP_DAILY, DbContract.DAY_FORMAT, "daily", mismatches);
+        verifyTable(db, DbContract.TABLE_SALES_ROLLUP_HOURLY, DbContract.HOUR_FORMAT, "hourly", mismatches);
+        return mismatches;
+    }
+
+    private static void verifyTable(SQLiteDatabase db, String table, String format, String label, List<String> out) {
+        String p = DbContract.COLUMN_ROLLUP_PERIOD;
+        // 双向比较：明细中有而汇总中不同的时段，以及汇总中有值而明细中没有的时段
+        String sql = "SELECT a.period FROM (" + aggregateSql(format) + ") a LEFT JOIN " + table + " r ON r." + p + " = a.period" +
+                " WHERE r." + p + " IS NULL" +
+                " OR abs(a.st - r." + DbContract.COLUMN_ROLLUP_SALES_TOTAL + ") > " + TOLERANCE +
+                " OR a.sc != r." + DbContract.COLUMN_ROLLUP_SALES_COUNT +
+                " OR abs(a.rt - r." + DbContract.COLUMN_ROLLUP_REFUND_TOTAL + ") > " + TOLERANCE +
+                " OR abs(a.pt - r." + DbContract.COLUMN_ROLLUP_PURCHASE_TOTAL + ") > " + TOLERANCE +
+                " UNION " +
+                "SELECT r." + p + " FROM " + table + " r WHERE (" + NON_EMPTY + ")" +
+                " AND r." + p + " NOT IN (SELECT period FROM (" + aggregateSql(format) + "))";
+        Cursor c = null;
+        try {
+            c = db.rawQuery(sql, null);
+            while (c.moveToNext()) out.add(label + " " + c.getString(0));
+        } catch (Exception e) {
+            out.add(label + ": " + e.getMessage());
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    // 校验并把结果写入 logcat（可调试构建下由 AppDatabase 在后台调用）
+    public static void logVerify(SQLiteDatabase db) {
+        List<String> mismatches = verify(db);
+        if (mismatches.isEmpty()) {
+            Log.d(TAG, "sales rollups match detail tables");
+            return;
+        }
+        for (String m : mismatches) Log.w(TAG, "rollup mismatch -> " + m);
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import com.example.android_development.util.Constants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编号的表结构迁移步骤，执行记录写入 schema_migrations。
+ * - 步骤编号即引入该变更的数据库版本号，最大编号应等于 Constants.DATABASE_VERSION；
+ * - 每个步骤幂等：先查 SchemaModel 再建表/加列，重复执行无副作用；
+ * - 每个步骤单独一个事务，成功后记录；失败时停止，之后的步骤留到下次打开数据库再试；
+ * - 可选步骤（如依赖系统 SQLite 能力的全文检索）条件不满足时抛出 Skipped：本步回滚且不记录，
+ *   之后的步骤照常执行，下次打开数据库再试；
+ * - 打开数据库时只读一次 schema_migrations，没有待执行步骤时不做任何表结构检查。
+ * 新的表结构变更：在 ALL 末尾追加一步并把 DATABASE_VERSION 加一，不要修改已发布的步骤。
+ */
+final class SchemaMigrations {
+
+    private static final String TAG = "SchemaMigrations";
+
+    // 从该版本起执行记录写入 schema_migrations；更早的库升级时按版本号补记录
+    static final int FIRST_TRACKED_VERSION = 15;
+
+    interface Step {
+        void apply(SQLiteDatabase db, SchemaModel schema);
+    }
+
+    // 可选步骤暂时无法完成：不记录为已执行，也不阻塞之后的步骤
+    static final class Skipped extends RuntimeException {
+        Skipped(String message) {
+            super(message);
+        }
+    }
+
+    static final class Migration {
+        final int id;
+        final String name;
+        final Step step;
+
+        Migration(int id, String name, Step step) {
+            this.id = id;
+            this.name = name;
+            this.step = step;
+        }
+    }
+
+    static final List<Migration> ALL;
+
+    // 建商品全文检索的步骤；onCreate 建索引失败时这些步骤不记为已执行
+    private static final String MIGRATION_PRODUCTS_FTS = "products_fts";
+    private static final String MIGRATION_PRODUCTS_FTS_NGRAMS = "products_fts_ngrams";
+
+    static {
+        List<Migration> list = new ArrayList<>();
+        list.add(new Migration(2, "base_tables", (db, schema) -> {
+            createTableIfMissing(db, schema, Constants.TABLE_USERS, DbContract.SQL_CREATE_TABLE_USERS);
+            createTableIfMissing(db, schema, Constants.TABLE_PRODUCTS, DbContract.SQL_CREATE_TABLE_PRODUCTS);
+            createTableIfMissing(db, schema, Constants.TABLE_STOCK_TRANSACTIONS, DbContract.SQL_CREATE_TABLE_STOCK_TRANSACTIONS);
+        }));
+        list.add(new Migration(3, "stock_tx_user_role", SchemaMigrations::migrateStockTransactionsUserRole));
+        list.add(new Migration(4, "products_warehouse_stock", (db, schema) -> {
+            addColumnIfMissing(db, schema, Constants.TABLE_PRODUCTS, Constants.COLUMN_WAREHOUSE_STOCK, "INTEGER DEFAULT 0");
+            addColumnIfMissing(db, schema, Constants.TABLE_PRODUCTS, Constants.COLUMN_MIN_WAREHOUSE_STOCK, "INTEGER DEFAULT 0");
+        }));
+        list.add(new Migration(5, "products_dates", (db, schema) -> {
+            addColumnIfMissing(db, schema, Constants.TABLE_PRODUCTS, Constants.COLUMN_PRODUCTION_DATE, "INTEGER");
+            addColumnIfMissing(db, schema, Constants.TABLE_PRODUCTS, Constants.COLUMN_EXPIRATION_DATE, "INTEGER");
+        }));
+        list.add(new Migration(6, "po_status_and_approvals", (db, schema) -> {
+            addColumnIfMissing(db, schema, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_STATUS, "TEXT DEFAULT '" + Constants.PO_STATUS_CREATED + "'");
+            createTableIfMissing(db, schema, Constants.TABLE_PO_APPROVALS, DbContract.SQL_CREATE_TABLE_PO_APPROVALS);
+        }));
+        list.add(new Migration(7, "po_name", (db, schema) -> {
+            if (!schema.hasTable(Constants.TABLE_PURCHASE_ORDERS)) return;
+            addColumnIfMissing(db, schema, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_NAME, "TEXT");
+            // 已有采购单填充默认名称：PO-<id 前 8 位>
+            db.execSQL("UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " + Constants.COLUMN_PO_NAME + " = ('PO-' || substr(" + Constants.COLUMN_PO_ID + ",1,8)) WHERE " + Constants.COLUMN_PO_NAME + " IS NULL OR trim(" + Constants.COLUMN_PO_NAME + ") = ''");
+        }));
+        list.add(new Migration(8, "sales_payment_method", (db, schema) ->
+                addColumnIfMissing(db, schema, Constants.TABLE_SALES, Constants.COLUMN_SALE_PAYMENT_METHOD, "TEXT")));
+        list.add(new Migration(9, "scaffold_tables", (db, schema) -> {
+            // 采购/盘点/销售等模块表：旧库可能缺失
+            createTableIfMissing(db, schema, Constants.TABLE_SUPPLIERS, DbContract.SQL_CREATE_TABLE_SUPPLIERS);
+            createTableIfMissing(db, schema, Constants.TABLE_PURCHASE_ORDERS, DbContract.SQL_CREATE_TABLE_PURCHASE_ORDERS);
+            createTableIfMissing(db, schema, Constants.TABLE_PO_APPROVALS, DbContract.SQL_CREATE_TABLE_PO_APPROVALS);
+            createTableIfMissing(db, schema, Constants.TABLE_PURCHASE_LINES, DbContract.SQL_CREATE_TABLE_PURCHASE_LINES);
+            createTableIfMissing(db, schema, Constants.TABLE_SYSTEM_AUDIT, DbContract.SQL_CREATE_TABLE_SYSTEM_AUDIT);
+            createTableIfMissing(db, schema, Constants.TABLE_STOCK_COUNTS, DbContract.SQL_CREATE_TABLE_STOCK_COUNTS);
+            createTableIfMissing(db, schema, Constants.TABLE_STOCK_COUNT_LINES, DbContract.SQL_CREATE_TABLE_STOCK_COUNT_LINES);
+            createTableIfMissing(db, schema, Constants.TABLE_SALES, DbContract.SQL_CREATE_TABLE_SALES);
+            createTableIfMissing(db, schema, Constants.TABLE_SALE_LINES, DbContract.SQL_CREATE_TABLE_SALE_LINES);
+            createTableIfMissing(db, schema, Constants.TABLE_REFUNDS, DbContract.SQL_CREATE_TABLE_REFUNDS);
+        }));
+        // 历史/小票/采购等外键与时间范围索引，商品键集分页索引
+        list.add(new Migration(10, "access_path_indexes", (db, schema) -> DatabaseHelper.createAccessPathIndexes(db)));
+        // 商品全文检索表与同步触发器，并用现有商品数据构建索引
+        list.add(new Migration(11, MIGRATION_PRODUCTS_FTS, (db, schema) -> requireProductSearchIndex(db)));
+        // 营收汇总表与维护触发器，并用历史销售/退款/采购数据初始化
+        list.add(new Migration(12, "sales_rollups", (db, schema) -> {
+            DatabaseHelper.createSalesRollups(db);
+            SalesRollup.rebuild(db);
+        }));
+        // 采购单创建时间索引
+        list.add(new Migration(13, "po_created_at_index", (db, schema) -> DatabaseHelper.createAccessPathIndexes(db)));
+        // 库存历史索引加入 tx_id（键集分页），删除被取代的旧索引
+        list.add(new Migration(14, "stock_tx_keyset_indexes", (db, schema) -> {
+            for (String sql : DbContract.SQL_DROP_SUPERSEDED_STOCK_TX_INDEXES) db.execSQL(sql);
+            DatabaseHelper.createAccessPathIndexes(db);
+        }));
+        // 原先每次打开数据库都在 onConfigure 里检查的列，改为执行一次
+        list.add(new Migration(15, "legacy_open_time_columns", (db, schema) -> {
+            addColumnIfMissing(db, schema, Constants.TABLE_PRODUCTS, Constants.COLUMN_THUMB_URL, "TEXT");
+            addColumnIfMissing(db, schema, Constants.TABLE_PURCHASE_ORDERS, Constants.COLUMN_PO_NAME, "TEXT");
+            addColumnIfMissing(db, schema, Constants.TABLE_SALES, Constants.COLUMN_SALE_PAYMENT_METHOD, "TEXT");
+            addColumnIfMissing(db, schema, Constants.TABLE_SALES, Constants.COLUMN_SALE_REFUNDED, "INTEGER");
+            addColumnIfMissing(db, schema, Constants.TABLE_SALES, Constants.COLUMN_SALE_REFUNDED_AT, "INTEGER");
+            createTableIfMissing(db, schema, Constants.TABLE_REFUNDS, DbContract.SQL_CREATE_TABLE_REFUNDS);
+        }));
+        // 采购行已收数量（支持分批收货）；已收货的旧采购单视为全部到齐
+        list.add(new Migration(16, "po_lines_received_qty", (db, schema) -> {
+            if (!schema.hasTable(Constants.TABLE_PURCHASE_LINES)
+                    || schema.hasColumn(Constants.TABLE_PURCHASE_LINES, Constants.COLUMN_PO_LINE_RECEIVED_QTY)) return;
+            addColumnIfMissing(db, schema, Constants.TABLE_PURCHASE_LINES, Constants.COLUMN_PO_LINE_RECEIVED_QTY, "INTEGER DEFAULT 0");
+            db.execSQL("UPDATE " + Constants.TABLE_PURCHASE_LINES
+                    + " SET " + Constants.COLUMN_PO_LINE_RECEIVED_QTY + " = " + Constants.COLUMN_PO_LINE_QTY
+                    + " WHERE " + Constants.COLUMN_PO_LINE_PO_ID + " IN (SELECT " + Constants.COLUMN_PO_ID
+                    + " FROM " + Constants.TABLE_PURCHASE_ORDERS
+                    + " WHERE " + Constants.COLUMN_PO_STATUS + " = '" + Constants.PO_STATUS_RECEIVED + "')");
+        }));
+        // 采购单列表改为 SQL 筛选/排序：状态统一为小写、名称和创建时间不为 NULL（键集分页比较不能有 NULL），再建列表索引；
+        // (created_at, po_id) 取代版本 13 的 created_at 单列索引
+        list.add(new Migration(17, "po_list_access_paths", (db, schema) -> {
+            db.execSQL("UPDATE " + Constants.TABLE_PURCHASE_ORDERS
+                    + " SET " + Constants.COLUMN_PO_STATUS + " = LOWER(COALESCE(" + Constants.COLUMN_PO_STATUS + ", '" + Constants.PO_STATUS_CREATED + "')),"
+                    + " " + Constants.COLUMN_PO_NAME + " = COALESCE(" + Constants.COLUMN_PO_NAME + ", ''),"
+                    + " " + Constants.COLUMN_PO_CREATED_AT + " = COALESCE(" + Constants.COLUMN_PO_CREATED_AT + ", 0)"
+                    + " WHERE " + Constants.COLUMN_PO_STATUS + " IS NULL OR " + Constants.COLUMN_PO_STATUS + " <> LOWER(" + Constants.COLUMN_PO_STATUS + ")"
+                    + " OR " + Constants.COLUMN_PO_NAME + " IS NULL OR " + Constants.COLUMN_PO_CREATED_AT + " IS NULL");
+            db.execSQL(DbContract.SQL_DROP_INDEX_PURCHASE_ORDERS_CREATED_AT);
+            DatabaseHelper.createAccessPathIndexes(db);
+        }));
+        // 商品全文检索由 FTS5 trigram 改为 FTS4 + 二元片段：删除旧表和触发器后重建
+        list.add(new Migration(18, MIGRATION_PRODUCTS_FTS_NGRAMS, (db, schema) -> {
+            for (String sql : DbContract.SQL_DROP_PRODUCTS_FTS) db.execSQL(sql);
+            requireProductSearchIndex(db);
+        }));
+        // 商品 name / category 单列索引是键集分页索引的前缀，删除后商品写入少维护两个索引
+        list.add(new Migration(19, "drop_superseded_product_indexes", (db, schema) -> {
+            for (String sql : DbContract.SQL_DROP_SUPERSEDED_PRODUCT_INDEXES) db.execSQL(sql);
+            DatabaseHelper.createAccessPathIndexes(db);
+        }));
+        ALL = Collections.unmodifiableList(list);
+    }
+
+    private SchemaMigrations() {}
+
+    static int latestId() {
+        return ALL.get(ALL.size() - 1).id;
+    }
+
+    /**
+     * 把编号不超过 version 的步骤记为已执行（不实际执行）。
+     * onCreate 建出的是最新结构，传 latestId()；从 FIRST_TRACKED_VERSION 之前的版本升级时传 oldVersion。
+     */
+    static void markAppliedUpTo(SQLiteDatabase db, int version) {
+        db.execSQL(DbContract.SQL_CREATE_TABLE_SCHEMA_MIGRATIONS);
+        SQLiteStatement st = db.compileStatement("INSERT OR IGNORE INTO " + DbContract.TABLE_SCHEMA_MIGRATIONS +
+                " (" + DbContract.COLUMN_MIGRATION_ID + ", " + DbContract.COLUMN_MIGRATION_NAME + ", " + DbContract.COLUMN_MIGRATION_APPLIED_AT + ") VALUES (?, ?, ?)");
+        try {
+            long now = System.currentTimeMillis();
+            for (Migration m : ALL) {
+                if (m.id > version) break;
+                st.bindLong(1, m.id);
+                st.bindString(2, m.name);
+                st.bindLong(3, now);
+                st.executeInsert();
+            }
+        } finally {
+            st.close();
+        }
+    }
+
+    // onCreate 中全文检索建表失败：撤销这些步骤的执行记录，之后打开数据库时重试
+    static void markProductSearchIndexPending(SQLiteDatabase db) {
+        db.delete(DbContract.TABLE_SCHEMA_MIGRATIONS, DbContract.COLUMN_MIGRATION_NAME + " IN (?, ?)",
+                new String[]{MIGRATION_PRODUCTS_FTS, MIGRATION_PRODUCTS_FTS_NGRAMS});
+    }
+
+    private static void requireProductSearchIndex(SQLiteDatabase db) {
+        if (!DatabaseHelper.createProductSearchIndex(db)) throw new Skipped("products_fts could not be created");
+    }
+
+    /**
+     * 执行尚未记录的步骤，返回本次执行成功的步骤数。
+     * 只能在事务外调用（onOpen）：嵌套在外层事务中时，任一步骤回滚都会让整个外层事务回滚，
+     * 之前步骤的执行记录和版本号一起丢失；Android 也不能用 execSQL 执行 ROLLBACK TO 保存点。
+     * 处于事务中时直接返回 0，留到下次打开数据库再执行。
+     */
+    static int runPending(SQLiteDatabase db) {
+        if (db.inTransaction()) {
+            Log.w(TAG, "runPending called inside a transaction, deferred to next open");
+            return 0;
+        }
+        Set<Integer> applied = readApplied(db);
+        List<Migration> pending = new ArrayList<>();
+        for (Migration m : ALL) {
+            if (!applied.contains(m.id)) pending.add(m);
+        }
+        if (pending.isEmpty()) return 0;
+
+        SchemaModel schema = SchemaModel.of(db);
+        int done = 0;
+        for (Migration m : pending) {
+            long start = System.nanoTime();
+            db.beginTransaction();
+            try {
+                m.step.apply(db, schema);
+                SQLiteStatement st = db.compileStatement("INSERT OR REPLACE INTO " + DbContract.TABLE_SCHEMA_MIGRATIONS +
+                        " (" + DbContract.COLUMN_MIGRATION_ID + ", " + DbContract.COLUMN_MIGRATION_NAME + ", " + DbContract.COLUMN_MIGRATION_APPLIED_AT + ") VALUES (?, ?, ?)");
+                try {
+                    st.bindLong(1, m.id);
+                    st.bindString(2, m.name);
+                    st.bindLong(3, System.currentTimeMillis());
+                    st.executeInsert();
+                } finally {
+                    st.close();
+                }
+                db.setTransactionSuccessful();
+                done++;
+                Log.i(TAG, "applied " + m.id + " " + m.name + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+            } catch (Skipped e) {
+                Log.w(TAG, "migration " + m.id + " " + m.name + " skipped, will retry on next open: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "migration " + m.id + " " + m.name + " failed, will retry on next open", e);
+                break;
+            } finally {
+                db.endTransaction();
+                schema.invalidate();
+            }
+        }
+        return done;
+    }
+
+    private static Set<Integer> readApplied(SQLiteDatabase db) {
+        db.execSQL(DbContract.SQL_CREATE_TABLE_SCHEMA_MIGRATIONS);
+        Set<Integer> ids = new HashSet<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT " + DbContract.COLUMN_MIGRATION_ID + " FROM " + DbContract.TABLE_SCHEMA_MIGRATIONS, null);
+            while (c.moveToNext()) ids.add(c.getInt(0));
+        } finally {
+            if (c != null) c.close();
+        }
+        return ids;
+    }
+
+    // ---------- 幂等的结构变更工具 ----------
+
+    // 表不存在时跳过：之后建表的步骤会直接建出带该列的最新结构
+    static void addColumnIfMissing(SQLiteDatabase db, SchemaModel schema, String table, String column, String definition) {
+        if (!schema.hasTable(table) || schema.hasColumn(table, column)) return;
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        schema.invalidate();
+    }
+
+    static void createTableIfMissing(SQLiteDatabase db, SchemaModel schema, String table, String createSql) {
+        if (schema.hasTable(table)) return;
+        db.execSQL(createSql);
+        schema.invalidate();
+    }
+
+    // 版本 3：stock_transactions 增加 user_role / product_name。
+    // 旧表缺列时拷贝到新表，并从 users / products 表回填；已有这两列时只补商品索引。
+    private static void migrateStockTransactionsUserRole(SQLiteDatabase db, SchemaModel schema) {
+        String table = Constants.TABLE_STOCK_TRANSACTIONS;
+        if (!schema.hasTable(table)) {
+            db.execSQL(DbContract.SQL_CREATE_TABLE_STOCK_TRANSACTIONS);
+            schema.invalidate();
+        } else if (!schema.hasColumn(table, Constants.COLUMN_STOCK_TX_USER_ROLE)
+                || !schema.hasColumn(table, Constants.COLUMN_STOCK_TX_PRODUCT_NAME)) {
+            String newTable = table + "_new";
+            db.execSQL("DROP TABLE IF EXISTS " + newTable);
+            db.execSQL("CREATE TABLE " + newTable + " (" +
+                    Constants.COLUMN_STOCK_TX_ID + " TEXT PRIMARY KEY," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_ID + " TEXT NOT NULL," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_NAME + " TEXT," +
+                    Constants.COLUMN_STOCK_TX_USER_ID + " TEXT," +
+                    Constants.COLUMN_STOCK_TX_USER_ROLE + " TEXT," +
+                    Constants.COLUMN_STOCK_TX_TYPE + " TEXT NOT NULL," +
+                    Constants.COLUMN_STOCK_TX_QUANTITY + " INTEGER NOT NULL," +
+                    Constants.COLUMN_STOCK_TX_BEFORE + " INTEGER," +
+                    Constants.COLUMN_STOCK_TX_AFTER + " INTEGER," +
+                    Constants.COLUMN_STOCK_TX_REASON + " TEXT," +
+                    Constants.COLUMN_STOCK_TX_TIMESTAMP + " INTEGER" +
+                    ")");
+            String copyColumns = Constants.COLUMN_STOCK_TX_TYPE + "," +
+                    Constants.COLUMN_STOCK_TX_QUANTITY + "," +
+                    Constants.COLUMN_STOCK_TX_BEFORE + "," +
+                    Constants.COLUMN_STOCK_TX_AFTER + "," +
+                    Constants.COLUMN_STOCK_TX_REASON + "," +
+                    Constants.COLUMN_STOCK_TX_TIMESTAMP;
+            db.execSQL("INSERT INTO " + newTable + " (" +
+                    Constants.COLUMN_STOCK_TX_ID + "," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_NAME + "," +
+                    Constants.COLUMN_STOCK_TX_USER_ID + "," +
+                    Constants.COLUMN_STOCK_TX_USER_ROLE + "," +
+                    copyColumns +
+                    ") SELECT " +
+                    Constants.COLUMN_STOCK_TX_ID + "," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," +
+                    "(SELECT " + Constants.COLUMN_PRODUCT_NAME + " FROM " + Constants.TABLE_PRODUCTS + " p WHERE p." + Constants.COLUMN_PRODUCT_ID + " = " + table + "." + Constants.COLUMN_STOCK_TX_PRODUCT_ID + ")," +
+                    Constants.COLUMN_STOCK_TX_USER_ID + "," +
+                    "(SELECT " + Constants.COLUMN_ROLE + " FROM " + Constants.TABLE_USERS + " u WHERE u." + Constants.COLUMN_USER_ID + " = " + table + "." + Constants.COLUMN_STOCK_TX_USER_ID + ")," +
+                    copyColumns +
+                    " FROM " + table);
+            String oldTemp = table + "_old";
+            db.execSQL("ALTER TABLE " + table + " RENAME TO " + oldTemp);
+            db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + table);
+            db.execSQL("DROP TABLE IF EXISTS " + oldTemp);
+            schema.invalidate();
+        }
+        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_NAME);
+        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_BARCODE);
+        db.execSQL(DbContract.SQL_CREATE_INDEX_PRODUCTS_CATEGORY);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 内存中的表结构模型：表名 -> 列名集合。
+ * 首次查询时从 sqlite_master / PRAGMA table_info 载入一次，之后 DAO 判断“某表/某列是否存在”不再执行 PRAGMA；
+ * 只有迁移步骤（SchemaMigrations）会改变表结构，改完调用 invalidate()，下次查询时重新载入。
+ * 表名、列名按 SQLite 规则不区分大小写。
+ */
+public final class SchemaModel {
+
+    private static final Map<SQLiteDatabase, SchemaModel> INSTANCES = new WeakHashMap<>();
+
+    public static SchemaModel of(SQLiteDatabase db) {
+        synchronized (INSTANCES) {
+            SchemaModel model = INSTANCES.get(db);
+            if (model == null) {
+                model = new SchemaModel(db);
+                INSTANCES.put(db, model);
+            }
+            return model;
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private volatile Map<String, Set<String>> tables;
+
+    private SchemaModel(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public boolean hasTable(String table) {
+        return table != null && snapshot().containsKey(key(table));
+    }
+
+    public boolean hasColumn(String table, String column) {
+        if (table == null || column == null) return false;
+        Set<String> columns = snapshot().get(key(table));
+        return columns != null && columns.contains(key(column));
+    }
+
+    // 表结构变更（迁移、恢复备份）后调用
+    public void invalidate() {
+        synchronized (this) {
+            tables = null;
+        }
+    }
+
+    private Map<String, Set<String>> snapshot() {
+        Map<String, Set<String>> local = tables;
+        if (local == null) {
+            synchronized (this) {
+                local = tables;
+                if (local == null) {
+                    local = load();
+                    tables = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private Map<String, Set<String>> load() {
+        List<String> names = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table'", null);
+            while (c.moveToNext()) names.add(c.getString(0));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+
+        Map<String, Set<String>> map = new HashMap<>();
+        for (String name : names) {
+            Set<String> columns = new HashSet<>();
+            Cursor pc = null;
+            try {
+                // 逐表读取：虚拟表的模块不可用时只影响该表的列信息
+                pc = db.rawQuery("PRAGMA table_info(\"" + name.replace("\"", "\"\"") + "\")", null);
+                int idx = pc.getColumnIndexOrThrow("name");
+                while (pc.moveToNext()) columns.add(key(pc.getString(idx)));
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                if (pc != null) pc.close();
+            }
+            map.put(key(name), Collections.unmodifiableSet(columns));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
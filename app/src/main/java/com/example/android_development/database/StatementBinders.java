@@ -0,0 +1,417 @@
+package com.example.android_development.database;
+
+import android.database.sqlite.SQLiteStatement;
+import com.example.android_development.model.Product;
+import com.example.android_development.model.PurchaseLine;
+import com.example.android_development.model.PurchaseOrder;
+import com.example.android_development.model.RefundRecord;
+import com.example.android_development.model.Sale;
+import com.example.android_development.model.StockCount;
+import com.example.android_development.model.StockTransaction;
+import com.example.android_development.model.User;
+import com.example.android_development.util.Constants;
+
+/**
+ * 写路径使用的 SQL 与对应的类型化绑定器（配合 StatementCache 使用）。
+ * 列顺序与 SQL 中的占位符一一对应，修改任一处时必须同步修改另一处。
+ */
+public final class StatementBinders {
+
+    private StatementBinders() {}
+
+    // ---------- products ----------
+    public static final String SQL_INSERT_PRODUCT =
+            "INSERT INTO " + Constants.TABLE_PRODUCTS + " (" +
+                    Constants.COLUMN_PRODUCT_ID + "," +
+                    Constants.COLUMN_PRODUCT_NAME + "," +
+                    Constants.COLUMN_THUMB_URL + "," +
+                    Constants.COLUMN_CATEGORY + "," +
+                    Constants.COLUMN_BRAND + "," +
+                    Constants.COLUMN_PRICE + "," +
+                    Constants.COLUMN_COST + "," +
+                    Constants.COLUMN_STOCK + "," +
+                    Constants.COLUMN_WAREHOUSE_STOCK + "," +
+                    Constants.COLUMN_MIN_STOCK + "," +
+                    Constants.COLUMN_MIN_WAREHOUSE_STOCK + "," +
+                    Constants.COLUMN_UNIT + "," +
+                    Constants.COLUMN_PRODUCTION_DATE + "," +
+                    Constants.COLUMN_EXPIRATION_DATE + "," +
+                    Constants.COLUMN_BARCODE + "," +
+                    Constants.COLUMN_DESCRIPTION + "," +
+                    Constants.COLUMN_SUPPLIER_ID + "," +
+                    Constants.COLUMN_CREATED_AT + "," +
+                    Constants.COLUMN_UPDATED_AT +
+                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    public static void bindProduct(SQLiteStatement st, Product p) {
+        StatementCache.bindString(st, 1, p.getId());
+        StatementCache.bindString(st, 2, p.getName());
+        StatementCache.bindString(st, 3, p.getThumbUrl());
+        StatementCache.bindString(st, 4, p.getCategory());
+        StatementCache.bindString(st, 5, p.getBrand());
+        st.bindDouble(6, p.getPrice());
+        st.bindDouble(7, p.getCost());
+        st.bindLong(8, p.getStock());
+        st.bindLong(9, p.getWarehouseStock());
+        st.bindLong(10, p.getMinStock());
+        st.bindLong(11, p.getMinWarehouseStock());
+        StatementCache.bindString(st, 12, p.getUnit());
+        st.bindLong(13, p.getProductionDate());
+        st.bindLong(14, p.getExpirationDate());
+        StatementCache.bindString(st, 15, p.getBarcode());
+        StatementCache.bindString(st, 16, p.getDescription());
+        StatementCache.bindString(st, 17, p.getSupplierId());
+        st.bindLong(18, p.getCreatedAt());
+        st.bindLong(19, p.getUpdatedAt());
+    }
+
+    // 同 id 已存在时整行替换（与 insertWithOnConflict(CONFLICT_REPLACE) 一致），绑定同 bindProduct
+    public static final String SQL_REPLACE_PRODUCT = "INSERT OR REPLACE" + SQL_INSERT_PRODUCT.substring("INSERT".length());
+
+    // 按 id 更新商品全部可编辑列：不改 id 和 created_at；thumb_url 传 NULL 时保留原值（与 Product.toContentValues 一致）
+    public static final String SQL_UPDATE_PRODUCT =
+            "UPDATE " + Constants.TABLE_PRODUCTS + " SET " +
+                    Constants.COLUMN_PRODUCT_NAME + " = ?," +
+                    Constants.COLUMN_THUMB_URL + " = COALESCE(?, " + Constants.COLUMN_THUMB_URL + ")," +
+                    Constants.COLUMN_CATEGORY + " = ?," +
+                    Constants.COLUMN_BRAND + " = ?," +
+                    Constants.COLUMN_PRICE + " = ?," +
+                    Constants.COLUMN_COST + " = ?," +
+                    Constants.COLUMN_STOCK + " = ?," +
+                    Constants.COLUMN_WAREHOUSE_STOCK + " = ?," +
+                    Constants.COLUMN_MIN_STOCK + " = ?," +
+                    Constants.COLUMN_MIN_WAREHOUSE_STOCK + " = ?," +
+                    Constants.COLUMN_UNIT + " = ?," +
+                    Constants.COLUMN_PRODUCTION_DATE + " = ?," +
+                    Constants.COLUMN_EXPIRATION_DATE + " = ?," +
+                    Constants.COLUMN_BARCODE + " = ?," +
+                    Constants.COLUMN_DESCRIPTION + " = ?," +
+                    Constants.COLUMN_SUPPLIER_ID + " = ?," +
+                    Constants.COLUMN_UPDATED_AT + " = ?" +
+                    " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    public static void bindProductUpdate(SQLiteStatement st, Product p) {
+        StatementCache.bindString(st, 1, p.getName());
+        StatementCache.bindString(st, 2, p.getThumbUrl());
+        StatementCache.bindString(st, 3, p.getCategory());
+        StatementCache.bindString(st, 4, p.getBrand());
+        st.bindDouble(5, p.getPrice());
+        st.bindDouble(6, p.getCost());
+        st.bindLong(7, p.getStock());
+        st.bindLong(8, p.getWarehouseStock());
+        st.bindLong(9, p.getMinStock());
+        st.bindLong(10, p.getMinWarehouseStock());
+        StatementCache.bindString(st, 11, p.getUnit());
+        st.bindLong(12, p.getProductionDate());
+        st.bindLong(13, p.getExpirationDate());
+        StatementCache.bindString(st, 14, p.getBarcode());
+        StatementCache.bindString(st, 15, p.getDescription());
+        StatementCache.bindString(st, 16, p.getSupplierId());
+        st.bindLong(17, p.getUpdatedAt());
+        StatementCache.bindString(st, 18, p.getId());
+    }
+
+    // 直接设置库存（附带 updated_at）
+    public static final String SQL_SET_SHELF_STOCK =
+            "UPDATE " + Constants.TABLE_PRODUCTS + " SET " + Constants.COLUMN_STOCK + " = ?, " +
+                    Constants.COLUMN_UPDATED_AT + " = ? WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    public static final String SQL_SET_WAREHOUSE_STOCK =
+            "UPDATE " + Constants.TABLE_PRODUCTS + " SET " + Constants.COLUMN_WAREHOUSE_STOCK + " = ?, " +
+                    Constants.COLUMN_UPDATED_AT + " = ? WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    // 库存增量更新（结果不能为负）：delta, updated_at, product_id, delta
+    public static final String SQL_ADD_SHELF_STOCK =
+            "UPDATE " + Constants.TABLE_PRODUCTS + " SET " + Constants.COLUMN_STOCK + " = " + Constants.COLUMN_STOCK + " + ?, " +
+                    Constants.COLUMN_UPDATED_AT + " = ? WHERE " + Constants.COLUMN_PRODUCT_ID + " = ? AND " +
+                    Constants.COLUMN_STOCK + " + ? >= 0";
+
+    public static final String SQL_ADD_WAREHOUSE_STOCK =
+            "UPDATE " + Constants.TABLE_PRODUCTS + " SET " + Constants.COLUMN_WAREHOUSE_STOCK + " = " + Constants.COLUMN_WAREHOUSE_STOCK + " + ?, " +
+                    Constants.COLUMN_UPDATED_AT + " = ? WHERE " + Constants.COLUMN_PRODUCT_ID + " = ? AND " +
+                    Constants.COLUMN_WAREHOUSE_STOCK + " + ? >= 0";
+
+    // 增量更新后读回新值：product_id
+    public static final String SQL_SELECT_SHELF_STOCK =
+            "SELECT " + Constants.COLUMN_STOCK + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    public static final String SQL_SELECT_WAREHOUSE_STOCK =
+            "SELECT " + Constants.COLUMN_WAREHOUSE_STOCK + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    public static final String SQL_SELECT_PRODUCT_NAME =
+            "SELECT " + Constants.COLUMN_PRODUCT_NAME + " FROM " + Constants.TABLE_PRODUCTS + " WHERE " + Constants.COLUMN_PRODUCT_ID + " = ?";
+
+    // ---------- stock_transactions ----------
+    public static final String SQL_INSERT_STOCK_TX =
+            "INSERT INTO " + Constants.TABLE_STOCK_TRANSACTIONS + " (" +
+                    Constants.COLUMN_STOCK_TX_ID + "," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_ID + "," +
+                    Constants.COLUMN_STOCK_TX_PRODUCT_NAME + "," +
+                    Constants.COLUMN_STOCK_TX_USER_ID + "," +
+                    Constants.COLUMN_STOCK_TX_USER_ROLE + "," +
+                    Constants.COLUMN_STOCK_TX_TYPE + "," +
+                    Constants.COLUMN_STOCK_TX_QUANTITY + "," +
+                    Constants.COLUMN_STOCK_TX_BEFORE + "," +
+                    Constants.COLUMN_STOCK_TX_AFTER + "," +
+                    Constants.COLUMN_STOCK_TX_REASON + "," +
+                    Constants.COLUMN_STOCK_TX_TIMESTAMP +
+                    ") VALUES (?,?,?,?,?,?,?,?,?,?,?)";
+
+    public static void bindStockTransaction(SQLiteStatement st, StockTransaction tx) {
+        StatementCache.bindString(st, 1, tx.getId());
+        StatementCache.bindString(st, 2, tx.getProductId());
+        StatementCache.bindString(st, 3, tx.getProductName());
+        StatementCache.bindString(st, 4, tx.getUserId());
+        StatementCache.bindString(st, 5, tx.getUserRole());
+        StatementCache.bindString(st, 6, tx.getType());
+        st.bindLong(7, tx.getQuantity());
+        st.bindLong(8, tx.getStockBefore());
+        st.bindLong(9, tx.getStockAfter());
+        StatementCache.bindString(st, 10, tx.getReason());
+        st.bindLong(11, tx.getTimestamp() == 0 ? System.currentTimeMillis() : tx.getTimestamp());
+    }
+
+    // 便捷方法：直接按字段写一条库存事务（id 为空时自动生成）
+    public static long insertStockTransaction(StatementCache cache, String id, String productId, String productName,
+                                              String userId, String userRole, String type, int quantity,
+                                              int before, int after, String reason, long timestamp) {
+        StockTransaction tx = new StockTransaction();
+        tx.setId(id != null ? id : java.util.UUID.randomUUID().toString());
+        tx.setProductId(productId);
+        tx.setProductName(productName);
+        tx.setUserId(userId);
+        tx.setUserRole(userRole);
+        tx.setType(type);
+        tx.setQuantity(quantity);
+        tx.setStockBefore(before);
+        tx.setStockAfter(after);
+        tx.setReason(reason);
+        tx.setTimestamp(timestamp);
+        return cache.executeInsert(SQL_INSERT_STOCK_TX, st -> bindStockTransaction(st, tx));
+    }
+
+    // ---------- sales / sale_lines ----------
+    public static final String SQL_INSERT_SALE =
+            "INSERT INTO " + Constants.TABLE_SALES + " (" +
+                    Constants.COLUMN_SALE_ID + "," +
+                    Constants.COLUMN_SALE_TOTAL + "," +
+                    Constants.COLUMN_SALE_PAID + "," +
+                    Constants.COLUMN_SALE_PAYMENT_METHOD + "," +
+                    Constants.COLUMN_SALE_USER_ID + "," +
+                    Constants.COLUMN_SALE_TIMESTAMP + "," +
+                    Constants.COLUMN_SALE_REFUNDED + "," +
+                    Constants.COLUMN_SALE_REFUNDED_AT +
+                    ") VALUES (?,?,?,?,?,?,?,?)";
+
+    public static void bindSale(SQLiteStatement st, Sale s) {
+        StatementCache.bindString(st, 1, s.getId());
+        st.bindDouble(2, s.getTotal());
+        st.bindDouble(3, s.getPaid());
+        StatementCache.bindString(st, 4, s.getPaymentMethod());
+        StatementCache.bindString(st, 5, s.getUserId());
+        st.bindLong(6, s.getTimestamp());
+        st.bindLong(7, s.isRefunded() ? 1 : 0);
+        st.bindLong(8, s.getRefundedAt());
+    }
+
+    // ---------- refunds ----------
+    public static final String SQL_INSERT_REFUND =
+            "INSERT INTO " + Constants.TABLE_REFUNDS + " (" +
+                    Constants.COLUMN_REFUND_ID + "," +
+                    Constants.COLUMN_REFUND_SALE_ID + "," +
+                    Constants.COLUMN_REFUND_AMOUNT + "," +
+                    Constants.COLUMN_REFUND_USER_ID + "," +
+                    Constants.COLUMN_REFUND_USER_ROLE + "," +
+                    Constants.COLUMN_REFUND_REASON + "," +
+                    Constants.COLUMN_REFUND_TIMESTAMP +
+                    ") VALUES (?,?,?,?,?,?,?)";
+
+    public static void bindRefund(SQLiteStatement st, RefundRecord r) {
+        StatementCache.bindString(st, 1, r.getId());
+        StatementCache.bindString(st, 2, r.getSaleId());
+        st.bindDouble(3, r.getAmount());
+        StatementCache.bindString(st, 4, r.getUserId());
+        StatementCache.bindString(st, 5, r.getUserRole());
+        StatementCache.bindString(st, 6, r.getReason());
+        st.bindLong(7, r.getTimestamp());
+    }
+
+    public static final String SQL_MARK_SALE_REFUNDED =
+            "UPDATE " + Constants.TABLE_SALES + " SET " + Constants.COLUMN_SALE_REFUNDED + " = 1, " +
+                    Constants.COLUMN_SALE_REFUNDED_AT + " = ? WHERE " + Constants.COLUMN_SALE_ID + " = ?";
+
+    // ---------- users ----------
+    public static final String SQL_INSERT_USER =
+            "INSERT INTO " + Constants.TABLE_USERS + " (" +
+                    Constants.COLUMN_USER_ID + "," +
+                    Constants.COLUMN_USERNAME + "," +
+                    Constants.COLUMN_PASSWORD + "," +
+                    Constants.COLUMN_ROLE + "," +
+                    Constants.COLUMN_FULL_NAME + "," +
+                    Constants.COLUMN_PHONE + "," +
+                    Constants.COLUMN_EMAIL + "," +
+                    Constants.COLUMN_CREATED_AT +
+                    ") VALUES (?,?,?,?,?,?,?,?)";
+
+    // 同 id 已存在时整行替换，绑定同 bindUser
+    public static final String SQL_REPLACE_USER = "INSERT OR REPLACE" + SQL_INSERT_USER.substring("INSERT".length());
+
+    public static void bindUser(SQLiteStatement st, User u) {
+        StatementCache.bindString(st, 1, u.getId());
+        StatementCache.bindString(st, 2, u.getUsername());
+        StatementCache.bindString(st, 3, u.getPassword());
+        StatementCache.bindString(st, 4, u.getRole());
+        StatementCache.bindString(st, 5, u.getFullName());
+        StatementCache.bindString(st, 6, u.getPhone());
+        StatementCache.bindString(st, 7, u.getEmail());
+        st.bindLong(8, u.getCreatedAt());
+    }
+
+    // 按 id 更新用户资料（不改 id 和 created_at）
+    public static final String SQL_UPDATE_USER =
+            "UPDATE " + Constants.TABLE_USERS + " SET " +
+                    Constants.COLUMN_USERNAME + " = ?," +
+                    Constants.COLUMN_PASSWORD + " = ?," +
+                    Constants.COLUMN_ROLE + " = ?," +
+                    Constants.COLUMN_FULL_NAME + " = ?," +
+                    Constants.COLUMN_PHONE + " = ?," +
+                    Constants.COLUMN_EMAIL + " = ?" +
+                    " WHERE " + Constants.COLUMN_USER_ID + " = ?";
+
+    public static void bindUserUpdate(SQLiteStatement st, User u) {
+        StatementCache.bindString(st, 1, u.getUsername());
+        StatementCache.bindString(st, 2, u.getPassword());
+        StatementCache.bindString(st, 3, u.getRole());
+        StatementCache.bindString(st, 4, u.getFullName());
+        StatementCache.bindString(st, 5, u.getPhone());
+        StatementCache.bindString(st, 6, u.getEmail());
+        StatementCache.bindString(st, 7, u.getId());
+    }
+
+    // ---------- purchase_orders / purchase_lines / po_approvals ----------
+    public static final String SQL_INSERT_PURCHASE_ORDER =
+            "INSERT INTO " + Constants.TABLE_PURCHASE_ORDERS + " (" +
+                    Constants.COLUMN_PO_SUPPLIER_ID + "," +
+                    Constants.COLUMN_PO_NAME + "," +
+                    Constants.COLUMN_PO_STATUS + "," +
+                    Constants.COLUMN_PO_CREATED_AT + "," +
+                    Constants.COLUMN_PO_EXPECTED_AT + "," +
+                    Constants.COLUMN_PO_TOTAL + "," +
+                    Constants.COLUMN_PO_ID +
+                    ") VALUES (?,?,?,?,?,?,?)";
+
+    // 按 id 更新采购单；占位符顺序与 SQL_INSERT_PURCHASE_ORDER 相同，两者共用 bindPurchaseOrder
+    public static final String SQL_UPDATE_PURCHASE_ORDER =
+            "UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " +
+                    Constants.COLUMN_PO_SUPPLIER_ID + " = ?," +
+                    Constants.COLUMN_PO_NAME + " = ?," +
+                    Constants.COLUMN_PO_STATUS + " = ?," +
+                    Constants.COLUMN_PO_CREATED_AT + " = ?," +
+                    Constants.COLUMN_PO_EXPECTED_AT + " = ?," +
+                    Constants.COLUMN_PO_TOTAL + " = ?" +
+                    " WHERE " + Constants.COLUMN_PO_ID + " = ?";
+
+    // 名称不写 NULL、状态统一小写（与 PurchaseOrder.toContentValues 一致，列表按名称/状态键集分页）
+    public static void bindPurchaseOrder(SQLiteStatement st, PurchaseOrder po) {
+        StatementCache.bindString(st, 1, po.getSupplierId());
+        st.bindString(2, po.getName() == null ? "" : po.getName());
+        st.bindString(3, po.getStatus() == null ? Constants.PO_STATUS_CREATED : po.getStatus().toLowerCase(java.util.Locale.ROOT));
+        st.bindLong(4, po.getCreatedAt() == 0 ? System.currentTimeMillis() : po.getCreatedAt());
+        st.bindLong(5, po.getExpectedAt());
+        st.bindDouble(6, po.getTotal());
+        StatementCache.bindString(st, 7, po.getId());
+    }
+
+    // 采购单状态迁移：new status, po_id, 允许的旧状态（小写）x2
+    public static final String SQL_UPDATE_PO_STATUS_FROM_2 =
+            "UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " + Constants.COLUMN_PO_STATUS + " = ? WHERE " +
+                    Constants.COLUMN_PO_ID + " = ? AND LOWER(" + Constants.COLUMN_PO_STATUS + ") IN (?, ?)";
+
+    // 同上，允许的旧状态 x4
+    public static final String SQL_UPDATE_PO_STATUS_FROM_4 =
+            "UPDATE " + Constants.TABLE_PURCHASE_ORDERS + " SET " + Constants.COLUMN_PO_STATUS + " = ? WHERE " +
+                    Constants.COLUMN_PO_ID + " = ? AND LOWER(" + Constants.COLUMN_PO_STATUS + ") IN (?, ?, ?, ?)";
+
+    public static final String SQL_INSERT_PURCHASE_LINE =
+            "INSERT INTO " + Constants.TABLE_PURCHASE_LINES + " (" +
+                    Constants.COLUMN_PO_LINE_PO_ID + "," +
+                    Constants.COLUMN_PO_LINE_PRODUCT_ID + "," +
+                    Constants.COLUMN_PO_LINE_SKU + "," +
+                    Constants.COLUMN_PO_LINE_QTY + "," +
+                    Constants.COLUMN_PO_LINE_PRICE + "," +
+                    Constants.COLUMN_PO_LINE_ID +
+                    ") VALUES (?,?,?,?,?,?)";
+
+    // 按 id 更新采购行（不改已收数量）；占位符顺序与 SQL_INSERT_PURCHASE_LINE 相同，两者共用 bindPurchaseLine
+    public static final String SQL_UPDATE_PURCHASE_LINE =
+            "UPDATE " + Constants.TABLE_PURCHASE_LINES + " SET " +
+                    Constants.COLUMN_PO_LINE_PO_ID + " = ?," +
+                    Constants.COLUMN_PO_LINE_PRODUCT_ID + " = ?," +
+                    Constants.COLUMN_PO_LINE_SKU + " = ?," +
+                    Constants.COLUMN_PO_LINE_QTY + " = ?," +
+                    Constants.COLUMN_PO_LINE_PRICE + " = ?" +
+                    " WHERE " + Constants.COLUMN_PO_LINE_ID + " = ?";
+
+    public static void bindPurchaseLine(SQLiteStatement st, PurchaseLine l) {
+        StatementCache.bindString(st, 1, l.getPoId());
+        StatementCache.bindString(st, 2, l.getProductId());
+        StatementCache.bindString(st, 3, l.getSku());
+        st.bindLong(4, l.getQty());
+        st.bindDouble(5, l.getPrice());
+        StatementCache.bindString(st, 6, l.getId());
+    }
+
+    public static final String SQL_INSERT_PO_APPROVAL =
+            "INSERT INTO " + Constants.TABLE_PO_APPROVALS + " (" +
+                    Constants.COLUMN_PO_APPROVAL_ID + "," +
+                    Constants.COLUMN_PO_APPROVAL_PO_ID + "," +
+                    Constants.COLUMN_PO_APPROVAL_APPROVER_ID + "," +
+                    Constants.COLUMN_PO_APPROVAL_APPROVER_ROLE + "," +
+                    Constants.COLUMN_PO_APPROVAL_DECISION + "," +
+                    Constants.COLUMN_PO_APPROVAL_COMMENT + "," +
+                    Constants.COLUMN_PO_APPROVAL_TIMESTAMP +
+                    ") VALUES (?,?,?,?,?,?,?)";
+
+    // 便捷方法：写一条审批/提交记录（id 自动生成）
+    public static long insertPoApproval(StatementCache cache, String poId, String approverId, String approverRole,
+                                        String decision, String comment, long timestamp) {
+        String id = java.util.UUID.randomUUID().toString();
+        return cache.executeInsert(SQL_INSERT_PO_APPROVAL, st -> {
+            st.bindString(1, id);
+            StatementCache.bindString(st, 2, poId);
+            StatementCache.bindString(st, 3, approverId);
+            StatementCache.bindString(st, 4, approverRole);
+            StatementCache.bindString(st, 5, decision);
+            StatementCache.bindString(st, 6, comment);
+            st.bindLong(7, timestamp);
+        });
+    }
+
+    // ---------- stock_counts ----------
+    public static final String SQL_INSERT_STOCK_COUNT =
+            "INSERT INTO " + Constants.TABLE_STOCK_COUNTS + " (" +
+                    Constants.COLUMN_STOCK_COUNT_ID + "," +
+                    Constants.COLUMN_STOCK_COUNT_STATUS + "," +
+                    Constants.COLUMN_STOCK_COUNT_CREATED_BY + "," +
+                    Constants.COLUMN_STOCK_COUNT_CREATED_AT +
+                    ") VALUES (?,?,?,?)";
+
+    public static void bindStockCount(SQLiteStatement st, StockCount sc) {
+        StatementCache.bindString(st, 1, sc.getId());
+        StatementCache.bindString(st, 2, sc.getStatus());
+        StatementCache.bindString(st, 3, sc.getCreatedBy());
+        st.bindLong(4, sc.getCreatedAt() == 0 ? System.currentTimeMillis() : sc.getCreatedAt());
+    }
+
+    // ---------- system_audit ----------
+    public static final String SQL_INSERT_SYSTEM_AUDIT =
+            "INSERT INTO " + Constants.TABLE_SYSTEM_AUDIT + " (" +
+                    Constants.COLUMN_SYSTEM_AUDIT_ID + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_USER_ID + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_USER_ROLE + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_ENTITY + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_ACTION + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_DETAIL + "," +
+                    Constants.COLUMN_SYSTEM_AUDIT_TIMESTAMP +
+                    ") VALUES (?,?,?,?,?,?,?)";
+}
@@ -0,0 +1,122 @@
+package com.example.android_development.database;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 预编译语句缓存：同一条 SQL 只编译一次，之后直接绑定参数执行，
+ * 避免热点写路径（销售行、库存调整、库存事务、审计）每次都构造 ContentValues 并重新编译。
+ * 缓存按 SQLiteDatabase 实例区分，并且每个线程各持一份语句：语句对象不跨线程共享，执行时也不持有任何锁，
+ * 避免一个线程持锁等待主连接、而持有主连接的写线程又在等同一把锁造成死锁。
+ * 语句对象本身不占用连接（每次执行时才从连接池取连接），按线程缓存只是多几个 Java 对象。
+ */
+public final class StatementCache {
+
+    /** 向预编译语句绑定参数（参数下标从 1 开始） */
+    public interface Binder {
+        void bind(SQLiteStatement st);
+    }
+
+    private static final Map<SQLiteDatabase, StatementCache> CACHES = new WeakHashMap<>();
+
+    // 单个线程的语句；generation 落后于 clear() 时整体丢弃重建
+    private static final class PerThread {
+        int generation;
+        final Map<String, SQLiteStatement> statements = new HashMap<>();
+    }
+
+    private final SQLiteDatabase db;
+    private final ThreadLocal<PerThread> local = ThreadLocal.withInitial(PerThread::new);
+    private volatile int generation;
+
+    private StatementCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    public static StatementCache of(SQLiteDatabase db) {
+        synchronized (CACHES) {
+            StatementCache cache = CACHES.get(db);
+            if (cache == null) {
+                cache = new StatementCache(db);
+                CACHES.put(db, cache);
+            }
+            return cache;
+        }
+    }
+
+    // 取得（必要时编译）语句；编译失败（如缺列）时抛出 SQLException，且不会被缓存
+    // 返回的语句只能在当前线程使用
+    public SQLiteStatement acquire(String sql) {
+        PerThread t = local.get();
+        if (t.generation != generation) {
+            closeAll(t.statements);
+            t.generation = generation;
+        }
+        SQLiteStatement st = t.statements.get(sql);
+        if (st == null) {
+            st = db.compileStatement(sql);
+            t.statements.put(sql, st);
+        }
+        return st;
+    }
+
+    // 与 SQLiteDatabase.insert 语义一致：成功返回 rowId，失败（约束冲突/缺列等）返回 -1
+    public long executeInsert(String sql, Binder binder) {
+        try {
+            SQLiteStatement st = acquire(sql);
+            st.clearBindings();
+            binder.bind(st);
+            return st.executeInsert();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // 与 SQLiteDatabase.update 语义一致：返回受影响行数，异常向上抛出
+    public int executeUpdateDelete(String sql, Binder binder) {
+        SQLiteStatement st = acquire(sql);
+        st.clearBindings();
+        binder.bind(st);
+        return st.executeUpdateDelete();
+    }
+
+    // 单值查询（SELECT 一行一列）；没有结果行时抛出 SQLiteDoneException
+    public long simpleQueryForLong(String sql, Binder binder) {
+        SQLiteStatement st = acquire(sql);
+        st.clearBindings();
+        binder.bind(st);
+        return st.simpleQueryForLong();
+    }
+
+    public String simpleQueryForString(String sql, Binder binder) {
+        SQLiteStatement st = acquire(sql);
+        st.clearBindings();
+        binder.bind(st);
+        return st.simpleQueryForString();
+    }
+
+    // 丢弃已编译语句（例如表结构变化后）：当前线程立即关闭，其它线程在下次取语句时关闭重建
+    public void clear() {
+        generation++;
+        PerThread t = local.get();
+        closeAll(t.statements);
+        t.generation = generation;
+    }
+
+    private static void closeAll(Map<String, SQLiteStatement> statements) {
+        for (SQLiteStatement st : statements.values()) {
+            try { st.close(); } catch (Exception ignored) {}
+        }
+        statements.clear();
+    }
+
+    // SQLiteStatement.bindString 不接受 null，统一在这里处理
+    public static void bindString(SQLiteStatement st, int index, String value) {
+        if (value == null) st.bindNull(index); else st.bindString(index, value);
+    }
+}
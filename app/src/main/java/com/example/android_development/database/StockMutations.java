@@ -0,0 +1,144 @@
+package com.example.android_development.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import com.example.android_development.util.DaoResult;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存增量修改：一条条件 UPDATE（stock = stock + delta，且结果不为负）完成检查与修改，
+ * 再在同一事务内读回新值得到修改前后的库存。
+ * 取代原来的 读取 -> 计算 -> 比较旧值更新：并发收银时不会因比较旧值失败而误报销售失败。
+ * 修改失败（商品不存在或库存不足）时返回 false / null，原因写入 DaoResult；
+ * 在调用方的事务中执行时，失败后应由调用方放弃整个事务。
+ */
+public final class StockMutations {
+
+    public static final int SHELF = 0;
+    public static final int WAREHOUSE = 1;
+
+    private StockMutations() {}
+
+    // 一次库存修改：请求时给出商品、位置和增量，成功后填入修改前后的库存
+    public static final class Change {
+        public final String productId;
+        public final int location;
+        public final int delta;
+        public int before;
+        public int after;
+
+        public Change(String productId, int location, int delta) {
+            this.productId = productId;
+            this.location = location;
+            this.delta = delta;
+        }
+    }
+
+    public static Change shelf(String productId, int delta) {
+        return new Change(productId, SHELF, delta);
+    }
+
+    public static Change warehouse(String productId, int delta) {
+        return new Change(productId, WAREHOUSE, delta);
+    }
+
+    // 单个商品的库存修改；成功时填充 change.before / change.after
+    public static boolean apply(SQLiteDatabase db, Change change) {
+        if (change == null || change.productId == null) return false;
+        boolean localTxStarted = false;
+        boolean committed = false;
+        try {
+            if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
+            if (!applyInTransaction(db, change)) return false;
+            if (localTxStarted) { db.setTransactionSuccessful(); committed = true; }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            DaoResult.setError(DaoResult.ERR_UNKNOWN, e.getMessage());
+            return false;
+        } finally {
+            if (localTxStarted) {
+                try { db.endTransaction(); } catch (Exception ignored) {}
+                CatalogChanges.transactionEnded(db, committed);
+            }
+        }
+    }
+
+    /**
+     * 多个商品的库存修改：同一商品同一位置的增量先合并，再逐个执行；全部成功或全部不生效。
+     * 返回合并后的修改（按首次出现的顺序），任一商品失败时返回 null。
+     */
+    public static List<Change> applyAll(SQLiteDatabase db, List<Change> changes) {
+        List<Change> merged = merge(changes);
+        boolean localTxStarted = false;
+        boolean committed = false;
+        try {
+            if (!db.inTransaction()) { db.beginTransaction(); localTxStarted = true; }
+            for (Change c : merged) {
+                if (!applyInTransaction(db, c)) return null;
+            }
+            if (localTxStarted) { db.setTransactionSuccessful(); committed = true; }
+            return merged;
+        } catch (Exception e) {
+            e.printStackTrace();
+            DaoResult.setError(DaoResult.ERR_UNKNOWN, e.getMessage());
+            return null;
+        } finally {
+            if (localTxStarted) {
+                try { db.endTransaction(); } catch (Exception ignored) {}
+                CatalogChanges.transactionEnded(db, committed);
+            }
+        }
+    }
+
+    // 合并同一 (商品, 位置) 的增量；增量为 0 的项保留，以便调用方仍能得到当前库存
+    static List<Change> merge(List<Change> changes) {
+        Map<String, int[]> totals = new LinkedHashMap<>();
+        if (changes != null) {
+            for (Change c : changes) {
+                if (c == null || c.productId == null) continue;
+                String key = c.location + ":" + c.productId;
+                int[] t = totals.get(key);
+                if (t == null) totals.put(key, new int[]{c.location, c.delta});
+                else t[1] += c.delta;
+            }
+        }
+        List<Change> merged = new ArrayList<>(totals.size());
+        for (Map.Entry<String, int[]> e : totals.entrySet()) {
+            String productId = e.getKey().substring(e.getKey().indexOf(':') + 1);
+            merged.add(new Change(productId, e.getValue()[0], e.getValue()[1]));
+        }
+        return merged;
+    }
+
+    // 需在事务中调用（保证 UPDATE 与读回之间没有其他写入）；缓存失效在最外层事务提交后生效
+    private static boolean applyInTransaction(SQLiteDatabase db, Change change) {
+        StatementCache cache = StatementCache.of(db);
+        boolean shelf = change.location == SHELF;
+        long now = System.currentTimeMillis();
+        int rows = cache.executeUpdateDelete(shelf ? StatementBinders.SQL_ADD_SHELF_STOCK : StatementBinders.SQL_ADD_WAREHOUSE_STOCK, st -> {
+            st.bindLong(1, change.delta);
+            st.bindLong(2, now);
+            st.bindString(3, change.productId);
+            st.bindLong(4, change.delta);
+        });
+        String selectSql = shelf ? StatementBinders.SQL_SELECT_SHELF_STOCK : StatementBinders.SQL_SELECT_WAREHOUSE_STOCK;
+        if (rows == 0) {
+            try {
+                cache.simpleQueryForLong(selectSql, st -> st.bindString(1, change.productId));
+                DaoResult.setError(DaoResult.ERR_CONFLICT, "insufficient " + (shelf ? "shelf" : "warehouse") + " stock: " + change.productId);
+            } catch (SQLiteDoneException notFound) {
+                DaoResult.setError(DaoResult.ERR_NOT_FOUND, "product not found: " + change.productId);
+            }
+            return false;
+        }
+        change.after = (int) cache.simpleQueryForLong(selectSql, st -> st.bindString(1, change.productId));
+        change.before = change.after - change.delta;
+        if (shelf) CatalogChanges.stockChanged(db, change.productId);
+        else CatalogChanges.warehouseStockChanged(db, change.productId);
+        return true;
+    }
+}
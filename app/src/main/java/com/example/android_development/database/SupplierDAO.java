@@ -2,6 +2,7 @@ package com.example.android_development.database;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.model.CursorMapper;
 import com.example.android_development.model.Supplier;
 import com.example.android_development.util.Constants;
 import java.util.ArrayList;
@@ -15,7 +16,8 @@ public class SupplierDAO {
         List<Supplier> list = new ArrayList<>();
         Cursor c = db.query(Constants.TABLE_SUPPLIERS, null, null, null, null, null, null);
         if (c != null && c.moveToFirst()) {
-            do { list.add(Supplier.fromCursor(c)); } while (c.moveToNext());
+            CursorMapper<Supplier> mapper = Supplier.mapper(c);
+            do { list.add(mapper.map(c)); } while (c.moveToNext());
             c.close();
         }
         return list;
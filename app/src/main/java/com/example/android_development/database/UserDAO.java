@@ -1,7 +1,6 @@
 package com.example.android_development.database;
 
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import com.example.android_development.model.User;
@@ -18,29 +17,20 @@ public class UserDAO {
 
     // 打开数据库连接
     public void open() {
-        db = dbHelper.getWritableDatabase();
+        if (db == null) db = dbHelper.getWritableDatabase();
     }
 
-    // 关闭数据库连接
+    // 连接由 AppDatabase 在进程内共享，这里不再真正关闭（保留方法以兼容旧调用）
     public void close() {
-        if (db != null && db.isOpen()) {
-            db.close();
-        }
     }
 
     // 添加用户
     public long addUser(User user) {
-        ContentValues values = new ContentValues();
-        values.put(Constants.COLUMN_USER_ID, user.getId());
-        values.put(Constants.COLUMN_USERNAME, user.getUsername());
-        values.put(Constants.COLUMN_PASSWORD, user.getPassword()); // 注意：实际应用中密码应该加密
-        values.put(Constants.COLUMN_ROLE, user.getRole());
-        values.put(Constants.COLUMN_FULL_NAME, user.getFullName());
-        values.put(Constants.COLUMN_PHONE, user.getPhone());
-        values.put(Constants.COLUMN_EMAIL, user.getEmail());
-        values.put(Constants.COLUMN_CREATED_AT, user.getCreatedAt());
-
-        return db.insert(Constants.TABLE_USERS, null, values);
+        // 注意：实际应用中密码应该加密
+        long res = StatementCache.of(db).executeInsert(StatementBinders.SQL_INSERT_USER,
+                st -> StatementBinders.bindUser(st, user));
+        if (res != -1) UserDirectory.of(db).invalidate();
+        return res;
     }
 
     // 根据用户名和密码验证用户
@@ -0,0 +1,105 @@
+package com.example.android_development.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.util.Constants;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 用户 id -> 显示名 的内存目录：首次使用时一次查询载入全部用户，用户新增/修改/删除后整体失效。
+ * 列表页（库存历史、小票）优先用 JOIN 投影在同一条查询里带出显示名（列名 Constants.COLUMN_USER_DISPLAY_NAME）；
+ * 其他只持有 userId 的地方用 displayName() 查表，不再每行查一次 users。
+ * 显示名规则与原页面一致：全名非空用全名，否则用用户名。
+ */
+public final class UserDirectory {
+
+    private static final Map<SQLiteDatabase, UserDirectory> INSTANCES = new WeakHashMap<>();
+
+    public static UserDirectory of(SQLiteDatabase db) {
+        synchronized (INSTANCES) {
+            UserDirectory dir = INSTANCES.get(db);
+            if (dir == null) {
+                dir = new UserDirectory(db);
+                INSTANCES.put(db, dir);
+            }
+            return dir;
+        }
+    }
+
+    /**
+     * 显示名表达式，alias 为 users 表在查询中的别名，例如：
+     * SELECT st.*, displayNameSql("u") AS user_display_name FROM stock_transactions st LEFT JOIN users u ON ...
+     */
+    static String displayNameSql(String alias) {
+        return "COALESCE(NULLIF(" + alias + "." + Constants.COLUMN_FULL_NAME + ", ''), NULLIF(" + alias + "." + Constants.COLUMN_USERNAME + ", ''))";
+    }
+
+    // LEFT JOIN users 子句：userIdExpr 为主表中的用户 id 列（带别名）
+    static String joinUsers(String alias, String userIdExpr) {
+        return " LEFT JOIN " + Constants.TABLE_USERS + " " + alias + " ON " + alias + "." + Constants.COLUMN_USER_ID + " = " + userIdExpr;
+    }
+
+    private final SQLiteDatabase db;
+    private volatile Map<String, String> names;
+
+    private UserDirectory(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    // 返回显示名；用户不存在时返回 null
+    public String displayName(String userId) {
+        if (userId == null || userId.isEmpty()) return null;
+        return snapshot().get(userId);
+    }
+
+    public String displayName(String userId, String fallback) {
+        String name = displayName(userId);
+        return name != null ? name : fallback;
+    }
+
+    // 预先载入显示名（启动预热流程调用）
+    public void preload() {
+        snapshot();
+    }
+
+    private Map<String, String> snapshot() {
+        Map<String, String> local = names;
+        if (local == null) {
+            synchronized (this) {
+                local = names;
+                if (local == null) {
+                    local = load();
+                    // 事务中可能读到未提交的用户，不缓存
+                    if (!db.inTransaction()) names = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    private Map<String, String> load() {
+        Map<String, String> map = new HashMap<>();
+        Cursor c = null;
+        try {
+            c = db.rawQuery("SELECT " + Constants.COLUMN_USER_ID + ", " + displayNameSql(Constants.TABLE_USERS) +
+                    " FROM " + Constants.TABLE_USERS, null);
+            while (c.moveToNext()) {
+                if (!c.isNull(1)) map.put(c.getString(0), c.getString(1));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (c != null) c.close();
+        }
+        return map;
+    }
+
+    // 用户写入后调用，下次查询时重新载入
+    public void invalidate() {
+        synchronized (this) {
+            names = null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android_development.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 结账结果：成功时 rowId 为销售记录的 rowId；
+ * 失败时 failures 列出每个无法出售的销售行（整单不写入任何数据）。
+ */
+public class CheckoutResult {
+
+    public static final String REASON_NOT_FOUND = "not_found";
+    public static final String REASON_INSUFFICIENT_STOCK = "insufficient_stock";
+    public static final String REASON_INVALID_QTY = "invalid_qty";
+    // 写入时出错或更新行数与预期不符（并发修改等），整单已回滚，可重试
+    public static final String REASON_INTERNAL = "internal";
+
+    // 单个销售行的失败原因（同一商品的多行合并后报告一次，lineIndex 为该商品第一次出现的行号）
+    public static class LineFailure {
+        private final int lineIndex;
+        private final String productId;
+        private final String productName;
+        private final int requested;
+        private final int available;
+        private final String reason;
+
+        public LineFailure(int lineIndex, String productId, String productName, int requested, int available, String reason) {
+            this.lineIndex = lineIndex;
+            this.productId = productId;
+            this.productName = productName;
+            this.requested = requested;
+            this.available = available;
+            this.reason = reason;
+        }
+
+        public int getLineIndex() { return lineIndex; }
+        public String getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public int getRequested() { return requested; }
+        public int getAvailable() { return available; }
+        public String getReason() { return reason; }
+    }
+
+    private long rowId = -1;
+    private final List<LineFailure> failures = new ArrayList<>();
+
+    public long getRowId() { return rowId; }
+    public void setRowId(long rowId) { this.rowId = rowId; }
+
+    public List<LineFailure> getFailures() { return failures; }
+    public void addFailure(LineFailure f) { failures.add(f); }
+
+    public boolean isSuccess() { return rowId != -1 && failures.isEmpty(); }
+}
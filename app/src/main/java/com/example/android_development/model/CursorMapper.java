@@ -0,0 +1,13 @@
+package com.example.android_development.model;
+
+import android.database.Cursor;
+
+/**
+ * Cursor 行 -> 模型对象 的映射器。
+ * 实现类在构造时按列名解析一次列下标（查询未投影的列记为 -1，映射时直接跳过），
+ * 之后每行只做按下标的基本类型读取；同一个 Cursor 的所有行应复用同一个映射器，例如：
+ * CursorMapper<Product> m = Product.mapper(c); while (c.moveToNext()) list.add(m.map(c));
+ */
+public interface CursorMapper<T> {
+    T map(Cursor c);
+}
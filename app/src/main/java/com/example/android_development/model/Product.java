@@ -31,6 +31,9 @@ public class Product {
         this.updatedAt = System.currentTimeMillis();
     }
 
+    // 游标映射用：时间戳随后从行里读出，不再取系统时间
+    private Product(boolean fromRow) {}
+
     public Product(String id, String name, double price, int stock) {
         this.id = id;
         this.name = name;
@@ -40,6 +43,29 @@ public class Product {
         this.updatedAt = System.currentTimeMillis();
     }
 
+    // 复制构造（缓存返回副本用）
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.category = other.category;
+        this.brand = other.brand;
+        this.price = other.price;
+        this.cost = other.cost;
+        this.stock = other.stock;
+        this.warehouseStock = other.warehouseStock;
+        this.minStock = other.minStock;
+        this.minWarehouseStock = other.minWarehouseStock;
+        this.unit = other.unit;
+        this.productionDate = other.productionDate;
+        this.expirationDate = other.expirationDate;
+        this.barcode = other.barcode;
+        this.description = other.description;
+        this.thumbUrl = other.thumbUrl;
+        this.supplierId = other.supplierId;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Getter和Setter方法
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -160,31 +186,68 @@ public class Product {
         return ((price - cost) / cost) * 100;
     }
 
-    // 转换：从 Cursor 创建对象
+    // 转换：从 Cursor 创建对象（单行用；多行请复用 mapper(c)）
     public static Product fromCursor(Cursor c) {
         if (c == null) return null;
-        Product p = new Product();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_PRODUCT_ID); if (idx != -1) p.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PRODUCT_NAME); if (idx != -1) p.setName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_CATEGORY); if (idx != -1) p.setCategory(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_BRAND); if (idx != -1) p.setBrand(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PRICE); if (idx != -1) p.setPrice(c.getDouble(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_COST); if (idx != -1) p.setCost(c.getDouble(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK); if (idx != -1) p.setStock(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_WAREHOUSE_STOCK); if (idx != -1) p.setWarehouseStock(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_MIN_STOCK); if (idx != -1) p.setMinStock(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_MIN_WAREHOUSE_STOCK); if (idx != -1) p.setMinWarehouseStock(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_UNIT); if (idx != -1) p.setUnit(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PRODUCTION_DATE); if (idx != -1) p.setProductionDate(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_EXPIRATION_DATE); if (idx != -1) p.setExpirationDate(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_BARCODE); if (idx != -1) p.setBarcode(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_DESCRIPTION); if (idx != -1) p.setDescription(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_THUMB_URL); if (idx != -1) p.setThumbUrl(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_ID); if (idx != -1) p.setSupplierId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_CREATED_AT); if (idx != -1) p.setCreatedAt(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_UPDATED_AT); if (idx != -1) p.setUpdatedAt(c.getLong(idx));
-        return p;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<Product> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    // 直接写字段：setter 每次都会取系统时间刷新 updatedAt
+    private static final class Mapper implements CursorMapper<Product> {
+        private final int id, name, category, brand, price, cost, stock, warehouseStock, minStock, minWarehouseStock,
+                unit, productionDate, expirationDate, barcode, description, thumbUrl, supplierId, createdAt, updatedAt;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_PRODUCT_ID);
+            name = c.getColumnIndex(Constants.COLUMN_PRODUCT_NAME);
+            category = c.getColumnIndex(Constants.COLUMN_CATEGORY);
+            brand = c.getColumnIndex(Constants.COLUMN_BRAND);
+            price = c.getColumnIndex(Constants.COLUMN_PRICE);
+            cost = c.getColumnIndex(Constants.COLUMN_COST);
+            stock = c.getColumnIndex(Constants.COLUMN_STOCK);
+            warehouseStock = c.getColumnIndex(Constants.COLUMN_WAREHOUSE_STOCK);
+            minStock = c.getColumnIndex(Constants.COLUMN_MIN_STOCK);
+            minWarehouseStock = c.getColumnIndex(Constants.COLUMN_MIN_WAREHOUSE_STOCK);
+            unit = c.getColumnIndex(Constants.COLUMN_UNIT);
+            productionDate = c.getColumnIndex(Constants.COLUMN_PRODUCTION_DATE);
+            expirationDate = c.getColumnIndex(Constants.COLUMN_EXPIRATION_DATE);
+            barcode = c.getColumnIndex(Constants.COLUMN_BARCODE);
+            description = c.getColumnIndex(Constants.COLUMN_DESCRIPTION);
+            thumbUrl = c.getColumnIndex(Constants.COLUMN_THUMB_URL);
+            supplierId = c.getColumnIndex(Constants.COLUMN_SUPPLIER_ID);
+            createdAt = c.getColumnIndex(Constants.COLUMN_CREATED_AT);
+            updatedAt = c.getColumnIndex(Constants.COLUMN_UPDATED_AT);
+        }
+
+        @Override
+        public Product map(Cursor c) {
+            Product p = new Product(true);
+            if (id != -1) p.id = c.getString(id);
+            if (name != -1) p.name = c.getString(name);
+            if (category != -1) p.category = c.getString(category);
+            if (brand != -1) p.brand = c.getString(brand);
+            if (price != -1) p.price = c.getDouble(price);
+            if (cost != -1) p.cost = c.getDouble(cost);
+            if (stock != -1) p.stock = c.getInt(stock);
+            if (warehouseStock != -1) p.warehouseStock = c.getInt(warehouseStock);
+            if (minStock != -1) p.minStock = c.getInt(minStock);
+            if (minWarehouseStock != -1) p.minWarehouseStock = c.getInt(minWarehouseStock);
+            if (unit != -1) p.unit = c.getString(unit);
+            if (productionDate != -1) p.productionDate = c.getLong(productionDate);
+            if (expirationDate != -1) p.expirationDate = c.getLong(expirationDate);
+            if (barcode != -1) p.barcode = c.getString(barcode);
+            if (description != -1) p.description = c.getString(description);
+            if (thumbUrl != -1) p.thumbUrl = c.getString(thumbUrl);
+            if (supplierId != -1) p.supplierId = c.getString(supplierId);
+            if (createdAt != -1) p.createdAt = c.getLong(createdAt);
+            if (updatedAt != -1) p.updatedAt = c.getLong(updatedAt);
+            return p;
+        }
     }
 
     // 转换：对象 -> ContentValues
@@ -0,0 +1,41 @@
+package com.example.android_development.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品分页结果（键集分页）。
+ * nextToken 记录本页最后一行的 (name, product_id)，作为下一页的起点传回 DAO；
+ * 为 null 表示没有下一页。调用方应将 token 视为不透明字符串。
+ */
+public class ProductPage {
+
+    // 名称中不会出现的分隔符
+    private static final char TOKEN_SEPARATOR = '\u0001';
+
+    private final List<Product> items;
+    private final String nextToken;
+
+    public ProductPage(List<Product> items, String nextToken) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextToken = nextToken;
+    }
+
+    public List<Product> getItems() { return items; }
+
+    public String getNextToken() { return nextToken; }
+
+    public boolean hasMore() { return nextToken != null; }
+
+    public static String encodeToken(String name, String productId) {
+        return (name == null ? "" : name) + TOKEN_SEPARATOR + (productId == null ? "" : productId);
+    }
+
+    // 返回 {name, productId}；token 非法时返回 null（按第一页处理）
+    public static String[] decodeToken(String token) {
+        if (token == null) return null;
+        int idx = token.indexOf(TOKEN_SEPARATOR);
+        if (idx < 0) return null;
+        return new String[]{token.substring(0, idx), token.substring(idx + 1)};
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.android_development.model;
+
+import android.database.Cursor;
+import com.example.android_development.util.Constants;
+
+/**
+ * 商品列表/候选用的精简行：只含列表项显示和低库存判断所需的列。
+ * 列表查询只投影 COLUMNS，不再读取描述、日期、成本等大字段；完整的 Product 只在详情/编辑页按 id 加载。
+ * 对象不可变，缓存可直接共享同一实例。
+ */
+public final class ProductSummary {
+
+    public static final String[] COLUMNS = {
+            Constants.COLUMN_PRODUCT_ID,
+            Constants.COLUMN_PRODUCT_NAME,
+            Constants.COLUMN_CATEGORY,
+            Constants.COLUMN_PRICE,
+            Constants.COLUMN_STOCK,
+            Constants.COLUMN_WAREHOUSE_STOCK,
+            Constants.COLUMN_MIN_STOCK,
+            Constants.COLUMN_MIN_WAREHOUSE_STOCK,
+            Constants.COLUMN_THUMB_URL
+    };
+
+    private final String id;
+    private final String name;
+    private final String category;
+    private final double price;
+    private final int stock;
+    private final int warehouseStock;
+    private final int minStock;
+    private final int minWarehouseStock;
+    private final String thumbUrl;
+
+    public ProductSummary(String id, String name, String category, double price, int stock, int warehouseStock,
+                          int minStock, int minWarehouseStock, String thumbUrl) {
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.price = price;
+        this.stock = stock;
+        this.warehouseStock = warehouseStock;
+        this.minStock = minStock;
+        this.minWarehouseStock = minWarehouseStock;
+        this.thumbUrl = thumbUrl;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public String getCategory() { return category; }
+    public double getPrice() { return price; }
+    public int getStock() { return stock; }
+    public int getWarehouseStock() { return warehouseStock; }
+    public int getMinStock() { return minStock; }
+    public int getMinWarehouseStock() { return minWarehouseStock; }
+    public String getThumbUrl() { return thumbUrl; }
+
+    public boolean isLowStock() {
+        return minStock > 0 && stock <= minStock;
+    }
+
+    public static CursorMapper<ProductSummary> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<ProductSummary> {
+        private final int id, name, category, price, stock, warehouseStock, minStock, minWarehouseStock, thumbUrl;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_PRODUCT_ID);
+            name = c.getColumnIndex(Constants.COLUMN_PRODUCT_NAME);
+            category = c.getColumnIndex(Constants.COLUMN_CATEGORY);
+            price = c.getColumnIndex(Constants.COLUMN_PRICE);
+            stock = c.getColumnIndex(Constants.COLUMN_STOCK);
+            warehouseStock = c.getColumnIndex(Constants.COLUMN_WAREHOUSE_STOCK);
+            minStock = c.getColumnIndex(Constants.COLUMN_MIN_STOCK);
+            minWarehouseStock = c.getColumnIndex(Constants.COLUMN_MIN_WAREHOUSE_STOCK);
+            thumbUrl = c.getColumnIndex(Constants.COLUMN_THUMB_URL);
+        }
+
+        @Override
+        public ProductSummary map(Cursor c) {
+            return new ProductSummary(
+                    id != -1 ? c.getString(id) : null,
+                    name != -1 ? c.getString(name) : null,
+                    category != -1 ? c.getString(category) : null,
+                    price != -1 ? c.getDouble(price) : 0,
+                    stock != -1 ? c.getInt(stock) : 0,
+                    warehouseStock != -1 ? c.getInt(warehouseStock) : 0,
+                    minStock != -1 ? c.getInt(minStock) : 0,
+                    minWarehouseStock != -1 ? c.getInt(minWarehouseStock) : 0,
+                    thumbUrl != -1 ? c.getString(thumbUrl) : null);
+        }
+    }
+}
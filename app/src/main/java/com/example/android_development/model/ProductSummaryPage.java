@@ -0,0 +1,24 @@
+package com.example.android_development.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 精简商品行的分页结果，token 格式与 ProductPage 相同（见 ProductPage.encodeToken）。
+ */
+public class ProductSummaryPage {
+
+    private final List<ProductSummary> items;
+    private final String nextToken;
+
+    public ProductSummaryPage(List<ProductSummary> items, String nextToken) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextToken = nextToken;
+    }
+
+    public List<ProductSummary> getItems() { return items; }
+
+    public String getNextToken() { return nextToken; }
+
+    public boolean hasMore() { return nextToken != null; }
+}
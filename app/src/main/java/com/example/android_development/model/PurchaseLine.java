@@ -11,6 +11,8 @@ public class PurchaseLine {
     private String sku;
     private int qty;
     private double price;
+    // 已收数量，只由收货流程写入（不在 toContentValues 中）
+    private int receivedQty;
 
     public PurchaseLine() {}
 
@@ -26,6 +28,10 @@ public class PurchaseLine {
     public void setQty(int qty) { this.qty = qty; }
     public double getPrice() { return price; }
     public void setPrice(double price) { this.price = price; }
+    public int getReceivedQty() { return receivedQty; }
+    public void setReceivedQty(int receivedQty) { this.receivedQty = receivedQty; }
+    // 尚未收货的数量
+    public int getOutstandingQty() { return Math.max(0, qty - receivedQty); }
 
     public ContentValues toContentValues() {
         ContentValues v = new ContentValues();
@@ -41,20 +47,38 @@ public class PurchaseLine {
 
     public static PurchaseLine fromCursor(Cursor c) {
         if (c == null) return null;
-        PurchaseLine l = new PurchaseLine();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_ID);
-        if (idx != -1) l.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_PO_ID);
-        if (idx != -1) l.setPoId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_PRODUCT_ID);
-        if (idx != -1) l.setProductId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_SKU);
-        if (idx != -1) l.setSku(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_QTY);
-        if (idx != -1) l.setQty(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_LINE_PRICE);
-        if (idx != -1) l.setPrice(c.getDouble(idx));
-        return l;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<PurchaseLine> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<PurchaseLine> {
+        private final int id, poId, productId, sku, qty, price, receivedQty;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_PO_LINE_ID);
+            poId = c.getColumnIndex(Constants.COLUMN_PO_LINE_PO_ID);
+            productId = c.getColumnIndex(Constants.COLUMN_PO_LINE_PRODUCT_ID);
+            sku = c.getColumnIndex(Constants.COLUMN_PO_LINE_SKU);
+            qty = c.getColumnIndex(Constants.COLUMN_PO_LINE_QTY);
+            price = c.getColumnIndex(Constants.COLUMN_PO_LINE_PRICE);
+            receivedQty = c.getColumnIndex(Constants.COLUMN_PO_LINE_RECEIVED_QTY);
+        }
+
+        @Override
+        public PurchaseLine map(Cursor c) {
+            PurchaseLine l = new PurchaseLine();
+            if (id != -1) l.id = c.getString(id);
+            if (poId != -1) l.poId = c.getString(poId);
+            if (productId != -1) l.productId = c.getString(productId);
+            if (sku != -1) l.sku = c.getString(sku);
+            if (qty != -1) l.qty = c.getInt(qty);
+            if (price != -1) l.price = c.getDouble(price);
+            if (receivedQty != -1) l.receivedQty = c.getInt(receivedQty);
+            return l;
+        }
     }
 }
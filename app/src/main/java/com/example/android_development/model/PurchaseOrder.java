@@ -35,8 +35,9 @@ public class PurchaseOrder {
         if (id == null) id = java.util.UUID.randomUUID().toString();
         v.put(Constants.COLUMN_PO_ID, id);
         v.put(Constants.COLUMN_PO_SUPPLIER_ID, supplierId);
-        v.put(Constants.COLUMN_PO_NAME, name);
-        v.put(Constants.COLUMN_PO_STATUS, status);
+        // 名称不写 NULL、状态统一小写：列表按名称/状态键集分页（见 PurchaseDAO.getPurchaseOrderPage）
+        v.put(Constants.COLUMN_PO_NAME, name == null ? "" : name);
+        v.put(Constants.COLUMN_PO_STATUS, status == null ? Constants.PO_STATUS_CREATED : status.toLowerCase(java.util.Locale.ROOT));
         v.put(Constants.COLUMN_PO_CREATED_AT, createdAt == 0 ? System.currentTimeMillis() : createdAt);
         v.put(Constants.COLUMN_PO_EXPECTED_AT, expectedAt);
         v.put(Constants.COLUMN_PO_TOTAL, total);
@@ -45,22 +46,38 @@ public class PurchaseOrder {
 
     public static PurchaseOrder fromCursor(Cursor c) {
         if (c == null) return null;
-        PurchaseOrder p = new PurchaseOrder();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_PO_ID);
-        if (idx != -1) p.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_SUPPLIER_ID);
-        if (idx != -1) p.setSupplierId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_NAME);
-        if (idx != -1) p.setName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_STATUS);
-        if (idx != -1) p.setStatus(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_CREATED_AT);
-        if (idx != -1) p.setCreatedAt(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_EXPECTED_AT);
-        if (idx != -1) p.setExpectedAt(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PO_TOTAL);
-        if (idx != -1) p.setTotal(c.getDouble(idx));
-        return p;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<PurchaseOrder> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<PurchaseOrder> {
+        private final int id, supplierId, name, status, createdAt, expectedAt, total;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_PO_ID);
+            supplierId = c.getColumnIndex(Constants.COLUMN_PO_SUPPLIER_ID);
+            name = c.getColumnIndex(Constants.COLUMN_PO_NAME);
+            status = c.getColumnIndex(Constants.COLUMN_PO_STATUS);
+            createdAt = c.getColumnIndex(Constants.COLUMN_PO_CREATED_AT);
+            expectedAt = c.getColumnIndex(Constants.COLUMN_PO_EXPECTED_AT);
+            total = c.getColumnIndex(Constants.COLUMN_PO_TOTAL);
+        }
+
+        @Override
+        public PurchaseOrder map(Cursor c) {
+            PurchaseOrder p = new PurchaseOrder();
+            if (id != -1) p.id = c.getString(id);
+            if (supplierId != -1) p.supplierId = c.getString(supplierId);
+            if (name != -1) p.name = c.getString(name);
+            if (status != -1) p.status = c.getString(status);
+            if (createdAt != -1) p.createdAt = c.getLong(createdAt);
+            if (expectedAt != -1) p.expectedAt = c.getLong(expectedAt);
+            if (total != -1) p.total = c.getDouble(total);
+            return p;
+        }
     }
 }
@@ -0,0 +1,40 @@
+package com.example.android_development.model;
+
+/**
+ * 采购单列表查询条件，所有条件均可为空（不限）。
+ * 时间范围按创建时间，为闭区间 [fromMillis, toMillis]，0 表示不限。
+ */
+public class PurchaseOrderFilter {
+
+    // 排序方式
+    public static final String SORT_DATE = "date";     // 创建时间倒序
+    public static final String SORT_NAME = "name";     // 名称（不区分大小写）
+    public static final String SORT_STATUS = "status"; // 状态，同状态内按创建时间倒序
+
+    private String status;
+    private String supplierId;
+    private String keyword;
+    private long fromMillis;
+    private long toMillis;
+    private String sort = SORT_DATE;
+
+    // 状态（不区分大小写）
+    public String getStatus() { return status; }
+    public PurchaseOrderFilter setStatus(String status) { this.status = status; return this; }
+
+    public String getSupplierId() { return supplierId; }
+    public PurchaseOrderFilter setSupplierId(String supplierId) { this.supplierId = supplierId; return this; }
+
+    // 名称或单号模糊匹配
+    public String getKeyword() { return keyword; }
+    public PurchaseOrderFilter setKeyword(String keyword) { this.keyword = keyword; return this; }
+
+    public long getFromMillis() { return fromMillis; }
+    public PurchaseOrderFilter setFromMillis(long fromMillis) { this.fromMillis = fromMillis; return this; }
+
+    public long getToMillis() { return toMillis; }
+    public PurchaseOrderFilter setToMillis(long toMillis) { this.toMillis = toMillis; return this; }
+
+    public String getSort() { return sort; }
+    public PurchaseOrderFilter setSort(String sort) { this.sort = sort == null ? SORT_DATE : sort; return this; }
+}
@@ -0,0 +1,61 @@
+package com.example.android_development.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 采购单分页结果（键集分页）。
+ * nextToken 记录排序方式与本页最后一行的排序键，作为下一页的起点传回 DAO；
+ * 为 null 表示没有下一页。调用方应将 token 视为不透明字符串。
+ * statusCounts 为除状态外其余条件下各状态的单数（用于状态筛选项），只在第一页返回，之后的页为 null。
+ */
+public class PurchaseOrderPage {
+
+    // 名称中不会出现的分隔符
+    private static final char TOKEN_SEPARATOR = '\u0001';
+
+    private final List<PurchaseOrder> items;
+    private final String nextToken;
+    private final Map<String, Integer> statusCounts;
+
+    public PurchaseOrderPage(List<PurchaseOrder> items, String nextToken, Map<String, Integer> statusCounts) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextToken = nextToken;
+        this.statusCounts = statusCounts != null ? Collections.unmodifiableMap(statusCounts) : null;
+    }
+
+    public List<PurchaseOrder> getItems() { return items; }
+
+    public String getNextToken() { return nextToken; }
+
+    public boolean hasMore() { return nextToken != null; }
+
+    // 状态（小写） -> 单数
+    public Map<String, Integer> getStatusCounts() { return statusCounts; }
+
+    // 各状态合计，即不限状态时的总单数；不是第一页时返回 -1
+    public int getTotalCount() {
+        if (statusCounts == null) return -1;
+        int total = 0;
+        for (Integer n : statusCounts.values()) total += n;
+        return total;
+    }
+
+    public static String encodeToken(String sort, String... keys) {
+        StringBuilder sb = new StringBuilder(sort == null ? "" : sort);
+        for (String k : keys) sb.append(TOKEN_SEPARATOR).append(k == null ? "" : k);
+        return sb.toString();
+    }
+
+    // 返回排序键；token 非法或与当前排序方式不一致时返回 null（按第一页处理）
+    public static String[] decodeToken(String token, String sort, int keyCount) {
+        if (token == null || sort == null) return null;
+        String[] parts = token.split(String.valueOf(TOKEN_SEPARATOR), -1);
+        if (parts.length != keyCount + 1 || !sort.equals(parts[0])) return null;
+        String[] keys = new String[keyCount];
+        System.arraycopy(parts, 1, keys, 0, keyCount);
+        return keys;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.android_development.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 采购单收货结果：成功时给出本次收货的行数/件数、更新的商品数及收货后仍未到齐的行；
+ * 失败时 failures 列出原因（本次收货不写入任何数据）。
+ */
+public class ReceivingSummary {
+
+    public static final String REASON_PO_NOT_FOUND = "po_not_found";
+    public static final String REASON_BAD_STATUS = "bad_status";
+    public static final String REASON_UNKNOWN_LINE = "unknown_line";
+    public static final String REASON_NO_PRODUCT = "no_product";
+    public static final String REASON_PRODUCT_NOT_FOUND = "product_not_found";
+    public static final String REASON_INVALID_QTY = "invalid_qty";
+    public static final String REASON_OVER_RECEIPT = "over_receipt";
+    public static final String REASON_NOTHING_TO_RECEIVE = "nothing_to_receive";
+    // 写入时出错或更新行数与预期不符（并发修改等），整单已回滚，可重试
+    public static final String REASON_INTERNAL = "internal";
+
+    // 单个采购行的失败原因；lineId 为 null 表示整单问题
+    public static class LineFailure {
+        private final String lineId;
+        private final String productId;
+        private final int requested;
+        private final int outstanding;
+        private final String reason;
+
+        public LineFailure(String lineId, String productId, int requested, int outstanding, String reason) {
+            this.lineId = lineId;
+            this.productId = productId;
+            this.requested = requested;
+            this.outstanding = outstanding;
+            this.reason = reason;
+        }
+
+        public String getLineId() { return lineId; }
+        public String getProductId() { return productId; }
+        public int getRequested() { return requested; }
+        public int getOutstanding() { return outstanding; }
+        public String getReason() { return reason; }
+    }
+
+    private final String poId;
+    private String status;
+    private int linesReceived;
+    private int unitsReceived;
+    private int productsUpdated;
+    private int linesOutstanding;
+    private int unitsOutstanding;
+    private boolean committed;
+    private final List<LineFailure> failures = new ArrayList<>();
+
+    public ReceivingSummary(String poId) {
+        this.poId = poId;
+    }
+
+    public String getPoId() { return poId; }
+
+    // 收货后的采购单状态（received / partially_received）
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getLinesReceived() { return linesReceived; }
+    public void setLinesReceived(int linesReceived) { this.linesReceived = linesReceived; }
+
+    public int getUnitsReceived() { return unitsReceived; }
+    public void setUnitsReceived(int unitsReceived) { this.unitsReceived = unitsReceived; }
+
+    public int getProductsUpdated() { return productsUpdated; }
+    public void setProductsUpdated(int productsUpdated) { this.productsUpdated = productsUpdated; }
+
+    public int getLinesOutstanding() { return linesOutstanding; }
+    public void setLinesOutstanding(int linesOutstanding) { this.linesOutstanding = linesOutstanding; }
+
+    public int getUnitsOutstanding() { return unitsOutstanding; }
+    public void setUnitsOutstanding(int unitsOutstanding) { this.unitsOutstanding = unitsOutstanding; }
+
+    public void setCommitted(boolean committed) { this.committed = committed; }
+
+    public List<LineFailure> getFailures() { return failures; }
+    public void addFailure(LineFailure f) { failures.add(f); }
+
+    public boolean isSuccess() { return committed && failures.isEmpty(); }
+}
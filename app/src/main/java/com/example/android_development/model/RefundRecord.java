@@ -44,15 +44,38 @@ public class RefundRecord {
 
     public static RefundRecord fromCursor(Cursor c) {
         if (c == null) return null;
-        RefundRecord r = new RefundRecord();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_ID); if (idx != -1) r.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_SALE_ID); if (idx != -1) r.setSaleId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_AMOUNT); if (idx != -1) r.setAmount(c.getDouble(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_USER_ID); if (idx != -1) r.setUserId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_USER_ROLE); if (idx != -1) r.setUserRole(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_REASON); if (idx != -1) r.setReason(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_REFUND_TIMESTAMP); if (idx != -1) r.setTimestamp(c.getLong(idx));
-        return r;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<RefundRecord> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<RefundRecord> {
+        private final int id, saleId, amount, userId, userRole, reason, timestamp;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_REFUND_ID);
+            saleId = c.getColumnIndex(Constants.COLUMN_REFUND_SALE_ID);
+            amount = c.getColumnIndex(Constants.COLUMN_REFUND_AMOUNT);
+            userId = c.getColumnIndex(Constants.COLUMN_REFUND_USER_ID);
+            userRole = c.getColumnIndex(Constants.COLUMN_REFUND_USER_ROLE);
+            reason = c.getColumnIndex(Constants.COLUMN_REFUND_REASON);
+            timestamp = c.getColumnIndex(Constants.COLUMN_REFUND_TIMESTAMP);
+        }
+
+        @Override
+        public RefundRecord map(Cursor c) {
+            RefundRecord r = new RefundRecord();
+            if (id != -1) r.id = c.getString(id);
+            if (saleId != -1) r.saleId = c.getString(saleId);
+            if (amount != -1) r.amount = c.getDouble(amount);
+            if (userId != -1) r.userId = c.getString(userId);
+            if (userRole != -1) r.userRole = c.getString(userRole);
+            if (reason != -1) r.reason = c.getString(reason);
+            if (timestamp != -1) r.timestamp = c.getLong(timestamp);
+            return r;
+        }
     }
 }
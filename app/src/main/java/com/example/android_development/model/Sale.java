@@ -15,6 +15,8 @@ public class Sale {
     private long timestamp;
     private boolean refunded;
     private long refundedAt;
+    // 非持久化字段：查询时 JOIN users 得到的操作人显示名
+    private String userDisplayName;
     private List<SaleLine> lines = new ArrayList<>();
 
     public Sale() { this.timestamp = System.currentTimeMillis(); }
@@ -49,21 +51,49 @@ public class Sale {
 
     public static Sale fromCursor(Cursor c) {
         if (c == null) return null;
-        Sale s = new Sale();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_ID); if (idx != -1) s.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_TOTAL); if (idx != -1) s.setTotal(c.getDouble(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_PAID); if (idx != -1) s.setPaid(c.getDouble(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_PAYMENT_METHOD); if (idx != -1) s.setPaymentMethod(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_USER_ID); if (idx != -1) s.setUserId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_TIMESTAMP); if (idx != -1) s.setTimestamp(c.getLong(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_REFUNDED); if (idx != -1) s.setRefunded(c.getInt(idx) == 1);
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_REFUNDED_AT); if (idx != -1) s.setRefundedAt(c.getLong(idx));
-        return s;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<Sale> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<Sale> {
+        private final int id, total, paid, paymentMethod, userId, timestamp, refunded, refundedAt, userDisplayName;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_SALE_ID);
+            total = c.getColumnIndex(Constants.COLUMN_SALE_TOTAL);
+            paid = c.getColumnIndex(Constants.COLUMN_SALE_PAID);
+            paymentMethod = c.getColumnIndex(Constants.COLUMN_SALE_PAYMENT_METHOD);
+            userId = c.getColumnIndex(Constants.COLUMN_SALE_USER_ID);
+            timestamp = c.getColumnIndex(Constants.COLUMN_SALE_TIMESTAMP);
+            refunded = c.getColumnIndex(Constants.COLUMN_SALE_REFUNDED);
+            refundedAt = c.getColumnIndex(Constants.COLUMN_SALE_REFUNDED_AT);
+            userDisplayName = c.getColumnIndex(Constants.COLUMN_USER_DISPLAY_NAME);
+        }
+
+        @Override
+        public Sale map(Cursor c) {
+            Sale s = new Sale();
+            if (id != -1) s.id = c.getString(id);
+            if (total != -1) s.total = c.getDouble(total);
+            if (paid != -1) s.paid = c.getDouble(paid);
+            if (paymentMethod != -1) s.paymentMethod = c.getString(paymentMethod);
+            if (userId != -1) s.userId = c.getString(userId);
+            if (timestamp != -1) s.timestamp = c.getLong(timestamp);
+            if (refunded != -1) s.refunded = c.getInt(refunded) == 1;
+            if (refundedAt != -1) s.refundedAt = c.getLong(refundedAt);
+            if (userDisplayName != -1) s.userDisplayName = c.getString(userDisplayName);
+            return s;
+        }
     }
 
     public boolean isRefunded() { return refunded; }
     public void setRefunded(boolean refunded) { this.refunded = refunded; }
     public long getRefundedAt() { return refundedAt; }
     public void setRefundedAt(long refundedAt) { this.refundedAt = refundedAt; }
+    public String getUserDisplayName() { return userDisplayName; }
+    public void setUserDisplayName(String userDisplayName) { this.userDisplayName = userDisplayName; }
 }
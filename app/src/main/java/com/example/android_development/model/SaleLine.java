@@ -38,14 +38,36 @@ public class SaleLine {
 
     public static SaleLine fromCursor(Cursor c) {
         if (c == null) return null;
-        SaleLine l = new SaleLine();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_ID); if (idx != -1) l.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_SALE_ID); if (idx != -1) l.setSaleId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRODUCT_ID); if (idx != -1) l.setProductId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRODUCT_NAME); if (idx != -1) l.setProductName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_QTY); if (idx != -1) l.setQty(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRICE); if (idx != -1) l.setPrice(c.getDouble(idx));
-        return l;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<SaleLine> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<SaleLine> {
+        private final int id, saleId, productId, productName, qty, price;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_SALE_LINE_ID);
+            saleId = c.getColumnIndex(Constants.COLUMN_SALE_LINE_SALE_ID);
+            productId = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRODUCT_ID);
+            productName = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRODUCT_NAME);
+            qty = c.getColumnIndex(Constants.COLUMN_SALE_LINE_QTY);
+            price = c.getColumnIndex(Constants.COLUMN_SALE_LINE_PRICE);
+        }
+
+        @Override
+        public SaleLine map(Cursor c) {
+            SaleLine l = new SaleLine();
+            if (id != -1) l.id = c.getString(id);
+            if (saleId != -1) l.saleId = c.getString(saleId);
+            if (productId != -1) l.productId = c.getString(productId);
+            if (productName != -1) l.productName = c.getString(productName);
+            if (qty != -1) l.qty = c.getInt(qty);
+            if (price != -1) l.price = c.getDouble(price);
+            return l;
+        }
     }
 }
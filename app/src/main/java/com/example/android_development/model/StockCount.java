@@ -33,16 +33,32 @@ public class StockCount {
 
     public static StockCount fromCursor(Cursor c) {
         if (c == null) return null;
-        StockCount s = new StockCount();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_ID);
-        if (idx != -1) s.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_STATUS);
-        if (idx != -1) s.setStatus(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_CREATED_BY);
-        if (idx != -1) s.setCreatedBy(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_CREATED_AT);
-        if (idx != -1) s.setCreatedAt(c.getLong(idx));
-        return s;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<StockCount> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<StockCount> {
+        private final int id, status, createdBy, createdAt;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_ID);
+            status = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_STATUS);
+            createdBy = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_CREATED_BY);
+            createdAt = c.getColumnIndex(Constants.COLUMN_STOCK_COUNT_CREATED_AT);
+        }
+
+        @Override
+        public StockCount map(Cursor c) {
+            StockCount s = new StockCount();
+            if (id != -1) s.id = c.getString(id);
+            if (status != -1) s.status = c.getString(status);
+            if (createdBy != -1) s.createdBy = c.getString(createdBy);
+            if (createdAt != -1) s.createdAt = c.getLong(createdAt);
+            return s;
+        }
     }
 }
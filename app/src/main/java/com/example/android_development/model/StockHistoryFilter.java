@@ -0,0 +1,34 @@
+package com.example.android_development.model;
+
+/**
+ * 库存历史查询条件，所有条件均可为空（不限）。
+ * 时间范围为闭区间 [fromMillis, toMillis]，0 表示不限。
+ */
+public class StockHistoryFilter {
+
+    private String productId;
+    private String productNameLike;
+    private String type;
+    private String userId;
+    private long fromMillis;
+    private long toMillis;
+
+    public String getProductId() { return productId; }
+    public StockHistoryFilter setProductId(String productId) { this.productId = productId; return this; }
+
+    // 商品名称模糊匹配（历史表中的 product_name）
+    public String getProductNameLike() { return productNameLike; }
+    public StockHistoryFilter setProductNameLike(String productNameLike) { this.productNameLike = productNameLike; return this; }
+
+    public String getType() { return type; }
+    public StockHistoryFilter setType(String type) { this.type = type; return this; }
+
+    public String getUserId() { return userId; }
+    public StockHistoryFilter setUserId(String userId) { this.userId = userId; return this; }
+
+    public long getFromMillis() { return fromMillis; }
+    public StockHistoryFilter setFromMillis(long fromMillis) { this.fromMillis = fromMillis; return this; }
+
+    public long getToMillis() { return toMillis; }
+    public StockHistoryFilter setToMillis(long toMillis) { this.toMillis = toMillis; return this; }
+}
@@ -15,6 +15,8 @@ public class StockTransaction {
     private int stockAfter;
     private String reason;
     private long timestamp;
+    // 非持久化字段：查询时 JOIN users 得到的操作人显示名
+    private String userDisplayName;
 
     public StockTransaction() {}
 
@@ -41,31 +43,53 @@ public class StockTransaction {
     public long getTimestamp() { return timestamp; }
     public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
 
+    public String getUserDisplayName() { return userDisplayName; }
+    public void setUserDisplayName(String userDisplayName) { this.userDisplayName = userDisplayName; }
+
     public static StockTransaction fromCursor(Cursor c) {
-        StockTransaction tx = new StockTransaction();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_ID);
-        if (idx != -1) tx.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_PRODUCT_ID);
-        if (idx != -1) tx.setProductId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_PRODUCT_NAME);
-        if (idx != -1) tx.setProductName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_USER_ID);
-        if (idx != -1) tx.setUserId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_USER_ROLE);
-        if (idx != -1) tx.setUserRole(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_TYPE);
-        if (idx != -1) tx.setType(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_QUANTITY);
-        if (idx != -1) tx.setQuantity(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_BEFORE);
-        if (idx != -1) tx.setStockBefore(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_AFTER);
-        if (idx != -1) tx.setStockAfter(c.getInt(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_REASON);
-        if (idx != -1) tx.setReason(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_STOCK_TX_TIMESTAMP);
-        if (idx != -1) tx.setTimestamp(c.getLong(idx));
-        return tx;
+        if (c == null) return null;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<StockTransaction> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<StockTransaction> {
+        private final int id, productId, productName, userId, userRole, type, quantity, stockBefore, stockAfter, reason, timestamp, userDisplayName;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_STOCK_TX_ID);
+            productId = c.getColumnIndex(Constants.COLUMN_STOCK_TX_PRODUCT_ID);
+            productName = c.getColumnIndex(Constants.COLUMN_STOCK_TX_PRODUCT_NAME);
+            userId = c.getColumnIndex(Constants.COLUMN_STOCK_TX_USER_ID);
+            userRole = c.getColumnIndex(Constants.COLUMN_STOCK_TX_USER_ROLE);
+            type = c.getColumnIndex(Constants.COLUMN_STOCK_TX_TYPE);
+            quantity = c.getColumnIndex(Constants.COLUMN_STOCK_TX_QUANTITY);
+            stockBefore = c.getColumnIndex(Constants.COLUMN_STOCK_TX_BEFORE);
+            stockAfter = c.getColumnIndex(Constants.COLUMN_STOCK_TX_AFTER);
+            reason = c.getColumnIndex(Constants.COLUMN_STOCK_TX_REASON);
+            timestamp = c.getColumnIndex(Constants.COLUMN_STOCK_TX_TIMESTAMP);
+            userDisplayName = c.getColumnIndex(Constants.COLUMN_USER_DISPLAY_NAME);
+        }
+
+        @Override
+        public StockTransaction map(Cursor c) {
+            StockTransaction tx = new StockTransaction();
+            if (id != -1) tx.id = c.getString(id);
+            if (productId != -1) tx.productId = c.getString(productId);
+            if (productName != -1) tx.productName = c.getString(productName);
+            if (userId != -1) tx.userId = c.getString(userId);
+            if (userRole != -1) tx.userRole = c.getString(userRole);
+            if (type != -1) tx.type = c.getString(type);
+            if (quantity != -1) tx.quantity = c.getInt(quantity);
+            if (stockBefore != -1) tx.stockBefore = c.getInt(stockBefore);
+            if (stockAfter != -1) tx.stockAfter = c.getInt(stockAfter);
+            if (reason != -1) tx.reason = c.getString(reason);
+            if (timestamp != -1) tx.timestamp = c.getLong(timestamp);
+            if (userDisplayName != -1) tx.userDisplayName = c.getString(userDisplayName);
+            return tx;
+        }
     }
 }
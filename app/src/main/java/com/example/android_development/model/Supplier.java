@@ -37,18 +37,34 @@ public class Supplier {
 
     public static Supplier fromCursor(Cursor c) {
         if (c == null) return null;
-        Supplier s = new Supplier();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_ID);
-        if (idx != -1) s.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_NAME);
-        if (idx != -1) s.setName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_CONTACT);
-        if (idx != -1) s.setContact(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_PHONE);
-        if (idx != -1) s.setPhone(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_SUPPLIER_EMAIL);
-        if (idx != -1) s.setEmail(c.getString(idx));
-        return s;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<Supplier> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<Supplier> {
+        private final int id, name, contact, phone, email;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_SUPPLIER_ID);
+            name = c.getColumnIndex(Constants.COLUMN_SUPPLIER_NAME);
+            contact = c.getColumnIndex(Constants.COLUMN_SUPPLIER_CONTACT);
+            phone = c.getColumnIndex(Constants.COLUMN_SUPPLIER_PHONE);
+            email = c.getColumnIndex(Constants.COLUMN_SUPPLIER_EMAIL);
+        }
+
+        @Override
+        public Supplier map(Cursor c) {
+            Supplier s = new Supplier();
+            if (id != -1) s.id = c.getString(id);
+            if (name != -1) s.name = c.getString(name);
+            if (contact != -1) s.contact = c.getString(contact);
+            if (phone != -1) s.phone = c.getString(phone);
+            if (email != -1) s.email = c.getString(email);
+            return s;
+        }
     }
 }
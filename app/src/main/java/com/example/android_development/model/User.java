@@ -54,17 +54,41 @@ public class User {
     // 从 Cursor 创建 User
     public static User fromCursor(Cursor c) {
         if (c == null) return null;
-        User u = new User();
-        int idx;
-        idx = c.getColumnIndex(Constants.COLUMN_USER_ID); if (idx != -1) u.setId(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_USERNAME); if (idx != -1) u.setUsername(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PASSWORD); if (idx != -1) u.setPassword(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_ROLE); if (idx != -1) u.setRole(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_FULL_NAME); if (idx != -1) u.setFullName(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_PHONE); if (idx != -1) u.setPhone(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_EMAIL); if (idx != -1) u.setEmail(c.getString(idx));
-        idx = c.getColumnIndex(Constants.COLUMN_CREATED_AT); if (idx != -1) u.setCreatedAt(c.getLong(idx));
-        return u;
+        return new Mapper(c).map(c);
+    }
+
+    // 为该 Cursor 解析一次列下标，逐行映射时复用
+    public static CursorMapper<User> mapper(Cursor c) {
+        return new Mapper(c);
+    }
+
+    private static final class Mapper implements CursorMapper<User> {
+        private final int id, username, password, role, fullName, phone, email, createdAt;
+
+        Mapper(Cursor c) {
+            id = c.getColumnIndex(Constants.COLUMN_USER_ID);
+            username = c.getColumnIndex(Constants.COLUMN_USERNAME);
+            password = c.getColumnIndex(Constants.COLUMN_PASSWORD);
+            role = c.getColumnIndex(Constants.COLUMN_ROLE);
+            fullName = c.getColumnIndex(Constants.COLUMN_FULL_NAME);
+            phone = c.getColumnIndex(Constants.COLUMN_PHONE);
+            email = c.getColumnIndex(Constants.COLUMN_EMAIL);
+            createdAt = c.getColumnIndex(Constants.COLUMN_CREATED_AT);
+        }
+
+        @Override
+        public User map(Cursor c) {
+            User u = new User();
+            if (id != -1) u.id = c.getString(id);
+            if (username != -1) u.username = c.getString(username);
+            if (password != -1) u.password = c.getString(password);
+            if (role != -1) u.role = c.getString(role);
+            if (fullName != -1) u.fullName = c.getString(fullName);
+            if (phone != -1) u.phone = c.getString(phone);
+            if (email != -1) u.email = c.getString(email);
+            if (createdAt != -1) u.createdAt = c.getLong(createdAt);
+            return u;
+        }
     }
 
     // 转换为 ContentValues
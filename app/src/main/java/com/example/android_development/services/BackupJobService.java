@@ -0,0 +1,60 @@
+package com.example.android_development.services;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.DatabaseBackup;
+import com.example.android_development.util.Audit;
+
+/**
+ * 定时数据库快照：每小时由 JobScheduler 触发一次（电量/存储不足时推迟），
+ * 生成快照后按保留策略清理旧快照，耗时与吞吐写入日志（Backup 标签）和系统审计。
+ */
+public class BackupJobService extends JobService {
+
+    private static final int JOB_ID = 23001;
+    public static final long INTERVAL_MS = 60L * 60 * 1000;
+
+    // 启动时调用；已安排的任务不会重复安排
+    public static void schedule(Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, BackupJobService.class))
+                .setPeriodic(INTERVAL_MS)
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Thread t = new Thread(() -> {
+            boolean failed = false;
+            try {
+                DatabaseBackup backup = new DatabaseBackup(this);
+                DatabaseBackup.Stats stats = backup.backupNow();
+                backup.prune(System.currentTimeMillis());
+                Audit.writeSystemAudit(AppDatabase.getInstance(this).getDatabase(), null, null,
+                        "backup:" + stats.file.getName(), "backup", stats.toString());
+            } catch (Exception e) {
+                e.printStackTrace();
+                failed = true;
+            }
+            jobFinished(params, failed);
+        }, "db-backup");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 备份中途被系统停止：未完成的文件已清理，稍后重试
+        return true;
+    }
+}
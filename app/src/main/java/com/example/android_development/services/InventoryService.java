@@ -1,9 +1,10 @@
 package com.example.android_development.services;
 
 import android.content.Context;
-import com.example.android_development.database.DatabaseHelper;
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.ProductDAO;
 import com.example.android_development.model.Product;
+import com.example.android_development.model.ProductSummary;
 import java.util.List;
 
 /**
@@ -15,8 +16,7 @@ public class InventoryService {
     private ProductDAO productDAO;
 
     public InventoryService(Context context) {
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        this.productDAO = new ProductDAO(dbHelper.getReadableDatabase());
+        this.productDAO = AppDatabase.getInstance(context).getProductDAO();
     }
 
     /**
@@ -27,12 +27,20 @@ public class InventoryService {
         return productDAO.getLowStockProducts();
     }
 
+    /**
+     * 获取低库存商品的精简行（预警列表显示用，导出等需要完整字段时用 getLowStockAlerts）
+     * @return 低库存商品列表
+     */
+    public List<ProductSummary> getLowStockAlertSummaries() {
+        return productDAO.getLowStockSummaries();
+    }
+
     /**
      * 检查是否有低库存商品
      * @return true如果有低库存商品，false否则
      */
     public boolean hasLowStockAlerts() {
-        List<Product> lowStockProducts = getLowStockAlerts();
+        List<ProductSummary> lowStockProducts = getLowStockAlertSummaries();
         return lowStockProducts != null && !lowStockProducts.isEmpty();
     }
 
@@ -41,7 +49,7 @@ public class InventoryService {
      * @return 低库存商品的数量
      */
     public int getLowStockAlertCount() {
-        List<Product> lowStockProducts = getLowStockAlerts();
+        List<ProductSummary> lowStockProducts = getLowStockAlertSummaries();
         return lowStockProducts != null ? lowStockProducts.size() : 0;
     }
 }
\ No newline at end of file
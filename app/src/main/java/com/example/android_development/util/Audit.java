@@ -1,23 +1,40 @@
 package com.example.android_development.util;
 
-import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
-import java.util.UUID;
 
 public class Audit {
 
+    // 普通审计：进入后台组提交队列；在事务中调用时等事务提交后再入队（回滚则不留审计）
     public static void writeSystemAudit(SQLiteDatabase db, String userId, String userRole, String entity, String action, String detail) {
         if (db == null) return;
         try {
-            ContentValues v = new ContentValues();
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_ID, UUID.randomUUID().toString());
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_USER_ID, userId);
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_USER_ROLE, userRole);
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_ENTITY, entity);
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_ACTION, action);
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_DETAIL, detail);
-            v.put(Constants.COLUMN_SYSTEM_AUDIT_TIMESTAMP, System.currentTimeMillis());
-            try { db.insert(Constants.TABLE_SYSTEM_AUDIT, null, v); } catch (Exception ignored) {}
+            AuditWriter.of(db).write(userId, userRole, entity, action, detail);
+        } catch (Exception ignored) {}
+    }
+
+    // 关键审计（退款、审批、删除等）：在调用线程同步写入，处于事务中时随业务一起提交
+    public static boolean writeSystemAuditDurable(SQLiteDatabase db, String userId, String userRole, String entity, String action, String detail) {
+        if (db == null) return false;
+        try {
+            return AuditWriter.of(db).writeDurable(userId, userRole, entity, action, detail);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // 事务发起方在 endTransaction 之后调用：提交则把事务中记下的普通审计入队，回滚则丢弃
+    public static void transactionEnded(SQLiteDatabase db, boolean committed) {
+        if (db == null) return;
+        try {
+            AuditWriter.of(db).transactionEnded(committed);
+        } catch (Exception ignored) {}
+    }
+
+    // 写出队列中尚未落盘的审计（导出/备份前调用，勿在业务事务中调用）
+    public static void flush(SQLiteDatabase db) {
+        if (db == null) return;
+        try {
+            AuditWriter.of(db).flush();
         } catch (Exception ignored) {}
     }
 }
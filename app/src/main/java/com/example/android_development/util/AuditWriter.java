@@ -0,0 +1,223 @@
+package com.example.android_development.util;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.database.StatementBinders;
+import com.example.android_development.database.StatementCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * system_audit 的组提交写入器。
+ * 业务线程只把审计条目放入有界内存队列即返回；后台单线程按批次在一个事务里写入，
+ * 这样审计不再拉长结账/退款等业务事务的临界区。
+ * 关键事件使用 writeDurable：在调用线程上同步写入本条（调用方处于事务中时与业务数据一起提交），
+ * 并立即唤醒后台写出积压条目。
+ * 调用线程处于事务中时 write 只把条目记在本线程，由最外层事务的发起方在 endTransaction 之后调用
+ * transactionEnded：提交则入队，回滚则丢弃，不会留下未发生操作的审计（与 CatalogChanges 相同）。
+ * 注意：后台线程写入时需要等待主连接，因此这里不持有任何与数据库交叉的锁，避免与业务事务互等。
+ * 队列满时不丢弃：由调用线程先写出一批积压条目再入队（背压），次数见 getBackpressureCount。
+ */
+public final class AuditWriter {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 128;
+    private static final long FLUSH_DELAY_MS = 200;
+
+    private static final Map<SQLiteDatabase, AuditWriter> WRITERS = new WeakHashMap<>();
+
+    // 审计 id：进程内随机前缀 + 自增序号，避免每条审计都调用 UUID.randomUUID()
+    private static final String ID_PREFIX = UUID.randomUUID().toString().substring(0, 8);
+    private static final AtomicLong ID_SEQ = new AtomicLong(System.currentTimeMillis());
+
+    private static final class Entry {
+        final String id;
+        final String userId;
+        final String userRole;
+        final String entity;
+        final String action;
+        final String detail;
+        final long timestamp;
+
+        Entry(String userId, String userRole, String entity, String action, String detail) {
+            this.id = ID_PREFIX + "-" + Long.toString(ID_SEQ.incrementAndGet(), 36);
+            this.userId = userId;
+            this.userRole = userRole;
+            this.entity = entity;
+            this.action = action;
+            this.detail = detail;
+            this.timestamp = System.currentTimeMillis();
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // 本线程事务中尚未入队的条目
+    private final ThreadLocal<List<Entry>> pending = ThreadLocal.withInitial(ArrayList::new);
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    // 背压指标
+    private final AtomicLong backpressureCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile long lastFlushLatencyMs;
+    private volatile long maxFlushLatencyMs;
+    private volatile int lastBatchSize;
+
+    private AuditWriter(SQLiteDatabase db) {
+        this.db = db;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-writer");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    public static AuditWriter of(SQLiteDatabase db) {
+        synchronized (WRITERS) {
+            AuditWriter w = WRITERS.get(db);
+            if (w == null) {
+                w = new AuditWriter(db);
+                WRITERS.put(db, w);
+            }
+            return w;
+        }
+    }
+
+    // 异步写入：入队后立即返回；调用线程在事务中时先记在本线程，事务提交后入队；队列已满时由调用线程写出积压后再入队
+    public void write(String userId, String userRole, String entity, String action, String detail) {
+        Entry e = new Entry(userId, userRole, entity, action, detail);
+        if (db.inTransaction()) {
+            pending.get().add(e);
+            return;
+        }
+        enqueue(e);
+    }
+
+    /**
+     * 事务发起方在 endTransaction 之后调用（只有最外层事务结束时才处理）：
+     * committed 为 true 时把事务中记下的条目入队，回滚时丢弃。
+     */
+    public void transactionEnded(boolean committed) {
+        if (db.inTransaction()) return;
+        List<Entry> list = pending.get();
+        if (list.isEmpty()) return;
+        List<Entry> run = new ArrayList<>(list);
+        list.clear();
+        if (!committed) return;
+        for (Entry e : run) enqueue(e);
+    }
+
+    private void enqueue(Entry e) {
+        while (!queue.offer(e)) {
+            // 后台来不及写：在调用线程写出一批，腾出空间
+            backpressureCount.incrementAndGet();
+            List<Entry> batch = new ArrayList<>(MAX_BATCH);
+            if (queue.drainTo(batch, MAX_BATCH) > 0) writeBatch(batch);
+        }
+        if (queue.size() >= MAX_BATCH) {
+            scheduleFlush(0);
+        } else {
+            scheduleFlush(FLUSH_DELAY_MS);
+        }
+    }
+
+    // 同步写入（关键事件）：返回本条是否写入成功
+    public boolean writeDurable(String userId, String userRole, String entity, String action, String detail) {
+        List<Entry> batch = new ArrayList<>(1);
+        batch.add(new Entry(userId, userRole, entity, action, detail));
+        boolean ok = writeBatch(batch);
+        if (!queue.isEmpty()) scheduleFlush(0);
+        return ok;
+    }
+
+    // 在调用线程上写出当前队列中的全部条目（例如页面退到后台或导出前）
+    public void flush() {
+        List<Entry> batch = new ArrayList<>();
+        while (queue.drainTo(batch, MAX_BATCH) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (delayMs > 0 && !flushScheduled.compareAndSet(false, true)) return;
+        if (delayMs == 0) flushScheduled.set(true);
+        try {
+            executor.schedule(this::flushInBackground, delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            flushScheduled.set(false);
+        }
+    }
+
+    private void flushInBackground() {
+        flushScheduled.set(false);
+        flush();
+    }
+
+    // 一个事务写一批；返回整批是否成功
+    private boolean writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) return true;
+        long start = System.currentTimeMillis();
+        boolean ok = true;
+        StatementCache cache = StatementCache.of(db);
+        db.beginTransaction();
+        try {
+            for (Entry e : batch) {
+                long res = cache.executeInsert(StatementBinders.SQL_INSERT_SYSTEM_AUDIT, st -> {
+                    StatementCache.bindString(st, 1, e.id);
+                    StatementCache.bindString(st, 2, e.userId);
+                    StatementCache.bindString(st, 3, e.userRole);
+                    StatementCache.bindString(st, 4, e.entity);
+                    StatementCache.bindString(st, 5, e.action);
+                    StatementCache.bindString(st, 6, e.detail);
+                    st.bindLong(7, e.timestamp);
+                });
+                if (res == -1) {
+                    ok = false;
+                    failedCount.incrementAndGet();
+                } else {
+                    writtenCount.incrementAndGet();
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            ok = false;
+        } finally {
+            try { db.endTransaction(); } catch (Exception ignored) {}
+        }
+        long latency = System.currentTimeMillis() - start;
+        lastFlushLatencyMs = latency;
+        if (latency > maxFlushLatencyMs) maxFlushLatencyMs = latency;
+        lastBatchSize = batch.size();
+        return ok;
+    }
+
+    // ---------- 指标 ----------
+    public int getQueueDepth() { return queue.size(); }
+
+    // 队列满时由调用线程代写的次数
+    public long getBackpressureCount() { return backpressureCount.get(); }
+
+    public long getWrittenCount() { return writtenCount.get(); }
+
+    public long getFailedCount() { return failedCount.get(); }
+
+    public long getLastFlushLatencyMs() { return lastFlushLatencyMs; }
+
+    public long getMaxFlushLatencyMs() { return maxFlushLatencyMs; }
+
+    public int getLastBatchSize() { return lastBatchSize; }
+}
@@ -3,7 +3,7 @@ package com.example.android_development.util;
 public class Constants {
     // 数据库常量
     public static final String DATABASE_NAME = "supermarket.db";
-    public static final int DATABASE_VERSION = 8;
+    public static final int DATABASE_VERSION = 19;
 
     // 用户表
     public static final String TABLE_USERS = "users";
@@ -12,6 +12,8 @@ public class Constants {
     public static final String COLUMN_PASSWORD = "password";
     public static final String COLUMN_ROLE = "role";
     public static final String COLUMN_FULL_NAME = "full_name";
+    // 非表字段：查询中 JOIN users 得到的操作人显示名（见 UserDirectory）
+    public static final String COLUMN_USER_DISPLAY_NAME = "user_display_name";
     public static final String COLUMN_PHONE = "phone";
     public static final String COLUMN_EMAIL = "email";
     public static final String COLUMN_CREATED_AT = "created_at";
@@ -118,6 +120,8 @@ public class Constants {
     public static final String PO_STATUS_APPROVED = "approved";
     public static final String PO_STATUS_REJECTED = "rejected";
     public static final String PO_STATUS_RECEIVED = "received";
+    // 部分收货：仍有采购行未到齐，可继续收货
+    public static final String PO_STATUS_PARTIALLY_RECEIVED = "partially_received";
 
     // PO 名称规则（可配置）
     public static final boolean PO_NAME_REQUIRED = true; // set true to require name before save/submit
@@ -152,6 +156,7 @@ public class Constants {
     public static final String COLUMN_PO_LINE_SKU = "sku";
     public static final String COLUMN_PO_LINE_QTY = "qty";
     public static final String COLUMN_PO_LINE_PRICE = "price";
+    public static final String COLUMN_PO_LINE_RECEIVED_QTY = "received_qty";
 
     // 盘点表
     public static final String TABLE_STOCK_COUNTS = "stock_counts";
@@ -3,6 +3,7 @@ package com.example.android_development.util;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.example.android_development.database.AppDatabase;
 import com.example.android_development.database.DatabaseHelper;
 import com.example.android_development.model.Product;
 
@@ -13,7 +14,7 @@ public class DbUsageExample {
         SharedPreferences prefs = ctx.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
         String role = prefs.getString(Constants.KEY_USER_ROLE, null);
 
-        DatabaseHelper db = new DatabaseHelper(ctx);
+        DatabaseHelper db = AppDatabase.getInstance(ctx).getHelper();
         long res = db.addProductAsRole(role, product);
         if (res == -1) {
             // 未授权或失败
@@ -0,0 +1,104 @@
+package com.example.android_development.util;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import com.example.android_development.database.RevenueDetailReader;
+import com.example.android_development.model.SalesSummary;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 营收报表 CSV 导出：汇总部分来自已生成的报表，明细部分从 RevenueDetailReader 逐行读取后直接写入缓冲流，
+ * 不在内存中拼接整份文件，内存占用与导出的时间范围无关。应在后台线程调用。
+ * 输出格式与原实现一致：
+ *   period,total,count
+ *   ...
+ *   (空行)
+ *   period,type,id,amount,timestamp,reason
+ *   ...
+ */
+public final class RevenueCsvExporter {
+
+    // 每写入多少行明细回调一次进度
+    private static final int PROGRESS_EVERY = 200;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface ProgressListener {
+        // written: 已写入的明细行数；total: 预计总行数（可能为 0）
+        void onProgress(long written, long total);
+    }
+
+    private RevenueCsvExporter() {}
+
+    /**
+     * 导出到文件，返回写入的明细行数；失败（包括读取明细出错）时抛出 IOException（调用方负责提示）。
+     * @param gzip true 时输出 gzip 压缩内容（文件名建议以 .csv.gz 结尾）
+     */
+    public static long export(SQLiteDatabase db, List<SalesSummary> summary, long startMillis, long endMillis,
+                              boolean monthly, File out, boolean gzip, ProgressListener listener) throws IOException {
+        long total = listener != null ? RevenueDetailReader.count(db, startMillis, endMillis) : 0;
+        long written = 0;
+        OutputStream os = new FileOutputStream(out);
+        if (gzip) os = new GZIPOutputStream(os, BUFFER_SIZE);
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+             RevenueDetailReader reader = new RevenueDetailReader(db, startMillis, endMillis, monthly)) {
+            w.write("period,total,count\n");
+            if (summary != null) {
+                for (SalesSummary s : summary) {
+                    w.write(escape(s.getPeriodLabel()));
+                    w.write(',');
+                    w.write(String.format(Locale.US, "%.2f", s.getTotal()));
+                    w.write(',');
+                    w.write(Integer.toString(s.getCount()));
+                    w.write('\n');
+                }
+            }
+
+            w.write('\n');
+            w.write("period,type,id,amount,timestamp,reason\n");
+            while (reader.next()) {
+                w.write(escape(reader.getPeriodLabel()));
+                w.write(',');
+                w.write(reader.getType());
+                w.write(',');
+                w.write(escape(reader.getId()));
+                w.write(',');
+                w.write(String.format(Locale.US, "%.2f", reader.getAmount()));
+                w.write(',');
+                w.write(Long.toString(reader.getTimestamp()));
+                w.write(',');
+                w.write(escape(reader.getReason()));
+                w.write('\n');
+                written++;
+                if (listener != null && written % PROGRESS_EVERY == 0) listener.onProgress(written, total);
+            }
+        } catch (SQLException e) {
+            // 明细读到一半出错：删除截断的文件，不能当作完整导出返回
+            out.delete();
+            throw new IOException("failed to read revenue details after " + written + " rows", e);
+        }
+        if (listener != null) listener.onProgress(written, Math.max(total, written));
+        return written;
+    }
+
+    // CSV 字段转义：含逗号、引号或换行时加双引号，内部引号加倍
+    static String escape(String v) {
+        if (v == null || v.isEmpty()) return "";
+        boolean quote = false;
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') { quote = true; break; }
+        }
+        if (!quote) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.android_development.util;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import com.bumptech.glide.Glide;
+import com.example.android_development.database.AppDatabase;
+import com.example.android_development.database.BarcodeIndex;
+import com.example.android_development.database.PinyinIndex;
+import com.example.android_development.database.ProductDAO;
+import com.example.android_development.database.UserDirectory;
+import com.example.android_development.model.ProductSummary;
+import com.example.android_development.model.ProductSummaryPage;
+import com.example.android_development.services.BackupJobService;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预热流程：在启动页显示期间于后台线程完成首屏之前的准备工作。
+ * - 关键阶段：打开共享数据库（含 onUpgrade/onOpen 中的待执行迁移），完成后即可离开启动页；
+ * - 预热阶段（关键阶段之后并行执行，不阻塞启动页）：商品列表首页与缓存、条码索引、拼音索引、用户显示名、首页缩略图。
+ * 每个阶段单独计时，结果见 logcat 的 Startup 标签；整个进程只执行一次。
+ */
+public final class StartupPipeline {
+
+    private static final String TAG = "Startup";
+
+    // 与商品列表页的分页大小一致
+    private static final int FIRST_PAGE_SIZE = 20;
+    // 单张缩略图预取的最长等待时间
+    private static final long THUMB_TIMEOUT_MS = 5000;
+
+    private static volatile StartupPipeline instance;
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor pool;
+    private final long startedAt = SystemClock.elapsedRealtime();
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+    private final AtomicInteger pendingWarmups = new AtomicInteger();
+
+    // 以下字段只在主线程访问
+    private boolean criticalDone;
+    private final List<Runnable> criticalWaiters = new ArrayList<>();
+
+    private StartupPipeline(Context context) {
+        Context app = context.getApplicationContext();
+        this.appContext = app != null ? app : context;
+        AtomicInteger seq = new AtomicInteger();
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        this.pool = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "startup-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // 预热结束后线程自动退出
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    // 启动流程（重复调用返回同一实例，不会重复执行）
+    public static StartupPipeline start(Context context) {
+        StartupPipeline local = instance;
+        if (local == null) {
+            synchronized (StartupPipeline.class) {
+                local = instance;
+                if (local == null) {
+                    local = new StartupPipeline(context);
+                    local.pool.execute(local::runCritical);
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * 关键阶段完成后在主线程执行 action；已完成时立即执行。仅在主线程调用。
+     * 关键阶段失败也会执行（错误已记录日志，后续页面打开数据库时会再次暴露）。
+     */
+    public void whenCriticalReady(Runnable action) {
+        if (criticalDone) {
+            action.run();
+        } else {
+            criticalWaiters.add(action);
+        }
+    }
+
+    // 各阶段耗时（毫秒）快照，按完成顺序
+    public Map<String, Long> getTimings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    private void runCritical() {
+        SQLiteDatabase db = null;
+        long t0 = SystemClock.elapsedRealtime();
+        try {
+            db = AppDatabase.getInstance(appContext).getDatabase();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        record("db_open", t0);
+        long criticalAt = SystemClock.elapsedRealtime() - startedAt;
+        mainHandler.post(() -> {
+            Log.i(TAG, "关键阶段完成: " + criticalAt + "ms");
+            criticalDone = true;
+            List<Runnable> waiters = new ArrayList<>(criticalWaiters);
+            criticalWaiters.clear();
+            for (Runnable r : waiters) r.run();
+        });
+        if (db == null) return;
+
+        final SQLiteDatabase database = db;
+        final ProductDAO productDAO = AppDatabase.getInstance(appContext).getProductDAO();
+        warm("catalog", () -> {
+            ProductSummaryPage first = productDAO.getProductSummaryPageAfter(null, null, false, null, FIRST_PAGE_SIZE);
+            productDAO.getAllProductSummaries();
+            productDAO.getLowStockSummaries();
+            // 首页缩略图依赖首页数据，在本线程继续
+            warm("thumbnails", () -> prefetchThumbnails(first.getItems()));
+        });
+        warm("barcode_index", () -> BarcodeIndex.of(database).loadOnce());
+        warm("pinyin_index", () -> PinyinIndex.of(database).loadOnce());
+        warm("user_directory", () -> UserDirectory.of(database).preload());
+
+        // 定时快照（已安排时不重复安排）
+        try { BackupJobService.schedule(appContext); } catch (Exception e) { e.printStackTrace(); }
+    }
+
+    // 只下载原图到 Glide 磁盘缓存：列表项按 ImageView 尺寸解码，内存缓存的键与此处不同
+    private void prefetchThumbnails(List<ProductSummary> items) {
+        List<Future<File>> pending = new ArrayList<>();
+        for (ProductSummary s : items) {
+            String url = s.getThumbUrl();
+            if (url == null || url.isEmpty()) continue;
+            try {
+                pending.add(Glide.with(appContext).downloadOnly().load(url).submit());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        for (Future<File> f : pending) {
+            try {
+                f.get(THUMB_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (Exception ignored) {
+                // 网络不可用或超时：列表页显示时再加载
+                f.cancel(true);
+            }
+        }
+    }
+
+    private void warm(String stage, Runnable work) {
+        pendingWarmups.incrementAndGet();
+        pool.execute(() -> {
+            long t0 = SystemClock.elapsedRealtime();
+            try {
+                work.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            record(stage, t0);
+            if (pendingWarmups.decrementAndGet() == 0) {
+                Log.i(TAG, "预热完成: " + (SystemClock.elapsedRealtime() - startedAt) + "ms " + getTimings());
+            }
+        });
+    }
+
+    private void record(String stage, long t0) {
+        long ms = SystemClock.elapsedRealtime() - t0;
+        synchronized (timings) {
+            timings.put(stage, ms);
+        }
+        Log.i(TAG, stage + ": " + ms + "ms");
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.android_development.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BarcodeIndexTest {
+
+    private static final long NO_KEY = -1L;
+
+    @Test
+    public void numericBarcodesGetDistinctKeys() {
+        long ean = BarcodeIndex.numericKey("6901234567892");
+        assertNotEquals(NO_KEY, ean);
+        assertEquals(ean, BarcodeIndex.numericKey("6901234567892"));
+        assertNotEquals(ean, BarcodeIndex.numericKey("6901234567893"));
+    }
+
+    // 前导零不同的条码数值相同，长度编码在键中，不能冲突
+    @Test
+    public void leadingZerosAreSignificant() {
+        assertNotEquals(BarcodeIndex.numericKey("123"), BarcodeIndex.numericKey("0123"));
+        assertNotEquals(BarcodeIndex.numericKey("0"), BarcodeIndex.numericKey("00"));
+    }
+
+    @Test
+    public void nonNumericOrTooLongFallsBackToTextKey() {
+        assertEquals(NO_KEY, BarcodeIndex.numericKey(""));
+        assertEquals(NO_KEY, BarcodeIndex.numericKey("12A4"));
+        assertEquals(NO_KEY, BarcodeIndex.numericKey(" 123"));
+        assertEquals(NO_KEY, BarcodeIndex.numericKey("123456789012345678"));
+        assertNotEquals(NO_KEY, BarcodeIndex.numericKey("99999999999999999"));
+    }
+}
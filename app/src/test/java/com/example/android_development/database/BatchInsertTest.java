@@ -0,0 +1,28 @@
+package com.example.android_development.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BatchInsertTest {
+
+    @Test
+    public void buildsMultiRowInsert() {
+        String sql = BatchInsert.buildSql("t", new String[]{"a", "b", "c"}, 2);
+        assertEquals("INSERT INTO t (a,b,c) VALUES (?,?,?),(?,?,?)", sql);
+    }
+
+    @Test
+    public void singleRowSingleColumn() {
+        assertEquals("INSERT INTO t (a) VALUES (?)", BatchInsert.buildSql("t", new String[]{"a"}, 1));
+    }
+
+    @Test
+    public void placeholderCountMatchesRowsTimesColumns() {
+        String sql = BatchInsert.buildSql("temp.x", new String[]{"a", "b", "c", "d"}, 249);
+        int n = 0;
+        for (char ch : sql.toCharArray()) if (ch == '?') n++;
+        assertEquals(249 * 4, n);
+        assertTrue(sql.startsWith("INSERT INTO temp.x (a,b,c,d) VALUES "));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.android_development.database;
+
+import com.example.android_development.model.SaleLine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CheckoutEngineTest {
+
+    private static SaleLine line(String productId, int qty, double price) {
+        SaleLine l = new SaleLine();
+        l.setProductId(productId);
+        l.setProductName("name-" + productId);
+        l.setQty(qty);
+        l.setPrice(price);
+        return l;
+    }
+
+    @Test
+    public void mergesSameProductAndPriceKeepingFirstOrder() {
+        List<SaleLine> lines = new ArrayList<>();
+        lines.add(line("b", 1, 2.0));
+        lines.add(line("a", 2, 1.5));
+        lines.add(line("b", 3, 2.0));
+        List<SaleLine> merged = CheckoutEngine.mergeLines(lines);
+        assertEquals(2, merged.size());
+        assertEquals("b", merged.get(0).getProductId());
+        assertEquals(4, merged.get(0).getQty());
+        assertEquals("a", merged.get(1).getProductId());
+        assertEquals(2, merged.get(1).getQty());
+        assertEquals("name-b", merged.get(0).getProductName());
+    }
+
+    @Test
+    public void differentPricesStaySeparate() {
+        List<SaleLine> lines = new ArrayList<>();
+        lines.add(line("a", 1, 1.0));
+        lines.add(line("a", 1, 0.8));
+        List<SaleLine> merged = CheckoutEngine.mergeLines(lines);
+        assertEquals(2, merged.size());
+        assertEquals(1.0, merged.get(0).getPrice(), 0.0);
+        assertEquals(0.8, merged.get(1).getPrice(), 0.0);
+    }
+
+    @Test
+    public void doesNotMutateInput() {
+        List<SaleLine> lines = new ArrayList<>();
+        SaleLine first = line("a", 1, 1.0);
+        lines.add(first);
+        lines.add(line("a", 2, 1.0));
+        CheckoutEngine.mergeLines(lines);
+        assertEquals(1, first.getQty());
+    }
+
+    @Test
+    public void placeholders() {
+        assertEquals("", CheckoutEngine.placeholders(0));
+        assertEquals("?", CheckoutEngine.placeholders(1));
+        assertEquals("?,?,?", CheckoutEngine.placeholders(3));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.android_development.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putGetOverwrite() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(LongIntHashMap.MISSING, map.get(1L));
+        map.put(1L, 10);
+        map.put(2L, 20);
+        map.put(1L, 11);
+        assertEquals(11, map.get(1L));
+        assertEquals(20, map.get(2L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void removeMissingKeyIsNoOp() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(5L, 1);
+        map.remove(6L);
+        assertEquals(1, map.size());
+        assertEquals(1, map.get(5L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservedKeyRejected() {
+        new LongIntHashMap(4).put(Long.MIN_VALUE, 1);
+    }
+
+    // 回移删除：大量随机增删后，与 HashMap 的结果逐键一致（小容量下探测链会绕过数组末尾）
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random rnd = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(8);
+        Map<Long, Integer> ref = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) keys.add(rnd.nextLong() >>> 40);
+        for (int op = 0; op < 20000; op++) {
+            long k = keys.get(rnd.nextInt(keys.size()));
+            if (rnd.nextInt(3) == 0) {
+                map.remove(k);
+                ref.remove(k);
+            } else {
+                int v = rnd.nextInt(1000);
+                map.put(k, v);
+                ref.put(k, v);
+            }
+            if (op % 97 == 0) {
+                for (long key : keys) {
+                    Integer expected = ref.get(key);
+                    assertEquals(expected == null ? LongIntHashMap.MISSING : expected.intValue(), map.get(key));
+                }
+                assertEquals(ref.size(), map.size());
+            }
+        }
+    }
+
+    @Test
+    public void removeAllThenClear() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (long k = 1; k <= 100; k++) map.put(k, (int) k);
+        for (long k = 1; k <= 100; k += 2) map.remove(k);
+        assertEquals(50, map.size());
+        for (long k = 1; k <= 100; k++) {
+            assertEquals(k % 2 == 0 ? (int) k : LongIntHashMap.MISSING, map.get(k));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.MISSING, map.get(2L));
+    }
+}
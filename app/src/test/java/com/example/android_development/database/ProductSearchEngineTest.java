@@ -0,0 +1,43 @@
+package com.example.android_development.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProductSearchEngineTest {
+
+    @Test
+    public void gramsSplitWordsIntoLowercaseBigrams() {
+        assertEquals("可口 口可 可乐 乐3 33 30 0m ml", ProductSearchEngine.grams("可口可乐330ML"));
+        assertEquals("co oc ca w co ol la", ProductSearchEngine.grams("Coca-Cola"));
+        assertEquals("a w bc", ProductSearchEngine.grams(" a, bc "));
+        assertEquals("", ProductSearchEngine.grams("--"));
+        assertNull(ProductSearchEngine.grams(null));
+    }
+
+    @Test
+    public void wordsBecomeQuotedPhrases() {
+        List<String> like = new ArrayList<>();
+        assertEquals("\"可乐\" \"33 30 0m ml\"", ProductSearchEngine.matchExpression(new String[]{"可乐", "330ml"}, like));
+        assertTrue(like.isEmpty());
+    }
+
+    // 含标点或单字符的关键字只作为必要条件，交给 LIKE 精确过滤
+    @Test
+    public void partialWordsAddLikeFilters() {
+        List<String> like = new ArrayList<>();
+        assertEquals("\"co oc ca\" \"co ol la\"", ProductSearchEngine.matchExpression(new String[]{"coca-cola", "x"}, like));
+        assertEquals(2, like.size());
+        assertEquals("coca-cola", like.get(0));
+        assertEquals("x", like.get(1));
+    }
+
+    @Test
+    public void onlyShortTokensHaveNoExpression() {
+        List<String> like = new ArrayList<>();
+        assertNull(ProductSearchEngine.matchExpression(new String[]{"乐", "\""}, like));
+    }
+}
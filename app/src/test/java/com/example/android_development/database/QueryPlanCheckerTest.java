@@ -0,0 +1,70 @@
+package com.example.android_development.database;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用 DbContract 的表结构建一个内存库，对 QueryPlanChecker 中登记的每条语句执行 EXPLAIN QUERY PLAN，
+ * 任何一条退化为全表 SCAN 时构建失败。sqlite-jdbc 版本与 minSdk 设备自带的 SQLite 一致。
+ */
+public class QueryPlanCheckerTest {
+
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement st = conn.createStatement()) {
+            for (Field f : DbContract.class.getFields()) {
+                if (!Modifier.isStatic(f.getModifiers()) || f.getType() != String.class) continue;
+                if (f.getName().startsWith("SQL_CREATE_TABLE_")) st.execute((String) f.get(null));
+            }
+            st.execute(DbContract.SQL_CREATE_INDEX_PRODUCTS_BARCODE);
+            for (String sql : DbContract.SQL_CREATE_ACCESS_PATH_INDEXES) st.execute(sql);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (conn != null) conn.close();
+    }
+
+    @Test
+    public void registeredQueriesUseAnIndex() throws Exception {
+        assertFalse(QueryPlanChecker.QUERIES.isEmpty());
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, String> e : QueryPlanChecker.QUERIES.entrySet()) {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + e.getValue())) {
+                while (rs.next()) {
+                    String detail = rs.getString("detail");
+                    if (QueryPlanChecker.isFullScan(detail)) violations.add(e.getKey() + ": " + detail);
+                }
+            }
+        }
+        assertTrue("full table scans:\n" + String.join("\n", violations), violations.isEmpty());
+    }
+
+    @Test
+    public void isFullScanClassifiesPlanDetails() {
+        assertTrue(QueryPlanChecker.isFullScan("SCAN TABLE products"));
+        assertTrue(QueryPlanChecker.isFullScan("SCAN products"));
+        assertFalse(QueryPlanChecker.isFullScan("SCAN TABLE products USING INDEX idx_products_name_id"));
+        assertFalse(QueryPlanChecker.isFullScan("SEARCH TABLE products USING INDEX idx_products_barcode (barcode=?)"));
+        assertFalse(QueryPlanChecker.isFullScan("SCAN SUBQUERY 1"));
+        assertFalse(QueryPlanChecker.isFullScan(null));
+    }
+}
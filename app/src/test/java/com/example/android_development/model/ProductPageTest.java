@@ -0,0 +1,41 @@
+package com.example.android_development.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProductPageTest {
+
+    @Test
+    public void tokenRoundTrip() {
+        String token = ProductPage.encodeToken("可口可乐 330ml", "p-1");
+        assertArrayEquals(new String[]{"可口可乐 330ml", "p-1"}, ProductPage.decodeToken(token));
+    }
+
+    @Test
+    public void nullPartsEncodeAsEmpty() {
+        assertArrayEquals(new String[]{"", ""}, ProductPage.decodeToken(ProductPage.encodeToken(null, null)));
+    }
+
+    @Test
+    public void invalidTokenMeansFirstPage() {
+        assertNull(ProductPage.decodeToken(null));
+        assertNull(ProductPage.decodeToken("no-separator"));
+    }
+
+    @Test
+    public void stockHistoryTokenRejectsNonNumericTimestamp() {
+        String token = StockHistoryPage.encodeToken(1700000000000L, "tx-1");
+        assertArrayEquals(new String[]{"1700000000000", "tx-1"}, StockHistoryPage.decodeToken(token));
+        assertNull(StockHistoryPage.decodeToken("abc\u0001tx-1"));
+    }
+
+    @Test
+    public void purchaseOrderTokenMustMatchSort() {
+        String token = PurchaseOrderPage.encodeToken(PurchaseOrderFilter.SORT_STATUS, "approved", "123", "po-1");
+        assertArrayEquals(new String[]{"approved", "123", "po-1"},
+                PurchaseOrderPage.decodeToken(token, PurchaseOrderFilter.SORT_STATUS, 3));
+        assertNull(PurchaseOrderPage.decodeToken(token, PurchaseOrderFilter.SORT_DATE, 2));
+        assertNull(PurchaseOrderPage.decodeToken(token, PurchaseOrderFilter.SORT_STATUS, 2));
+    }
+}